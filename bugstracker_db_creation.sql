@@ -33,11 +33,15 @@ CREATE TABLE IF NOT EXISTS usuario (
   nombre VARCHAR(100) NOT NULL,
   apellido VARCHAR(100) NOT NULL,
   email VARCHAR(255) NOT NULL,
-  password_hash VARCHAR(255) NOT NULL,   -- hash (ej. Base64 de SHA-256)
-  password_salt  VARCHAR(255) NULL,      -- salt si lo usás (Base64)
+  -- Email normalizado para login/registro: búsqueda puntual por índice y unicidad sin importar mayúsculas
+  email_normalizado VARCHAR(255) COLLATE utf8mb4_bin
+    GENERATED ALWAYS AS (LOWER(TRIM(email))) STORED NOT NULL,
+  password_hash VARCHAR(255) NOT NULL,   -- $algoritmo$parametros$salt$hash (scrypt / pbkdf2-sha256)
+  password_salt  VARCHAR(255) NULL,      -- sólo hashes SHA-256 anteriores; se limpia al rehashear
   perfil_id BIGINT UNSIGNED NOT NULL,
   creado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
+  UNIQUE KEY uq_usuario_email_normalizado (email_normalizado),
   KEY idx_usuario_perfil (perfil_id),
   CONSTRAINT fk_usuario_perfil
     FOREIGN KEY (perfil_id) REFERENCES perfil_usuario(id)
@@ -52,6 +56,7 @@ CREATE TABLE IF NOT EXISTS proyecto (
   nombre VARCHAR(200) NOT NULL,
   descripcion TEXT NULL,
   creado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  version BIGINT UNSIGNED NOT NULL DEFAULT 0,   -- control optimista (@Version)
   PRIMARY KEY (id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
@@ -84,17 +89,25 @@ CREATE TABLE IF NOT EXISTS incidencia (
   descripcion TEXT NOT NULL,
   estimacion_horas DECIMAL(10,2) NULL,
   current_version_id BIGINT UNSIGNED NULL,
+  estado_id BIGINT UNSIGNED NOT NULL,        -- copia del estado de la versión actual
+  estado_cambiado_en TIMESTAMP NULL,
   creado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  version BIGINT UNSIGNED NOT NULL DEFAULT 0,   -- control optimista (@Version)
   PRIMARY KEY (id),
-  KEY idx_incidencia_proyecto (proyecto_id),
+  KEY idx_incidencia_proyecto_estado (proyecto_id, estado_id),
   KEY idx_incidencia_responsable (responsable_id),
   KEY idx_incidencia_current_version (current_version_id),
+  KEY idx_incidencia_estado (estado_id),
+  KEY idx_incidencia_creado_en (creado_en),
   CONSTRAINT fk_incidencia_proyecto
     FOREIGN KEY (proyecto_id) REFERENCES proyecto(id)
     ON UPDATE RESTRICT ON DELETE RESTRICT,
   CONSTRAINT fk_incidencia_responsable
     FOREIGN KEY (responsable_id) REFERENCES usuario(id)
-    ON UPDATE RESTRICT ON DELETE SET NULL
+    ON UPDATE RESTRICT ON DELETE SET NULL,
+  CONSTRAINT fk_incidencia_estado
+    FOREIGN KEY (estado_id) REFERENCES incidencia_estado(id)
+    ON UPDATE RESTRICT ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- =========================================================
@@ -103,13 +116,19 @@ CREATE TABLE IF NOT EXISTS incidencia (
 CREATE TABLE IF NOT EXISTS incidencia_version (
   id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
   incidencia_id BIGINT UNSIGNED NOT NULL,
+  numero INT UNSIGNED NULL,                  -- 1 = creación; cada N versiones detalles lleva un snapshot
   created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   created_by BIGINT UNSIGNED NOT NULL,
   estado_id BIGINT UNSIGNED NOT NULL,
   detalles JSON NULL,
+  -- Extraídas de detalles para consultar el historial por índice (ver DetalleVersion)
+  tipo VARCHAR(32) GENERATED ALWAYS AS (detalles->>'$.tipo') VIRTUAL,
+  estado_nuevo VARCHAR(64) GENERATED ALWAYS AS (detalles->>'$.estado_nuevo') VIRTUAL,
   PRIMARY KEY (id),
-  KEY idx_incver_incidencia (incidencia_id),
+  KEY idx_incver_incidencia_fecha (incidencia_id, created_at),
   KEY idx_incver_created_at (created_at),
+  KEY idx_incver_tipo (tipo, created_at),
+  KEY idx_incver_estado_nuevo (estado_nuevo, created_at),
   CONSTRAINT fk_incver_incidencia
     FOREIGN KEY (incidencia_id) REFERENCES incidencia(id)
     ON UPDATE RESTRICT ON DELETE RESTRICT,
@@ -130,6 +149,7 @@ CREATE TABLE IF NOT EXISTS comentario (
   created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   created_by BIGINT UNSIGNED NOT NULL,
   texto TEXT NOT NULL,
+  version BIGINT UNSIGNED NOT NULL DEFAULT 0,   -- control optimista (@Version)
   PRIMARY KEY (id),
   KEY idx_comentario_incidencia (incidencia_id),
   KEY idx_comentario_created_at (created_at),
@@ -141,8 +161,136 @@ CREATE TABLE IF NOT EXISTS comentario (
     ON UPDATE RESTRICT ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- =========================================================
+-- Generador de ids por bloques (incidencia, incidencia_version, comentario)
+-- Hibernate reserva rangos de 50 ids por vez, lo que permite insertar en batch
+-- =========================================================
+CREATE TABLE IF NOT EXISTS id_generador (
+  entidad VARCHAR(64) NOT NULL,
+  proximo_id BIGINT UNSIGNED NOT NULL,
+  PRIMARY KEY (entidad)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Arranca por encima de los ids existentes (con margen de un bloque)
+INSERT INTO id_generador (entidad, proximo_id)
+  SELECT 'incidencia', COALESCE(MAX(id), 0) + 100 FROM incidencia
+  UNION ALL SELECT 'incidencia_version', COALESCE(MAX(id), 0) + 100 FROM incidencia_version
+  UNION ALL SELECT 'comentario', COALESCE(MAX(id), 0) + 100 FROM comentario
+ON DUPLICATE KEY UPDATE proximo_id = proximo_id;
+
+-- =========================================================
+-- Métricas por proyecto y estado (las mantiene la aplicación;
+-- se recalculan con: java ... Main --rebuild-metricas)
+-- =========================================================
+CREATE TABLE IF NOT EXISTS proyecto_metricas (
+  proyecto_id BIGINT UNSIGNED NOT NULL,
+  estado_id BIGINT UNSIGNED NOT NULL,
+  cantidad INT NOT NULL DEFAULT 0,
+  horas_estimadas DECIMAL(14,2) NOT NULL DEFAULT 0,
+  actualizado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (proyecto_id, estado_id),
+  KEY idx_proyecto_metricas_estado (estado_id),
+  CONSTRAINT fk_proyecto_metricas_proyecto
+    FOREIGN KEY (proyecto_id) REFERENCES proyecto(id)
+    ON UPDATE RESTRICT ON DELETE CASCADE,
+  CONSTRAINT fk_proyecto_metricas_estado
+    FOREIGN KEY (estado_id) REFERENCES incidencia_estado(id)
+    ON UPDATE RESTRICT ON DELETE RESTRICT
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- =========================================================
+-- Outbox de eventos de dominio: se escribe en la misma transacción que el cambio
+-- y un despachador lo publica en el bus de la aplicación (se purga a los 7 días)
+-- =========================================================
+CREATE TABLE IF NOT EXISTS outbox_evento (
+  id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+  tipo VARCHAR(64) NOT NULL,
+  agregado_id BIGINT UNSIGNED NULL,
+  payload JSON NOT NULL,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  KEY idx_outbox_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- =========================================================
 ALTER TABLE incidencia
   ADD CONSTRAINT fk_incidencia_current_version
   FOREIGN KEY (current_version_id) REFERENCES incidencia_version(id)
-  ON UPDATE RESTRICT ON DELETE SET NULL;
\ No newline at end of file
+  ON UPDATE RESTRICT ON DELETE SET NULL;
+
+-- =========================================================
+-- Migración: estado actual en incidencia (bases creadas antes de este cambio)
+-- =========================================================
+-- ALTER TABLE incidencia
+--   ADD COLUMN estado_id BIGINT UNSIGNED NULL AFTER current_version_id,
+--   ADD COLUMN estado_cambiado_en TIMESTAMP NULL AFTER estado_id;
+-- UPDATE incidencia i
+--   JOIN incidencia_version v ON v.id = i.current_version_id
+--   SET i.estado_id = v.estado_id, i.estado_cambiado_en = v.created_at;
+-- UPDATE incidencia SET estado_id = (SELECT id FROM incidencia_estado WHERE nombre = 'NUEVA') WHERE estado_id IS NULL;
+-- ALTER TABLE incidencia
+--   MODIFY estado_id BIGINT UNSIGNED NOT NULL,
+--   ADD KEY idx_incidencia_proyecto_estado (proyecto_id, estado_id),
+--   ADD KEY idx_incidencia_estado (estado_id),
+--   ADD CONSTRAINT fk_incidencia_estado
+--     FOREIGN KEY (estado_id) REFERENCES incidencia_estado(id)
+--     ON UPDATE RESTRICT ON DELETE RESTRICT,
+--   DROP KEY idx_incidencia_proyecto;
+-- Cargar los contadores de proyecto_metricas (equivale a --rebuild-metricas)
+-- INSERT INTO proyecto_metricas (proyecto_id, estado_id, cantidad, horas_estimadas)
+--   SELECT proyecto_id, estado_id, COUNT(*), COALESCE(SUM(estimacion_horas), 0)
+--   FROM incidencia GROUP BY proyecto_id, estado_id;
+
+-- =========================================================
+-- Migración: email normalizado con índice único
+-- =========================================================
+-- Antes de crear el índice, resolver duplicados si los hubiera:
+-- SELECT LOWER(TRIM(email)) AS email, COUNT(*) FROM usuario GROUP BY 1 HAVING COUNT(*) > 1;
+-- ALTER TABLE usuario
+--   ADD COLUMN email_normalizado VARCHAR(255) COLLATE utf8mb4_bin
+--     GENERATED ALWAYS AS (LOWER(TRIM(email))) STORED NOT NULL AFTER email,
+--   ADD UNIQUE KEY uq_usuario_email_normalizado (email_normalizado);
+
+-- =========================================================
+-- Migración: columnas generadas sobre incidencia_version.detalles
+-- =========================================================
+-- Los detalles existentes ya usan las claves "tipo" y "estado_nuevo", no hace falta migrar datos.
+-- ALTER TABLE incidencia_version
+--   ADD COLUMN tipo VARCHAR(32) GENERATED ALWAYS AS (detalles->>'$.tipo') VIRTUAL AFTER detalles,
+--   ADD COLUMN estado_nuevo VARCHAR(64) GENERATED ALWAYS AS (detalles->>'$.estado_nuevo') VIRTUAL AFTER tipo,
+--   ADD KEY idx_incver_tipo (tipo, created_at),
+--   ADD KEY idx_incver_estado_nuevo (estado_nuevo, created_at);
+
+-- =========================================================
+-- Migración: número de versión y snapshots para reconstruir el historial
+-- =========================================================
+-- ALTER TABLE incidencia_version
+--   ADD COLUMN numero INT UNSIGNED NULL AFTER incidencia_id,
+--   ADD KEY idx_incver_incidencia_fecha (incidencia_id, created_at),
+--   DROP KEY idx_incver_incidencia;
+-- UPDATE incidencia_version v
+--   JOIN (SELECT id, ROW_NUMBER() OVER (PARTITION BY incidencia_id ORDER BY created_at, id) AS n
+--         FROM incidencia_version) t ON t.id = v.id
+--   SET v.numero = t.n;
+-- Las ediciones anteriores no quedaron registradas: la versión inicial toma como snapshot los valores
+-- actuales, que son los únicos conocidos
+-- UPDATE incidencia_version v
+--   JOIN incidencia i ON i.id = v.incidencia_id
+--   JOIN incidencia_estado e ON e.id = v.estado_id
+--   LEFT JOIN usuario r ON r.id = i.responsable_id
+--   SET v.detalles = JSON_SET(COALESCE(v.detalles, JSON_OBJECT('tipo', 'creacion', 'estado', e.nombre)),
+--     '$.snapshot', JSON_OBJECT('estado', e.nombre, 'responsable', r.email,
+--                               'estimacion_horas', i.estimacion_horas, 'descripcion', i.descripcion))
+--   WHERE v.numero = 1;
+
+-- =========================================================
+-- Migración: control optimista de concurrencia
+-- =========================================================
+-- ALTER TABLE proyecto ADD COLUMN version BIGINT UNSIGNED NOT NULL DEFAULT 0;
+-- ALTER TABLE incidencia ADD COLUMN version BIGINT UNSIGNED NOT NULL DEFAULT 0;
+-- ALTER TABLE comentario ADD COLUMN version BIGINT UNSIGNED NOT NULL DEFAULT 0;
+
+-- =========================================================
+-- Migración: repaso por fecha de alta al sincronizar el índice de búsqueda
+-- =========================================================
+-- ALTER TABLE incidencia ADD KEY idx_incidencia_creado_en (creado_en);
@@ -8,16 +8,30 @@ import ar.edu.up.bugtracker.controller.UserRoleController; // usás este nombre:
 import ar.edu.up.bugtracker.dao.ComentarioDao;
 import ar.edu.up.bugtracker.dao.IncidenciaDao;
 import ar.edu.up.bugtracker.dao.IncidenciaVersionDao;
+import ar.edu.up.bugtracker.dao.OutboxDao;
 import ar.edu.up.bugtracker.dao.PerfilUsuarioDao;
 import ar.edu.up.bugtracker.dao.ProyectoDao;
+import ar.edu.up.bugtracker.dao.ProyectoMetricasDao;
 import ar.edu.up.bugtracker.dao.UserDao;
+import ar.edu.up.bugtracker.persistence.CacheMetrics;
+import ar.edu.up.bugtracker.persistence.PooledConnectionProvider;
+import ar.edu.up.bugtracker.persistence.TransactionMetricsSink;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchIndex;
 import ar.edu.up.bugtracker.service.ComentarioService;
+import ar.edu.up.bugtracker.service.IncidenciaImportService;
 import ar.edu.up.bugtracker.service.IncidenciaService;
 import ar.edu.up.bugtracker.service.PerfilUsuarioService;
+import ar.edu.up.bugtracker.service.ProyectoMetricasService;
 import ar.edu.up.bugtracker.service.ProyectoService;
+import ar.edu.up.bugtracker.service.SearchIndexador;
+import ar.edu.up.bugtracker.service.SearchService;
 import ar.edu.up.bugtracker.service.UserService;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+import ar.edu.up.bugtracker.service.eventos.Outbox;
+import ar.edu.up.bugtracker.service.password.PasswordBenchmark;
+import ar.edu.up.bugtracker.service.password.PasswordHashing;
 import ar.edu.up.bugtracker.ui.PanelManager;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 
@@ -25,11 +39,15 @@ import javax.swing.*;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
 public class Main {
 
+    private static final System.Logger LOG = System.getLogger(Main.class.getName());
+
     public static void main(String[] args) throws IOException {
         // Zona horaria coherente con la DB
         System.setProperty("user.timezone", "UTC");
@@ -45,6 +63,12 @@ public class Main {
             p.load(in);
         }
 
+        // Medición de costo de hash de contraseñas: no necesita base de datos
+        if (Arrays.asList(args).contains("--benchmark-password")) {
+            PasswordBenchmark.run(p, System.out);
+            return;
+        }
+
         String url  = p.getProperty("db.url");
         String user = p.getProperty("db.user");
         String pass = p.getProperty("db.pass");
@@ -52,48 +76,126 @@ public class Main {
             throw new IllegalStateException("Faltan db.url/db.user/db.pass en config/local.properties");
         }
 
-        Map<String,Object> props = Map.of(
-                "jakarta.persistence.jdbc.url",  url,
-                "jakarta.persistence.jdbc.user", user,
-                "jakarta.persistence.jdbc.password", pass
-        );
+        Map<String,Object> props = new HashMap<>();
+        props.put("jakarta.persistence.jdbc.url",  url);
+        props.put("jakarta.persistence.jdbc.user", user);
+        props.put("jakarta.persistence.jdbc.password", pass);
+
+        // Pool de conexiones: las claves db.pool.* son opcionales, el pool tiene valores por defecto
+        putIfPresent(props, p, "db.pool.minSize", PooledConnectionProvider.MIN_SIZE);
+        putIfPresent(props, p, "db.pool.maxSize", PooledConnectionProvider.MAX_SIZE);
+        putIfPresent(props, p, "db.pool.connectionTimeoutMs", PooledConnectionProvider.CONNECTION_TIMEOUT_MS);
+        putIfPresent(props, p, "db.pool.idleTimeoutMs", PooledConnectionProvider.IDLE_TIMEOUT_MS);
+        putIfPresent(props, p, "db.pool.evictionIntervalMs", PooledConnectionProvider.EVICTION_INTERVAL_MS);
+        putIfPresent(props, p, "db.pool.validationTimeoutS", PooledConnectionProvider.VALIDATION_TIMEOUT_S);
+        putIfPresent(props, p, "db.pool.validateAfterIdleMs", PooledConnectionProvider.VALIDATE_AFTER_IDLE_MS);
+        putIfPresent(props, p, "db.pool.slowWaitMs", PooledConnectionProvider.SLOW_WAIT_MS);
 
         // JPA/Hibernate
         EntityManagerFactory emf = Persistence.createEntityManagerFactory("bugtrackerPU", props);
-        EntityManager em = emf.createEntityManager();
+        // Cada operación de servicio abre y cierra su propio EntityManager; las transacciones que superan
+        // db.tx.slowMs (o que se reintentaron por bloqueos) quedan en el log con sus sentencias
+        long txSlowMs = Long.parseLong(p.getProperty("db.tx.slowMs", "500").trim());
+        UnitOfWork uow = new UnitOfWork(emf, TransactionMetricsSink.logging(txSlowMs));
 
         // Inicialización clases
-        PerfilUsuarioDao perfilDao = new PerfilUsuarioDao(em);
-        UserDao usuarioDao = new UserDao(em);
-        UserService usuarioService = new UserService(usuarioDao, perfilDao, em);
+        PerfilUsuarioDao perfilDao = new PerfilUsuarioDao(uow);
+        UserDao usuarioDao = new UserDao(uow);
+        PasswordHashing passwordHashing = PasswordHashing.fromProperties(p);
+        UserService usuarioService = new UserService(usuarioDao, perfilDao, passwordHashing, uow);
         UserController usuarioController = new UserController(usuarioService);
-        PerfilUsuarioService perfilService = new PerfilUsuarioService(perfilDao);
+        PerfilUsuarioService perfilService = new PerfilUsuarioService(perfilDao, uow);
         UserRoleController roleController = new UserRoleController(perfilService);
 
-        ProyectoDao proyectoDao = new ProyectoDao(em);
-        IncidenciaDao incidenciaDao = new IncidenciaDao(em);
-        ComentarioDao comentarioDao = new ComentarioDao(em);
-        IncidenciaVersionDao incidenciaVersionDao = new IncidenciaVersionDao(em);
-        ProyectoService proyectoService = new ProyectoService(proyectoDao, incidenciaDao, comentarioDao, incidenciaVersionDao, em);
-        ProyectoController proyectoController = new ProyectoController(proyectoService);
+        // Eventos de dominio: se guardan en outbox_evento con cada cambio y se reparten en el proceso
+        BusEventos bus = new BusEventos();
+        Outbox outbox = new Outbox(new OutboxDao(uow), bus, uow);
+
+        ProyectoDao proyectoDao = new ProyectoDao(uow);
+        IncidenciaDao incidenciaDao = new IncidenciaDao(uow);
+        ComentarioDao comentarioDao = new ComentarioDao(uow);
+        IncidenciaVersionDao incidenciaVersionDao = new IncidenciaVersionDao(uow);
+        // Índice de búsqueda local (segmentos en disco); search.dir es opcional
+        SearchIndex searchIndex = SearchIndex.open(Paths.get(p.getProperty("search.dir", "data/search").trim()));
+        ProyectoService proyectoService = new ProyectoService(proyectoDao, incidenciaDao, comentarioDao, incidenciaVersionDao,
+                                                              searchIndex, outbox, uow);
+        ProyectoMetricasDao metricasDao = new ProyectoMetricasDao(uow);
+        ProyectoMetricasService metricasService = new ProyectoMetricasService(metricasDao, incidenciaDao, uow);
+        ProyectoController proyectoController = new ProyectoController(proyectoService, metricasService);
 
         IncidenciaService incidenciaService = new IncidenciaService(incidenciaDao, incidenciaVersionDao, 
-                                                                    usuarioDao, proyectoDao, comentarioDao, em);
-        IncidenciaController incidenciaController = new IncidenciaController(incidenciaService);
-        ComentarioService comentarioService = new ComentarioService(comentarioDao, usuarioDao, incidenciaDao, em);
+                                                                    usuarioDao, proyectoDao, comentarioDao,
+                                                                    metricasDao, searchIndex, outbox, uow);
+        SearchService searchService = new SearchService(searchIndex, incidenciaDao, comentarioDao, uow);
+        // Altas, ediciones y borrados hechos desde otras instancias llegan al índice por el outbox
+        new SearchIndexador(searchIndex, incidenciaDao, comentarioDao, outbox, uow).suscribir(bus);
+        IncidenciaImportService importService = new IncidenciaImportService(incidenciaDao, usuarioDao, proyectoDao,
+                                                                            metricasDao, searchIndex, outbox, uow);
+        IncidenciaController incidenciaController = new IncidenciaController(incidenciaService, searchService,
+                                                                             importService);
+        ComentarioService comentarioService = new ComentarioService(comentarioDao, usuarioDao, incidenciaDao,
+                                                                    searchIndex, outbox, uow);
         ComentarioController comentarioController = new ComentarioController(comentarioService);
 
+        // Comando de mantenimiento: recalcula proyecto_metricas y termina sin abrir la UI
+        if (Arrays.asList(args).contains("--rebuild-metricas")) {
+            try {
+                metricasService.rebuildAll();
+                System.out.println("Métricas de proyectos recalculadas");
+            } finally {
+                searchIndex.close();
+                emf.close();
+            }
+            return;
+        }
+
+        // Comando de mantenimiento: vuelve a armar el índice de búsqueda completo desde la base
+        if (Arrays.asList(args).contains("--rebuild-indice")) {
+            try {
+                searchService.reconstruirIndice();
+                System.out.println("Índice de búsqueda reconstruido: " + searchIndex.size() + " documentos");
+            } finally {
+                searchIndex.close();
+                emf.close();
+            }
+            return;
+        }
+
+        // Sólo se traen las filas creadas desde el último checkpoint, en segundo plano
+        Thread indexador = new Thread(() -> {
+            try {
+                searchService.sincronizar();
+            } catch (RuntimeException ex) {
+                LOG.log(System.Logger.Level.WARNING, "No se pudo sincronizar el índice de búsqueda", ex);
+            }
+        }, "search-index-loader");
+        indexador.setDaemon(true);
+        indexador.start();
+
+        outbox.iniciar();
+
         // Levantar UI
         SwingUtilities.invokeLater(() -> {
             PanelManager app = new PanelManager(usuarioController, roleController, proyectoController,
-                    incidenciaController, comentarioController);
+                    incidenciaController, comentarioController, bus);
             app.setVisible(true);
         });
 
         // Cierre
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            try { if (em.isOpen()) em.close(); } catch (Exception ignored) {}
+            outbox.detener();
+            try { searchIndex.close(); } catch (Exception ignored) {}
+            passwordHashing.shutdown();
+            // Aciertos de la caché de catálogos en la sesión; el pool deja su resumen al cerrar el emf
+            try { CacheMetrics.from(emf).forEach(m -> LOG.log(System.Logger.Level.INFO, m.toString())); } catch (Exception ignored) {}
             try { if (emf.isOpen()) emf.close(); } catch (Exception ignored) {}
         }));
     }
+
+    private static void putIfPresent(Map<String,Object> props, Properties p, String key, String setting) {
+        String value = p.getProperty(key);
+        if (value != null && !value.trim().isEmpty()) {
+            props.put(setting, value.trim());
+        }
+    }
 }
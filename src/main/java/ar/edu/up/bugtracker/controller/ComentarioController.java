@@ -1,5 +1,7 @@
 package ar.edu.up.bugtracker.controller;
 
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.exceptions.ValidationException;
 import ar.edu.up.bugtracker.models.Comentario;
 import ar.edu.up.bugtracker.service.ComentarioService;
@@ -35,6 +37,14 @@ public class ComentarioController {
         return service.findByIncidencia(incidenciaId);
     }
 
+    public Slice<Comentario, Long> findSliceByIncidencia(Long incidenciaId, SliceRequest<Long> request) {
+        if (incidenciaId == null) {
+            throw new ValidationException("ID de incidencia requerido");
+        }
+        validateSlice(request);
+        return service.findSliceByIncidencia(incidenciaId, request);
+    }
+
     public Comentario getById(Long id) {
         if (id == null) {
             throw new ValidationException("ID requerido");
@@ -62,5 +72,13 @@ public class ComentarioController {
     private boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
-}
 
+    private void validateSlice(SliceRequest<Long> request) {
+        if (request == null) {
+            throw new ValidationException("Pedido de página requerido");
+        }
+        if (request.getLimit() < 1 || request.getLimit() > SliceRequest.MAX_LIMIT) {
+            throw new ValidationException("El tamaño de página debe estar entre 1 y " + SliceRequest.MAX_LIMIT);
+        }
+    }
+}
@@ -1,20 +1,39 @@
 package ar.edu.up.bugtracker.controller;
 
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.exceptions.ValidationException;
 import ar.edu.up.bugtracker.models.Incidencia;
 import ar.edu.up.bugtracker.models.IncidenciaEstado;
 import ar.edu.up.bugtracker.models.IncidenciaVersion;
+import ar.edu.up.bugtracker.service.IncidenciaImportService;
 import ar.edu.up.bugtracker.service.IncidenciaService;
+import ar.edu.up.bugtracker.service.SearchService;
+import ar.edu.up.bugtracker.service.dto.ImportResultadoDto;
+import ar.edu.up.bugtracker.service.dto.IncidenciaHistoricaDto;
+import ar.edu.up.bugtracker.service.dto.IncidenciaResumenDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class IncidenciaController {
 
+    private static final int MAX_RESULTADOS_BUSQUEDA = 200;
+
     private final IncidenciaService service;
+    private final SearchService searchService;
+    private final IncidenciaImportService importService;
 
-    public IncidenciaController(IncidenciaService service) {
+    public IncidenciaController(IncidenciaService service, SearchService searchService,
+                                IncidenciaImportService importService) {
         this.service = service;
+        this.searchService = searchService;
+        this.importService = importService;
     }
 
     public Long create(Incidencia incidencia, UserLoggedInDto currentUser) {
@@ -41,6 +60,61 @@ public class IncidenciaController {
         return service.findByProyecto(proyectoId);
     }
 
+    public List<Incidencia> findByProyectoAndEstado(Long proyectoId, Long estadoId) {
+        if (proyectoId == null) {
+            throw new ValidationException("ID de proyecto requerido");
+        }
+        if (estadoId == null) {
+            throw new ValidationException("ID de estado requerido");
+        }
+        return service.findByProyectoAndEstado(proyectoId, estadoId);
+    }
+
+    public Slice<Incidencia, Long> findSliceByProyecto(Long proyectoId, SliceRequest<Long> request) {
+        return findSliceByProyecto(proyectoId, null, request);
+    }
+
+    /** Página de incidencias del proyecto; estadoId es opcional y filtra por estado actual. */
+    public Slice<Incidencia, Long> findSliceByProyecto(Long proyectoId, Long estadoId, SliceRequest<Long> request) {
+        if (proyectoId == null) {
+            throw new ValidationException("ID de proyecto requerido");
+        }
+        validateSlice(request);
+        return service.findSliceByProyecto(proyectoId, estadoId, request);
+    }
+
+    /** Resúmenes livianos para el listado del proyecto; estadoId es opcional. */
+    public Slice<IncidenciaResumenDto, Long> findResumenSliceByProyecto(Long proyectoId, Long estadoId,
+                                                                     SliceRequest<Long> request) {
+        if (proyectoId == null) {
+            throw new ValidationException("ID de proyecto requerido");
+        }
+        validateSlice(request);
+        return service.findResumenSliceByProyecto(proyectoId, estadoId, request);
+    }
+
+    /** Búsqueda por texto en descripciones y comentarios; proyectoId es opcional. */
+    public List<IncidenciaResumenDto> buscar(String texto, Long proyectoId, int limite) {
+        if (isBlank(texto)) {
+            throw new ValidationException("Ingresá un texto para buscar");
+        }
+        if (limite < 1 || limite > MAX_RESULTADOS_BUSQUEDA) {
+            throw new ValidationException("La cantidad de resultados debe estar entre 1 y " + MAX_RESULTADOS_BUSQUEDA);
+        }
+        return searchService.buscar(texto.trim(), proyectoId, limite);
+    }
+
+    public ImportResultadoDto importar(Long proyectoId, Path archivo, UserLoggedInDto currentUser,
+                                       Consumer<ImportResultadoDto> progreso) {
+        if (proyectoId == null) {
+            throw new ValidationException("El proyecto es obligatorio");
+        }
+        if (archivo == null || !Files.isRegularFile(archivo)) {
+            throw new ValidationException("Elegí un archivo CSV existente");
+        }
+        return importService.importar(proyectoId, archivo, currentUser, progreso);
+    }
+
     public Incidencia getById(Long id) {
         if (id == null) {
             throw new ValidationException("ID requerido");
@@ -48,24 +122,34 @@ public class IncidenciaController {
         return service.getById(id);
     }
 
-    public void update(Long id, Incidencia incidencia) {
+    public void update(Long id, Incidencia incidencia, UserLoggedInDto currentUser) {
         if (id == null) {
             throw new ValidationException("ID requerido");
         }
         if (incidencia == null) {
             throw new ValidationException("La incidencia no puede ser nula");
         }
-        service.update(id, incidencia);
+        service.update(id, incidencia, currentUser);
     }
 
-    public void cambiarEstado(Long id, Long nuevoEstadoId, UserLoggedInDto currentUser) {
+    public void cambiarEstado(Long id, Long nuevoEstadoId, Long versionEsperadaId, UserLoggedInDto currentUser) {
         if (id == null) {
             throw new ValidationException("ID de incidencia requerido");
         }
         if (nuevoEstadoId == null) {
             throw new ValidationException("ID de estado requerido");
         }
-        service.cambiarEstado(id, nuevoEstadoId, currentUser);
+        service.cambiarEstado(id, nuevoEstadoId, versionEsperadaId, currentUser);
+    }
+
+    public int cambiarEstado(List<Long> ids, Long nuevoEstadoId, UserLoggedInDto currentUser) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ValidationException("Seleccioná al menos una incidencia");
+        }
+        if (nuevoEstadoId == null) {
+            throw new ValidationException("ID de estado requerido");
+        }
+        return service.cambiarEstado(ids, nuevoEstadoId, currentUser);
     }
 
     public List<IncidenciaVersion> getHistorialVersiones(Long incidenciaId) {
@@ -75,6 +159,49 @@ public class IncidenciaController {
         return service.getHistorialVersiones(incidenciaId);
     }
 
+    public Slice<IncidenciaVersion, Long> getHistorialVersionesSlice(Long incidenciaId, SliceRequest<Long> request) {
+        if (incidenciaId == null) {
+            throw new ValidationException("ID de incidencia requerido");
+        }
+        validateSlice(request);
+        return service.getHistorialVersionesSlice(incidenciaId, request);
+    }
+
+    public List<IncidenciaVersion> getTransicionesAEstado(String estadoNombre, Long proyectoId,
+                                                          LocalDateTime desde, LocalDateTime hasta) {
+        if (isBlank(estadoNombre)) {
+            throw new ValidationException("El estado es obligatorio");
+        }
+        validatePeriodo(desde, hasta);
+        return service.getTransicionesAEstado(estadoNombre.trim(), proyectoId, desde, hasta);
+    }
+
+    public Map<String, Long> contarTransicionesPorEstado(LocalDateTime desde, LocalDateTime hasta) {
+        validatePeriodo(desde, hasta);
+        return service.contarTransicionesPorEstado(desde, hasta);
+    }
+
+    /** Estado de la incidencia en ese momento; null si todavía no existía. */
+    public IncidenciaHistoricaDto getEstadoEn(Long incidenciaId, LocalDateTime momento) {
+        if (incidenciaId == null) {
+            throw new ValidationException("ID de incidencia requerido");
+        }
+        if (momento == null) {
+            throw new ValidationException("El momento es obligatorio");
+        }
+        return service.getEstadoEn(incidenciaId, momento);
+    }
+
+    public List<IncidenciaHistoricaDto> getTableroEn(Long proyectoId, LocalDateTime momento) {
+        if (proyectoId == null) {
+            throw new ValidationException("ID de proyecto requerido");
+        }
+        if (momento == null) {
+            throw new ValidationException("El momento es obligatorio");
+        }
+        return service.getTableroEn(proyectoId, momento);
+    }
+
     public void delete(Long id) {
         if (id == null) {
             throw new ValidationException("ID requerido");
@@ -96,5 +223,22 @@ public class IncidenciaController {
     private boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
-}
 
+    private void validateSlice(SliceRequest<Long> request) {
+        if (request == null) {
+            throw new ValidationException("Pedido de página requerido");
+        }
+        if (request.getLimit() < 1 || request.getLimit() > SliceRequest.MAX_LIMIT) {
+            throw new ValidationException("El tamaño de página debe estar entre 1 y " + SliceRequest.MAX_LIMIT);
+        }
+    }
+
+    private void validatePeriodo(LocalDateTime desde, LocalDateTime hasta) {
+        if (desde == null || hasta == null) {
+            throw new ValidationException("El período (desde y hasta) es obligatorio");
+        }
+        if (!desde.isBefore(hasta)) {
+            throw new ValidationException("La fecha desde debe ser anterior a la fecha hasta");
+        }
+    }
+}
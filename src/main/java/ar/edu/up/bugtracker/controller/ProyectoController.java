@@ -1,18 +1,28 @@
 package ar.edu.up.bugtracker.controller;
 
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.exceptions.ValidationException;
 import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.service.ProyectoMetricasService;
 import ar.edu.up.bugtracker.service.ProyectoService;
+import ar.edu.up.bugtracker.service.dto.ProyectoMetricasDto;
+import ar.edu.up.bugtracker.service.dto.ProyectoResumenDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.export.ExportFormato;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 public class ProyectoController {
 
     private final ProyectoService service;
+    private final ProyectoMetricasService metricasService;
 
-    public ProyectoController(ProyectoService service) {
+    public ProyectoController(ProyectoService service, ProyectoMetricasService metricasService) {
         this.service = service;
+        this.metricasService = metricasService;
     }
 
     public Long create(Proyecto proyecto, UserLoggedInDto currentUser) {
@@ -29,6 +39,15 @@ public class ProyectoController {
         return service.getAll();
     }
 
+    public List<ProyectoResumenDto> getAllResumen() {
+        return service.getAllResumen();
+    }
+
+    public Slice<Proyecto, Long> getSlice(SliceRequest<Long> request) {
+        validateSlice(request);
+        return service.getSlice(request);
+    }
+
     public Proyecto getById(Long id) {
         if (id == null) {
             throw new ValidationException("ID requerido");
@@ -36,6 +55,20 @@ public class ProyectoController {
         return service.getById(id);
     }
 
+    public ProyectoMetricasDto getMetricas(Long id) {
+        if (id == null) {
+            throw new ValidationException("ID requerido");
+        }
+        return metricasService.getMetricas(id);
+    }
+
+    public void rebuildMetricas(Long id) {
+        if (id == null) {
+            throw new ValidationException("ID requerido");
+        }
+        metricasService.rebuild(id);
+    }
+
     public void update(Long id, Proyecto proyecto) {
         if (id == null) {
             throw new ValidationException("ID requerido");
@@ -53,8 +86,29 @@ public class ProyectoController {
         service.delete(id, currentUser);
     }
 
+    public long exportar(Long id, Path destino, ExportFormato formato, LongConsumer progreso) {
+        if (id == null) {
+            throw new ValidationException("ID requerido");
+        }
+        if (destino == null) {
+            throw new ValidationException("Archivo de destino requerido");
+        }
+        if (formato == null) {
+            throw new ValidationException("Formato de exportación requerido");
+        }
+        return service.exportar(id, destino, formato, progreso);
+    }
+
     private boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
-}
 
+    private void validateSlice(SliceRequest<Long> request) {
+        if (request == null) {
+            throw new ValidationException("Pedido de página requerido");
+        }
+        if (request.getLimit() < 1 || request.getLimit() > SliceRequest.MAX_LIMIT) {
+            throw new ValidationException("El tamaño de página debe estar entre 1 y " + SliceRequest.MAX_LIMIT);
+        }
+    }
+}
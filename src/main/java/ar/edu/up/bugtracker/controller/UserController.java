@@ -1,5 +1,7 @@
 package ar.edu.up.bugtracker.controller;
 
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.exceptions.ValidationException;
 import ar.edu.up.bugtracker.service.UserService;
 import ar.edu.up.bugtracker.service.cmd.UserLoginCmd;
@@ -43,6 +45,11 @@ public class UserController {
         return service.getAll();
     }
 
+    public Slice<UserDetailDto, Long> getSlice(SliceRequest<Long> request) {
+        validateSlice(request);
+        return service.getSlice(request);
+    }
+
     public UserDetailDto getById(Long id) {
         if (id == null) throw new ValidationException("ID requerido.");
         return service.getById(id);
@@ -70,4 +77,13 @@ public class UserController {
     private boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
+
+    private void validateSlice(SliceRequest<Long> request) {
+        if (request == null) {
+            throw new ValidationException("Pedido de página requerido");
+        }
+        if (request.getLimit() < 1 || request.getLimit() > SliceRequest.MAX_LIMIT) {
+            throw new ValidationException("El tamaño de página debe estar entre 1 y " + SliceRequest.MAX_LIMIT);
+        }
+    }
 }
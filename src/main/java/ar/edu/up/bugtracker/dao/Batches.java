@@ -0,0 +1,38 @@
+package ar.edu.up.bugtracker.dao;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+
+/**
+ * Inserción en bloque compartida por los createAll de los DAOs.
+ */
+final class Batches {
+
+    /** Debe coincidir con hibernate.jdbc.batch_size en persistence.xml. */
+    static final int BATCH_SIZE = 50;
+
+    private Batches() {
+    }
+
+    /**
+     * Persiste las entidades y hace flush + clear cada BATCH_SIZE filas, así Hibernate manda los INSERT
+     * en batches JDBC y el contexto de persistencia no crece con la cantidad de filas.
+     * Ojo: el clear desasocia también cualquier otra entidad que el llamador tenga cargada en la transacción.
+     */
+    static <T> void persistAll(EntityManager em, List<T> entities) {
+        int pending = 0;
+        for (T entity : entities) {
+            em.persist(entity);
+            if (++pending == BATCH_SIZE) {
+                em.flush();
+                em.clear();
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            em.flush();
+            em.clear();
+        }
+    }
+}
@@ -2,32 +2,55 @@ package ar.edu.up.bugtracker.dao;
 
 import ar.edu.up.bugtracker.exceptions.DaoException;
 import ar.edu.up.bugtracker.models.Comentario;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
 import jakarta.persistence.EntityManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class ComentarioDao implements IDao<Comentario, Long> {
 
-    private final EntityManager em;
+    private final UnitOfWork uow;
+    private final KeysetQuery<Comentario> keyset = new KeysetQuery<>(Comentario.class,
+            "SELECT c FROM Comentario c " +
+            "LEFT JOIN FETCH c.createdBy", "c", Comentario::getId)
+            .sortKey("createdAt", Comentario::getCreatedAt);
 
-    public ComentarioDao(EntityManager em) {
-        this.em = em;
+    public ComentarioDao(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Long create(Comentario entity) {
         try {
-            em.persist(entity);
+            em().persist(entity);
             return entity.getId();
         } catch (Exception e) {
             throw new DaoException("Error creando comentario", e);
         }
     }
 
+    @Override
+    public List<Long> createAll(List<Comentario> entities) {
+        try {
+            Batches.persistAll(em(), entities);
+            List<Long> ids = new ArrayList<>(entities.size());
+            for (Comentario entity : entities) {
+                ids.add(entity.getId());
+            }
+            return ids;
+        } catch (Exception e) {
+            throw new DaoException("Error creando comentarios", e);
+        }
+    }
+
     @Override
     public Comentario findById(Long id) {
         try {
-            return em.find(Comentario.class, id);
+            return em().find(Comentario.class, id);
         } catch (Exception e) {
             throw new DaoException("Error buscando comentario por id", e);
         }
@@ -36,17 +59,36 @@ public class ComentarioDao implements IDao<Comentario, Long> {
     @Override
     public List<Comentario> findAll() {
         try {
-            return em.createQuery("SELECT c FROM Comentario c ORDER BY c.createdAt DESC", Comentario.class)
+            return em().createQuery("SELECT c FROM Comentario c ORDER BY c.createdAt DESC", Comentario.class)
                     .getResultList();
         } catch (Exception e) {
             throw new DaoException("Error listando comentarios", e);
         }
     }
 
+    @Override
+    public Slice<Comentario, Long> findSlice(SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), null, null, request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando comentarios", e);
+        }
+    }
+
+    public Slice<Comentario, Long> findSliceByIncidencia(Long incidenciaId, SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), "c.incidencia.id = :incidenciaId", Map.of("incidenciaId", incidenciaId), request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando comentarios por incidencia", e);
+        }
+    }
+
     public List<Comentario> findByIncidencia(Long incidenciaId) {
         try {
-            return em.createQuery(
-                    "SELECT c FROM Comentario c WHERE c.incidencia.id = :incidenciaId ORDER BY c.createdAt ASC",
+            return em().createQuery(
+                    "SELECT c FROM Comentario c " +
+                    "LEFT JOIN FETCH c.createdBy " +
+                    "WHERE c.incidencia.id = :incidenciaId ORDER BY c.createdAt ASC",
                     Comentario.class)
                     .setParameter("incidenciaId", incidenciaId)
                     .getResultList();
@@ -55,10 +97,26 @@ public class ComentarioDao implements IDao<Comentario, Long> {
         }
     }
 
+    /**
+     * Exportación: recorre los comentarios de las incidencias del proyecto ordenados por incidencia, filas
+     * [id, incidenciaId, emailAutor, createdAt, texto].
+     */
+    public long streamExportByProyecto(Long proyectoId, Consumer<Object[]> fila) {
+        try {
+            return Streams.scroll(em().createQuery(
+                    "SELECT c.id, c.incidencia.id, u.email, c.createdAt, c.texto " +
+                    "FROM Comentario c JOIN c.createdBy u " +
+                    "WHERE c.incidencia.proyecto.id = :proyectoId ORDER BY c.incidencia.id, c.id", Object[].class)
+                    .setParameter("proyectoId", proyectoId), fila);
+        } catch (Exception e) {
+            throw new DaoException("Error exportando comentarios del proyecto", e);
+        }
+    }
+
     @Override
     public void update(Comentario entity) {
         try {
-            em.merge(entity);
+            em().merge(entity);
         } catch (Exception e) {
             throw new DaoException("Error actualizando comentario", e);
         }
@@ -67,23 +125,82 @@ public class ComentarioDao implements IDao<Comentario, Long> {
     @Override
     public void deleteById(Long id) {
         try {
-            Comentario managed = em.find(Comentario.class, id);
+            Comentario managed = em().find(Comentario.class, id);
             if (managed != null) {
-                em.remove(managed);
+                em().remove(managed);
             }
         } catch (Exception e) {
             throw new DaoException("Error eliminando comentario", e);
         }
     }
 
+    /** Textos a indexar, por bloques en orden de id: filas [id, incidenciaId, texto]. */
+    public List<Object[]> findTextosDesde(Long afterId, int limit) {
+        try {
+            return em().createQuery(
+                    "SELECT c.id, c.incidencia.id, c.texto FROM Comentario c " +
+                    "WHERE c.id > :afterId ORDER BY c.id", Object[].class)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo textos de comentarios", e);
+        }
+    }
+
+    /** Texto [id, incidenciaId, texto] del comentario, o null si ya no existe. */
+    public Object[] findTextoById(Long id) {
+        try {
+            List<Object[]> filas = em().createQuery(
+                    "SELECT c.id, c.incidencia.id, c.texto FROM Comentario c WHERE c.id = :id", Object[].class)
+                    .setParameter("id", id)
+                    .getResultList();
+            return filas.isEmpty() ? null : filas.get(0);
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo texto del comentario", e);
+        }
+    }
+
+    /** Textos de comentarios creados desde el momento dado con id en (afterId, hastaId], por id. */
+    public List<Object[]> findTextosCreadosDesde(LocalDateTime desde, Long afterId, Long hastaId, int limit) {
+        try {
+            return em().createQuery(
+                    "SELECT c.id, c.incidencia.id, c.texto FROM Comentario c " +
+                    "WHERE c.createdAt >= :desde AND c.id > :afterId AND c.id <= :hastaId ORDER BY c.id", Object[].class)
+                    .setParameter("desde", desde)
+                    .setParameter("afterId", afterId)
+                    .setParameter("hastaId", hastaId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo textos de comentarios", e);
+        }
+    }
+
     public void deleteByIncidenciaId(Long incidenciaId) {
         try {
-            em.createQuery("DELETE FROM Comentario c WHERE c.incidencia.id = :incidenciaId")
+            em().createQuery("DELETE FROM Comentario c WHERE c.incidencia.id = :incidenciaId")
                     .setParameter("incidenciaId", incidenciaId)
                     .executeUpdate();
         } catch (Exception e) {
             throw new DaoException("Error eliminando comentarios por incidencia", e);
         }
     }
-}
 
+    /** Borra en una sola sentencia los comentarios de todas las incidencias del proyecto. */
+    public void deleteByProyectoId(Long proyectoId) {
+        try {
+            em().createQuery(
+                    "DELETE FROM Comentario c WHERE c.incidencia.id IN " +
+                    "(SELECT i.id FROM Incidencia i WHERE i.proyecto.id = :proyectoId)")
+                    .setParameter("proyectoId", proyectoId)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error eliminando comentarios por proyecto", e);
+        }
+    }
+
+    private EntityManager em() {
+        return uow.em();
+    }
+}
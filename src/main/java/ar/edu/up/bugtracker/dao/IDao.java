@@ -4,8 +4,11 @@ import java.util.List;
 
 public interface IDao<T, K> {
     K create(T entity);
+    /** Inserta todas las entidades usando batches JDBC; devuelve los ids en el mismo orden. */
+    List<K> createAll(List<T> entities);
     T findById(K id);
     List<T> findAll();
+    Slice<T, K> findSlice(SliceRequest<K> request);
     void update(T entity);
     void deleteById(K id);
 }
@@ -3,36 +3,77 @@ package ar.edu.up.bugtracker.dao;
 import ar.edu.up.bugtracker.exceptions.DaoException;
 import ar.edu.up.bugtracker.models.Incidencia;
 import ar.edu.up.bugtracker.models.IncidenciaEstado;
+import ar.edu.up.bugtracker.models.IncidenciaVersion;
+import ar.edu.up.bugtracker.persistence.CacheMetrics;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.service.dto.IncidenciaResumenDto;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
+import jakarta.persistence.Query;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.HibernateHints;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class IncidenciaDao implements IDao<Incidencia, Long> {
 
-    private final EntityManager em;
+    private final UnitOfWork uow;
+    private final KeysetQuery<Incidencia> keyset = new KeysetQuery<>(Incidencia.class,
+            "SELECT i FROM Incidencia i " +
+            "JOIN FETCH i.estado", "i", Incidencia::getId)
+            .sortKey("creadoEn", Incidencia::getCreadoEn);
+    // Proyección para listados: no trae la descripción completa ni deja entidades en el contexto de persistencia.
+    // descripcion es @Lob, por eso el CAST antes del SUBSTRING
+    private static final String RESUMEN_SELECT =
+            "SELECT new ar.edu.up.bugtracker.service.dto.IncidenciaResumenDto(" +
+            "i.id, SUBSTRING(CAST(i.descripcion AS String), 1, " + (IncidenciaResumenDto.LARGO_PREVIEW + 1) + "), " +
+            "e.id, e.nombre, i.estimacionHoras, i.creadoEn) " +
+            "FROM Incidencia i JOIN i.estado e";
+    private final KeysetQuery<IncidenciaResumenDto> resumenKeyset = new KeysetQuery<>(IncidenciaResumenDto.class,
+            RESUMEN_SELECT, "i", IncidenciaResumenDto::getId)
+            .sortKey("creadoEn", IncidenciaResumenDto::getCreadoEn);
 
-    public IncidenciaDao(EntityManager em) {
-        this.em = em;
+    public IncidenciaDao(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Long create(Incidencia entity) {
         try {
-            em.persist(entity);
+            em().persist(entity);
             return entity.getId();
         } catch (Exception e) {
             throw new DaoException("Error creando incidencia", e);
         }
     }
 
+    @Override
+    public List<Long> createAll(List<Incidencia> entities) {
+        try {
+            Batches.persistAll(em(), entities);
+            List<Long> ids = new ArrayList<>(entities.size());
+            for (Incidencia entity : entities) {
+                ids.add(entity.getId());
+            }
+            return ids;
+        } catch (Exception e) {
+            throw new DaoException("Error creando incidencias", e);
+        }
+    }
+
     @Override
     public Incidencia findById(Long id) {
         try {
-            List<Incidencia> resultados = em.createQuery(
+            List<Incidencia> resultados = em().createQuery(
                     "SELECT DISTINCT i FROM Incidencia i " +
                     "LEFT JOIN FETCH i.proyecto " +
                     "LEFT JOIN FETCH i.responsable " +
+                    "JOIN FETCH i.estado " +
                     "LEFT JOIN FETCH i.currentVersion cv " +
                     "LEFT JOIN FETCH cv.estado " +
                     "LEFT JOIN FETCH cv.createdBy " +
@@ -50,19 +91,58 @@ public class IncidenciaDao implements IDao<Incidencia, Long> {
     @Override
     public List<Incidencia> findAll() {
         try {
-            return em.createQuery("SELECT i FROM Incidencia i ORDER BY i.id", Incidencia.class)
+            return em().createQuery("SELECT i FROM Incidencia i ORDER BY i.id", Incidencia.class)
                     .getResultList();
         } catch (Exception e) {
             throw new DaoException("Error listando incidencias", e);
         }
     }
 
+    @Override
+    public Slice<Incidencia, Long> findSlice(SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), null, null, request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando incidencias", e);
+        }
+    }
+
+    public Slice<Incidencia, Long> findSliceByProyecto(Long proyectoId, SliceRequest<Long> request) {
+        return findSliceByProyecto(proyectoId, null, request);
+    }
+
+    /** Página de incidencias del proyecto, opcionalmente filtradas por estado (usa el índice proyecto_id, estado_id). */
+    public Slice<Incidencia, Long> findSliceByProyecto(Long proyectoId, Long estadoId, SliceRequest<Long> request) {
+        try {
+            if (estadoId == null) {
+                return keyset.fetch(em(), "i.proyecto.id = :proyectoId", Map.of("proyectoId", proyectoId), request);
+            }
+            return keyset.fetch(em(), "i.proyecto.id = :proyectoId AND i.estado.id = :estadoId",
+                    Map.of("proyectoId", proyectoId, "estadoId", estadoId), request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando incidencias por proyecto", e);
+        }
+    }
+
+    /** Página de resúmenes de incidencias del proyecto; estadoId es opcional. */
+    public Slice<IncidenciaResumenDto, Long> findResumenSliceByProyecto(Long proyectoId, Long estadoId,
+                                                                     SliceRequest<Long> request) {
+        try {
+            if (estadoId == null) {
+                return resumenKeyset.fetch(em(), "i.proyecto.id = :proyectoId", Map.of("proyectoId", proyectoId), request);
+            }
+            return resumenKeyset.fetch(em(), "i.proyecto.id = :proyectoId AND i.estado.id = :estadoId",
+                    Map.of("proyectoId", proyectoId, "estadoId", estadoId), request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando resúmenes de incidencias", e);
+        }
+    }
+
     public List<Incidencia> findByProyecto(Long proyectoId) {
         try {
-            return em.createQuery(
-                    "SELECT DISTINCT i FROM Incidencia i " +
-                    "LEFT JOIN FETCH i.currentVersion cv " +
-                    "LEFT JOIN FETCH cv.estado " +
+            return em().createQuery(
+                    "SELECT i FROM Incidencia i " +
+                    "JOIN FETCH i.estado " +
                     "WHERE i.proyecto.id = :proyectoId ORDER BY i.id",
                     Incidencia.class)
                     .setParameter("proyectoId", proyectoId)
@@ -72,21 +152,204 @@ public class IncidenciaDao implements IDao<Incidencia, Long> {
         }
     }
 
+    public List<Incidencia> findByProyectoAndEstado(Long proyectoId, Long estadoId) {
+        try {
+            return em().createQuery(
+                    "SELECT i FROM Incidencia i " +
+                    "JOIN FETCH i.estado " +
+                    "WHERE i.proyecto.id = :proyectoId AND i.estado.id = :estadoId ORDER BY i.id",
+                    Incidencia.class)
+                    .setParameter("proyectoId", proyectoId)
+                    .setParameter("estadoId", estadoId)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error buscando incidencias por proyecto y estado", e);
+        }
+    }
+
+    /**
+     * Incidencias a cambiar de estado en bloque, con lo que necesita la nueva versión (estado, versión
+     * actual y responsable para el snapshot) en una sola consulta.
+     */
+    public List<Incidencia> findByIdsParaTransicion(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return em().createQuery(
+                    "SELECT i FROM Incidencia i " +
+                    "JOIN FETCH i.estado " +
+                    "LEFT JOIN FETCH i.currentVersion " +
+                    "LEFT JOIN FETCH i.responsable " +
+                    "WHERE i.id IN :ids ORDER BY i.id", Incidencia.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error buscando incidencias para cambio de estado", e);
+        }
+    }
+
+    /** Resúmenes de las incidencias indicadas, sin orden particular (lo define quien llama). */
+    public List<IncidenciaResumenDto> findResumenesByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return em().createQuery(RESUMEN_SELECT + " WHERE i.id IN :ids", IncidenciaResumenDto.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error buscando resúmenes de incidencias", e);
+        }
+    }
+
+    /**
+     * Textos a indexar, por bloques en orden de id: filas [id, proyectoId, descripcion].
+     * Sólo lee columnas, así la carga del índice no llena el contexto de persistencia.
+     */
+    public List<Object[]> findTextosDesde(Long afterId, int limit) {
+        try {
+            return em().createQuery(
+                    "SELECT i.id, i.proyecto.id, i.descripcion FROM Incidencia i " +
+                    "WHERE i.id > :afterId ORDER BY i.id", Object[].class)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo textos de incidencias", e);
+        }
+    }
+
+    /** Textos [id, proyectoId, descripcion] de las incidencias indicadas (las borradas no aparecen). */
+    public List<Object[]> findTextosByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return em().createQuery(
+                    "SELECT i.id, i.proyecto.id, i.descripcion FROM Incidencia i WHERE i.id IN :ids", Object[].class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo textos de incidencias", e);
+        }
+    }
+
+    /** Textos de incidencias creadas desde el momento dado con id en (afterId, hastaId], por id. */
+    public List<Object[]> findTextosCreadosDesde(LocalDateTime desde, Long afterId, Long hastaId, int limit) {
+        try {
+            return em().createQuery(
+                    "SELECT i.id, i.proyecto.id, i.descripcion FROM Incidencia i " +
+                    "WHERE i.creadoEn >= :desde AND i.id > :afterId AND i.id <= :hastaId ORDER BY i.id", Object[].class)
+                    .setParameter("desde", desde)
+                    .setParameter("afterId", afterId)
+                    .setParameter("hastaId", hastaId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo textos de incidencias", e);
+        }
+    }
+
+    /**
+     * Alta masiva dentro de una transacción sin estado (UnitOfWork.inStatelessTransaction);
+     * versiones.get(i) es la versión inicial de incidencias.get(i) y ya la referencia.
+     * Primero van todas las incidencias y después todas las versiones, así cada tipo sale en batches JDBC
+     * completos; current_version_id se completa al final con un único UPDATE para todo el lote.
+     */
+    public List<Long> createAllConVersionInicial(List<Incidencia> incidencias, List<IncidenciaVersion> versiones) {
+        try {
+            StatelessSession session = uow.stateless();
+            List<Long> ids = new ArrayList<>(incidencias.size());
+            for (Incidencia incidencia : incidencias) {
+                session.insert(incidencia);
+                ids.add(incidencia.getId());
+            }
+            for (IncidenciaVersion version : versiones) {
+                session.insert(version);
+            }
+            if (!ids.isEmpty()) {
+                // Una consulta nativa no vacía el batch pendiente de la sesión sin estado: hay que mandarlo
+                // antes, si no el UPDATE no encuentra las versiones
+                ((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+                session.createNativeMutationQuery(
+                        "UPDATE incidencia i JOIN incidencia_version v ON v.incidencia_id = i.id " +
+                        "SET i.current_version_id = v.id WHERE i.id IN (:ids)")
+                        // Sin espacio declarado Hibernate vaciaría toda la caché de segundo nivel (catálogos incluidos)
+                        .setHint(HibernateHints.HINT_NATIVE_SPACES, "incidencia")
+                        .setParameterList("ids", ids)
+                        .executeUpdate();
+            }
+            return ids;
+        } catch (Exception e) {
+            throw new DaoException("Error importando incidencias", e);
+        }
+    }
+
+    /**
+     * Exportación: recorre las incidencias del proyecto en orden de id, filas
+     * [id, descripcion, estado, emailResponsable, estimacionHoras, creadoEn, estadoCambiadoEn].
+     */
+    public long streamExportByProyecto(Long proyectoId, Consumer<Object[]> fila) {
+        try {
+            return Streams.scroll(em().createQuery(
+                    "SELECT i.id, i.descripcion, e.nombre, r.email, i.estimacionHoras, i.creadoEn, i.estadoCambiadoEn " +
+                    "FROM Incidencia i JOIN i.estado e LEFT JOIN i.responsable r " +
+                    "WHERE i.proyecto.id = :proyectoId ORDER BY i.id", Object[].class)
+                    .setParameter("proyectoId", proyectoId), fila);
+        } catch (Exception e) {
+            throw new DaoException("Error exportando incidencias del proyecto", e);
+        }
+    }
+
     @Override
     public void update(Incidencia entity) {
         try {
-            em.merge(entity);
+            em().merge(entity);
         } catch (Exception e) {
             throw new DaoException("Error actualizando incidencia", e);
         }
     }
 
+    /**
+     * Cambio de estado condicional: se aplica sólo si la incidencia sigue en la versión leída (mismo
+     * current_version_id y mismo contador optimista). Devuelve false si otra transacción escribió antes.
+     * Un versionActualId null exige que la incidencia siga sin versión actual. nuevaVersion ya tiene que
+     * estar insertada (flush): current_version_id es clave foránea a incidencia_version.
+     */
+    public boolean cambiarEstadoSiNoCambio(Long id, Long versionActualId, Long versionLeida,
+                                           IncidenciaVersion nuevaVersion, IncidenciaEstado estado,
+                                           LocalDateTime cambiadoEn) {
+        try {
+            // "= NULL" nunca es verdadero en SQL: sin versión actual se compara con IS NULL
+            String condicionVersion = versionActualId == null
+                    ? "i.currentVersion IS NULL"
+                    : "i.currentVersion.id = :versionActualId";
+            Query update = em().createQuery(
+                    "UPDATE Incidencia i SET i.estado = :estado, i.estadoCambiadoEn = :cambiadoEn, " +
+                    "i.currentVersion = :nuevaVersion, i.version = i.version + 1 " +
+                    "WHERE i.id = :id AND " + condicionVersion + " AND i.version = :versionLeida")
+                    .setParameter("estado", estado)
+                    .setParameter("cambiadoEn", cambiadoEn)
+                    .setParameter("nuevaVersion", nuevaVersion)
+                    .setParameter("id", id)
+                    .setParameter("versionLeida", versionLeida);
+            if (versionActualId != null) {
+                update.setParameter("versionActualId", versionActualId);
+            }
+            int filas = update.executeUpdate();
+            return filas == 1;
+        } catch (Exception e) {
+            throw new DaoException("Error cambiando estado de la incidencia", e);
+        }
+    }
+
     @Override
     public void deleteById(Long id) {
         try {
-            Incidencia managed = em.find(Incidencia.class, id);
+            Incidencia managed = em().find(Incidencia.class, id);
             if (managed != null) {
-                em.remove(managed);
+                em().remove(managed);
             }
         } catch (Exception e) {
             throw new DaoException("Error eliminando incidencia", e);
@@ -95,7 +358,7 @@ public class IncidenciaDao implements IDao<Incidencia, Long> {
 
     public IncidenciaEstado findEstadoById(Long id) {
         try {
-            return em.find(IncidenciaEstado.class, id);
+            return em().find(IncidenciaEstado.class, id);
         } catch (Exception e) {
             throw new DaoException("Error buscando estado por id", e);
         }
@@ -103,9 +366,11 @@ public class IncidenciaDao implements IDao<Incidencia, Long> {
 
     public IncidenciaEstado findEstadoByNombre(String nombre) {
         try {
-            return em.createQuery(
+            return em().createQuery(
                     "SELECT e FROM IncidenciaEstado e WHERE e.nombre = :n", IncidenciaEstado.class)
                     .setParameter("n", nombre)
+                    .setHint(HibernateHints.HINT_CACHEABLE, true)
+                    .setHint(HibernateHints.HINT_CACHE_REGION, CacheMetrics.CATALOGOS_CONSULTAS)
                     .getSingleResult();
         } catch (NoResultException e) {
             return null;
@@ -116,16 +381,29 @@ public class IncidenciaDao implements IDao<Incidencia, Long> {
 
     public List<IncidenciaEstado> findAllEstados() {
         try {
-            return em.createQuery("SELECT e FROM IncidenciaEstado e ORDER BY e.nombre", IncidenciaEstado.class)
+            return em().createQuery("SELECT e FROM IncidenciaEstado e ORDER BY e.nombre", IncidenciaEstado.class)
+                    .setHint(HibernateHints.HINT_CACHEABLE, true)
+                    .setHint(HibernateHints.HINT_CACHE_REGION, CacheMetrics.CATALOGOS_CONSULTAS)
                     .getResultList();
         } catch (Exception e) {
             throw new DaoException("Error listando estados", e);
         }
     }
 
+    /** Quita la referencia a la versión actual de todas las incidencias del proyecto (antes de borrar versiones). */
+    public void clearCurrentVersionByProyectoId(Long proyectoId) {
+        try {
+            em().createQuery("UPDATE Incidencia i SET i.currentVersion = NULL WHERE i.proyecto.id = :proyectoId")
+                    .setParameter("proyectoId", proyectoId)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error limpiando versión actual por proyecto", e);
+        }
+    }
+
     public void deleteByProyectoId(Long proyectoId) {
         try {
-            em.createQuery("DELETE FROM Incidencia i WHERE i.proyecto.id = :proyectoId")
+            em().createQuery("DELETE FROM Incidencia i WHERE i.proyecto.id = :proyectoId")
                     .setParameter("proyectoId", proyectoId)
                     .executeUpdate();
         } catch (Exception e) {
@@ -135,10 +413,13 @@ public class IncidenciaDao implements IDao<Incidencia, Long> {
 
     public Incidencia getReference(Long id) {
         try {
-            return em.getReference(Incidencia.class, id);
+            return em().getReference(Incidencia.class, id);
         } catch (Exception e) {
             throw new DaoException("Error obteniendo referencia de incidencia", e);
         }
     }
-}
 
+    private EntityManager em() {
+        return uow.em();
+    }
+}
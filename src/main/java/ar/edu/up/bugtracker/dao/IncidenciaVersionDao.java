@@ -2,32 +2,62 @@ package ar.edu.up.bugtracker.dao;
 
 import ar.edu.up.bugtracker.exceptions.DaoException;
 import ar.edu.up.bugtracker.models.IncidenciaVersion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersionConverter;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class IncidenciaVersionDao implements IDao<IncidenciaVersion, Long> {
 
-    private final EntityManager em;
+    private final UnitOfWork uow;
+    private final KeysetQuery<IncidenciaVersion> keyset = new KeysetQuery<>(IncidenciaVersion.class,
+            "SELECT iv FROM IncidenciaVersion iv " +
+            "LEFT JOIN FETCH iv.estado " +
+            "LEFT JOIN FETCH iv.createdBy", "iv", IncidenciaVersion::getId)
+            .sortKey("createdAt", IncidenciaVersion::getCreatedAt);
 
-    public IncidenciaVersionDao(EntityManager em) {
-        this.em = em;
+    public IncidenciaVersionDao(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Long create(IncidenciaVersion entity) {
         try {
-            em.persist(entity);
+            em().persist(entity);
             return entity.getId();
         } catch (Exception e) {
             throw new DaoException("Error creando versión de incidencia", e);
         }
     }
 
+    @Override
+    public List<Long> createAll(List<IncidenciaVersion> entities) {
+        try {
+            Batches.persistAll(em(), entities);
+            List<Long> ids = new ArrayList<>(entities.size());
+            for (IncidenciaVersion entity : entities) {
+                ids.add(entity.getId());
+            }
+            return ids;
+        } catch (Exception e) {
+            throw new DaoException("Error creando versiones de incidencia", e);
+        }
+    }
+
     @Override
     public IncidenciaVersion findById(Long id) {
         try {
-            return em.find(IncidenciaVersion.class, id);
+            return em().find(IncidenciaVersion.class, id);
         } catch (Exception e) {
             throw new DaoException("Error buscando versión de incidencia por id", e);
         }
@@ -36,16 +66,33 @@ public class IncidenciaVersionDao implements IDao<IncidenciaVersion, Long> {
     @Override
     public List<IncidenciaVersion> findAll() {
         try {
-            return em.createQuery("SELECT iv FROM IncidenciaVersion iv ORDER BY iv.createdAt DESC", IncidenciaVersion.class)
+            return em().createQuery("SELECT iv FROM IncidenciaVersion iv ORDER BY iv.createdAt DESC", IncidenciaVersion.class)
                     .getResultList();
         } catch (Exception e) {
             throw new DaoException("Error listando versiones de incidencia", e);
         }
     }
 
+    @Override
+    public Slice<IncidenciaVersion, Long> findSlice(SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), null, null, request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando versiones de incidencia", e);
+        }
+    }
+
+    public Slice<IncidenciaVersion, Long> findSliceByIncidencia(Long incidenciaId, SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), "iv.incidencia.id = :incidenciaId", Map.of("incidenciaId", incidenciaId), request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando versiones por incidencia", e);
+        }
+    }
+
     public List<IncidenciaVersion> findByIncidencia(Long incidenciaId) {
         try {
-            return em.createQuery(
+            return em().createQuery(
                     "SELECT DISTINCT iv FROM IncidenciaVersion iv " +
                     "LEFT JOIN FETCH iv.estado " +
                     "LEFT JOIN FETCH iv.createdBy " +
@@ -58,10 +105,153 @@ public class IncidenciaVersionDao implements IDao<IncidenciaVersion, Long> {
         }
     }
 
+    /**
+     * La versión dada y las posteriores de la incidencia, por número. Filas [versionId, autorId, detalles].
+     * Vacío si la versión no existe o no está numerada.
+     */
+    public List<Object[]> findCambiosDesde(Long incidenciaId, Long versionId) {
+        try {
+            return em().createQuery(
+                    "SELECT iv.id, iv.createdBy.id, iv.detalles FROM IncidenciaVersion iv " +
+                    "WHERE iv.incidencia.id = :incidenciaId " +
+                    "AND iv.numero >= (SELECT b.numero FROM IncidenciaVersion b WHERE b.id = :versionId) " +
+                    "ORDER BY iv.numero", Object[].class)
+                    .setParameter("incidenciaId", incidenciaId)
+                    .setParameter("versionId", versionId)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error buscando cambios de la incidencia", e);
+        }
+    }
+
+    /**
+     * Historial de la incidencia hasta el momento dado, en orden cronológico: las últimas {@code limite}
+     * versiones (o todas si limite <= 0). Filas [incidenciaId, versionId, createdAt, estado, detalles].
+     */
+    public List<Object[]> findHistorialHasta(Long incidenciaId, LocalDateTime momento, int limite) {
+        try {
+            TypedQuery<Object[]> query = em().createQuery(
+                    "SELECT iv.incidencia.id, iv.id, iv.createdAt, e.nombre, iv.detalles " +
+                    "FROM IncidenciaVersion iv JOIN iv.estado e " +
+                    "WHERE iv.incidencia.id = :incidenciaId AND iv.createdAt <= :momento " +
+                    "ORDER BY iv.createdAt DESC, iv.id DESC", Object[].class)
+                    .setParameter("incidenciaId", incidenciaId)
+                    .setParameter("momento", momento);
+            if (limite > 0) {
+                query.setMaxResults(limite);
+            }
+            List<Object[]> filas = new ArrayList<>(query.getResultList());
+            Collections.reverse(filas);
+            return filas;
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo historial de la incidencia", e);
+        }
+    }
+
+    /**
+     * Como findHistorialHasta pero para todas las incidencias del proyecto en una sola consulta:
+     * hasta {@code limite} versiones por incidencia, ordenadas por incidencia y fecha.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findHistorialHastaPorProyecto(Long proyectoId, LocalDateTime momento, int limite) {
+        try {
+            List<Object[]> filas = em().createNativeQuery(
+                    "SELECT v.incidencia_id AS incidencia_id, v.id AS id, v.created_at AS created_at, " +
+                    "e.nombre AS estado, v.detalles AS detalles " +
+                    "FROM (SELECT v.id, ROW_NUMBER() OVER (PARTITION BY v.incidencia_id " +
+                    "ORDER BY v.created_at DESC, v.id DESC) AS rn " +
+                    "FROM incidencia_version v JOIN incidencia i ON i.id = v.incidencia_id " +
+                    "WHERE i.proyecto_id = :proyectoId AND v.created_at <= :momento) w " +
+                    "JOIN incidencia_version v ON v.id = w.id " +
+                    "JOIN incidencia_estado e ON e.id = v.estado_id " +
+                    "WHERE w.rn <= :limite " +
+                    "ORDER BY v.incidencia_id, v.created_at, v.id")
+                    .unwrap(NativeQuery.class)
+                    .addScalar("incidencia_id", Long.class)
+                    .addScalar("id", Long.class)
+                    .addScalar("created_at", LocalDateTime.class)
+                    .addScalar("estado", String.class)
+                    .addScalar("detalles", String.class)
+                    .setParameter("proyectoId", proyectoId)
+                    .setParameter("momento", momento)
+                    .setParameter("limite", limite)
+                    .getResultList();
+            for (Object[] fila : filas) {
+                fila[4] = DetalleVersionConverter.fromJson((String) fila[4]);
+            }
+            return filas;
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo historial del proyecto", e);
+        }
+    }
+
+    /**
+     * Transiciones hacia un estado dentro de [desde, hasta), opcionalmente de un solo proyecto.
+     * Filtra por la columna generada estado_nuevo (índice idx_incver_estado_nuevo) en vez de leer el JSON.
+     */
+    public List<IncidenciaVersion> findTransicionesAEstado(String estadoNombre, Long proyectoId,
+                                                           LocalDateTime desde, LocalDateTime hasta) {
+        try {
+            TypedQuery<IncidenciaVersion> query = em().createQuery(
+                    "SELECT iv FROM IncidenciaVersion iv " +
+                    "JOIN FETCH iv.incidencia i " +
+                    "JOIN FETCH iv.createdBy " +
+                    "WHERE iv.estadoNuevo = :estado AND iv.createdAt >= :desde AND iv.createdAt < :hasta " +
+                    (proyectoId != null ? "AND i.proyecto.id = :proyectoId " : "") +
+                    "ORDER BY iv.createdAt DESC", IncidenciaVersion.class)
+                    .setParameter("estado", estadoNombre)
+                    .setParameter("desde", desde)
+                    .setParameter("hasta", hasta);
+            if (proyectoId != null) {
+                query.setParameter("proyectoId", proyectoId);
+            }
+            return query.getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error buscando transiciones de estado", e);
+        }
+    }
+
+    /** Cantidad de transiciones por estado de destino en [desde, hasta), usando el índice (tipo, created_at). */
+    public Map<String, Long> countTransicionesPorEstado(LocalDateTime desde, LocalDateTime hasta) {
+        try {
+            List<Object[]> filas = em().createQuery(
+                    "SELECT iv.estadoNuevo, COUNT(iv) FROM IncidenciaVersion iv " +
+                    "WHERE iv.tipo = :tipo AND iv.createdAt >= :desde AND iv.createdAt < :hasta " +
+                    "GROUP BY iv.estadoNuevo ORDER BY COUNT(iv) DESC", Object[].class)
+                    .setParameter("tipo", DetalleVersion.CAMBIO_ESTADO)
+                    .setParameter("desde", desde)
+                    .setParameter("hasta", hasta)
+                    .getResultList();
+            Map<String, Long> conteo = new LinkedHashMap<>();
+            for (Object[] fila : filas) {
+                conteo.put((String) fila[0], (Long) fila[1]);
+            }
+            return conteo;
+        } catch (Exception e) {
+            throw new DaoException("Error contando transiciones de estado", e);
+        }
+    }
+
+    /**
+     * Exportación: recorre las versiones de las incidencias del proyecto ordenadas por incidencia, filas
+     * [id, incidenciaId, estado, emailAutor, createdAt, detalles].
+     */
+    public long streamExportByProyecto(Long proyectoId, Consumer<Object[]> fila) {
+        try {
+            return Streams.scroll(em().createQuery(
+                    "SELECT iv.id, iv.incidencia.id, e.nombre, u.email, iv.createdAt, iv.detalles " +
+                    "FROM IncidenciaVersion iv JOIN iv.estado e JOIN iv.createdBy u " +
+                    "WHERE iv.incidencia.proyecto.id = :proyectoId ORDER BY iv.incidencia.id, iv.id", Object[].class)
+                    .setParameter("proyectoId", proyectoId), fila);
+        } catch (Exception e) {
+            throw new DaoException("Error exportando versiones del proyecto", e);
+        }
+    }
+
     @Override
     public void update(IncidenciaVersion entity) {
         try {
-            em.merge(entity);
+            em().merge(entity);
         } catch (Exception e) {
             throw new DaoException("Error actualizando versión de incidencia", e);
         }
@@ -70,9 +260,9 @@ public class IncidenciaVersionDao implements IDao<IncidenciaVersion, Long> {
     @Override
     public void deleteById(Long id) {
         try {
-            IncidenciaVersion managed = em.find(IncidenciaVersion.class, id);
+            IncidenciaVersion managed = em().find(IncidenciaVersion.class, id);
             if (managed != null) {
-                em.remove(managed);
+                em().remove(managed);
             }
         } catch (Exception e) {
             throw new DaoException("Error eliminando versión de incidencia", e);
@@ -81,12 +271,28 @@ public class IncidenciaVersionDao implements IDao<IncidenciaVersion, Long> {
 
     public void deleteByIncidenciaId(Long incidenciaId) {
         try {
-            em.createQuery("DELETE FROM IncidenciaVersion iv WHERE iv.incidencia.id = :incidenciaId")
+            em().createQuery("DELETE FROM IncidenciaVersion iv WHERE iv.incidencia.id = :incidenciaId")
                     .setParameter("incidenciaId", incidenciaId)
                     .executeUpdate();
         } catch (Exception e) {
             throw new DaoException("Error eliminando versiones por incidencia", e);
         }
     }
-}
 
+    /** Borra en una sola sentencia las versiones de todas las incidencias del proyecto. */
+    public void deleteByProyectoId(Long proyectoId) {
+        try {
+            em().createQuery(
+                    "DELETE FROM IncidenciaVersion iv WHERE iv.incidencia.id IN " +
+                    "(SELECT i.id FROM Incidencia i WHERE i.proyecto.id = :proyectoId)")
+                    .setParameter("proyectoId", proyectoId)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error eliminando versiones por proyecto", e);
+        }
+    }
+
+    private EntityManager em() {
+        return uow.em();
+    }
+}
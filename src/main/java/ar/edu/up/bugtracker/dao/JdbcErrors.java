@@ -0,0 +1,37 @@
+package ar.edu.up.bugtracker.dao;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Reconoce errores de MySQL puntuales dentro de la cadena de causas que arma Hibernate.
+ */
+final class JdbcErrors {
+
+    private static final int ER_DUP_ENTRY = 1062;
+
+    private JdbcErrors() {
+    }
+
+    /**
+     * Si la excepción es una clave duplicada devuelve el nombre de la restricción violada
+     * ("" si no se pudo determinar); si no, null.
+     */
+    static String duplicateKey(Throwable e) {
+        String constraint = null;
+        boolean duplicate = false;
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException && constraint == null) {
+                constraint = ((ConstraintViolationException) t).getConstraintName();
+            }
+            if (t instanceof SQLException && ((SQLException) t).getErrorCode() == ER_DUP_ENTRY) {
+                duplicate = true;
+            }
+        }
+        if (!duplicate) {
+            return null;
+        }
+        return constraint != null ? constraint : "";
+    }
+}
@@ -0,0 +1,102 @@
+package ar.edu.up.bugtracker.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Arma y ejecuta las consultas de paginación por keyset que comparten los DAOs.
+ * Cada DAO declara qué claves de orden acepta y cómo leer su valor desde la entidad.
+ */
+class KeysetQuery<T> {
+
+    private final Class<T> type;
+    private final String alias;
+    private final String select;
+    private final Function<T, Long> idOf;
+    private final Map<String, Function<T, Object>> sortKeys = new LinkedHashMap<>();
+
+    /**
+     * @param select SELECT ... FROM ... (con sus JOIN FETCH), sin WHERE ni ORDER BY
+     * @param alias alias de la entidad raíz usado en el select
+     */
+    KeysetQuery(Class<T> type, String select, String alias, Function<T, Long> idOf) {
+        this.type = type;
+        this.select = select;
+        this.alias = alias;
+        this.idOf = idOf;
+    }
+
+    KeysetQuery<T> sortKey(String name, Function<T, Object> valueOf) {
+        sortKeys.put(name, valueOf);
+        return this;
+    }
+
+    /**
+     * @param where condición adicional (sin la palabra WHERE) o null
+     * @param params parámetros de la condición adicional
+     */
+    Slice<T, Long> fetch(EntityManager em, String where, Map<String, Object> params, SliceRequest<Long> request) {
+        String sortKey = request.getSortKey();
+        Function<T, Object> sortValueOf = null;
+        if (sortKey != null && !"id".equals(sortKey)) {
+            sortValueOf = sortKeys.get(sortKey);
+            if (sortValueOf == null) {
+                throw new IllegalArgumentException("Clave de orden no soportada para " + type.getSimpleName() + ": " + sortKey);
+            }
+        }
+
+        String dir = request.isDescending() ? "DESC" : "ASC";
+        String op = request.isDescending() ? "<" : ">";
+        String idPath = alias + ".id";
+        String sortPath = sortValueOf != null ? alias + "." + sortKey : null;
+
+        StringBuilder jpql = new StringBuilder(select);
+        List<String> conditions = new ArrayList<>();
+        if (where != null) {
+            conditions.add("(" + where + ")");
+        }
+        if (!request.isFirst()) {
+            if (sortPath != null) {
+                conditions.add("(" + sortPath + " " + op + " :afterSort OR (" + sortPath + " = :afterSort AND "
+                        + idPath + " " + op + " :afterId))");
+            } else {
+                conditions.add(idPath + " " + op + " :afterId");
+            }
+        }
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        jpql.append(" ORDER BY ");
+        if (sortPath != null) {
+            jpql.append(sortPath).append(' ').append(dir).append(", ");
+        }
+        jpql.append(idPath).append(' ').append(dir);
+
+        TypedQuery<T> query = em.createQuery(jpql.toString(), type);
+        if (params != null) {
+            params.forEach(query::setParameter);
+        }
+        if (!request.isFirst()) {
+            query.setParameter("afterId", request.getAfterId());
+            if (sortPath != null) {
+                query.setParameter("afterSort", request.getAfterSortValue());
+            }
+        }
+        // Se pide una fila de más para saber si existe una página siguiente
+        List<T> rows = query.setMaxResults(request.getLimit() + 1).getResultList();
+
+        if (rows.size() <= request.getLimit()) {
+            return new Slice<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, request.getLimit()));
+        T last = items.get(items.size() - 1);
+        Object lastSort = sortValueOf != null ? sortValueOf.apply(last) : null;
+        return new Slice<>(items, request.after(lastSort, idOf.apply(last)));
+    }
+}
@@ -0,0 +1,89 @@
+package ar.edu.up.bugtracker.dao;
+
+import ar.edu.up.bugtracker.exceptions.DaoException;
+import ar.edu.up.bugtracker.models.OutboxEvento;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public class OutboxDao {
+
+    private static final String TABLA = "outbox_evento";
+
+    private final UnitOfWork uow;
+
+    public OutboxDao(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    /**
+     * Agrega el evento en la transacción activa. Es un INSERT nativo para que también sirva dentro de
+     * una transacción sin estado (importación masiva).
+     */
+    public void insertar(String tipo, Long agregadoId, String payload) {
+        try {
+            uow.queries().createNativeMutationQuery(
+                    "INSERT INTO outbox_evento (tipo, agregado_id, payload) VALUES (:tipo, :agregadoId, :payload)")
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, TABLA)
+                    .setParameter("tipo", tipo)
+                    .setParameter("agregadoId", agregadoId)
+                    .setParameter("payload", payload)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error registrando evento en el outbox", e);
+        }
+    }
+
+    /** Eventos con id mayor al dado, en orden. */
+    public List<OutboxEvento> findDesde(Long ultimoId, int limite) {
+        try {
+            return em().createQuery(
+                    "SELECT e FROM OutboxEvento e WHERE e.id > :ultimoId ORDER BY e.id", OutboxEvento.class)
+                    .setParameter("ultimoId", ultimoId)
+                    .setMaxResults(limite)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo eventos del outbox", e);
+        }
+    }
+
+    public List<OutboxEvento> findByIds(Collection<Long> ids) {
+        try {
+            return em().createQuery(
+                    "SELECT e FROM OutboxEvento e WHERE e.id IN :ids ORDER BY e.id", OutboxEvento.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo eventos del outbox", e);
+        }
+    }
+
+    public long maxId() {
+        try {
+            Long max = em().createQuery("SELECT MAX(e.id) FROM OutboxEvento e", Long.class)
+                    .getSingleResult();
+            return max != null ? max : 0L;
+        } catch (Exception e) {
+            throw new DaoException("Error leyendo eventos del outbox", e);
+        }
+    }
+
+    /** Purga los eventos anteriores al límite; devuelve cuántos se borraron. */
+    public int deleteAnteriores(LocalDateTime limite) {
+        try {
+            return em().createQuery("DELETE FROM OutboxEvento e WHERE e.createdAt < :limite")
+                    .setParameter("limite", limite)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error purgando eventos del outbox", e);
+        }
+    }
+
+    private EntityManager em() {
+        return uow.em();
+    }
+}
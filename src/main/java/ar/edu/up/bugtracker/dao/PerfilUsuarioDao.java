@@ -2,16 +2,22 @@ package ar.edu.up.bugtracker.dao;
 
 import ar.edu.up.bugtracker.exceptions.DaoException;
 import ar.edu.up.bugtracker.models.PerfilUsuario;
+import ar.edu.up.bugtracker.persistence.CacheMetrics;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
 import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
 
 import java.util.List;
 
 public class PerfilUsuarioDao implements IDao<PerfilUsuario, Long> {
 
-    private final EntityManager em;
+    private final UnitOfWork uow;
+    private final KeysetQuery<PerfilUsuario> keyset = new KeysetQuery<>(PerfilUsuario.class,
+            "SELECT p FROM PerfilUsuario p", "p", PerfilUsuario::getId)
+            .sortKey("nombre", PerfilUsuario::getNombre);
 
-    public PerfilUsuarioDao(EntityManager em) {
-        this.em = em;
+    public PerfilUsuarioDao(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
@@ -19,11 +25,16 @@ public class PerfilUsuarioDao implements IDao<PerfilUsuario, Long> {
         return null;
     }
 
+    @Override
+    public List<Long> createAll(List<PerfilUsuario> entities) {
+        return List.of();
+    }
+
     @Override
     public PerfilUsuario findById(Long id) {
         try {
             if (id == null) return null;
-            return em.find(PerfilUsuario.class, id);
+            return em().find(PerfilUsuario.class, id);
         } catch (Exception e) {
             throw new DaoException("Error buscando perfil por id", e);
         }
@@ -32,15 +43,26 @@ public class PerfilUsuarioDao implements IDao<PerfilUsuario, Long> {
     @Override
     public List<PerfilUsuario> findAll() {
         try {
-            return em.createQuery(
+            return em().createQuery(
                     "SELECT p FROM PerfilUsuario p ORDER BY p.nombre",
-                    PerfilUsuario.class
-            ).getResultList();
+                    PerfilUsuario.class)
+                    .setHint(HibernateHints.HINT_CACHEABLE, true)
+                    .setHint(HibernateHints.HINT_CACHE_REGION, CacheMetrics.CATALOGOS_CONSULTAS)
+                    .getResultList();
         } catch (Exception e) {
             throw new DaoException("Erro aL buscar perfiles de usuarios "+e.getMessage());
         }
     }
 
+    @Override
+    public Slice<PerfilUsuario, Long> findSlice(SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), null, null, request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando perfiles", e);
+        }
+    }
+
     @Override
     public void update(PerfilUsuario entity) {
     }
@@ -48,4 +70,8 @@ public class PerfilUsuarioDao implements IDao<PerfilUsuario, Long> {
     @Override
     public void deleteById(Long id) {
     }
+
+    private EntityManager em() {
+        return uow.em();
+    }
 }
@@ -2,32 +2,53 @@ package ar.edu.up.bugtracker.dao;
 
 import ar.edu.up.bugtracker.exceptions.DaoException;
 import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.service.dto.ProyectoResumenDto;
 import jakarta.persistence.EntityManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ProyectoDao implements IDao<Proyecto, Long> {
 
-    private final EntityManager em;
+    private final UnitOfWork uow;
+    private final KeysetQuery<Proyecto> keyset = new KeysetQuery<>(Proyecto.class,
+            "SELECT p FROM Proyecto p", "p", Proyecto::getId)
+            .sortKey("creadoEn", Proyecto::getCreadoEn)
+            .sortKey("nombre", Proyecto::getNombre);
 
-    public ProyectoDao(EntityManager em) {
-        this.em = em;
+    public ProyectoDao(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Long create(Proyecto entity) {
         try {
-            em.persist(entity);
+            em().persist(entity);
             return entity.getId();
         } catch (Exception e) {
             throw new DaoException("Error creando proyecto", e);
         }
     }
 
+    @Override
+    public List<Long> createAll(List<Proyecto> entities) {
+        try {
+            Batches.persistAll(em(), entities);
+            List<Long> ids = new ArrayList<>(entities.size());
+            for (Proyecto entity : entities) {
+                ids.add(entity.getId());
+            }
+            return ids;
+        } catch (Exception e) {
+            throw new DaoException("Error creando proyectos", e);
+        }
+    }
+
     @Override
     public Proyecto findById(Long id) {
         try {
-            return em.find(Proyecto.class, id);
+            return em().find(Proyecto.class, id);
         } catch (Exception e) {
             throw new DaoException("Error buscando proyecto por id", e);
         }
@@ -36,17 +57,26 @@ public class ProyectoDao implements IDao<Proyecto, Long> {
     @Override
     public List<Proyecto> findAll() {
         try {
-            return em.createQuery("SELECT p FROM Proyecto p ORDER BY p.creadoEn DESC", Proyecto.class)
+            return em().createQuery("SELECT p FROM Proyecto p ORDER BY p.creadoEn DESC", Proyecto.class)
                     .getResultList();
         } catch (Exception e) {
             throw new DaoException("Error listando proyectos", e);
         }
     }
 
+    @Override
+    public Slice<Proyecto, Long> findSlice(SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), null, null, request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando proyectos", e);
+        }
+    }
+
     @Override
     public void update(Proyecto entity) {
         try {
-            em.merge(entity);
+            em().merge(entity);
         } catch (Exception e) {
             throw new DaoException("Error actualizando proyecto", e);
         }
@@ -55,21 +85,37 @@ public class ProyectoDao implements IDao<Proyecto, Long> {
     @Override
     public void deleteById(Long id) {
         try {
-            Proyecto managed = em.find(Proyecto.class, id);
+            Proyecto managed = em().find(Proyecto.class, id);
             if (managed != null) {
-                em.remove(managed);
+                em().remove(managed);
             }
         } catch (Exception e) {
             throw new DaoException("Error eliminando proyecto", e);
         }
     }
 
+    /** Listado liviano de proyectos (sin la descripción). */
+    public List<ProyectoResumenDto> findAllResumen() {
+        try {
+            return em().createQuery(
+                    "SELECT new ar.edu.up.bugtracker.service.dto.ProyectoResumenDto(p.id, p.nombre, p.creadoEn) " +
+                    "FROM Proyecto p ORDER BY p.id",
+                    ProyectoResumenDto.class)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error listando proyectos", e);
+        }
+    }
+
     public Proyecto getReference(Long id) {
         try {
-            return em.getReference(Proyecto.class, id);
+            return em().getReference(Proyecto.class, id);
         } catch (Exception e) {
             throw new DaoException("Error obteniendo referencia de proyecto", e);
         }
     }
-}
 
+    private EntityManager em() {
+        return uow.em();
+    }
+}
@@ -0,0 +1,114 @@
+package ar.edu.up.bugtracker.dao;
+
+import ar.edu.up.bugtracker.exceptions.DaoException;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.NativeQuery;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Contadores por proyecto y estado guardados en proyecto_metricas.
+ * Los servicios los ajustan en la misma transacción que modifica la incidencia,
+ * así leer las métricas cuesta una fila por estado sin importar el tamaño del proyecto.
+ */
+public class ProyectoMetricasDao {
+
+    // Se declara la tabla que tocan los UPDATE nativos; si no, Hibernate invalida toda la caché de segundo nivel
+    private static final String TABLA = "proyecto_metricas";
+
+    private final UnitOfWork uow;
+
+    public ProyectoMetricasDao(UnitOfWork uow) {
+        this.uow = uow;
+    }
+
+    /**
+     * Contadores del proyecto por estado, incluyendo los estados sin incidencias.
+     * Cada fila es [estadoId, nombre, cantidad, horasEstimadas] (los números como Number).
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> countByEstado(Long proyectoId) {
+        try {
+            return em().createNativeQuery(
+                    "SELECT e.id, e.nombre, COALESCE(m.cantidad, 0), COALESCE(m.horas_estimadas, 0) " +
+                    "FROM incidencia_estado e " +
+                    "LEFT JOIN proyecto_metricas m ON m.estado_id = e.id AND m.proyecto_id = :proyectoId " +
+                    "ORDER BY e.nombre")
+                    .setParameter("proyectoId", proyectoId)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error calculando métricas del proyecto", e);
+        }
+    }
+
+    /**
+     * Suma los deltas al contador (proyecto, estado), creando la fila si no existe.
+     * También sirve dentro de una transacción sin estado (importación masiva).
+     */
+    public void ajustar(Long proyectoId, Long estadoId, int deltaCantidad, BigDecimal deltaHoras) {
+        try {
+            // La mutación nativa declara su tabla por hint, así la caché de segundo nivel sólo invalida ésa
+            uow.queries().createNativeMutationQuery(
+                    "INSERT INTO proyecto_metricas (proyecto_id, estado_id, cantidad, horas_estimadas) " +
+                    "VALUES (:proyectoId, :estadoId, :cantidad, :horas) " +
+                    "ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad), " +
+                    "horas_estimadas = horas_estimadas + VALUES(horas_estimadas)")
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, TABLA)
+                    .setParameter("proyectoId", proyectoId)
+                    .setParameter("estadoId", estadoId)
+                    .setParameter("cantidad", deltaCantidad)
+                    .setParameter("horas", deltaHoras != null ? deltaHoras : BigDecimal.ZERO)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error actualizando métricas del proyecto", e);
+        }
+    }
+
+    /** Recalcula desde cero los contadores de un proyecto a partir de la tabla incidencia. */
+    public void rebuild(Long proyectoId) {
+        try {
+            em().createNativeQuery("DELETE FROM proyecto_metricas WHERE proyecto_id = :proyectoId")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(TABLA)
+                    .setParameter("proyectoId", proyectoId)
+                    .executeUpdate();
+            em().createNativeQuery(
+                    "INSERT INTO proyecto_metricas (proyecto_id, estado_id, cantidad, horas_estimadas) " +
+                    "SELECT proyecto_id, estado_id, COUNT(*), COALESCE(SUM(estimacion_horas), 0) " +
+                    "FROM incidencia WHERE proyecto_id = :proyectoId " +
+                    "GROUP BY proyecto_id, estado_id")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(TABLA)
+                    .setParameter("proyectoId", proyectoId)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error recalculando métricas del proyecto", e);
+        }
+    }
+
+    /** Recalcula desde cero los contadores de todos los proyectos. */
+    public void rebuildAll() {
+        try {
+            em().createNativeQuery("DELETE FROM proyecto_metricas")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(TABLA)
+                    .executeUpdate();
+            em().createNativeQuery(
+                    "INSERT INTO proyecto_metricas (proyecto_id, estado_id, cantidad, horas_estimadas) " +
+                    "SELECT proyecto_id, estado_id, COUNT(*), COALESCE(SUM(estimacion_horas), 0) " +
+                    "FROM incidencia GROUP BY proyecto_id, estado_id")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace(TABLA)
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new DaoException("Error recalculando métricas", e);
+        }
+    }
+
+    private EntityManager em() {
+        return uow.em();
+    }
+}
@@ -0,0 +1,34 @@
+package ar.edu.up.bugtracker.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de resultados obtenida por keyset.
+ * Si hay más registros, {@link #getNext()} devuelve el pedido de la página siguiente.
+ */
+public class Slice<T, K> {
+
+    private final List<T> items;
+    private final SliceRequest<K> next;
+
+    public Slice(List<T> items, SliceRequest<K> next) {
+        this.items = items != null ? items : Collections.emptyList();
+        this.next = next;
+    }
+
+    public List<T> getItems() { return items; }
+    public SliceRequest<K> getNext() { return next; }
+    public boolean hasNext() { return next != null; }
+
+    /** Misma página con los elementos convertidos (ej. entidad a DTO), conservando el cursor. */
+    public <R> Slice<R, K> map(Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        for (T item : items) {
+            mapped.add(mapper.apply(item));
+        }
+        return new Slice<>(mapped, next);
+    }
+}
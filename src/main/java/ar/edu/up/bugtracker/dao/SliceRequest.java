@@ -0,0 +1,48 @@
+package ar.edu.up.bugtracker.dao;
+
+/**
+ * Pedido de una página por keyset (seek): se piden los registros posteriores al último visto
+ * en lugar de usar OFFSET, así el costo depende del tamaño de página y no de cuántas filas se saltean.
+ * El cursor es el par (valor de la clave de orden, id) del último registro de la página anterior.
+ */
+public class SliceRequest<K> {
+
+    public static final int MAX_LIMIT = 500;
+
+    private final String sortKey;
+    private final boolean descending;
+    private final int limit;
+    private final Object afterSortValue;
+    private final K afterId;
+
+    private SliceRequest(String sortKey, boolean descending, int limit, Object afterSortValue, K afterId) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.limit = limit;
+        this.afterSortValue = afterSortValue;
+        this.afterId = afterId;
+    }
+
+    /** Primera página ordenada por id ascendente. */
+    public static <K> SliceRequest<K> first(int limit) {
+        return new SliceRequest<>(null, false, limit, null, null);
+    }
+
+    /** Primera página ordenada por la clave indicada (el id se usa como desempate). */
+    public static <K> SliceRequest<K> first(int limit, String sortKey, boolean descending) {
+        return new SliceRequest<>(sortKey, descending, limit, null, null);
+    }
+
+    /** Página siguiente a partir del último registro visto, con el mismo orden. */
+    public SliceRequest<K> after(Object lastSortValue, K lastId) {
+        return new SliceRequest<>(sortKey, descending, limit, lastSortValue, lastId);
+    }
+
+    /** Clave de orden; null significa ordenar sólo por id. */
+    public String getSortKey() { return sortKey; }
+    public boolean isDescending() { return descending; }
+    public int getLimit() { return limit; }
+    public Object getAfterSortValue() { return afterSortValue; }
+    public K getAfterId() { return afterId; }
+    public boolean isFirst() { return afterId == null; }
+}
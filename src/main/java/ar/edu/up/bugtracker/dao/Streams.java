@@ -0,0 +1,43 @@
+package ar.edu.up.bugtracker.dao;
+
+import jakarta.persistence.TypedQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
+import java.util.function.Consumer;
+
+/**
+ * Lectura fila a fila compartida por las exportaciones de los DAOs.
+ */
+final class Streams {
+
+    /**
+     * Con este fetch size Connector/J transmite el result set a medida que se lee en lugar de
+     * cargarlo entero en memoria. Mientras está abierto, la conexión no admite otras consultas.
+     */
+    static final int MYSQL_STREAMING = Integer.MIN_VALUE;
+
+    private Streams() {
+    }
+
+    /**
+     * Recorre la consulta hacia adelante y entrega cada fila a quien llama; devuelve cuántas hubo.
+     * Las consultas son proyecciones de columnas: ninguna fila entra al contexto de persistencia,
+     * así que la memoria no crece con el tamaño del resultado.
+     */
+    @SuppressWarnings("unchecked")
+    static long scroll(TypedQuery<Object[]> query, Consumer<Object[]> fila) {
+        Query<Object[]> q = query.unwrap(Query.class);
+        q.setFetchSize(MYSQL_STREAMING);
+        q.setReadOnly(true);
+        long n = 0;
+        try (ScrollableResults<Object[]> rs = q.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rs.next()) {
+                fila.accept(rs.get());
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -1,36 +1,77 @@
 package ar.edu.up.bugtracker.dao;
 
 import ar.edu.up.bugtracker.exceptions.DaoException;
+import ar.edu.up.bugtracker.exceptions.DuplicateKeyException;
 import ar.edu.up.bugtracker.models.PerfilUsuario;
 import ar.edu.up.bugtracker.models.Usuario;
+import ar.edu.up.bugtracker.persistence.CacheMetrics;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.service.dto.UserDetailDto;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
+import org.hibernate.jpa.HibernateHints;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 
 public class UserDao implements IDao<Usuario, Long> {
 
-    private final EntityManager em;
+    /** Índice único sobre la columna generada email_normalizado. */
+    public static final String UQ_EMAIL = "uq_usuario_email_normalizado";
 
-    public UserDao(EntityManager em) {
-        this.em = em;
+    private final UnitOfWork uow;
+    private final KeysetQuery<Usuario> keyset = new KeysetQuery<>(Usuario.class,
+            "SELECT u FROM Usuario u " +
+            "LEFT JOIN FETCH u.perfil", "u", Usuario::getId)
+            .sortKey("email", Usuario::getEmail)
+            .sortKey("creadoEn", Usuario::getCreadoEn);
+    // Proyección para listados: no trae hash ni salt de la contraseña
+    private final KeysetQuery<UserDetailDto> detalleKeyset = new KeysetQuery<>(UserDetailDto.class,
+            "SELECT new ar.edu.up.bugtracker.service.dto.UserDetailDto(" +
+            "u.id, u.nombre, u.apellido, u.email, p.nombre, u.creadoEn) " +
+            "FROM Usuario u LEFT JOIN u.perfil p", "u", UserDetailDto::getId)
+            .sortKey("email", UserDetailDto::getEmail)
+            .sortKey("creadoEn", UserDetailDto::getCreadoEn);
+
+    public UserDao(UnitOfWork uow) {
+        this.uow = uow;
     }
 
     @Override
     public Long create(Usuario entity) {
         try {
-            em.persist(entity);
+            // Con IDENTITY el INSERT sale en el persist, así la clave duplicada se detecta acá
+            em().persist(entity);
             return entity.getId();
         } catch (Exception e) {
+            String constraint = JdbcErrors.duplicateKey(e);
+            if (constraint != null) {
+                throw new DuplicateKeyException("Usuario duplicado", constraint, e);
+            }
             throw new DaoException("Error creando usuario", e);
         }
     }
 
+    @Override
+    public List<Long> createAll(List<Usuario> entities) {
+        try {
+            Batches.persistAll(em(), entities);
+            List<Long> ids = new ArrayList<>(entities.size());
+            for (Usuario entity : entities) {
+                ids.add(entity.getId());
+            }
+            return ids;
+        } catch (Exception e) {
+            throw new DaoException("Error creando usuarios", e);
+        }
+    }
+
     @Override
     public Usuario findById(Long id) {
         try {
-            return em.find(Usuario.class, id);
+            return em().find(Usuario.class, id);
         } catch (Exception e) {
             throw new DaoException("Error buscando usuario por id", e);
         }
@@ -39,7 +80,7 @@ public class UserDao implements IDao<Usuario, Long> {
     @Override
     public List<Usuario> findAll() {
         try {
-            return em.createQuery(
+            return em().createQuery(
                     "SELECT DISTINCT u FROM Usuario u " +
                     "LEFT JOIN FETCH u.perfil " +
                     "ORDER BY u.id", Usuario.class)
@@ -49,10 +90,40 @@ public class UserDao implements IDao<Usuario, Long> {
         }
     }
 
+    @Override
+    public Slice<Usuario, Long> findSlice(SliceRequest<Long> request) {
+        try {
+            return keyset.fetch(em(), null, null, request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando usuarios", e);
+        }
+    }
+
+    public List<UserDetailDto> findAllDetalle() {
+        try {
+            return em().createQuery(
+                    "SELECT new ar.edu.up.bugtracker.service.dto.UserDetailDto(" +
+                    "u.id, u.nombre, u.apellido, u.email, p.nombre, u.creadoEn) " +
+                    "FROM Usuario u LEFT JOIN u.perfil p ORDER BY u.id",
+                    UserDetailDto.class)
+                    .getResultList();
+        } catch (Exception e) {
+            throw new DaoException("Error listando usuarios", e);
+        }
+    }
+
+    public Slice<UserDetailDto, Long> findDetalleSlice(SliceRequest<Long> request) {
+        try {
+            return detalleKeyset.fetch(em(), null, null, request);
+        } catch (Exception e) {
+            throw new DaoException("Error paginando usuarios", e);
+        }
+    }
+
     @Override
     public void update(Usuario entity) {
         try {
-            em.merge(entity);
+            em().merge(entity);
         } catch (Exception e) {
             throw new DaoException("Error actualizando usuario", e);
         }
@@ -61,20 +132,21 @@ public class UserDao implements IDao<Usuario, Long> {
     @Override
     public void deleteById(Long id) {
         try {
-            Usuario managed = em.find(Usuario.class, id);
+            Usuario managed = em().find(Usuario.class, id);
             if (managed != null) {
-                em.remove(managed);
+                em().remove(managed);
             }
         } catch (Exception e) {
             throw new DaoException("Error eliminando usuario", e);
         }
     }
 
+    /** Búsqueda puntual por el índice único de email_normalizado; trae el perfil para armar la sesión. */
     public Usuario findByEmail(String email) {
         try {
-            return em.createQuery(
-                    "SELECT u FROM Usuario u WHERE LOWER(u.email) = :e", Usuario.class)
-                    .setParameter("e", email == null ? null : email.trim().toLowerCase())
+            return em().createQuery(
+                    "SELECT u FROM Usuario u LEFT JOIN FETCH u.perfil WHERE u.emailNormalizado = :e", Usuario.class)
+                    .setParameter("e", normalize(email))
                     .getSingleResult();
         } catch (NoResultException e) {
             return null;
@@ -83,13 +155,32 @@ public class UserDao implements IDao<Usuario, Long> {
         }
     }
 
+    /**
+     * Reemplaza el hash sólo si sigue siendo el que se verificó, para no pisar un cambio de
+     * contraseña hecho en paralelo. Devuelve false si no se actualizó nada.
+     */
+    public boolean updatePasswordHash(Long id, String nuevoHash, String hashAnterior) {
+        try {
+            return em().createQuery(
+                    "UPDATE Usuario u SET u.passwordHash = :nuevo, u.passwordSalt = NULL " +
+                    "WHERE u.id = :id AND u.passwordHash = :anterior")
+                    .setParameter("nuevo", nuevoHash)
+                    .setParameter("id", id)
+                    .setParameter("anterior", hashAnterior)
+                    .executeUpdate() > 0;
+        } catch (Exception e) {
+            throw new DaoException("Error actualizando hash de password", e);
+        }
+    }
+
     public boolean existsByEmail(String email) {
         try {
-            Long count = em.createQuery(
-                    "SELECT COUNT(u) FROM Usuario u WHERE LOWER(u.email) = :e", Long.class)
-                    .setParameter("e", email == null ? null : email.trim().toLowerCase())
-                    .getSingleResult();
-            return count != null && count > 0;
+            return !em().createQuery(
+                    "SELECT u.id FROM Usuario u WHERE u.emailNormalizado = :e", Long.class)
+                    .setParameter("e", normalize(email))
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
         } catch (Exception e) {
             throw new DaoException("Error verificando existencia de email", e);
         }
@@ -98,9 +189,11 @@ public class UserDao implements IDao<Usuario, Long> {
     /** Helper de lectura para resolver el perfil por nombre (ADMIN/USUARIO). */
     public PerfilUsuario findPerfilByNombre(String nombre) {
         try {
-            return em.createQuery(
+            return em().createQuery(
                     "SELECT p FROM PerfilUsuario p WHERE p.nombre = :n", PerfilUsuario.class)
                     .setParameter("n", nombre)
+                    .setHint(HibernateHints.HINT_CACHEABLE, true)
+                    .setHint(HibernateHints.HINT_CACHE_REGION, CacheMetrics.CATALOGOS_CONSULTAS)
                     .getSingleResult();
         } catch (NoResultException e) {
             return null;
@@ -111,9 +204,18 @@ public class UserDao implements IDao<Usuario, Long> {
 
     public Usuario getReference(Long id) {
         try {
-            return em.getReference(Usuario.class, id);
+            return em().getReference(Usuario.class, id);
         } catch (Exception e) {
             throw new DaoException("Error obteniendo referencia de usuario", e);
         }
     }
+
+    // Misma normalización que la columna generada: LOWER(TRIM(email))
+    private String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private EntityManager em() {
+        return uow.em();
+    }
 }
@@ -0,0 +1,6 @@
+package ar.edu.up.bugtracker.exceptions;
+
+/** Otro usuario modificó el dato mientras se editaba y el cambio ya no se puede aplicar sin revisarlo. */
+public class ConflictException extends BusinessException {
+    public ConflictException(String message) { super(message); }
+}
@@ -0,0 +1,16 @@
+package ar.edu.up.bugtracker.exceptions;
+
+/**
+ * Violación de una clave única al insertar o actualizar. Guarda el nombre de la restricción
+ * (si el driver lo informa) para que el servicio pueda traducirla a un mensaje de negocio.
+ */
+public class DuplicateKeyException extends DaoException {
+    private final String constraintName;
+
+    public DuplicateKeyException(String message, String constraintName, Throwable cause) {
+        super(message, cause);
+        this.constraintName = constraintName;
+    }
+
+    public String getConstraintName() { return constraintName; }
+}
@@ -0,0 +1,6 @@
+package ar.edu.up.bugtracker.exceptions;
+
+/** La base siguió rechazando la operación por deadlock o espera de bloqueos aun después de reintentarla. */
+public class LockContentionException extends BusinessException {
+    public LockContentionException(String message, Throwable cause) { super(message, cause); }
+}
@@ -9,8 +9,11 @@ import java.time.LocalDateTime;
 @Table(name = "comentario")
 public class Comentario {
 
+    // Ids asignados por bloques desde id_generador para que Hibernate pueda agrupar los INSERT en batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "comentario_id")
+    @TableGenerator(name = "comentario_id", table = "id_generador", pkColumnName = "entidad",
+            valueColumnName = "proximo_id", pkColumnValue = "comentario", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -29,7 +32,12 @@ public class Comentario {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Long getId() { return id; }
+    public Long getVersion() { return version; }
     public Incidencia getIncidencia() { return incidencia; }
     public void setIncidencia(Incidencia incidencia) { this.incidencia = incidencia; }
     public Usuario getCreatedBy() { return createdBy; }
@@ -10,8 +10,11 @@ import java.time.LocalDateTime;
 @Table(name = "incidencia")
 public class Incidencia {
 
+    // Ids asignados por bloques desde id_generador para que Hibernate pueda agrupar los INSERT en batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "incidencia_id")
+    @TableGenerator(name = "incidencia_id", table = "id_generador", pkColumnName = "entidad",
+            valueColumnName = "proximo_id", pkColumnValue = "incidencia", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -33,11 +36,27 @@ public class Incidencia {
     @JoinColumn(name = "current_version_id")
     private IncidenciaVersion currentVersion;
 
+    // Copia del estado de la versión actual, para listar y filtrar sin pasar por incidencia_version
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "estado_id", nullable = false)
+    private IncidenciaEstado estado;
+
+    @Column(name = "estado_cambiado_en")
+    private LocalDateTime estadoCambiadoEn;
+
     @CreationTimestamp
     @Column(name = "creado_en", nullable = false, updatable = false)
     private LocalDateTime creadoEn;
 
+    // Control optimista: cada UPDATE exige la versión leída y la incrementa
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Long getId() { return id; }
+    public Long getVersion() { return version; }
+    /** En los pedidos de edición lleva la versión que el usuario tenía cargada. */
+    public void setVersion(Long version) { this.version = version; }
     public Proyecto getProyecto() { return proyecto; }
     public void setProyecto(Proyecto proyecto) { this.proyecto = proyecto; }
     public Usuario getResponsable() { return responsable; }
@@ -48,5 +67,9 @@ public class Incidencia {
     public void setEstimacionHoras(BigDecimal estimacionHoras) { this.estimacionHoras = estimacionHoras; }
     public IncidenciaVersion getCurrentVersion() { return currentVersion; }
     public void setCurrentVersion(IncidenciaVersion currentVersion) { this.currentVersion = currentVersion; }
+    public IncidenciaEstado getEstado() { return estado; }
+    public void setEstado(IncidenciaEstado estado) { this.estado = estado; }
+    public LocalDateTime getEstadoCambiadoEn() { return estadoCambiadoEn; }
+    public void setEstadoCambiadoEn(LocalDateTime estadoCambiadoEn) { this.estadoCambiadoEn = estadoCambiadoEn; }
     public LocalDateTime getCreadoEn() { return creadoEn; }
 }
@@ -1,9 +1,9 @@
 package ar.edu.up.bugtracker.models;
 
+import ar.edu.up.bugtracker.models.detalle.DetalleVersion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersionConverter;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
@@ -11,14 +11,24 @@ import java.time.LocalDateTime;
 @Table(name = "incidencia_version")
 public class IncidenciaVersion {
 
+    /** Cada cuántas versiones de una incidencia se guarda un SnapshotIncidencia completo. */
+    public static final int VERSIONES_POR_SNAPSHOT = 20;
+
+    // Ids asignados por bloques desde id_generador para que Hibernate pueda agrupar los INSERT en batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "incidencia_version_id")
+    @TableGenerator(name = "incidencia_version_id", table = "id_generador", pkColumnName = "entidad",
+            valueColumnName = "proximo_id", pkColumnValue = "incidencia_version", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "incidencia_id", nullable = false)
     private Incidencia incidencia;
 
+    // Número de versión dentro de la incidencia (1 = creación)
+    @Column(name = "numero")
+    private Integer numero;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "created_by", nullable = false)
     private Usuario createdBy;
@@ -27,9 +37,16 @@ public class IncidenciaVersion {
     @JoinColumn(name = "estado_id", nullable = false)
     private IncidenciaEstado estado;
 
-    @JdbcTypeCode(SqlTypes.JSON)
+    @Convert(converter = DetalleVersionConverter.class)
     @Column(name = "detalles", columnDefinition = "json")
-    private String detalles;
+    private DetalleVersion detalles;
+
+    // Columnas generadas por MySQL a partir de detalles (indexadas); sólo lectura
+    @Column(name = "tipo", insertable = false, updatable = false)
+    private String tipo;
+
+    @Column(name = "estado_nuevo", insertable = false, updatable = false)
+    private String estadoNuevo;
 
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -38,11 +55,25 @@ public class IncidenciaVersion {
     public Long getId() { return id; }
     public Incidencia getIncidencia() { return incidencia; }
     public void setIncidencia(Incidencia incidencia) { this.incidencia = incidencia; }
+    public Integer getNumero() { return numero; }
+    public void setNumero(Integer numero) { this.numero = numero; }
     public Usuario getCreatedBy() { return createdBy; }
     public void setCreatedBy(Usuario createdBy) { this.createdBy = createdBy; }
     public IncidenciaEstado getEstado() { return estado; }
     public void setEstado(IncidenciaEstado estado) { this.estado = estado; }
-    public String getDetalles() { return detalles; }
-    public void setDetalles(String detalles) { this.detalles = detalles; }
+    public DetalleVersion getDetalles() { return detalles; }
+    public void setDetalles(DetalleVersion detalles) { this.detalles = detalles; }
+    public String getTipo() { return tipo; }
+    public String getEstadoNuevo() { return estadoNuevo; }
     public LocalDateTime getCreatedAt() { return createdAt; }
+
+    /** Número para la versión que sigue a ésta. */
+    public int siguienteNumero() {
+        return numero != null ? numero + 1 : 1;
+    }
+
+    /** Las versiones 1, 1 + N, 1 + 2N... llevan snapshot, así entre N versiones seguidas siempre hay uno. */
+    public static boolean requiereSnapshot(int numero) {
+        return (numero - 1) % VERSIONES_POR_SNAPSHOT == 0;
+    }
 }
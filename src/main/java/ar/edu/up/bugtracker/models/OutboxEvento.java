@@ -0,0 +1,41 @@
+package ar.edu.up.bugtracker.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de dominio guardado en la misma transacción que el cambio que lo origina (patrón outbox).
+ * El id autoincremental da el orden de despacho; los eventos viejos se purgan.
+ */
+@Entity
+@Table(name = "outbox_evento")
+public class OutboxEvento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tipo", nullable = false, length = 64)
+    private String tipo;
+
+    @Column(name = "agregado_id")
+    private Long agregadoId;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "json")
+    private String payload;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public Long getId() { return id; }
+    public String getTipo() { return tipo; }
+    public void setTipo(String tipo) { this.tipo = tipo; }
+    public Long getAgregadoId() { return agregadoId; }
+    public void setAgregadoId(Long agregadoId) { this.agregadoId = agregadoId; }
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -1,9 +1,17 @@
 package ar.edu.up.bugtracker.models;
 
+import ar.edu.up.bugtracker.persistence.CacheMetrics;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
+// Catálogo fijo: inmutable para Hibernate, así puede ir a la caché de segundo nivel de sólo lectura
 @Entity
+@Immutable
 @Table(name = "perfil_usuario")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = CacheMetrics.CATALOGOS)
 public class PerfilUsuario {
 
     @Id
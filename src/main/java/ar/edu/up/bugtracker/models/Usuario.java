@@ -22,6 +22,10 @@ public class Usuario {
     @Column(name = "email", nullable = false, length = 255)
     private String email;
 
+    /** LOWER(TRIM(email)) calculado por MySQL (columna generada) con índice único; sólo para búsquedas. */
+    @Column(name = "email_normalizado", insertable = false, updatable = false)
+    private String emailNormalizado;
+
     @Column(name = "password_hash", nullable = false, length = 255)
     private String passwordHash;
 
@@ -48,6 +52,7 @@ public class Usuario {
     public void setApellido(String apellido) { this.apellido = apellido; }
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
+    public String getEmailNormalizado() { return emailNormalizado; }
     public String getPasswordHash() { return passwordHash; }
     public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
     public String getPasswordSalt() { return passwordSalt; }
@@ -0,0 +1,38 @@
+package ar.edu.up.bugtracker.models.detalle;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Cambio de un campo: valores como texto (null si el campo estaba o quedó vacío). */
+@JsonInclude(JsonInclude.Include.ALWAYS)
+public class CambioCampo {
+
+    public static final String DESCRIPCION = "descripcion";
+    public static final String ESTIMACION_HORAS = "estimacion_horas";
+    public static final String RESPONSABLE = "responsable";
+
+    @JsonProperty("campo")
+    private String campo;
+
+    @JsonProperty("anterior")
+    private String anterior;
+
+    @JsonProperty("nuevo")
+    private String nuevo;
+
+    public CambioCampo() {
+    }
+
+    public CambioCampo(String campo, String anterior, String nuevo) {
+        this.campo = campo;
+        this.anterior = anterior;
+        this.nuevo = nuevo;
+    }
+
+    public String getCampo() { return campo; }
+    public void setCampo(String campo) { this.campo = campo; }
+    public String getAnterior() { return anterior; }
+    public void setAnterior(String anterior) { this.anterior = anterior; }
+    public String getNuevo() { return nuevo; }
+    public void setNuevo(String nuevo) { this.nuevo = nuevo; }
+}
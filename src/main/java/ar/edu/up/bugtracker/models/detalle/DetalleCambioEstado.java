@@ -0,0 +1,29 @@
+package ar.edu.up.bugtracker.models.detalle;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Transición de estado; estado_nuevo está indexado para consultas de historial. */
+public class DetalleCambioEstado extends DetalleVersion {
+
+    @JsonProperty("estado_anterior")
+    private String estadoAnterior;
+
+    @JsonProperty("estado_nuevo")
+    private String estadoNuevo;
+
+    public DetalleCambioEstado() {
+    }
+
+    public DetalleCambioEstado(String estadoAnterior, String estadoNuevo) {
+        this.estadoAnterior = estadoAnterior;
+        this.estadoNuevo = estadoNuevo;
+    }
+
+    @Override
+    public String tipo() { return CAMBIO_ESTADO; }
+
+    public String getEstadoAnterior() { return estadoAnterior; }
+    public void setEstadoAnterior(String estadoAnterior) { this.estadoAnterior = estadoAnterior; }
+    public String getEstadoNuevo() { return estadoNuevo; }
+    public void setEstadoNuevo(String estadoNuevo) { this.estadoNuevo = estadoNuevo; }
+}
@@ -0,0 +1,23 @@
+package ar.edu.up.bugtracker.models.detalle;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Versión inicial: la incidencia se crea en el estado indicado. */
+public class DetalleCreacion extends DetalleVersion {
+
+    @JsonProperty("estado")
+    private String estado;
+
+    public DetalleCreacion() {
+    }
+
+    public DetalleCreacion(String estado) {
+        this.estado = estado;
+    }
+
+    @Override
+    public String tipo() { return CREACION; }
+
+    public String getEstado() { return estado; }
+    public void setEstado(String estado) { this.estado = estado; }
+}
@@ -0,0 +1,26 @@
+package ar.edu.up.bugtracker.models.detalle;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Edición de campos de la incidencia, con el valor anterior y el nuevo de cada uno. */
+public class DetalleEdicion extends DetalleVersion {
+
+    @JsonProperty("cambios")
+    private List<CambioCampo> cambios = new ArrayList<>();
+
+    public DetalleEdicion() {
+    }
+
+    public DetalleEdicion(List<CambioCampo> cambios) {
+        this.cambios = new ArrayList<>(cambios);
+    }
+
+    @Override
+    public String tipo() { return EDICION; }
+
+    public List<CambioCampo> getCambios() { return cambios; }
+    public void setCambios(List<CambioCampo> cambios) { this.cambios = cambios; }
+}
@@ -0,0 +1,37 @@
+package ar.edu.up.bugtracker.models.detalle;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Detalle de una versión de incidencia (columna JSON incidencia_version.detalles).
+ * El discriminador "tipo" y "estado_nuevo" también existen como columnas generadas e indexadas,
+ * así que sus valores no deben cambiar sin migrar los datos.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "tipo")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = DetalleCreacion.class, name = DetalleVersion.CREACION),
+        @JsonSubTypes.Type(value = DetalleCambioEstado.class, name = DetalleVersion.CAMBIO_ESTADO),
+        @JsonSubTypes.Type(value = DetalleEdicion.class, name = DetalleVersion.EDICION)
+})
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public abstract class DetalleVersion {
+
+    public static final String CREACION = "creacion";
+    public static final String CAMBIO_ESTADO = "cambio_estado";
+    public static final String EDICION = "edicion";
+
+    // Sólo en las versiones que llevan foto completa (ver IncidenciaVersion.requiereSnapshot)
+    @JsonProperty("snapshot")
+    private SnapshotIncidencia snapshot;
+
+    /** Valor del discriminador "tipo" en el JSON. */
+    public abstract String tipo();
+
+    public SnapshotIncidencia getSnapshot() { return snapshot; }
+    public void setSnapshot(SnapshotIncidencia snapshot) { this.snapshot = snapshot; }
+}
@@ -0,0 +1,55 @@
+package ar.edu.up.bugtracker.models.detalle;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Serializa DetalleVersion a la columna JSON con Jackson.
+ * Un JSON que no se puede leer (tipo desconocido, datos cargados a mano) se devuelve como null en lugar
+ * de impedir que se cargue el historial.
+ * Los detalles se tratan como inmutables: para cambiarlos se asigna una instancia nueva. Así Hibernate no
+ * copia el valor para el dirty checking ni emite un UPDATE de cada versión leída o recién insertada.
+ */
+@Converter
+@Immutable
+public class DetalleVersionConverter implements AttributeConverter<DetalleVersion, String> {
+
+    private static final System.Logger LOG = System.getLogger(DetalleVersionConverter.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public String convertToDatabaseColumn(DetalleVersion detalle) {
+        return toJson(detalle);
+    }
+
+    @Override
+    public DetalleVersion convertToEntityAttribute(String json) {
+        return fromJson(json);
+    }
+
+    public static String toJson(DetalleVersion detalle) {
+        if (detalle == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(detalle);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo serializar el detalle de la versión", e);
+        }
+    }
+
+    public static DetalleVersion fromJson(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(json, DetalleVersion.class);
+        } catch (JsonProcessingException e) {
+            LOG.log(System.Logger.Level.WARNING, "Detalle de versión ilegible: " + json);
+            return null;
+        }
+    }
+}
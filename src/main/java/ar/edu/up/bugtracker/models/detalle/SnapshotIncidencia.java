@@ -0,0 +1,49 @@
+package ar.edu.up.bugtracker.models.detalle;
+
+import ar.edu.up.bugtracker.models.Incidencia;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * Estado completo de la incidencia al momento de una versión. Se guarda cada
+ * IncidenciaVersion.VERSIONES_POR_SNAPSHOT versiones para reconstruir sin recorrer todo el historial.
+ */
+@JsonInclude(JsonInclude.Include.ALWAYS)
+public class SnapshotIncidencia {
+
+    @JsonProperty("estado")
+    private String estado;
+
+    @JsonProperty("responsable")
+    private String responsable;
+
+    @JsonProperty("estimacion_horas")
+    private BigDecimal estimacionHoras;
+
+    @JsonProperty("descripcion")
+    private String descripcion;
+
+    public SnapshotIncidencia() {
+    }
+
+    /** Toma los valores actuales de la incidencia (el responsable se guarda por email). */
+    public static SnapshotIncidencia de(Incidencia incidencia) {
+        SnapshotIncidencia snapshot = new SnapshotIncidencia();
+        snapshot.estado = incidencia.getEstado() != null ? incidencia.getEstado().getNombre() : null;
+        snapshot.responsable = incidencia.getResponsable() != null ? incidencia.getResponsable().getEmail() : null;
+        snapshot.estimacionHoras = incidencia.getEstimacionHoras();
+        snapshot.descripcion = incidencia.getDescripcion();
+        return snapshot;
+    }
+
+    public String getEstado() { return estado; }
+    public void setEstado(String estado) { this.estado = estado; }
+    public String getResponsable() { return responsable; }
+    public void setResponsable(String responsable) { this.responsable = responsable; }
+    public BigDecimal getEstimacionHoras() { return estimacionHoras; }
+    public void setEstimacionHoras(BigDecimal estimacionHoras) { this.estimacionHoras = estimacionHoras; }
+    public String getDescripcion() { return descripcion; }
+    public void setDescripcion(String descripcion) { this.descripcion = descripcion; }
+}
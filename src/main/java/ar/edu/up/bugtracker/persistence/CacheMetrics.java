@@ -0,0 +1,64 @@
+package ar.edu.up.bugtracker.persistence;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Foto inmutable de los aciertos y fallos de una región de la caché de segundo nivel.
+ */
+public class CacheMetrics {
+
+    /** Región de entidades de los catálogos. */
+    public static final String CATALOGOS = "catalogos";
+    /** Región de resultados de las consultas sobre catálogos. */
+    public static final String CATALOGOS_CONSULTAS = "catalogos.consultas";
+
+    private final String region;
+    private final long hits;
+    private final long misses;
+    private final long puts;
+
+    public CacheMetrics(String region, long hits, long misses, long puts) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+    }
+
+    public String getRegion() { return region; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getPuts() { return puts; }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
+    /** Métricas de todas las regiones configuradas (vacío si hibernate.generate_statistics está apagado). */
+    public static List<CacheMetrics> from(EntityManagerFactory emf) {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        List<CacheMetrics> result = new ArrayList<>();
+        if (!stats.isStatisticsEnabled()) {
+            return result;
+        }
+        for (String region : stats.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics r = stats.getCacheRegionStatistics(region);
+            if (r != null) {
+                result.add(new CacheMetrics(region, r.getHitCount(), r.getMissCount(), r.getPutCount()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache[%s: aciertos=%d, fallos=%d, cargas=%d, tasa=%.0f%%]",
+                region, hits, misses, puts, getHitRatio() * 100);
+    }
+}
@@ -0,0 +1,91 @@
+package ar.edu.up.bugtracker.persistence;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Proveedor de caché de segundo nivel en memoria del proceso (sin dependencias externas).
+ * Cada región es un ConcurrentHashMap sin límite de tamaño: pensado para catálogos chicos
+ * que no cambian en ejecución (estados de incidencia, perfiles de usuario) y sus consultas.
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+    }
+
+    @Override
+    protected void releaseFromUse() {
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return new MapStorageAccess();
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return new MapStorageAccess();
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return new MapStorageAccess();
+    }
+
+    private static class MapStorageAccess implements DomainDataStorageAccess {
+        private final Map<Object, Object> data = new ConcurrentHashMap<>();
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return data.get(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            data.put(key, value);
+        }
+
+        @Override
+        public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+            data.remove(key);
+        }
+
+        @Override
+        public void clearCache(SharedSessionContractImplementor session) {
+            data.clear();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return data.containsKey(key);
+        }
+
+        @Override
+        public void evictData() {
+            data.clear();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            data.remove(key);
+        }
+
+        @Override
+        public void release() {
+            data.clear();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ar.edu.up.bugtracker.persistence;
+
+/**
+ * Foto inmutable de los contadores del pool de conexiones en un momento dado.
+ */
+public class PoolMetrics {
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int maxSize;
+    private final int waiting;
+    private final long acquired;
+    private final long timeouts;
+    private final long created;
+    private final long destroyed;
+    private final long validationFailures;
+    private final long totalWaitMillis;
+    private final long maxWaitMillis;
+
+    public PoolMetrics(int active, int idle, int total, int maxSize, int waiting,
+                       long acquired, long timeouts, long created, long destroyed,
+                       long validationFailures, long totalWaitMillis, long maxWaitMillis) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.maxSize = maxSize;
+        this.waiting = waiting;
+        this.acquired = acquired;
+        this.timeouts = timeouts;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.validationFailures = validationFailures;
+        this.totalWaitMillis = totalWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getTotal() { return total; }
+    public int getMaxSize() { return maxSize; }
+    public int getWaiting() { return waiting; }
+    public long getAcquired() { return acquired; }
+    public long getTimeouts() { return timeouts; }
+    public long getCreated() { return created; }
+    public long getDestroyed() { return destroyed; }
+    public long getValidationFailures() { return validationFailures; }
+    public long getTotalWaitMillis() { return totalWaitMillis; }
+    public long getMaxWaitMillis() { return maxWaitMillis; }
+
+    public double getAvgWaitMillis() {
+        return acquired > 0 ? (double) totalWaitMillis / acquired : 0.0;
+    }
+
+    /** Proporción de conexiones prestadas sobre el máximo configurado (1.0 = pool saturado). */
+    public double getSaturation() {
+        return maxSize > 0 ? (double) active / maxSize : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "pool[activas=%d, ociosas=%d, total=%d/%d, esperando=%d, prestamos=%d, timeouts=%d, " +
+                "creadas=%d, descartadas=%d, validacionesFallidas=%d, esperaProm=%.1fms, esperaMax=%dms]",
+                active, idle, total, maxSize, waiting, acquired, timeouts,
+                created, destroyed, validationFailures, getAvgWaitMillis(), maxWaitMillis);
+    }
+}
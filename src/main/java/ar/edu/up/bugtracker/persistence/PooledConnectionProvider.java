@@ -0,0 +1,342 @@
+package ar.edu.up.bugtracker.persistence;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de conexiones JDBC propio para la unidad de persistencia bugtrackerPU.
+ * Reemplaza al proveedor interno de Hibernate (no apto para producción) y permite que varios
+ * SwingWorker trabajen en paralelo con conexiones reales. Se configura con las propiedades
+ * bugtracker.pool.* y expone sus contadores a través de {@link #getMetrics()}.
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    public static final String MIN_SIZE = "bugtracker.pool.min_size";
+    public static final String MAX_SIZE = "bugtracker.pool.max_size";
+    public static final String CONNECTION_TIMEOUT_MS = "bugtracker.pool.connection_timeout_ms";
+    public static final String IDLE_TIMEOUT_MS = "bugtracker.pool.idle_timeout_ms";
+    public static final String EVICTION_INTERVAL_MS = "bugtracker.pool.eviction_interval_ms";
+    public static final String VALIDATION_TIMEOUT_S = "bugtracker.pool.validation_timeout_s";
+    public static final String VALIDATE_AFTER_IDLE_MS = "bugtracker.pool.validate_after_idle_ms";
+    public static final String SLOW_WAIT_MS = "bugtracker.pool.slow_wait_ms";
+
+    // Claves hibernate.connection.* que no son propiedades del driver
+    private static final Set<String> NON_DRIVER_KEYS = Set.of(
+            "provider_class", "url", "username", "password", "driver_class",
+            "isolation", "autocommit", "pool_size", "handling_mode", "provider_disables_autocommit");
+
+    private static final System.Logger LOG = System.getLogger(PooledConnectionProvider.class.getName());
+
+    private String url;
+    private Properties connectionProps;
+    private int minSize;
+    private int maxSize;
+    private long connectionTimeoutMs;
+    private long idleTimeoutMs;
+    private int validationTimeoutS;
+    private long validateAfterIdleMs;
+    private long slowWaitMs;
+
+    private Semaphore permits;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, PooledConnection> inUse = new ConcurrentHashMap<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private ScheduledExecutorService evictor;
+    private volatile boolean stopped;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @Override
+    public void configure(Map<String, Object> settings) {
+        url = firstNonNull(settings, "jakarta.persistence.jdbc.url", "hibernate.connection.url");
+        if (url == null) {
+            throw new HibernateException("Falta la URL JDBC para el pool de conexiones");
+        }
+
+        String driver = firstNonNull(settings, "jakarta.persistence.jdbc.driver", "hibernate.connection.driver_class");
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                throw new HibernateException("No se encontró el driver JDBC " + driver, e);
+            }
+        }
+
+        connectionProps = new Properties();
+        String user = firstNonNull(settings, "jakarta.persistence.jdbc.user", "hibernate.connection.username");
+        String pass = firstNonNull(settings, "jakarta.persistence.jdbc.password", "hibernate.connection.password");
+        if (user != null) connectionProps.setProperty("user", user);
+        if (pass != null) connectionProps.setProperty("password", pass);
+        // El resto de hibernate.connection.* se pasa al driver (ej. rewriteBatchedStatements)
+        settings.forEach((key, value) -> {
+            if (key.startsWith("hibernate.connection.") && value != null) {
+                String prop = key.substring("hibernate.connection.".length());
+                if (!NON_DRIVER_KEYS.contains(prop)) {
+                    connectionProps.setProperty(prop, value.toString());
+                }
+            }
+        });
+
+        minSize = intSetting(settings, MIN_SIZE, 2);
+        maxSize = intSetting(settings, MAX_SIZE, 10);
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new HibernateException("Configuración de pool inválida: min=" + minSize + " max=" + maxSize);
+        }
+        connectionTimeoutMs = intSetting(settings, CONNECTION_TIMEOUT_MS, 10_000);
+        idleTimeoutMs = intSetting(settings, IDLE_TIMEOUT_MS, 300_000);
+        validationTimeoutS = intSetting(settings, VALIDATION_TIMEOUT_S, 2);
+        validateAfterIdleMs = intSetting(settings, VALIDATE_AFTER_IDLE_MS, 1_000);
+        slowWaitMs = intSetting(settings, SLOW_WAIT_MS, 1_000);
+        long evictionIntervalMs = intSetting(settings, EVICTION_INTERVAL_MS, 30_000);
+
+        permits = new Semaphore(maxSize, true);
+
+        for (int i = 0; i < minSize; i++) {
+            try {
+                idle.offerLast(newConnection());
+            } catch (SQLException e) {
+                throw new HibernateException("No se pudo abrir la conexión inicial del pool", e);
+            }
+        }
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bugtracker-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, evictionIntervalMs, evictionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (stopped) {
+            throw new SQLException("El pool de conexiones está detenido");
+        }
+
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión del pool", e);
+        }
+        long waited = System.nanoTime() - start;
+
+        if (!ok) {
+            timeouts.incrementAndGet();
+            LOG.log(System.Logger.Level.WARNING,
+                    "Timeout esperando conexión tras " + connectionTimeoutMs + "ms: " + getMetrics());
+            throw new SQLException("No hay conexiones disponibles en el pool (timeout " + connectionTimeoutMs + "ms)");
+        }
+
+        try {
+            PooledConnection pc = borrow();
+            inUse.put(pc.connection, pc);
+            acquired.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (TimeUnit.NANOSECONDS.toMillis(waited) >= slowWaitMs) {
+                // Espera larga: el pool está saturado
+                LOG.log(System.Logger.Level.WARNING,
+                        "Espera de " + TimeUnit.NANOSECONDS.toMillis(waited) + "ms por una conexión: " + getMetrics());
+            }
+            return pc.connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection conn) throws SQLException {
+        PooledConnection pc = inUse.remove(conn);
+        if (pc == null) {
+            // No pertenece al pool: se cierra directamente
+            conn.close();
+            return;
+        }
+        try {
+            if (stopped || conn.isClosed()) {
+                destroy(pc);
+            } else {
+                pc.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pc);
+            }
+        } catch (SQLException e) {
+            destroy(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return ConnectionProvider.class.equals(unwrapType)
+                || PooledConnectionProvider.class.isAssignableFrom(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (isUnwrappableAs(unwrapType)) {
+            return (T) this;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+        LOG.log(System.Logger.Level.INFO, "Pool de conexiones detenido: " + getMetrics());
+    }
+
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(
+                inUse.size(),
+                idle.size(),
+                total.get(),
+                maxSize,
+                permits != null ? permits.getQueueLength() : 0,
+                acquired.get(),
+                timeouts.get(),
+                created.get(),
+                destroyed.get(),
+                validationFailures.get(),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    /** Obtiene el pool configurado en el EntityManagerFactory, o null si usa otro proveedor. */
+    public static PooledConnectionProvider from(EntityManagerFactory emf) {
+        ConnectionProvider provider = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        return provider != null && provider.isUnwrappableAs(PooledConnectionProvider.class)
+                ? provider.unwrap(PooledConnectionProvider.class)
+                : null;
+    }
+
+    // Helpers
+    private PooledConnection borrow() throws SQLException {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (isUsable(pc)) {
+                return pc;
+            }
+            validationFailures.incrementAndGet();
+            destroy(pc);
+        }
+        return newConnection();
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        // Sólo se valida contra la base si la conexión estuvo ociosa un rato
+        if (System.currentTimeMillis() - pc.lastUsed < validateAfterIdleMs) {
+            return true;
+        }
+        try {
+            return pc.connection.isValid(validationTimeoutS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection newConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(url, connectionProps);
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(conn);
+    }
+
+    private void destroy(PooledConnection pc) {
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+        try {
+            pc.connection.close();
+        } catch (SQLException ignore) {
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : idle) {
+            if (total.get() <= minSize) {
+                break;
+            }
+            if (now - pc.lastUsed > idleTimeoutMs && idle.remove(pc)) {
+                destroy(pc);
+            }
+        }
+    }
+
+    private static String firstNonNull(Map<String, Object> settings, String... keys) {
+        for (String key : keys) {
+            Object value = settings.get(key);
+            if (value != null) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    private static int intSetting(Map<String, Object> settings, String key, int defaultValue) {
+        Object value = settings.get(key);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new HibernateException("Valor inválido para " + key + ": " + value);
+        }
+    }
+
+    private static class PooledConnection {
+        final Connection connection;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+}
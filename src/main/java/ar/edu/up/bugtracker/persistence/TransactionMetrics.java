@@ -0,0 +1,45 @@
+package ar.edu.up.bugtracker.persistence;
+
+/**
+ * Foto inmutable de un intento de transacción: quién la abrió, cuánto tardó y cuántas sentencias mandó.
+ */
+public class TransactionMetrics {
+    private final String operation;
+    private final boolean readOnly;
+    private final int attempt;
+    private final boolean committed;
+    private final long durationNanos;
+    private final int statements;
+    private final int batches;
+
+    public TransactionMetrics(String operation, boolean readOnly, int attempt, boolean committed,
+                              long durationNanos, int statements, int batches) {
+        this.operation = operation;
+        this.readOnly = readOnly;
+        this.attempt = attempt;
+        this.committed = committed;
+        this.durationNanos = durationNanos;
+        this.statements = statements;
+        this.batches = batches;
+    }
+
+    /** Clase y método de servicio que abrió la transacción (p. ej. IncidenciaService.cambiarEstado). */
+    public String getOperation() { return operation; }
+    public boolean isReadOnly() { return readOnly; }
+    /** 1 en la primera ejecución; mayor si se reintentó por un deadlock o timeout de bloqueo. */
+    public int getAttempt() { return attempt; }
+    public boolean isCommitted() { return committed; }
+    public long getDurationNanos() { return durationNanos; }
+    public long getDurationMillis() { return durationNanos / 1_000_000; }
+    /** Sentencias ejecutadas de a una (consultas, updates sueltos). */
+    public int getStatements() { return statements; }
+    /** Batches JDBC enviados (cada uno agrupa hasta hibernate.jdbc.batch_size sentencias). */
+    public int getBatches() { return batches; }
+
+    @Override
+    public String toString() {
+        return String.format("tx[%s%s: %dms, sentencias=%d, batches=%d, intento=%d, %s]",
+                operation, readOnly ? " (lectura)" : "", getDurationMillis(), statements, batches, attempt,
+                committed ? "confirmada" : "revertida");
+    }
+}
@@ -0,0 +1,19 @@
+package ar.edu.up.bugtracker.persistence;
+
+/**
+ * Destino de las métricas de cada transacción de UnitOfWork. Se invoca en el hilo de la operación,
+ * después del commit o rollback, así que debe ser rápido y no lanzar excepciones.
+ */
+public interface TransactionMetricsSink {
+
+    void record(TransactionMetrics metrics);
+
+    /** Registra en el log: WARNING para transacciones lentas o reintentadas, DEBUG para el resto. */
+    static TransactionMetricsSink logging(long slowMillis) {
+        System.Logger log = System.getLogger(TransactionMetricsSink.class.getName());
+        return metrics -> {
+            boolean atencion = metrics.getDurationMillis() >= slowMillis || metrics.getAttempt() > 1;
+            log.log(atencion ? System.Logger.Level.WARNING : System.Logger.Level.DEBUG, metrics.toString());
+        };
+    }
+}
@@ -0,0 +1,370 @@
+package ar.edu.up.bugtracker.persistence;
+
+import ar.edu.up.bugtracker.exceptions.LockContentionException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.exception.LockAcquisitionException;
+import org.hibernate.query.QueryProducer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Unidad de trabajo por operación.
+ * Cada llamada de servicio abre su propio EntityManager (y transacción) a partir del
+ * EntityManagerFactory, lo asocia al hilo actual mientras dura la operación y lo cierra al terminar.
+ * Así varios SwingWorker pueden leer en paralelo sin compartir ni bloquear un único EntityManager.
+ * Las transacciones de escritura que chocan con un deadlock o timeout de bloqueo se reintentan, y cada
+ * transacción informa duración y cantidad de sentencias al TransactionMetricsSink configurado.
+ */
+public class UnitOfWork {
+
+    private static final System.Logger LOG = System.getLogger(UnitOfWork.class.getName());
+
+    /** Intentos totales de una transacción que choca con un deadlock o timeout de bloqueo. */
+    static final int MAX_INTENTOS_BLOQUEO = 3;
+    private static final long ESPERA_BASE_MS = 20;
+    private static final int MYSQL_DEADLOCK = 1213;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+    // Umbral de transacción lenta si no se configura otro destino de métricas
+    private static final long LENTA_MS = 500;
+    private static final StackWalker PILA = StackWalker.getInstance();
+
+    private final EntityManagerFactory emf;
+    private final TransactionMetricsSink metricsSink;
+    private final ThreadLocal<EntityManager> current = new ThreadLocal<>();
+    private final ThreadLocal<StatelessSession> currentStateless = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> afterCommit = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> currentReadOnly = new ThreadLocal<>();
+
+    public UnitOfWork(EntityManagerFactory emf) {
+        this(emf, TransactionMetricsSink.logging(LENTA_MS));
+    }
+
+    public UnitOfWork(EntityManagerFactory emf, TransactionMetricsSink metricsSink) {
+        this.emf = emf;
+        this.metricsSink = metricsSink;
+    }
+
+    /**
+     * EntityManager de la unidad de trabajo activa en este hilo.
+     * Los DAOs lo usan en cada operación; fuera de inTransaction no hay EntityManager disponible.
+     */
+    public EntityManager em() {
+        EntityManager em = current.get();
+        if (em == null) {
+            throw new IllegalStateException("No hay una unidad de trabajo activa en este hilo");
+        }
+        return em;
+    }
+
+    /**
+     * Sesión sin estado de la transacción activa en este hilo (ver inStatelessTransaction).
+     */
+    public StatelessSession stateless() {
+        StatelessSession session = currentStateless.get();
+        if (session == null) {
+            throw new IllegalStateException("No hay una transacción sin estado activa en este hilo");
+        }
+        return session;
+    }
+
+    /**
+     * Para consultas nativas que sirven en los dos tipos de transacción: la sesión sin estado si hay una
+     * activa, si no la sesión del EntityManager.
+     */
+    public QueryProducer queries() {
+        StatelessSession session = currentStateless.get();
+        return session != null ? session : em().unwrap(Session.class);
+    }
+
+    /**
+     * Registra una acción para después del commit de la transacción activa (se descarta si hay rollback).
+     * Sirve para avisar a otros hilos de datos que recién son visibles una vez confirmados.
+     */
+    public void afterCommit(Runnable action) {
+        List<Runnable> actions = afterCommit.get();
+        if (actions == null) {
+            throw new IllegalStateException("No hay una unidad de trabajo activa en este hilo");
+        }
+        actions.add(action);
+    }
+
+    /**
+     * Ejecuta la operación dentro de una transacción con un EntityManager propio.
+     * Si ya hay una unidad de trabajo activa en el hilo, la operación se suma a ella (salvo que sea de
+     * sólo lectura: ahí una escritura no se llegaría a enviar, así que falla).
+     * Ante cualquier RuntimeException se hace rollback y se relanza la excepción original.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        if (current.get() != null) {
+            if (Boolean.TRUE.equals(currentReadOnly.get())) {
+                throw new IllegalStateException("No se puede escribir dentro de una transacción de sólo lectura");
+            }
+            return work.get();
+        }
+        return execute(work, false);
+    }
+
+    public void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ejecuta una lectura en una transacción de sólo lectura: la conexión JDBC se marca read-only (MySQL
+     * no asigna id de transacción ni undo), las entidades se cargan sin copia para dirty checking y el
+     * flush queda en MANUAL, así el commit no recorre el contexto de persistencia.
+     * Si ya hay una unidad de trabajo activa en el hilo, la lectura se suma a ella tal como está.
+     */
+    public <T> T inReadOnlyTransaction(Supplier<T> work) {
+        if (current.get() != null) {
+            return work.get();
+        }
+        return execute(work, true);
+    }
+
+    // Sólo la transacción más externa se reintenta: cada intento abre un EntityManager nuevo y vuelve a
+    // ejecutar la operación completa, igual que un reintento por conflicto optimista
+    private <T> T execute(Supplier<T> work, boolean readOnly) {
+        String operation = operacionLlamadora();
+        return reintentarBloqueos(operation, !readOnly, attempt -> executeOnce(work, readOnly, operation, attempt));
+    }
+
+    private <T> T reintentarBloqueos(String operation, boolean reintentable, IntFunction<T> intento) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return intento.apply(attempt);
+            } catch (RuntimeException ex) {
+                if (!reintentable || !esBloqueo(ex)) {
+                    throw ex;
+                }
+                if (attempt >= MAX_INTENTOS_BLOQUEO) {
+                    throw new LockContentionException(
+                            "La base de datos está ocupada con otras operaciones. Intentá de nuevo en unos segundos.", ex);
+                }
+                LOG.log(System.Logger.Level.DEBUG, "Deadlock o timeout de bloqueo en " + operation + ", reintento " + attempt);
+                esperar(attempt);
+            }
+        }
+    }
+
+    private <T> T executeOnce(Supplier<T> work, boolean readOnly, String operation, int attempt) {
+        long start = System.nanoTime();
+        EntityManager em = emf.createEntityManager();
+        Session session = em.unwrap(Session.class);
+        SentenciasContadas sentencias = contar(em.unwrap(SharedSessionContractImplementor.class));
+        if (readOnly) {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+        }
+        current.set(em);
+        currentReadOnly.set(readOnly);
+        afterCommit.set(new ArrayList<>());
+        EntityTransaction tx = em.getTransaction();
+        List<Runnable> actions;
+        T result;
+        boolean committed = false;
+        try {
+            if (readOnly) {
+                // Antes de begin: la marca aplica a la transacción que se abre a continuación
+                session.doWork(conn -> conn.setReadOnly(true));
+            }
+            tx.begin();
+            try {
+                result = work.get();
+            } finally {
+                if (readOnly) {
+                    restoreReadWrite(session);
+                }
+            }
+            tx.commit();
+            committed = true;
+            actions = afterCommit.get();
+        } catch (RuntimeException ex) {
+            rollback(tx, ex);
+            throw ex;
+        } finally {
+            current.remove();
+            currentReadOnly.remove();
+            afterCommit.remove();
+            em.close();
+            report(operation, readOnly, attempt, committed, start, sentencias);
+        }
+        runAfterCommit(actions);
+        return result;
+    }
+
+    /**
+     * Ejecuta la operación en una transacción sobre una StatelessSession: sin contexto de persistencia
+     * ni caché, cada insert va directo a JDBC (agrupado en batches de hibernate.jdbc.batch_size).
+     * Pensado para cargas masivas; no se puede combinar con inTransaction en el mismo hilo.
+     * Ante un deadlock o timeout de bloqueo se reintenta como inTransaction: cada intento abre otra sesión
+     * y la operación vuelve a insertar todo (el insert sin estado genera ids nuevos para cada entidad).
+     */
+    public <T> T inStatelessTransaction(Supplier<T> work) {
+        if (current.get() != null || currentStateless.get() != null) {
+            throw new IllegalStateException("Ya hay una unidad de trabajo activa en este hilo");
+        }
+        String operation = operacionLlamadora();
+        return reintentarBloqueos(operation, true, attempt -> executeStatelessOnce(work, operation, attempt));
+    }
+
+    private <T> T executeStatelessOnce(Supplier<T> work, String operation, int attempt) {
+        long start = System.nanoTime();
+        StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession();
+        SentenciasContadas sentencias = contar((SharedSessionContractImplementor) session);
+        currentStateless.set(session);
+        afterCommit.set(new ArrayList<>());
+        Transaction tx = session.getTransaction();
+        List<Runnable> actions;
+        T result;
+        boolean committed = false;
+        try {
+            tx.begin();
+            result = work.get();
+            tx.commit();
+            committed = true;
+            actions = afterCommit.get();
+        } catch (RuntimeException ex) {
+            rollback(tx, ex);
+            throw ex;
+        } finally {
+            currentStateless.remove();
+            afterCommit.remove();
+            session.close();
+            report(operation, false, attempt, committed, start, sentencias);
+        }
+        runAfterCommit(actions);
+        return result;
+    }
+
+    /**
+     * Deadlock (1213) o timeout esperando un bloqueo (1205) de MySQL, o el equivalente estándar (SQLState
+     * 40001). En los dos casos InnoDB ya deshizo la sentencia o la transacción y repetirla suele funcionar.
+     */
+    static boolean esBloqueo(Throwable ex) {
+        // Puede llegar envuelta en DaoException, RollbackException o las excepciones de Hibernate/JPA
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof LockAcquisitionException || causa instanceof PessimisticLockException
+                    || causa instanceof LockTimeoutException) {
+                return true;
+            }
+            if (causa instanceof SQLException) {
+                SQLException sql = (SQLException) causa;
+                if (sql.getErrorCode() == MYSQL_DEADLOCK || sql.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT
+                        || "40001".equals(sql.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Backoff exponencial con jitter completo: las transacciones que chocaron no vuelven a coincidir
+    private static void esperar(int attempt) {
+        long tope = ESPERA_BASE_MS << (attempt - 1);
+        try {
+            Thread.sleep(ESPERA_BASE_MS / 2 + ThreadLocalRandom.current().nextLong(tope));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Primer método fuera de la capa de persistencia en la pila, p. ej. IncidenciaService.cambiarEstado
+    private static String operacionLlamadora() {
+        return PILA.walk(frames -> frames
+                .filter(f -> !f.getClassName().equals(UnitOfWork.class.getName()))
+                .findFirst()
+                .map(f -> {
+                    String clase = f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1);
+                    String metodo = f.getMethodName();
+                    // Cuerpo de una lambda: lambda$cambiarEstado$3
+                    if (metodo.startsWith("lambda$")) {
+                        int fin = metodo.indexOf('$', "lambda$".length());
+                        metodo = metodo.substring("lambda$".length(), fin > 0 ? fin : metodo.length());
+                    }
+                    return clase + "." + metodo;
+                })
+                .orElse("?"));
+    }
+
+    private static SentenciasContadas contar(SharedSessionContractImplementor session) {
+        SentenciasContadas sentencias = new SentenciasContadas();
+        session.getEventListenerManager().addListener(sentencias);
+        return sentencias;
+    }
+
+    // Las métricas no deben afectar el resultado de la operación
+    private void report(String operation, boolean readOnly, int attempt, boolean committed, long start,
+                        SentenciasContadas sentencias) {
+        try {
+            metricsSink.record(new TransactionMetrics(operation, readOnly, attempt, committed,
+                    System.nanoTime() - start, sentencias.statements, sentencias.batches));
+        } catch (RuntimeException ex) {
+            LOG.log(System.Logger.Level.WARNING, "Falló el registro de métricas de transacción", ex);
+        }
+    }
+
+    /** Cuenta lo que la sesión manda a JDBC; Hibernate avisa cada ejecución a los listeners de la sesión. */
+    private static final class SentenciasContadas implements SessionEventListener {
+        private int statements;
+        private int batches;
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            statements++;
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            batches++;
+        }
+    }
+
+    // La conexión vuelve al pool lista para escribir; la transacción en curso sigue siendo read-only
+    private void restoreReadWrite(Session session) {
+        try {
+            session.doWork(conn -> conn.setReadOnly(false));
+        } catch (RuntimeException ex) {
+            LOG.log(System.Logger.Level.WARNING, "No se pudo quitar la marca read-only de la conexión", ex);
+        }
+    }
+
+    // Con la transacción ya confirmada, una acción que falla no debe convertir la operación en error
+    private void runAfterCommit(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                LOG.log(System.Logger.Level.WARNING, "Falló una acción posterior al commit", ex);
+            }
+        }
+    }
+
+    private void rollback(EntityTransaction tx, RuntimeException cause) {
+        try {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+        } catch (RuntimeException rollbackEx) {
+            cause.addSuppressed(rollbackEx);
+        }
+    }
+}
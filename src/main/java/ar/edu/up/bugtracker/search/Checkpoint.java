@@ -0,0 +1,79 @@
+package ar.edu.up.bugtracker.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Estado confirmado del índice en disco: qué segmentos lo forman y hasta qué ids de
+ * incidencia y comentario (y en qué momento) se sincronizó contra la base. Se reescribe completo y se
+ * reemplaza con un move atómico, así siempre queda la versión anterior o la nueva.
+ */
+final class Checkpoint {
+
+    static final String FILE = "checkpoint.properties";
+
+    List<Long> segments = new ArrayList<>();
+    long nextSegmentId = 1;
+    long lastIncidenciaId;
+    long lastComentarioId;
+    long syncedAt;
+
+    static Checkpoint read(Path dir) throws IOException {
+        Checkpoint cp = new Checkpoint();
+        Path file = dir.resolve(FILE);
+        if (!Files.exists(file)) {
+            return cp;
+        }
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            p.load(in);
+        }
+        String segs = p.getProperty("segments", "").trim();
+        if (!segs.isEmpty()) {
+            for (String s : segs.split(",")) {
+                cp.segments.add(Long.parseLong(s.trim()));
+            }
+        }
+        cp.nextSegmentId = Long.parseLong(p.getProperty("nextSegmentId", "1"));
+        cp.lastIncidenciaId = Long.parseLong(p.getProperty("lastIncidenciaId", "0"));
+        cp.lastComentarioId = Long.parseLong(p.getProperty("lastComentarioId", "0"));
+        cp.syncedAt = Long.parseLong(p.getProperty("syncedAt", "0"));
+        return cp;
+    }
+
+    void write(Path dir) throws IOException {
+        Properties p = new Properties();
+        StringBuilder segs = new StringBuilder();
+        for (Long id : segments) {
+            if (segs.length() > 0) {
+                segs.append(',');
+            }
+            segs.append(id);
+        }
+        p.setProperty("segments", segs.toString());
+        p.setProperty("nextSegmentId", String.valueOf(nextSegmentId));
+        p.setProperty("lastIncidenciaId", String.valueOf(lastIncidenciaId));
+        p.setProperty("lastComentarioId", String.valueOf(lastComentarioId));
+        p.setProperty("syncedAt", String.valueOf(syncedAt));
+
+        Path tmp = dir.resolve(FILE + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = Channels.newOutputStream(ch)) {
+            p.store(out, "Indice de busqueda");
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
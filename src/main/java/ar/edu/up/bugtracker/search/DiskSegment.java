@@ -0,0 +1,286 @@
+package ar.edu.up.bugtracker.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Segmento inmutable en disco, leído con un archivo mapeado en memoria (sólo se pagina lo que se consulta).
+ * Formato (big endian, escrito por SegmentWriter):
+ * <pre>
+ *   postings   : (int ord, int freq)* agrupados por término
+ *   docs       : docCount x (byte tipo, long entityId, long incidenciaId, long proyectoId, int largo),
+ *                ordenados por (tipo, entityId)
+ *   términos   : bytes UTF-8 concatenados, en orden de bytes
+ *   diccionario: termCount x (int offsetTérmino, int largoTérmino, int offsetPostings, int df)
+ *   pie        : int docs, int términos, int diccionario, int docCount, int termCount,
+ *                long largoTotal, int versión, int magic
+ * </pre>
+ * Lo único mutable son los borrados, que se guardan aparte en seg_N.del.
+ */
+final class DiskSegment implements SegmentReader {
+
+    static final int MAGIC = 0x42545358;
+    static final int VERSION = 1;
+    static final int DOC_BYTES = 1 + 8 + 8 + 8 + 4;
+    static final int DICT_BYTES = 4 * 4;
+    static final int FOOTER_BYTES = 4 * 5 + 8 + 4 + 4;
+
+    private final long id;
+    private final Path delFile;
+    private final MappedByteBuffer buf;
+    private final int docTableOffset;
+    private final int termBlobOffset;
+    private final int dictOffset;
+    private final int docCount;
+    private final int termCount;
+
+    private final BitSet deleted;
+    private int deletedCount;
+    private long liveLength;
+    private boolean deletesDirty;
+
+    private DiskSegment(long id, Path delFile, MappedByteBuffer buf, BitSet deleted) throws IOException {
+        this.id = id;
+        this.delFile = delFile;
+        this.buf = buf;
+
+        int footer = buf.capacity() - FOOTER_BYTES;
+        if (footer < 0 || buf.getInt(footer + FOOTER_BYTES - 4) != MAGIC) {
+            throw new IOException("Segmento de búsqueda inválido: seg_" + id);
+        }
+        if (buf.getInt(footer + FOOTER_BYTES - 8) != VERSION) {
+            throw new IOException("Versión de segmento no soportada: seg_" + id);
+        }
+        this.docTableOffset = buf.getInt(footer);
+        this.termBlobOffset = buf.getInt(footer + 4);
+        this.dictOffset = buf.getInt(footer + 8);
+        this.docCount = buf.getInt(footer + 12);
+        this.termCount = buf.getInt(footer + 16);
+        long totalLength = buf.getLong(footer + 20);
+
+        this.deleted = deleted;
+        this.deletedCount = deleted.cardinality();
+        long deletedLength = 0;
+        for (int ord = deleted.nextSetBit(0); ord >= 0 && ord < docCount; ord = deleted.nextSetBit(ord + 1)) {
+            deletedLength += length(ord);
+        }
+        this.liveLength = totalLength - deletedLength;
+    }
+
+    static DiskSegment open(Path dir, long id) throws IOException {
+        Path delFile = delFile(dir, id);
+        BitSet deleted = Files.exists(delFile) ? BitSet.valueOf(Files.readAllBytes(delFile)) : new BitSet();
+        try (FileChannel ch = FileChannel.open(file(dir, id), StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segmento de búsqueda demasiado grande: seg_" + id);
+            }
+            // El mapeo sigue válido después de cerrar el canal
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new DiskSegment(id, delFile, buf, deleted);
+        }
+    }
+
+    static Path file(Path dir, long id) {
+        return dir.resolve("seg_" + id + ".idx");
+    }
+
+    static Path delFile(Path dir, long id) {
+        return dir.resolve("seg_" + id + ".del");
+    }
+
+    long id() {
+        return id;
+    }
+
+    /** Persiste los borrados si cambiaron desde la última vez (escritura atómica vía archivo temporal). */
+    void writeDeletes() throws IOException {
+        if (!deletesDirty) {
+            return;
+        }
+        Path tmp = delFile.resolveSibling(delFile.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(ByteBuffer.wrap(deleted.toByteArray()));
+            ch.force(true);
+        }
+        Files.move(tmp, delFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deletesDirty = false;
+    }
+
+    BitSet snapshotDeleted() {
+        return (BitSet) deleted.clone();
+    }
+
+    @Override
+    public int maxDoc() {
+        return docCount;
+    }
+
+    @Override
+    public boolean isDeleted(int ord) {
+        return deleted.get(ord);
+    }
+
+    @Override
+    public boolean delete(int ord) {
+        if (deleted.get(ord)) {
+            return false;
+        }
+        deleted.set(ord);
+        deletedCount++;
+        liveLength -= length(ord);
+        deletesDirty = true;
+        return true;
+    }
+
+    @Override
+    public int liveDocs() {
+        return docCount - deletedCount;
+    }
+
+    @Override
+    public long liveLength() {
+        return liveLength;
+    }
+
+    @Override
+    public byte tipo(int ord) {
+        return buf.get(docTableOffset + ord * DOC_BYTES);
+    }
+
+    @Override
+    public long entityId(int ord) {
+        return buf.getLong(docTableOffset + ord * DOC_BYTES + 1);
+    }
+
+    @Override
+    public long incidenciaId(int ord) {
+        return buf.getLong(docTableOffset + ord * DOC_BYTES + 9);
+    }
+
+    @Override
+    public long proyectoId(int ord) {
+        return buf.getLong(docTableOffset + ord * DOC_BYTES + 17);
+    }
+
+    @Override
+    public int length(int ord) {
+        return buf.getInt(docTableOffset + ord * DOC_BYTES + 25);
+    }
+
+    @Override
+    public int find(byte tipo, long entityId) {
+        int lo = 0;
+        int hi = docCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = tipo(mid) != tipo ? Byte.compare(tipo(mid), tipo) : Long.compare(entityId(mid), entityId);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return deleted.get(mid) ? -1 : mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int docFreq(String term) {
+        int entry = findTerm(term);
+        return entry >= 0 ? buf.getInt(dictOffset + entry * DICT_BYTES + 12) : 0;
+    }
+
+    @Override
+    public void forEachPosting(String term, PostingVisitor visitor) {
+        int entry = findTerm(term);
+        if (entry >= 0) {
+            visitPostings(entry, visitor);
+        }
+    }
+
+    @Override
+    public TermCursor terms() {
+        return new TermCursor() {
+            private int entry = -1;
+
+            @Override
+            public boolean next() {
+                return ++entry < termCount;
+            }
+
+            @Override
+            public byte[] term() {
+                int base = dictOffset + entry * DICT_BYTES;
+                byte[] bytes = new byte[buf.getInt(base + 4)];
+                int offset = termBlobOffset + buf.getInt(base);
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = buf.get(offset + i);
+                }
+                return bytes;
+            }
+
+            @Override
+            public void forEachPosting(PostingVisitor visitor) {
+                visitPostings(entry, visitor);
+            }
+        };
+    }
+
+    private void visitPostings(int entry, PostingVisitor visitor) {
+        int base = dictOffset + entry * DICT_BYTES;
+        int offset = buf.getInt(base + 8);
+        int df = buf.getInt(base + 12);
+        for (int i = 0; i < df; i++) {
+            visitor.visit(buf.getInt(offset), buf.getInt(offset + 4));
+            offset += 8;
+        }
+    }
+
+    /** Búsqueda binaria en el diccionario; devuelve el número de entrada o -1. */
+    private int findTerm(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = termCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareTerm(mid, key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareTerm(int entry, byte[] key) {
+        int base = dictOffset + entry * DICT_BYTES;
+        int offset = termBlobOffset + buf.getInt(base);
+        int len = buf.getInt(base + 4);
+        int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(buf.get(offset + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(len, key.length);
+    }
+
+    @Override
+    public String toString() {
+        return "seg_" + id + "[docs=" + docCount + ", vivos=" + liveDocs() + ", términos=" + termCount + "]";
+    }
+}
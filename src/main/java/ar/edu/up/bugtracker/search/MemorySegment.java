@@ -0,0 +1,206 @@
+package ar.edu.up.bugtracker.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta en memoria con lo indexado desde el último flush. Crece sin compactar:
+ * los borrados quedan marcados y desaparecen al volcarse a un segmento en disco.
+ * No es thread-safe; SearchIndex lo protege con su lock.
+ */
+class MemorySegment implements SegmentReader {
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private byte[] tipos = new byte[1024];
+    private long[] entityIds = new long[1024];
+    private long[] incidenciaIds = new long[1024];
+    private long[] proyectoIds = new long[1024];
+    private int[] lengths = new int[1024];
+    private final BitSet deleted = new BitSet();
+    private int docCount;
+    private int deletedCount;
+    private long liveLength;
+
+    private final Map<Long, Integer> incidenciaOrd = new HashMap<>();
+    private final Map<Long, Integer> comentarioOrd = new HashMap<>();
+
+    /** Agrega el documento; quien llama se encarga de borrar antes la versión anterior. */
+    int add(byte tipo, long entityId, long incidenciaId, long proyectoId, String text) {
+        List<String> tokens = TextAnalyzer.tokens(text);
+        Map<String, Integer> freqs = new HashMap<>();
+        for (String token : tokens) {
+            freqs.merge(token, 1, Integer::sum);
+        }
+
+        int ord = docCount++;
+        ensureCapacity(docCount);
+        tipos[ord] = tipo;
+        entityIds[ord] = entityId;
+        incidenciaIds[ord] = incidenciaId;
+        proyectoIds[ord] = proyectoId;
+        lengths[ord] = tokens.size();
+        liveLength += tokens.size();
+
+        for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(ord, e.getValue());
+        }
+        (tipo == INCIDENCIA ? incidenciaOrd : comentarioOrd).put(entityId, ord);
+        return ord;
+    }
+
+    BitSet snapshotDeleted() {
+        return (BitSet) deleted.clone();
+    }
+
+    @Override
+    public int maxDoc() {
+        return docCount;
+    }
+
+    @Override
+    public boolean isDeleted(int ord) {
+        return deleted.get(ord);
+    }
+
+    @Override
+    public boolean delete(int ord) {
+        if (deleted.get(ord)) {
+            return false;
+        }
+        deleted.set(ord);
+        deletedCount++;
+        liveLength -= lengths[ord];
+        (tipos[ord] == INCIDENCIA ? incidenciaOrd : comentarioOrd).remove(entityIds[ord]);
+        return true;
+    }
+
+    @Override
+    public int liveDocs() {
+        return docCount - deletedCount;
+    }
+
+    @Override
+    public long liveLength() {
+        return liveLength;
+    }
+
+    @Override
+    public byte tipo(int ord) {
+        return tipos[ord];
+    }
+
+    @Override
+    public long entityId(int ord) {
+        return entityIds[ord];
+    }
+
+    @Override
+    public long incidenciaId(int ord) {
+        return incidenciaIds[ord];
+    }
+
+    @Override
+    public long proyectoId(int ord) {
+        return proyectoIds[ord];
+    }
+
+    @Override
+    public int length(int ord) {
+        return lengths[ord];
+    }
+
+    @Override
+    public int find(byte tipo, long entityId) {
+        Integer ord = (tipo == INCIDENCIA ? incidenciaOrd : comentarioOrd).get(entityId);
+        return ord != null ? ord : -1;
+    }
+
+    @Override
+    public int docFreq(String term) {
+        Postings p = postings.get(term);
+        return p != null ? p.size : 0;
+    }
+
+    @Override
+    public void forEachPosting(String term, PostingVisitor visitor) {
+        Postings p = postings.get(term);
+        if (p != null) {
+            p.forEach(visitor);
+        }
+    }
+
+    @Override
+    public TermCursor terms() {
+        byte[][] sorted = new byte[postings.size()][];
+        String[] names = new String[postings.size()];
+        int i = 0;
+        for (String term : postings.keySet()) {
+            names[i] = term;
+            sorted[i] = term.getBytes(StandardCharsets.UTF_8);
+            i++;
+        }
+        Integer[] order = new Integer[sorted.length];
+        for (int j = 0; j < order.length; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(sorted[a], sorted[b]));
+
+        return new TermCursor() {
+            private int pos = -1;
+
+            @Override
+            public boolean next() {
+                return ++pos < order.length;
+            }
+
+            @Override
+            public byte[] term() {
+                return sorted[order[pos]];
+            }
+
+            @Override
+            public void forEachPosting(PostingVisitor visitor) {
+                postings.get(names[order[pos]]).forEach(visitor);
+            }
+        };
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= tipos.length) {
+            return;
+        }
+        int newSize = Math.max(size, tipos.length + (tipos.length >> 1));
+        tipos = Arrays.copyOf(tipos, newSize);
+        entityIds = Arrays.copyOf(entityIds, newSize);
+        incidenciaIds = Arrays.copyOf(incidenciaIds, newSize);
+        proyectoIds = Arrays.copyOf(proyectoIds, newSize);
+        lengths = Arrays.copyOf(lengths, newSize);
+    }
+
+    private static class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                int newSize = size + (size >> 1) + 1;
+                docs = Arrays.copyOf(docs, newSize);
+                freqs = Arrays.copyOf(freqs, newSize);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        void forEach(PostingVisitor visitor) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(docs[i], freqs[i]);
+            }
+        }
+    }
+}
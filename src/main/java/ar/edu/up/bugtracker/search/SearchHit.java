@@ -0,0 +1,17 @@
+package ar.edu.up.bugtracker.search;
+
+/**
+ * Resultado de búsqueda agrupado por incidencia: suma el puntaje de su descripción y de sus comentarios.
+ */
+public class SearchHit {
+    private final long incidenciaId;
+    private final double score;
+
+    public SearchHit(long incidenciaId, double score) {
+        this.incidenciaId = incidenciaId;
+        this.score = score;
+    }
+
+    public long getIncidenciaId() { return incidenciaId; }
+    public double getScore() { return score; }
+}
@@ -0,0 +1,589 @@
+package ar.edu.up.bugtracker.search;
+
+import ar.edu.up.bugtracker.search.WriteAheadLog.Record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido sobre las descripciones de incidencias y los textos de comentarios, con ranking BM25.
+ * Vive en un directorio local:
+ * <ul>
+ *   <li>segmentos inmutables (seg_N.idx) que se leen mapeados en memoria, con sus borrados en seg_N.del;</li>
+ *   <li>un delta en memoria con lo escrito desde el último flush, respaldado por wal.log;</li>
+ *   <li>checkpoint.properties con la lista de segmentos y los últimos ids sincronizados con la base.</li>
+ * </ul>
+ * Abrirlo sólo mapea los segmentos y reaplica el WAL, sin releer la base. Cuando el delta llega a
+ * FLUSH_DOCS documentos se vuelca a un segmento nuevo, y si hay demasiados segmentos se fusionan
+ * los más chicos en un hilo aparte. Cada entidad tiene a lo sumo un documento vivo: indexarla de nuevo
+ * borra la versión anterior esté donde esté.
+ * Las búsquedas comparten un lock de lectura; las escrituras lo toman exclusivo.
+ */
+public class SearchIndex implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(SearchIndex.class.getName());
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int FLUSH_DOCS = 5_000;
+    private static final int MAX_SEGMENTS = 8;
+    private static final int MERGE_FACTOR = 4;
+
+    private final Path dir;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-index-merge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<DiskSegment> segments = new ArrayList<>();
+    private final Checkpoint checkpoint;
+    private final WriteAheadLog wal;
+    private MemorySegment delta = new MemorySegment();
+    private boolean merging;
+    private boolean closed;
+
+    private SearchIndex(Path dir, Checkpoint checkpoint, WriteAheadLog wal) {
+        this.dir = dir;
+        this.checkpoint = checkpoint;
+        this.wal = wal;
+    }
+
+    /** Abre (o crea) el índice en el directorio: mapea los segmentos y reaplica el WAL pendiente. */
+    public static SearchIndex open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Checkpoint checkpoint = Checkpoint.read(dir);
+        SearchIndex index = new SearchIndex(dir, checkpoint, WriteAheadLog.open(dir.resolve("wal.log")));
+        index.lock.writeLock().lock();
+        try {
+            for (Long id : checkpoint.segments) {
+                index.segments.add(DiskSegment.open(dir, id));
+            }
+            index.deleteUnreferencedFiles();
+            index.wal.replay(index::apply);
+            index.scheduleMergeIfNeeded();
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+        LOG.log(System.Logger.Level.INFO, "Índice de búsqueda abierto: " + index.segments
+                + ", delta=" + index.delta.liveDocs());
+        return index;
+    }
+
+    public void indexIncidencia(long id, long proyectoId, String descripcion) {
+        write(new Record(WriteAheadLog.ADD_INCIDENCIA, id, proyectoId, descripcion), true);
+    }
+
+    public void indexComentario(long id, long incidenciaId, String texto) {
+        write(new Record(WriteAheadLog.ADD_COMENTARIO, id, incidenciaId, texto), true);
+    }
+
+    public void removeComentario(long id) {
+        write(new Record(WriteAheadLog.DEL_COMENTARIO, id, 0L, null), true);
+    }
+
+    /** Quita la incidencia junto con todos sus comentarios. */
+    public void removeIncidencia(long id) {
+        write(new Record(WriteAheadLog.DEL_INCIDENCIA, id, 0L, null), true);
+    }
+
+    /** Quita todas las incidencias del proyecto y sus comentarios. */
+    public void removeProyecto(long proyectoId) {
+        write(new Record(WriteAheadLog.DEL_PROYECTO, proyectoId, 0L, null), true);
+    }
+
+    /**
+     * Carga una incidencia leída de la base durante la sincronización. No pasa por el WAL:
+     * si el proceso se corta antes de commitLoad, la próxima sincronización la vuelve a leer.
+     */
+    public void loadIncidencia(long id, long proyectoId, String descripcion) {
+        write(new Record(WriteAheadLog.ADD_INCIDENCIA, id, proyectoId, descripcion), false);
+    }
+
+    public void loadComentario(long id, long incidenciaId, String texto) {
+        write(new Record(WriteAheadLog.ADD_COMENTARIO, id, incidenciaId, texto), false);
+    }
+
+    /** Vuelca lo cargado a disco y registra hasta qué ids quedó sincronizado el índice. */
+    public void commitLoad(long lastIncidenciaId, long lastComentarioId) {
+        commitLoad(lastIncidenciaId, lastComentarioId, 0);
+    }
+
+    /**
+     * Como commitLoad, registrando además el momento (epoch ms) en que empezó la sincronización,
+     * que la próxima usa para repasar las filas confirmadas tarde (ver SearchService.sincronizar).
+     */
+    public void commitLoad(long lastIncidenciaId, long lastComentarioId, long syncedAt) {
+        lock.writeLock().lock();
+        try {
+            long prevIncidencia = checkpoint.lastIncidenciaId;
+            long prevComentario = checkpoint.lastComentarioId;
+            long prevSyncedAt = checkpoint.syncedAt;
+            checkpoint.lastIncidenciaId = Math.max(prevIncidencia, lastIncidenciaId);
+            checkpoint.lastComentarioId = Math.max(prevComentario, lastComentarioId);
+            checkpoint.syncedAt = Math.max(prevSyncedAt, syncedAt);
+            try {
+                flushLocked();
+            } catch (IOException e) {
+                checkpoint.lastIncidenciaId = prevIncidencia;
+                checkpoint.lastComentarioId = prevComentario;
+                checkpoint.syncedAt = prevSyncedAt;
+                throw new UncheckedIOException("Error guardando el índice de búsqueda", e);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getLastIncidenciaId() {
+        lock.readLock().lock();
+        try {
+            return checkpoint.lastIncidenciaId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Inicio (epoch ms) de la última sincronización completa contra la base; 0 si nunca se sincronizó. */
+    public long getSyncedAt() {
+        lock.readLock().lock();
+        try {
+            return checkpoint.syncedAt;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLastComentarioId() {
+        lock.readLock().lock();
+        try {
+            return checkpoint.lastComentarioId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las incidencias que mejor coinciden con la consulta.
+     * La frecuencia de cada término se toma de todos los segmentos e incluye documentos borrados
+     * todavía no fusionados; alcanza para ordenar y evita recorrer los borrados.
+     * @param proyectoId si no es null, sólo incidencias de ese proyecto
+     */
+    public List<SearchHit> search(String query, Long proyectoId, int limit) {
+        List<String> terms = new ArrayList<>(new HashSet<>(TextAnalyzer.tokens(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<SegmentReader> readers = readers();
+            long live = 0;
+            long totalLength = 0;
+            for (SegmentReader r : readers) {
+                live += r.liveDocs();
+                totalLength += r.liveLength();
+            }
+            if (live == 0) {
+                return new ArrayList<>();
+            }
+            double avgLength = Math.max(1.0, (double) totalLength / live);
+
+            double[] idf = new double[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                long df = 0;
+                for (SegmentReader r : readers) {
+                    df += r.docFreq(terms.get(t));
+                }
+                idf[t] = Math.log(1 + (live - df + 0.5) / (df + 0.5));
+            }
+
+            // La descripción y los comentarios suman al mismo resultado
+            Map<Long, Double> porIncidencia = new HashMap<>();
+            for (SegmentReader r : readers) {
+                scoreSegment(r, terms, idf, avgLength, proyectoId, porIncidencia);
+            }
+
+            PriorityQueue<SearchHit> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(SearchHit::getScore));
+            for (Map.Entry<Long, Double> e : porIncidencia.entrySet()) {
+                if (top.size() < limit) {
+                    top.add(new SearchHit(e.getKey(), e.getValue()));
+                } else if (e.getValue() > top.peek().getScore()) {
+                    top.poll();
+                    top.add(new SearchHit(e.getKey(), e.getValue()));
+                }
+            }
+            List<SearchHit> result = new ArrayList<>(top);
+            result.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Cantidad de documentos vivos (incidencias + comentarios). */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            int size = 0;
+            for (SegmentReader r : readers()) {
+                size += r.liveDocs();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Borra todo el índice, incluidos los ids sincronizados; la próxima sincronización lo recarga completo. */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            List<DiskSegment> old = new ArrayList<>(segments);
+            segments.clear();
+            delta = new MemorySegment();
+            checkpoint.segments = new ArrayList<>();
+            checkpoint.lastIncidenciaId = 0;
+            checkpoint.lastComentarioId = 0;
+            checkpoint.syncedAt = 0;
+            checkpoint.write(dir);
+            wal.reset();
+            for (DiskSegment s : old) {
+                deleteSegmentFiles(s.id());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error borrando el índice de búsqueda", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Vuelca el delta a disco y libera el WAL. Una fusión en curso se descarta y se retoma al abrir. */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushLocked();
+            wal.close();
+        } finally {
+            lock.writeLock().unlock();
+            // Interrumpe la fusión en curso (borra su archivo a medio escribir) y le da tiempo a terminar
+            merger.shutdownNow();
+            try {
+                merger.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Escritura (todo con el lock de escritura tomado)
+    private void write(Record record, boolean logged) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (logged) {
+                try {
+                    wal.append(record);
+                } catch (IOException e) {
+                    // La operación ya está confirmada en la base: se aplica igual en memoria
+                    LOG.log(System.Logger.Level.WARNING,
+                            "No se pudo registrar la operación en el WAL del índice de búsqueda", e);
+                }
+            }
+            apply(record);
+            if (delta.maxDoc() >= FLUSH_DOCS) {
+                try {
+                    flushLocked();
+                } catch (IOException e) {
+                    // El delta sigue en memoria y en el WAL; se reintenta en la próxima escritura
+                    LOG.log(System.Logger.Level.WARNING, "No se pudo volcar el índice de búsqueda a disco", e);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Record r) {
+        switch (r.op) {
+            case WriteAheadLog.ADD_INCIDENCIA:
+                deleteEntity(SegmentReader.INCIDENCIA, r.id);
+                delta.add(SegmentReader.INCIDENCIA, r.id, r.id, r.parentId, r.text);
+                break;
+            case WriteAheadLog.ADD_COMENTARIO:
+                deleteEntity(SegmentReader.COMENTARIO, r.id);
+                delta.add(SegmentReader.COMENTARIO, r.id, r.parentId, proyectoDeIncidencia(r.parentId), r.text);
+                break;
+            case WriteAheadLog.DEL_COMENTARIO:
+                deleteEntity(SegmentReader.COMENTARIO, r.id);
+                break;
+            case WriteAheadLog.DEL_INCIDENCIA:
+                deleteIncidencias(Set.of(r.id), 0L);
+                break;
+            case WriteAheadLog.DEL_PROYECTO:
+                deleteIncidencias(incidenciasDeProyecto(r.id), r.id);
+                break;
+            default:
+                LOG.log(System.Logger.Level.WARNING, "Operación desconocida en el WAL del índice: " + r.op);
+        }
+    }
+
+    private void deleteEntity(byte tipo, long entityId) {
+        for (SegmentReader r : readers()) {
+            int ord = r.find(tipo, entityId);
+            if (ord >= 0) {
+                r.delete(ord);
+            }
+        }
+    }
+
+    /** Borra las incidencias y todos los comentarios que cuelgan de ellas (o del proyecto, si se indica). */
+    private void deleteIncidencias(Set<Long> ids, long proyectoId) {
+        for (SegmentReader r : readers()) {
+            for (int ord = 0; ord < r.maxDoc(); ord++) {
+                if (!r.isDeleted(ord) && (ids.contains(r.incidenciaId(ord))
+                        || (proyectoId != 0L && r.proyectoId(ord) == proyectoId))) {
+                    r.delete(ord);
+                }
+            }
+        }
+    }
+
+    private Set<Long> incidenciasDeProyecto(long proyectoId) {
+        Set<Long> ids = new HashSet<>();
+        for (SegmentReader r : readers()) {
+            for (int ord = 0; ord < r.maxDoc(); ord++) {
+                if (r.tipo(ord) == SegmentReader.INCIDENCIA && !r.isDeleted(ord) && r.proyectoId(ord) == proyectoId) {
+                    ids.add(r.entityId(ord));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private long proyectoDeIncidencia(long incidenciaId) {
+        for (SegmentReader r : readers()) {
+            int ord = r.find(SegmentReader.INCIDENCIA, incidenciaId);
+            if (ord >= 0) {
+                return r.proyectoId(ord);
+            }
+        }
+        return 0L;
+    }
+
+    /** Orden: delta → segmento nuevo → checkpoint → vaciar WAL. Un corte en el medio sólo repite trabajo. */
+    private void flushLocked() throws IOException {
+        if (delta.liveDocs() > 0) {
+            long id = checkpoint.nextSegmentId++;
+            SegmentWriter.write(DiskSegment.file(dir, id), List.of(delta), List.of(delta.snapshotDeleted()));
+            segments.add(DiskSegment.open(dir, id));
+        }
+        for (DiskSegment s : segments) {
+            s.writeDeletes();
+        }
+        checkpoint.segments = segmentIds();
+        checkpoint.write(dir);
+        wal.reset();
+        delta = new MemorySegment();
+        scheduleMergeIfNeeded();
+    }
+
+    // Fusión en segundo plano
+    private void scheduleMergeIfNeeded() {
+        if (merging || closed || segments.size() <= MAX_SEGMENTS) {
+            return;
+        }
+        List<DiskSegment> sources = new ArrayList<>(segments);
+        sources.sort(Comparator.comparingInt(DiskSegment::liveDocs));
+        sources = new ArrayList<>(sources.subList(0, MERGE_FACTOR));
+        List<BitSet> snapshots = new ArrayList<>();
+        for (DiskSegment s : sources) {
+            snapshots.add(s.snapshotDeleted());
+        }
+        long id = checkpoint.nextSegmentId++;
+        merging = true;
+        List<DiskSegment> toMerge = sources;
+        merger.execute(() -> merge(toMerge, snapshots, id));
+    }
+
+    private void merge(List<DiskSegment> sources, List<BitSet> snapshots, long id) {
+        Path file = DiskSegment.file(dir, id);
+        try {
+            // La escritura pesada va sin lock: los orígenes son inmutables salvo por sus borrados
+            SegmentWriter.write(file, sources, snapshots);
+            DiskSegment merged = DiskSegment.open(dir, id);
+
+            lock.writeLock().lock();
+            try {
+                if (closed || !segments.containsAll(sources)) {
+                    deleteSegmentFiles(id);
+                    return;
+                }
+                // Borrados que llegaron a los orígenes mientras se escribía el segmento fusionado
+                for (int i = 0; i < sources.size(); i++) {
+                    DiskSegment src = sources.get(i);
+                    BitSet nuevos = src.snapshotDeleted();
+                    nuevos.andNot(snapshots.get(i));
+                    for (int ord = nuevos.nextSetBit(0); ord >= 0; ord = nuevos.nextSetBit(ord + 1)) {
+                        int target = merged.find(src.tipo(ord), src.entityId(ord));
+                        if (target >= 0) {
+                            merged.delete(target);
+                        }
+                    }
+                }
+                merged.writeDeletes();
+                segments.removeAll(sources);
+                segments.add(merged);
+                checkpoint.segments = segmentIds();
+                checkpoint.write(dir);
+                for (DiskSegment s : sources) {
+                    deleteSegmentFiles(s.id());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Falló la fusión de segmentos del índice de búsqueda", e);
+            deleteSegmentFiles(id);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                merging = false;
+                scheduleMergeIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Helpers
+    private void scoreSegment(SegmentReader r, List<String> terms, double[] idf, double avgLength,
+                              Long proyectoId, Map<Long, Double> porIncidencia) {
+        Scores scores = null;
+        for (int t = 0; t < terms.size(); t++) {
+            if (r.docFreq(terms.get(t)) == 0) {
+                continue;
+            }
+            if (scores == null) {
+                scores = new Scores(r.maxDoc());
+            }
+            Scores acc = scores;
+            double termIdf = idf[t];
+            r.forEachPosting(terms.get(t), (ord, tf) -> {
+                if (r.isDeleted(ord) || (proyectoId != null && proyectoOf(r, ord) != proyectoId)) {
+                    return;
+                }
+                double norm = K1 * (1 - B + B * r.length(ord) / avgLength);
+                acc.add(ord, (float) (termIdf * tf * (K1 + 1) / (tf + norm)));
+            });
+        }
+        if (scores != null) {
+            for (int i = 0; i < scores.touchedCount; i++) {
+                int ord = scores.touched[i];
+                porIncidencia.merge(r.incidenciaId(ord), (double) scores.values[ord], Double::sum);
+            }
+        }
+    }
+
+    private long proyectoOf(SegmentReader r, int ord) {
+        long proyectoId = r.proyectoId(ord);
+        if (proyectoId == 0L && r.tipo(ord) == SegmentReader.COMENTARIO) {
+            // Comentario indexado antes que su incidencia
+            proyectoId = proyectoDeIncidencia(r.incidenciaId(ord));
+        }
+        return proyectoId;
+    }
+
+    private List<SegmentReader> readers() {
+        List<SegmentReader> readers = new ArrayList<>(segments.size() + 1);
+        readers.addAll(segments);
+        readers.add(delta);
+        return readers;
+    }
+
+    private List<Long> segmentIds() {
+        List<Long> ids = new ArrayList<>();
+        for (DiskSegment s : segments) {
+            ids.add(s.id());
+        }
+        return ids;
+    }
+
+    private void deleteSegmentFiles(long id) {
+        // En Windows un archivo mapeado no se puede borrar; lo que quede se limpia al abrir
+        try {
+            Files.deleteIfExists(DiskSegment.file(dir, id));
+            Files.deleteIfExists(DiskSegment.delFile(dir, id));
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.DEBUG, "No se pudo borrar seg_" + id + " todavía", e);
+        }
+    }
+
+    /** Segmentos y temporales que no figuran en el checkpoint (fusiones o flushes interrumpidos). */
+    private void deleteUnreferencedFiles() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        for (Long id : checkpoint.segments) {
+            referenced.add(DiskSegment.file(dir, id).getFileName().toString());
+            referenced.add(DiskSegment.delFile(dir, id).getFileName().toString());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "seg_*")) {
+            for (Path f : files) {
+                if (!referenced.contains(f.getFileName().toString())) {
+                    try {
+                        Files.deleteIfExists(f);
+                    } catch (IOException e) {
+                        LOG.log(System.Logger.Level.DEBUG, "No se pudo borrar " + f, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Puntajes por ordinal de un segmento, recordando qué ordinales se tocaron para no recorrer el arreglo entero. */
+    private static class Scores {
+        final float[] values;
+        int[] touched = new int[64];
+        int touchedCount;
+
+        Scores(int maxDoc) {
+            values = new float[maxDoc];
+        }
+
+        void add(int ord, float score) {
+            if (values[ord] == 0f) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = ord;
+            }
+            values[ord] += score;
+        }
+    }
+}
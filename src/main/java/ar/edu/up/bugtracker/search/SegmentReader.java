@@ -0,0 +1,59 @@
+package ar.edu.up.bugtracker.search;
+
+/**
+ * Vista de lectura común al delta en memoria y a los segmentos en disco.
+ * Los documentos se identifican por ordinal dentro del segmento; un documento borrado
+ * sigue ocupando su ordinal hasta que el segmento se reescribe (flush o merge).
+ */
+interface SegmentReader {
+
+    byte INCIDENCIA = 0;
+    byte COMENTARIO = 1;
+
+    int maxDoc();
+
+    boolean isDeleted(int ord);
+
+    /** Marca el documento como borrado; devuelve false si ya lo estaba. */
+    boolean delete(int ord);
+
+    int liveDocs();
+
+    /** Suma de largos (en términos) de los documentos vivos, para el largo promedio de BM25. */
+    long liveLength();
+
+    byte tipo(int ord);
+
+    long entityId(int ord);
+
+    long incidenciaId(int ord);
+
+    /** Proyecto de la incidencia (o de la incidencia del comentario); 0 si no se conoce. */
+    long proyectoId(int ord);
+
+    int length(int ord);
+
+    /** Ordinal del documento vivo con esa clave, o -1. */
+    int find(byte tipo, long entityId);
+
+    /** Cantidad de documentos (incluidos borrados) que contienen el término. */
+    int docFreq(String term);
+
+    void forEachPosting(String term, PostingVisitor visitor);
+
+    /** Recorre los términos en orden de bytes UTF-8, para escribir o fusionar segmentos. */
+    TermCursor terms();
+
+    interface PostingVisitor {
+        void visit(int ord, int freq);
+    }
+
+    interface TermCursor {
+        /** Avanza al próximo término; false al terminar. */
+        boolean next();
+
+        byte[] term();
+
+        void forEachPosting(PostingVisitor visitor);
+    }
+}
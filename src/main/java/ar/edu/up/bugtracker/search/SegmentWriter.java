@@ -0,0 +1,195 @@
+package ar.edu.up.bugtracker.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Escribe un segmento nuevo con los documentos vivos de uno o más segmentos de origen.
+ * Sirve tanto para volcar el delta en memoria como para fusionar segmentos en disco:
+ * los documentos se renumeran ordenados por (tipo, entityId) y los términos se recorren
+ * con un merge de k vías, así no hace falta tener el segmento completo en memoria.
+ */
+final class SegmentWriter {
+
+    private SegmentWriter() {
+    }
+
+    /**
+     * @param deletedSnapshots borrados de cada origen a tener en cuenta (una copia, porque el origen
+     *                         puede seguir recibiendo borrados mientras se escribe)
+     * @return cantidad de documentos escritos
+     */
+    static int write(Path target, List<? extends SegmentReader> sources, List<BitSet> deletedSnapshots)
+            throws IOException {
+        // Documentos vivos ordenados por clave
+        int total = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            total += sources.get(s).maxDoc() - deletedSnapshots.get(s).cardinality();
+        }
+        long[] keys = new long[total];
+        int[] srcs = new int[total];
+        int[] ords = new int[total];
+        int n = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            SegmentReader src = sources.get(s);
+            BitSet deleted = deletedSnapshots.get(s);
+            for (int ord = 0; ord < src.maxDoc(); ord++) {
+                if (!deleted.get(ord)) {
+                    keys[n] = ((long) src.tipo(ord) << 62) | src.entityId(ord);
+                    srcs[n] = s;
+                    ords[n] = ord;
+                    n++;
+                }
+            }
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        int[][] newOrd = new int[sources.size()][];
+        for (int s = 0; s < sources.size(); s++) {
+            newOrd[s] = new int[sources.get(s).maxDoc()];
+            Arrays.fill(newOrd[s], -1);
+        }
+        for (int i = 0; i < n; i++) {
+            int doc = order[i];
+            newOrd[srcs[doc]][ords[doc]] = i;
+        }
+
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            ByteArrayOutputStream termBlob = new ByteArrayOutputStream();
+            ByteArrayOutputStream dictBytes = new ByteArrayOutputStream();
+            DataOutputStream dict = new DataOutputStream(dictBytes);
+            int termCount = 0;
+
+            // Postings: merge de k vías sobre los términos ordenados de cada origen
+            PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> Arrays.compareUnsigned(a.term, b.term));
+            for (int s = 0; s < sources.size(); s++) {
+                Cursor c = new Cursor(s, sources.get(s).terms());
+                if (c.advance()) {
+                    queue.add(c);
+                }
+            }
+            List<Cursor> same = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                same.clear();
+                same.add(queue.poll());
+                byte[] term = same.get(0).term;
+                while (!queue.isEmpty() && Arrays.equals(queue.peek().term, term)) {
+                    same.add(queue.poll());
+                }
+
+                int postingsOffset = checkedSize(out);
+                int[] df = {0};
+                for (Cursor c : same) {
+                    int[] remap = newOrd[c.source];
+                    c.cursor.forEachPosting((ord, freq) -> {
+                        int mapped = remap[ord];
+                        if (mapped >= 0) {
+                            try {
+                                out.writeInt(mapped);
+                                out.writeInt(freq);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            df[0]++;
+                        }
+                    });
+                    if (c.advance()) {
+                        queue.add(c);
+                    }
+                }
+                // Un término que sólo tenía documentos borrados no se escribe
+                if (df[0] > 0) {
+                    dict.writeInt(termBlob.size());
+                    dict.writeInt(term.length);
+                    dict.writeInt(postingsOffset);
+                    dict.writeInt(df[0]);
+                    termBlob.write(term);
+                    termCount++;
+                }
+            }
+
+            int docTableOffset = checkedSize(out);
+            long totalLength = 0;
+            for (int i = 0; i < n; i++) {
+                int doc = order[i];
+                SegmentReader src = sources.get(srcs[doc]);
+                int ord = ords[doc];
+                out.writeByte(src.tipo(ord));
+                out.writeLong(src.entityId(ord));
+                out.writeLong(src.incidenciaId(ord));
+                out.writeLong(src.proyectoId(ord));
+                out.writeInt(src.length(ord));
+                totalLength += src.length(ord);
+            }
+
+            int termBlobOffset = checkedSize(out);
+            termBlob.writeTo(out);
+            int dictOffset = checkedSize(out);
+            dictBytes.writeTo(out);
+
+            out.writeInt(docTableOffset);
+            out.writeInt(termBlobOffset);
+            out.writeInt(dictOffset);
+            out.writeInt(n);
+            out.writeInt(termCount);
+            out.writeLong(totalLength);
+            out.writeInt(DiskSegment.VERSION);
+            out.writeInt(DiskSegment.MAGIC);
+            checkedSize(out);
+            out.flush();
+            ch.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return n;
+    }
+
+    private static int checkedSize(DataOutputStream out) throws IOException {
+        // DataOutputStream.size() se satura en Integer.MAX_VALUE: el segmento no entraría en un solo mapeo
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IOException("Segmento de búsqueda demasiado grande");
+        }
+        return out.size();
+    }
+
+    private static class Cursor {
+        final int source;
+        final SegmentReader.TermCursor cursor;
+        byte[] term;
+
+        Cursor(int source, SegmentReader.TermCursor cursor) {
+            this.source = source;
+            this.cursor = cursor;
+        }
+
+        boolean advance() {
+            if (!cursor.next()) {
+                return false;
+            }
+            term = cursor.term();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ar.edu.up.bugtracker.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Convierte texto libre en términos del índice: minúsculas, sin acentos (canción → cancion),
+ * separado por cualquier carácter que no sea letra o dígito y sin palabras vacías del español.
+ * Se usa igual al indexar y al buscar, así "Acción" encuentra "accion".
+ */
+public final class TextAnalyzer {
+
+    private static final int MIN_LENGTH = 2;
+    private static final int MAX_LENGTH = 64;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "es", "esa", "ese", "eso", "esta", "este", "esto",
+            "la", "las", "le", "les", "lo", "los", "mas", "no", "o", "para", "pero", "por", "que", "se",
+            "si", "sin", "son", "su", "sus", "u", "un", "una", "unas", "uno", "unos", "y", "ya");
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> tokens(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return result;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                addToken(result, folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /** Minúsculas y sin marcas diacríticas (la ñ queda como n). */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void addToken(List<String> result, String token) {
+        if (token.length() < MIN_LENGTH || STOPWORDS.contains(token)) {
+            return;
+        }
+        result.add(token.length() > MAX_LENGTH ? token.substring(0, MAX_LENGTH) : token);
+    }
+}
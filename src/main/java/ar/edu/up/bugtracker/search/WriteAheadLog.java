@@ -0,0 +1,137 @@
+package ar.edu.up.bugtracker.search;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de escrituras del índice posteriores al último flush. Cada operación se agrega
+ * como (int largo, int crc32, datos) y se fuerza a disco antes de volver, así un corte no pierde
+ * lo que ya se confirmó en la base. Al abrir se vuelve a aplicar y, si el final quedó cortado
+ * a medio escribir, se descarta esa cola.
+ */
+final class WriteAheadLog implements Closeable {
+
+    static final byte ADD_INCIDENCIA = 1;
+    static final byte ADD_COMENTARIO = 2;
+    static final byte DEL_INCIDENCIA = 3;
+    static final byte DEL_COMENTARIO = 4;
+    static final byte DEL_PROYECTO = 5;
+
+    private final FileChannel channel;
+
+    private WriteAheadLog(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static WriteAheadLog open(Path file) throws IOException {
+        return new WriteAheadLog(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    /** Aplica todas las operaciones válidas y deja el canal posicionado al final de la última. */
+    void replay(Consumer<Record> handler) throws IOException {
+        long size = channel.size();
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (pos + 8 <= size) {
+            header.clear();
+            channel.read(header, pos);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || pos + 8 + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, pos + 8);
+            if (crc32(payload.array()) != crc) {
+                break;
+            }
+            payload.flip();
+            handler.accept(Record.read(payload));
+            pos += 8 + length;
+        }
+        if (pos < size) {
+            channel.truncate(pos);
+            channel.force(true);
+        }
+        channel.position(pos);
+    }
+
+    void append(Record record) throws IOException {
+        byte[] payload = record.toBytes();
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt(crc32(payload));
+        frame.put(payload);
+        frame.flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        channel.force(false);
+    }
+
+    /** Vacía el registro; se llama cuando todo lo registrado ya quedó en un segmento y en el checkpoint. */
+    void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int crc32(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    /** Una operación: id de la entidad, id del padre (proyecto o incidencia) y texto, según el tipo. */
+    static final class Record {
+        final byte op;
+        final long id;
+        final long parentId;
+        final String text;
+
+        Record(byte op, long id, long parentId, String text) {
+            this.op = op;
+            this.id = id;
+            this.parentId = parentId;
+            this.text = text;
+        }
+
+        byte[] toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            out.writeLong(id);
+            out.writeLong(parentId);
+            // Sin writeUTF: una descripción puede superar los 64 KB
+            byte[] utf8 = text != null ? text.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            out.writeInt(utf8.length);
+            out.write(utf8);
+            return bytes.toByteArray();
+        }
+
+        static Record read(ByteBuffer in) {
+            byte op = in.get();
+            long id = in.getLong();
+            long parentId = in.getLong();
+            byte[] utf8 = new byte[in.getInt()];
+            in.get(utf8);
+            return new Record(op, id, parentId, new String(utf8, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -2,28 +2,43 @@ package ar.edu.up.bugtracker.service;
 
 import ar.edu.up.bugtracker.dao.ComentarioDao;
 import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.dao.UserDao;
 import ar.edu.up.bugtracker.exceptions.*;
 import ar.edu.up.bugtracker.models.Comentario;
 import ar.edu.up.bugtracker.models.Incidencia;
 import ar.edu.up.bugtracker.models.Usuario;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchIndex;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
-import jakarta.persistence.EntityManager;
+import ar.edu.up.bugtracker.service.eventos.ComentarioAgregado;
+import ar.edu.up.bugtracker.service.eventos.ComentarioEditado;
+import ar.edu.up.bugtracker.service.eventos.ComentarioEliminado;
+import ar.edu.up.bugtracker.service.eventos.Outbox;
 
 import java.util.List;
 
 public class ComentarioService {
 
+    private static final String MENSAJE_CONFLICTO =
+            "El comentario se está modificando desde otra sesión. Volvé a intentar.";
+
     private final ComentarioDao comentarioDao;
     private final UserDao userDao;
     private final IncidenciaDao incidenciaDao;
-    private final EntityManager em;
+    private final SearchIndex searchIndex;
+    private final Outbox outbox;
+    private final UnitOfWork uow;
 
-    public ComentarioService(ComentarioDao comentarioDao, UserDao userDao, IncidenciaDao incidenciaDao, EntityManager em) {
+    public ComentarioService(ComentarioDao comentarioDao, UserDao userDao, IncidenciaDao incidenciaDao,
+                             SearchIndex searchIndex, Outbox outbox, UnitOfWork uow) {
         this.comentarioDao = comentarioDao;
         this.userDao = userDao;
         this.incidenciaDao = incidenciaDao;
-        this.em = em;
+        this.searchIndex = searchIndex;
+        this.outbox = outbox;
+        this.uow = uow;
     }
 
     public Long create(Comentario comentario, UserLoggedInDto currentUser) {
@@ -42,79 +57,65 @@ public class ComentarioService {
             throw new AuthException("Debes estar autenticado para crear comentarios");
         }
 
-        Usuario creador = userDao.findById(currentUser.getId());
-        if (creador == null) {
-            throw new NotFoundException("Usuario no encontrado");
-        }
-        comentario.setCreatedBy(creador);
-
         try {
-            begin();
-            Long incidenciaId = comentario.getIncidencia().getId();
-            Incidencia incidenciaRef = incidenciaDao.getReference(incidenciaId);
-            comentario.setIncidencia(incidenciaRef);
-            
-            Long id = comentarioDao.create(comentario);
-            commit();
+            Long id = uow.inTransaction(() -> {
+                Usuario creador = userDao.findById(currentUser.getId());
+                if (creador == null) {
+                    throw new NotFoundException("Usuario no encontrado");
+                }
+                // Entidad nueva en cada intento: la de un intento revertido por deadlock ya tiene id y versión
+                Comentario nuevo = new Comentario();
+                nuevo.setTexto(comentario.getTexto());
+                nuevo.setCreatedBy(creador);
+
+                Long incidenciaId = comentario.getIncidencia().getId();
+                Incidencia incidenciaRef = incidenciaDao.getReference(incidenciaId);
+                nuevo.setIncidencia(incidenciaRef);
+
+                Long comentarioId = comentarioDao.create(nuevo);
+                outbox.registrar(new ComentarioAgregado(comentarioId, incidenciaId));
+                return comentarioId;
+            });
+            // El índice se actualiza recién con la transacción confirmada
+            searchIndex.indexComentario(id, comentario.getIncidencia().getId(), comentario.getTexto());
             return id;
         } catch (NotFoundException | ValidationException | AuthException | ForbiddenException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error creando comentario", ex);
         }
     }
 
     public List<Comentario> findByIncidencia(Long incidenciaId) {
-        synchronized (em) {
-            try {
-                em.clear(); // Limpiar el caché para asegurar datos actualizados
-                
-                boolean transactionStarted = !em.getTransaction().isActive();
-                if (transactionStarted) {
-                    em.getTransaction().begin();
-                }
-                
-                List<Comentario> comentarios = comentarioDao.findByIncidencia(incidenciaId);
-                
-                // Traer las relaciones 
-                if (comentarios != null) {
-                    for (Comentario comentario : comentarios) {
-                        comentario.getId();
-                        comentario.getTexto();
-                        comentario.getCreatedAt();
-                        if (comentario.getIncidencia() != null) {
-                            comentario.getIncidencia().getId();
-                        }
-                        if (comentario.getCreatedBy() != null) {
-                            comentario.getCreatedBy().getId();
-                            comentario.getCreatedBy().getNombre();
-                            comentario.getCreatedBy().getApellido();
-                            comentario.getCreatedBy().getEmail();
-                        }
-                    }
-                }
-                
-                em.flush(); // Asegurar que las operaciones pendientes se completen
-                
-                return comentarios;
-            } catch (BusinessException ex) {
-                throw ex;
-            } catch (RuntimeException ex) {
-                rollbackSilently();
-                throw new AppException("Error obteniendo comentarios de la incidencia", ex);
-            }
+        try {
+            // La consulta ya trae el autor de cada comentario
+            return uow.inReadOnlyTransaction(() -> comentarioDao.findByIncidencia(incidenciaId));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo comentarios de la incidencia", ex);
+        }
+    }
+
+    public Slice<Comentario, Long> findSliceByIncidencia(Long incidenciaId, SliceRequest<Long> request) {
+        try {
+            return uow.inReadOnlyTransaction(() -> comentarioDao.findSliceByIncidencia(incidenciaId, request));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo comentarios de la incidencia", ex);
         }
     }
 
     public Comentario getById(Long id) {
         try {
-            Comentario comentario = comentarioDao.findById(id);
-            if (comentario == null) {
-                throw new NotFoundException("Comentario no encontrado");
-            }
-            return comentario;
+            return uow.inReadOnlyTransaction(() -> {
+                Comentario comentario = comentarioDao.findById(id);
+                if (comentario == null) {
+                    throw new NotFoundException("Comentario no encontrado");
+                }
+                return comentario;
+            });
         } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -127,91 +128,68 @@ public class ComentarioService {
             throw new ValidationException("El texto del comentario no puede estar vacío");
         }
 
-        Comentario comentario = comentarioDao.findById(id);
-        if (comentario == null) {
-            throw new NotFoundException("Comentario no encontrado");
-        }
-
-        // Validar que solo el creador puede editar
-        if (currentUser == null) {
-            throw new AuthException("Debes estar autenticado para editar comentarios");
-        }
-        if (comentario.getCreatedBy() == null || comentario.getCreatedBy().getId() == null) {
-            throw new ForbiddenException("No se puede determinar el autor del comentario");
-        }
-        if (!comentario.getCreatedBy().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("Solo el autor del comentario puede editarlo");
-        }
+        try {
+            Long incidenciaId = ReintentoOptimista.ejecutar(MENSAJE_CONFLICTO, () -> uow.inTransaction(() -> {
+                Comentario comentario = comentarioDao.findById(id);
+                if (comentario == null) {
+                    throw new NotFoundException("Comentario no encontrado");
+                }
 
-        comentario.setTexto(nuevoTexto.trim());
+                // Validar que solo el creador puede editar
+                validateAutor(comentario, currentUser, "Debes estar autenticado para editar comentarios",
+                        "Solo el autor del comentario puede editarlo");
 
-        try {
-            begin();
-            comentarioDao.update(comentario);
-            commit();
+                comentario.setTexto(nuevoTexto.trim());
+                comentarioDao.update(comentario);
+                outbox.registrar(new ComentarioEditado(id, comentario.getIncidencia().getId()));
+                return comentario.getIncidencia().getId();
+            }));
+            searchIndex.indexComentario(id, incidenciaId, nuevoTexto.trim());
         } catch (BusinessException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error actualizando comentario", ex);
         }
     }
 
     public void delete(Long id, UserLoggedInDto currentUser) {
-        Comentario comentario = comentarioDao.findById(id);
-        if (comentario == null) {
-            throw new NotFoundException("Comentario no encontrado");
-        }
+        try {
+            uow.inTransaction(() -> {
+                Comentario comentario = comentarioDao.findById(id);
+                if (comentario == null) {
+                    throw new NotFoundException("Comentario no encontrado");
+                }
 
-        // Solo el creador puede eliminar
-        if (currentUser == null) {
-            throw new AuthException("Debes estar autenticado para eliminar comentarios");
-        }
-        if (comentario.getCreatedBy() == null || comentario.getCreatedBy().getId() == null) {
-            throw new ForbiddenException("No se puede determinar el autor del comentario");
-        }
-        if (!comentario.getCreatedBy().getId().equals(currentUser.getId())) {
-            throw new ForbiddenException("Solo el autor del comentario puede eliminarlo");
-        }
+                // Solo el creador puede eliminar
+                validateAutor(comentario, currentUser, "Debes estar autenticado para eliminar comentarios",
+                        "Solo el autor del comentario puede eliminarlo");
 
-        try {
-            begin();
-            comentarioDao.deleteById(id);
-            commit();
+                comentarioDao.deleteById(id);
+                outbox.registrar(new ComentarioEliminado(id, comentario.getIncidencia().getId()));
+            });
+            searchIndex.removeComentario(id);
         } catch (BusinessException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error eliminando comentario", ex);
         }
     }
 
     // Helpers
-    private boolean isBlank(String s) {
-        return s == null || s.trim().isEmpty();
-    }
-
-    private void begin() {
-        if (!em.getTransaction().isActive()) {
-            em.getTransaction().begin();
+    private void validateAutor(Comentario comentario, UserLoggedInDto currentUser,
+                               String authMessage, String forbiddenMessage) {
+        if (currentUser == null) {
+            throw new AuthException(authMessage);
         }
-    }
-
-    private void commit() {
-        if (em.getTransaction().isActive()) {
-            em.getTransaction().commit();
+        if (comentario.getCreatedBy() == null || comentario.getCreatedBy().getId() == null) {
+            throw new ForbiddenException("No se puede determinar el autor del comentario");
+        }
+        if (!comentario.getCreatedBy().getId().equals(currentUser.getId())) {
+            throw new ForbiddenException(forbiddenMessage);
         }
     }
 
-    private void rollbackSilently() {
-        try {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
-        } catch (Exception ignore) {
-        }
+    private boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
     }
 }
-
@@ -0,0 +1,514 @@
+package ar.edu.up.bugtracker.service;
+
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.dao.ProyectoDao;
+import ar.edu.up.bugtracker.dao.ProyectoMetricasDao;
+import ar.edu.up.bugtracker.dao.UserDao;
+import ar.edu.up.bugtracker.exceptions.*;
+import ar.edu.up.bugtracker.models.Incidencia;
+import ar.edu.up.bugtracker.models.IncidenciaEstado;
+import ar.edu.up.bugtracker.models.IncidenciaVersion;
+import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.models.Usuario;
+import ar.edu.up.bugtracker.models.detalle.DetalleCreacion;
+import ar.edu.up.bugtracker.models.detalle.SnapshotIncidencia;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchIndex;
+import ar.edu.up.bugtracker.service.csv.CsvReader;
+import ar.edu.up.bugtracker.service.csv.CsvWriter;
+import ar.edu.up.bugtracker.service.dto.ImportResultadoDto;
+import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.eventos.IncidenciasImportadas;
+import ar.edu.up.bugtracker.service.eventos.Outbox;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Importación masiva de incidencias desde un CSV (por ejemplo, al migrar desde otro gestor).
+ * Son tres etapas unidas por colas acotadas: un hilo lee el archivo, varios validan filas en paralelo
+ * y el hilo que llama escribe por lotes, cada lote en su propia transacción sin estado. Si la base es la
+ * etapa más lenta las colas se llenan y el lector espera, así la memoria no depende del tamaño del archivo.
+ * Cada incidencia se crea con su versión inicial, igual que en IncidenciaService.create.
+ */
+public class IncidenciaImportService {
+
+    /** Encabezados reconocidos (sin distinguir mayúsculas); sólo descripcion es obligatorio y el resto se ignora. */
+    public static final String COL_DESCRIPCION = "descripcion";
+    public static final String COL_RESPONSABLE = "responsable_email";
+    public static final String COL_ESTIMACION = "estimacion_horas";
+    public static final String COL_ESTADO = "estado";
+
+    private static final int LOTE = 500;
+    private static final int CAPACIDAD_COLA = 2000;
+    private static final FilaCsv FIN_LECTURA = new FilaCsv(-1, null);
+    private static final Object FIN_VALIDACION = new Object();
+
+    private final IncidenciaDao incidenciaDao;
+    private final UserDao userDao;
+    private final ProyectoDao proyectoDao;
+    private final ProyectoMetricasDao metricasDao;
+    private final SearchIndex searchIndex;
+    private final Outbox outbox;
+    private final UnitOfWork uow;
+    private final int validadores;
+
+    public IncidenciaImportService(IncidenciaDao incidenciaDao, UserDao userDao, ProyectoDao proyectoDao,
+                                   ProyectoMetricasDao metricasDao, SearchIndex searchIndex, Outbox outbox,
+                                   UnitOfWork uow) {
+        this.incidenciaDao = incidenciaDao;
+        this.userDao = userDao;
+        this.proyectoDao = proyectoDao;
+        this.metricasDao = metricasDao;
+        this.searchIndex = searchIndex;
+        this.outbox = outbox;
+        this.uow = uow;
+        this.validadores = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Importa el archivo en el proyecto. Las filas inválidas no frenan la importación: se copian, con la línea
+     * y el motivo, a un CSV "nombre.rechazos.csv" junto al original, que se puede corregir y volver a importar.
+     * Los lotes ya confirmados quedan aunque la importación falle más adelante.
+     *
+     * @param progreso recibe el avance después de cada lote (se llama desde el hilo que importa); puede ser null
+     */
+    public ImportResultadoDto importar(Long proyectoId, Path archivo, UserLoggedInDto currentUser,
+                                       Consumer<ImportResultadoDto> progreso) {
+        validateAdmin(currentUser);
+        if (archivo == null) {
+            throw new ValidationException("El archivo a importar es obligatorio");
+        }
+
+        Importacion importacion;
+        try {
+            importacion = uow.inTransaction(() -> {
+                Proyecto proyecto = proyectoDao.findById(proyectoId);
+                if (proyecto == null) {
+                    throw new NotFoundException("Proyecto no encontrado");
+                }
+                Usuario creador = userDao.findById(currentUser.getId());
+                if (creador == null) {
+                    throw new NotFoundException("Usuario no encontrado");
+                }
+                IncidenciaEstado estadoInicial = incidenciaDao.findEstadoById(1L);
+                if (estadoInicial == null) {
+                    throw new BusinessException("No se encontró el estado inicial con ID 1");
+                }
+                return new Importacion(proyecto, creador, estadoInicial, incidenciaDao.findAllEstados(), progreso);
+            });
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error preparando la importación", ex);
+        }
+
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(archivo, StandardCharsets.UTF_8))) {
+            String[] encabezado = reader.next();
+            if (encabezado == null) {
+                throw new ValidationException("El archivo está vacío");
+            }
+            importacion.columnas(encabezado);
+            return importacion.ejecutar(reader, archivoRechazos(archivo));
+        } catch (AppException ex) {
+            // Incluye las de negocio y los cortes con la cantidad ya importada
+            throw ex;
+        } catch (IOException ex) {
+            throw new AppException("No se pudo leer el archivo de importación: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            throw new AppException("Error importando incidencias", ex);
+        }
+    }
+
+    // Helpers
+    private static Path archivoRechazos(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        return archivo.resolveSibling((punto > 0 ? nombre.substring(0, punto) : nombre) + ".rechazos.csv");
+    }
+
+    private void validateAdmin(UserLoggedInDto currentUser) {
+        if (currentUser == null) {
+            throw new AuthException("Debes estar autenticado para realizar esta acción");
+        }
+        if (!"ADMIN".equalsIgnoreCase(currentUser.getPerfil())) {
+            throw new ForbiddenException("Solo los administradores pueden importar incidencias");
+        }
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    /** Estado de una importación en curso; lo comparten las tres etapas. */
+    private final class Importacion {
+        private final Proyecto proyecto;
+        private final Usuario creador;
+        private final IncidenciaEstado estadoInicial;
+        private final Map<String, IncidenciaEstado> estados = new HashMap<>();
+        private final Consumer<ImportResultadoDto> progreso;
+        // Email normalizado -> usuario (vacío si no existe); los validadores lo comparten
+        private final ConcurrentHashMap<String, Optional<Usuario>> usuarios = new ConcurrentHashMap<>();
+        private final AtomicLong leidas = new AtomicLong();
+
+        private String[] encabezado;
+        private int colDescripcion = -1;
+        private int colResponsable = -1;
+        private int colEstimacion = -1;
+        private int colEstado = -1;
+
+        // Sólo los usa el hilo que escribe
+        private long importadas;
+        private long rechazadas;
+        private long ultimoId;
+        private CsvWriter rechazos;
+        private Path archivoRechazos;
+
+        Importacion(Proyecto proyecto, Usuario creador, IncidenciaEstado estadoInicial, List<IncidenciaEstado> estados,
+                    Consumer<ImportResultadoDto> progreso) {
+            this.proyecto = proyecto;
+            this.creador = creador;
+            this.estadoInicial = estadoInicial;
+            this.progreso = progreso;
+            for (IncidenciaEstado estado : estados) {
+                this.estados.put(estado.getNombre().toUpperCase(Locale.ROOT), estado);
+            }
+        }
+
+        void columnas(String[] encabezado) {
+            this.encabezado = encabezado;
+            for (int i = 0; i < encabezado.length; i++) {
+                String nombre = encabezado[i].trim().toLowerCase(Locale.ROOT);
+                if (COL_DESCRIPCION.equals(nombre)) colDescripcion = i;
+                else if (COL_RESPONSABLE.equals(nombre)) colResponsable = i;
+                else if (COL_ESTIMACION.equals(nombre)) colEstimacion = i;
+                else if (COL_ESTADO.equals(nombre)) colEstado = i;
+            }
+            if (colDescripcion < 0) {
+                throw new ValidationException("El archivo no tiene la columna " + COL_DESCRIPCION);
+            }
+        }
+
+        ImportResultadoDto ejecutar(CsvReader reader, Path archivoRechazos) throws IOException {
+            this.archivoRechazos = archivoRechazos;
+            Files.deleteIfExists(archivoRechazos);
+
+            BlockingQueue<FilaCsv> filas = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+            BlockingQueue<Object> validadas = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+            AtomicInteger hilos = new AtomicInteger();
+            ExecutorService etapas = Executors.newFixedThreadPool(validadores + 1, r -> {
+                Thread t = new Thread(r, "importacion-" + hilos.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                etapas.execute(() -> leer(reader, filas));
+                for (int i = 0; i < validadores; i++) {
+                    etapas.execute(() -> validar(filas, validadas));
+                }
+
+                List<FilaValida> lote = new ArrayList<>(LOTE);
+                int terminados = 0;
+                while (terminados < validadores) {
+                    Object item = validadas.take();
+                    if (item == FIN_VALIDACION) {
+                        terminados++;
+                    } else if (item instanceof Falla) {
+                        Falla falla = (Falla) item;
+                        throw new AppException(falla.mensaje + ". Se importaron " + importadas
+                                + " incidencias antes del error", falla.causa);
+                    } else if (item instanceof Rechazo) {
+                        rechazar((Rechazo) item);
+                    } else {
+                        lote.add((FilaValida) item);
+                        if (lote.size() == LOTE) {
+                            escribir(lote);
+                            lote.clear();
+                        }
+                    }
+                }
+                if (!lote.isEmpty()) {
+                    escribir(lote);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AppException("Importación interrumpida. Se importaron " + importadas + " incidencias", e);
+            } finally {
+                etapas.shutdownNow();
+                if (rechazos != null) {
+                    rechazos.close();
+                }
+                if (ultimoId > 0) {
+                    searchIndex.commitLoad(ultimoId, searchIndex.getLastComentarioId());
+                }
+            }
+
+            ImportResultadoDto resultado = resultado(true);
+            if (progreso != null) {
+                progreso.accept(resultado);
+            }
+            return resultado;
+        }
+
+        /** Etapa 1: lee el archivo y encola las filas; al terminar deja una marca de fin por validador. */
+        private void leer(CsvReader reader, BlockingQueue<FilaCsv> filas) {
+            try {
+                try {
+                    String[] campos;
+                    while ((campos = reader.next()) != null) {
+                        leidas.incrementAndGet();
+                        filas.put(new FilaCsv(reader.getLinea(), campos));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    filas.put(new FilaCsv(-1, null, new Falla("Error leyendo el archivo: " + e.getMessage(), e)));
+                }
+                for (int i = 0; i < validadores; i++) {
+                    filas.put(FIN_LECTURA);
+                }
+            } catch (InterruptedException e) {
+                // La importación se canceló
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** Etapa 2: valida cada fila y la pasa al escritor como FilaValida, Rechazo o Falla. */
+        private void validar(BlockingQueue<FilaCsv> filas, BlockingQueue<Object> validadas) {
+            try {
+                while (true) {
+                    FilaCsv fila = filas.take();
+                    if (fila == FIN_LECTURA) {
+                        validadas.put(FIN_VALIDACION);
+                        return;
+                    }
+                    if (fila.falla != null) {
+                        validadas.put(fila.falla);
+                        continue;
+                    }
+                    Object resultado;
+                    try {
+                        resultado = validarFila(fila);
+                    } catch (RuntimeException e) {
+                        resultado = new Falla("Error validando la línea " + fila.linea, e);
+                    }
+                    validadas.put(resultado);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Object validarFila(FilaCsv fila) {
+            String descripcion = campo(fila, colDescripcion);
+            if (isBlank(descripcion)) {
+                return new Rechazo(fila, "La descripción es obligatoria");
+            }
+
+            Usuario responsable = null;
+            String email = campo(fila, colResponsable);
+            if (!isBlank(email)) {
+                responsable = usuario(email);
+                if (responsable == null) {
+                    return new Rechazo(fila, "Responsable no encontrado: " + email.trim());
+                }
+            }
+
+            BigDecimal estimacion = null;
+            String textoEstimacion = campo(fila, colEstimacion);
+            if (!isBlank(textoEstimacion)) {
+                try {
+                    estimacion = new BigDecimal(textoEstimacion.trim().replace(',', '.'));
+                } catch (NumberFormatException e) {
+                    return new Rechazo(fila, "Estimación inválida: " + textoEstimacion.trim());
+                }
+                BigDecimal normalizada = estimacion.stripTrailingZeros();
+                if (estimacion.signum() < 0) {
+                    return new Rechazo(fila, "La estimación no puede ser negativa");
+                }
+                // Columna DECIMAL(10,2)
+                if (normalizada.scale() > 2 || normalizada.precision() - normalizada.scale() > 8) {
+                    return new Rechazo(fila, "Estimación fuera de rango: " + textoEstimacion.trim());
+                }
+            }
+
+            IncidenciaEstado estado = estadoInicial;
+            String nombreEstado = campo(fila, colEstado);
+            if (!isBlank(nombreEstado)) {
+                estado = estados.get(nombreEstado.trim().toUpperCase(Locale.ROOT));
+                if (estado == null) {
+                    return new Rechazo(fila, "Estado desconocido: " + nombreEstado.trim());
+                }
+            }
+
+            Incidencia incidencia = new Incidencia();
+            incidencia.setProyecto(proyecto);
+            incidencia.setResponsable(responsable);
+            incidencia.setDescripcion(descripcion);
+            incidencia.setEstimacionHoras(estimacion);
+            incidencia.setEstado(estado);
+            incidencia.setEstadoCambiadoEn(LocalDateTime.now());
+
+            IncidenciaVersion version = new IncidenciaVersion();
+            version.setIncidencia(incidencia);
+            version.setEstado(estado);
+            version.setCreatedBy(creador);
+            version.setNumero(1);
+            DetalleCreacion detalle = new DetalleCreacion(estado.getNombre());
+            detalle.setSnapshot(SnapshotIncidencia.de(incidencia));
+            version.setDetalles(detalle);
+            return new FilaValida(incidencia, version);
+        }
+
+        /** Usuario por email con caché compartida: cada email distinto se consulta una sola vez. */
+        private Usuario usuario(String email) {
+            String clave = email.trim().toLowerCase(Locale.ROOT);
+            Optional<Usuario> usuario = usuarios.get(clave);
+            if (usuario == null) {
+                usuario = Optional.ofNullable(uow.inReadOnlyTransaction(() -> userDao.findByEmail(clave)));
+                Optional<Usuario> previo = usuarios.putIfAbsent(clave, usuario);
+                if (previo != null) {
+                    usuario = previo;
+                }
+            }
+            return usuario.orElse(null);
+        }
+
+        /** Etapa 3: un lote por transacción sin estado, con sus versiones y el ajuste de métricas. */
+        private void escribir(List<FilaValida> lote) {
+            List<Incidencia> incidencias = new ArrayList<>(lote.size());
+            List<IncidenciaVersion> versiones = new ArrayList<>(lote.size());
+            Map<Long, Integer> cantidades = new LinkedHashMap<>();
+            Map<Long, BigDecimal> horas = new HashMap<>();
+            for (FilaValida fila : lote) {
+                incidencias.add(fila.incidencia);
+                versiones.add(fila.version);
+                Long estadoId = fila.incidencia.getEstado().getId();
+                cantidades.merge(estadoId, 1, Integer::sum);
+                if (fila.incidencia.getEstimacionHoras() != null) {
+                    horas.merge(estadoId, fila.incidencia.getEstimacionHoras(), BigDecimal::add);
+                }
+            }
+
+            List<Long> ids;
+            try {
+                ids = uow.inStatelessTransaction(() -> {
+                    List<Long> creados = incidenciaDao.createAllConVersionInicial(incidencias, versiones);
+                    for (Map.Entry<Long, Integer> e : cantidades.entrySet()) {
+                        metricasDao.ajustar(proyecto.getId(), e.getKey(), e.getValue(), horas.get(e.getKey()));
+                    }
+                    outbox.registrar(new IncidenciasImportadas(proyecto.getId(), creados));
+                    return creados;
+                });
+            } catch (RuntimeException ex) {
+                throw new AppException("Error guardando un lote de incidencias. Se importaron " + importadas
+                        + " incidencias antes del error", ex);
+            }
+            importadas += ids.size();
+
+            // Sin WAL: si el proceso se corta, la sincronización del índice las vuelve a leer desde la base
+            for (int i = 0; i < ids.size(); i++) {
+                searchIndex.loadIncidencia(ids.get(i), proyecto.getId(), incidencias.get(i).getDescripcion());
+                ultimoId = Math.max(ultimoId, ids.get(i));
+            }
+            if (progreso != null) {
+                progreso.accept(resultado(false));
+            }
+        }
+
+        private void rechazar(Rechazo rechazo) {
+            if (rechazos == null) {
+                try {
+                    rechazos = new CsvWriter(new BufferedOutputStream(Files.newOutputStream(archivoRechazos)));
+                } catch (IOException e) {
+                    throw new AppException("No se pudo crear el archivo de rechazos " + archivoRechazos, e);
+                }
+                Object[] columnas = new Object[encabezado.length + 2];
+                columnas[0] = "linea";
+                columnas[1] = "motivo";
+                System.arraycopy(encabezado, 0, columnas, 2, encabezado.length);
+                rechazos.fila(columnas);
+            }
+            Object[] valores = new Object[rechazo.fila.campos.length + 2];
+            valores[0] = rechazo.fila.linea;
+            valores[1] = rechazo.motivo;
+            System.arraycopy(rechazo.fila.campos, 0, valores, 2, rechazo.fila.campos.length);
+            rechazos.fila(valores);
+            rechazadas++;
+        }
+
+        private ImportResultadoDto resultado(boolean terminada) {
+            return new ImportResultadoDto(leidas.get(), importadas, rechazadas,
+                    rechazadas > 0 ? archivoRechazos : null, terminada);
+        }
+
+        private String campo(FilaCsv fila, int columna) {
+            return columna >= 0 && columna < fila.campos.length ? fila.campos[columna] : null;
+        }
+    }
+
+    private static final class FilaCsv {
+        final long linea;
+        final String[] campos;
+        final Falla falla;
+
+        FilaCsv(long linea, String[] campos) {
+            this(linea, campos, null);
+        }
+
+        FilaCsv(long linea, String[] campos, Falla falla) {
+            this.linea = linea;
+            this.campos = campos;
+            this.falla = falla;
+        }
+    }
+
+    private static final class FilaValida {
+        final Incidencia incidencia;
+        final IncidenciaVersion version;
+
+        FilaValida(Incidencia incidencia, IncidenciaVersion version) {
+            this.incidencia = incidencia;
+            this.version = version;
+        }
+    }
+
+    private static final class Rechazo {
+        final FilaCsv fila;
+        final String motivo;
+
+        Rechazo(FilaCsv fila, String motivo) {
+            this.fila = fila;
+            this.motivo = motivo;
+        }
+    }
+
+    /** Error que corta la importación (lectura del archivo o consulta a la base durante la validación). */
+    private static final class Falla {
+        final String mensaje;
+        final Exception causa;
+
+        Falla(String mensaje, Exception causa) {
+            this.mensaje = mensaje;
+            this.causa = causa;
+        }
+    }
+}
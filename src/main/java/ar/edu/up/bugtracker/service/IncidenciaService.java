@@ -4,6 +4,9 @@ import ar.edu.up.bugtracker.dao.ComentarioDao;
 import ar.edu.up.bugtracker.dao.IncidenciaDao;
 import ar.edu.up.bugtracker.dao.IncidenciaVersionDao;
 import ar.edu.up.bugtracker.dao.ProyectoDao;
+import ar.edu.up.bugtracker.dao.ProyectoMetricasDao;
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.dao.UserDao;
 import ar.edu.up.bugtracker.exceptions.*;
 import ar.edu.up.bugtracker.models.Incidencia;
@@ -12,29 +15,75 @@ import ar.edu.up.bugtracker.models.IncidenciaEstadoEnum;
 import ar.edu.up.bugtracker.models.IncidenciaVersion;
 import ar.edu.up.bugtracker.models.Proyecto;
 import ar.edu.up.bugtracker.models.Usuario;
+import ar.edu.up.bugtracker.models.detalle.CambioCampo;
+import ar.edu.up.bugtracker.models.detalle.DetalleCambioEstado;
+import ar.edu.up.bugtracker.models.detalle.DetalleCreacion;
+import ar.edu.up.bugtracker.models.detalle.DetalleEdicion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersion;
+import ar.edu.up.bugtracker.models.detalle.SnapshotIncidencia;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchIndex;
+import ar.edu.up.bugtracker.service.dto.IncidenciaHistoricaDto;
+import ar.edu.up.bugtracker.service.dto.IncidenciaResumenDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
-import jakarta.persistence.EntityManager;
-
+import ar.edu.up.bugtracker.service.eventos.IncidenciaActualizada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaCreada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaEliminada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaEstadoCambiado;
+import ar.edu.up.bugtracker.service.eventos.IncidenciasEstadoCambiado;
+import ar.edu.up.bugtracker.service.eventos.Outbox;
+import jakarta.persistence.OptimisticLockException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class IncidenciaService {
 
+    /** Ediciones sucesivas del mismo usuario dentro de este lapso se agrupan en una sola versión. */
+    static final Duration VENTANA_COALESCENCIA = Duration.ofMinutes(2);
+
+    /** Tope de incidencias por cambio de estado masivo (una transacción). */
+    static final int MAX_CAMBIO_ESTADO_MASIVO = 500;
+
+    private static final Long ESTADO_INICIAL_ID = 1L;
+    private static final String CAMPO_ESTADO = "estado";
+    private static final Set<String> TODOS_LOS_CAMPOS = Set.of(CambioCampo.DESCRIPCION,
+            CambioCampo.ESTIMACION_HORAS, CambioCampo.RESPONSABLE, CAMPO_ESTADO);
+    private static final String MENSAJE_CONFLICTO =
+            "La incidencia está siendo modificada por otros usuarios. Volvé a intentar en unos segundos.";
+
     private final IncidenciaDao incidenciaDao;
     private final IncidenciaVersionDao versionDao;
     private final UserDao userDao;
     private final ProyectoDao proyectoDao;
     private final ComentarioDao comentarioDao;
-    private final EntityManager em;
+    private final ProyectoMetricasDao metricasDao;
+    private final SearchIndex searchIndex;
+    private final Outbox outbox;
+    private final UnitOfWork uow;
 
     public IncidenciaService(IncidenciaDao incidenciaDao, IncidenciaVersionDao versionDao, 
                              UserDao userDao, ProyectoDao proyectoDao, ComentarioDao comentarioDao,
-                             EntityManager em) {
+                             ProyectoMetricasDao metricasDao, SearchIndex searchIndex, Outbox outbox,
+                             UnitOfWork uow) {
         this.incidenciaDao = incidenciaDao;
         this.versionDao = versionDao;
         this.userDao = userDao;
         this.proyectoDao = proyectoDao;
         this.comentarioDao = comentarioDao;
-        this.em = em;
+        this.metricasDao = metricasDao;
+        this.searchIndex = searchIndex;
+        this.outbox = outbox;
+        this.uow = uow;
     }
 
     public Long create(Incidencia incidencia, UserLoggedInDto currentUser) {
@@ -51,60 +100,67 @@ public class IncidenciaService {
             throw new AuthException("Debes estar autenticado para crear incidencias");
         }
 
-        IncidenciaEstado estadoInicial = incidenciaDao.findEstadoById(1L);
-        if (estadoInicial == null) {
-            throw new BusinessException("No se encontró el estado inicial con ID 1");
-        }
-
-        Usuario creador = userDao.findById(currentUser.getId());
-        if (creador == null) {
-            throw new NotFoundException("Usuario no encontrado");
-        }
-
         try {
-            begin();
-
-            if (incidencia.getProyecto() != null && incidencia.getProyecto().getId() != null) {
-                Proyecto proyectoGestionado = proyectoDao.getReference(incidencia.getProyecto().getId());
-                incidencia.setProyecto(proyectoGestionado);
-            }
-
-            if (incidencia.getResponsable() != null && incidencia.getResponsable().getId() != null) {
-                Usuario responsableGestionado = userDao.getReference(incidencia.getResponsable().getId());
-                incidencia.setResponsable(responsableGestionado);
-            }
-
-            Long incidenciaId = incidenciaDao.create(incidencia);
-
-            Incidencia incidenciaGestionada = incidenciaDao.findById(incidenciaId);
+            Long id = uow.inTransaction(() -> {
+                // Catálogo en caché de segundo nivel: no va a la base
+                IncidenciaEstado estadoInicial = incidenciaDao.findEstadoById(ESTADO_INICIAL_ID);
+                if (estadoInicial == null) {
+                    throw new BusinessException("No se encontró el estado inicial con ID " + ESTADO_INICIAL_ID);
+                }
 
-            IncidenciaVersion versionInicial = new IncidenciaVersion();
-            versionInicial.setIncidencia(incidenciaGestionada);
-            versionInicial.setEstado(estadoInicial);
-            versionInicial.setCreatedBy(creador);
-            String estadoNombre = estadoInicial.getNombre() != null ? estadoInicial.getNombre() : "TODO";
-            versionInicial.setDetalles("{\"tipo\":\"creacion\",\"estado\":\"" + estadoNombre + "\"}");
+                // Entidad nueva en cada intento: si UnitOfWork reintenta por un deadlock, la del intento
+                // revertido ya tiene id, versión y versión actual asignados y no se puede volver a persistir
+                Incidencia nueva = new Incidencia();
+                nueva.setDescripcion(incidencia.getDescripcion());
+                nueva.setEstimacionHoras(incidencia.getEstimacionHoras());
 
-            Long versionId = versionDao.create(versionInicial);
+                // Proyecto y creador sólo se usan como claves foráneas: referencias sin SELECT
+                nueva.setProyecto(proyectoDao.getReference(incidencia.getProyecto().getId()));
+                Usuario creador = userDao.getReference(currentUser.getId());
 
-            IncidenciaVersion versionGestionada = versionDao.findById(versionId);
-            incidenciaGestionada.setCurrentVersion(versionGestionada);
-            incidenciaDao.update(incidenciaGestionada);
+                // El responsable sí se lee: el snapshot de la versión inicial guarda su email
+                if (incidencia.getResponsable() != null && incidencia.getResponsable().getId() != null) {
+                    Usuario responsable = userDao.findById(incidencia.getResponsable().getId());
+                    if (responsable == null) {
+                        throw new NotFoundException("Responsable no encontrado");
+                    }
+                    nueva.setResponsable(responsable);
+                }
 
-            commit();
-            return incidenciaId;
+                nueva.setEstado(estadoInicial);
+                nueva.setEstadoCambiadoEn(LocalDateTime.now());
+                Long incidenciaId = incidenciaDao.create(nueva);
+
+                // Se trabaja con las instancias ya gestionadas; al confirmar quedan INSERT incidencia,
+                // INSERT versión y el UPDATE de current_version_id (las dos FK se apuntan entre sí)
+                IncidenciaVersion versionInicial = new IncidenciaVersion();
+                versionInicial.setIncidencia(nueva);
+                versionInicial.setEstado(estadoInicial);
+                versionInicial.setCreatedBy(creador);
+                String estadoNombre = estadoInicial.getNombre() != null ? estadoInicial.getNombre() : "TODO";
+                numerarVersion(versionInicial, nueva, new DetalleCreacion(estadoNombre));
+                versionDao.create(versionInicial);
+                nueva.setCurrentVersion(versionInicial);
+
+                metricasDao.ajustar(nueva.getProyecto().getId(), estadoInicial.getId(),
+                        1, nueva.getEstimacionHoras());
+                outbox.registrar(new IncidenciaCreada(incidenciaId, nueva.getProyecto().getId()));
+
+                return incidenciaId;
+            });
+            // El índice se actualiza recién con la transacción confirmada
+            searchIndex.indexIncidencia(id, incidencia.getProyecto().getId(), incidencia.getDescripcion());
+            return id;
         } catch (BusinessException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error creando incidencia", ex);
         }
     }
 
     public List<Incidencia> getAll() {
         try {
-            return incidenciaDao.findAll();
+            return uow.inReadOnlyTransaction(() -> incidenciaDao.findAll());
         } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -114,7 +170,38 @@ public class IncidenciaService {
 
     public List<Incidencia> findByProyecto(Long proyectoId) {
         try {
-            return incidenciaDao.findByProyecto(proyectoId);
+            return uow.inReadOnlyTransaction(() -> incidenciaDao.findByProyecto(proyectoId));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo incidencias del proyecto", ex);
+        }
+    }
+
+    public List<Incidencia> findByProyectoAndEstado(Long proyectoId, Long estadoId) {
+        try {
+            return uow.inReadOnlyTransaction(() -> incidenciaDao.findByProyectoAndEstado(proyectoId, estadoId));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo incidencias del proyecto", ex);
+        }
+    }
+
+    public Slice<Incidencia, Long> findSliceByProyecto(Long proyectoId, Long estadoId, SliceRequest<Long> request) {
+        try {
+            return uow.inReadOnlyTransaction(() -> incidenciaDao.findSliceByProyecto(proyectoId, estadoId, request));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo incidencias del proyecto", ex);
+        }
+    }
+
+    public Slice<IncidenciaResumenDto, Long> findResumenSliceByProyecto(Long proyectoId, Long estadoId,
+                                                                     SliceRequest<Long> request) {
+        try {
+            return uow.inReadOnlyTransaction(() -> incidenciaDao.findResumenSliceByProyecto(proyectoId, estadoId, request));
         } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -123,113 +210,150 @@ public class IncidenciaService {
     }
 
     public Incidencia getById(Long id) {
-        // Sincronizar el acceso al EntityManager para evitar problemas con múltiples threads
-        synchronized (em) {
-            try {
-                em.clear();
-                
-                boolean transactionStarted = !em.getTransaction().isActive();
-                if (transactionStarted) {
-                    em.getTransaction().begin();
-                }
-                
+        try {
+            // findById trae proyecto, responsable, versión actual, estado y autor en la misma consulta,
+            // así la entidad queda completa aunque el EntityManager se cierre al terminar
+            return uow.inReadOnlyTransaction(() -> {
                 Incidencia incidencia = incidenciaDao.findById(id);
                 if (incidencia == null) {
                     throw new NotFoundException("Incidencia no encontrada");
                 }
-                
-                if (incidencia.getProyecto() != null) {
-                    incidencia.getProyecto().getId();
-                    incidencia.getProyecto().getNombre();
-                }
-                if (incidencia.getResponsable() != null) {
-                    incidencia.getResponsable().getId();
-                }
-                if (incidencia.getCurrentVersion() != null) {
-                    incidencia.getCurrentVersion().getId();
-                    if (incidencia.getCurrentVersion().getEstado() != null) {
-                        incidencia.getCurrentVersion().getEstado().getId();
-                        incidencia.getCurrentVersion().getEstado().getNombre();
-                    }
-                    if (incidencia.getCurrentVersion().getCreatedBy() != null) {
-                        incidencia.getCurrentVersion().getCreatedBy().getId();
-                    }
-                }
-                
-                em.flush(); 
-                
                 return incidencia;
-            } catch (BusinessException ex) {
-                throw ex;
-            } catch (RuntimeException ex) {
-                rollbackSilently();
-                throw new AppException("Error obteniendo incidencia", ex);
-            }
+            });
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo incidencia", ex);
         }
     }
 
-    public void update(Long id, Incidencia incidencia) {
+    public void update(Long id, Incidencia incidencia, UserLoggedInDto currentUser) {
         if (incidencia == null) {
             throw new ValidationException("La incidencia no puede ser nula");
         }
+        if (currentUser == null) {
+            throw new AuthException("Debes estar autenticado para editar incidencias");
+        }
 
         try {
-            begin();
-            
-            // Obtener la incidencia para asegurar que todas las relaciones estén cargadas
-            Incidencia existente = incidenciaDao.findById(id);
-            if (existente == null) {
-                throw new NotFoundException("Incidencia no encontrada");
-            }
+            Long proyectoId = ReintentoOptimista.ejecutar(MENSAJE_CONFLICTO, () -> uow.inTransaction(() -> {
+                // Obtener la incidencia para asegurar que todas las relaciones estén cargadas
+                Incidencia existente = incidenciaDao.findById(id);
+                if (existente == null) {
+                    throw new NotFoundException("Incidencia no encontrada");
+                }
 
-            // Guardar el currentVersion antes de hacer cambios
-            IncidenciaVersion currentVersionPreservado = existente.getCurrentVersion();
-            
-            // Materializar el estado del currentVersion
-            if (currentVersionPreservado != null && currentVersionPreservado.getEstado() != null) {
-                currentVersionPreservado.getEstado().getId();
-                currentVersionPreservado.getEstado().getNombre();
-            }
+                BigDecimal estimacionAnterior = existente.getEstimacionHoras();
+                List<CambioCampo> cambios = new ArrayList<>();
 
-            // Actualizar solo los campos que se proporcionan
-            boolean actualizarDescripcion = !isBlank(incidencia.getDescripcion());
-            boolean actualizarEstimacion = incidencia.getEstimacionHoras() != null;
-            boolean actualizarResponsable = incidencia.getResponsable() != null || 
-                    (incidencia.getResponsable() == null && !actualizarDescripcion && !actualizarEstimacion);
-            
-            if (actualizarDescripcion) {
-                existente.setDescripcion(incidencia.getDescripcion());
-            }
-            if (actualizarEstimacion) {
-                existente.setEstimacionHoras(incidencia.getEstimacionHoras());
-            }
-            
-            if (actualizarResponsable) {
-                if (incidencia.getResponsable() != null && incidencia.getResponsable().getId() != null) {
-                    Usuario responsable = userDao.findById(incidencia.getResponsable().getId());
-                    existente.setResponsable(responsable);
-                } else {
-                    existente.setResponsable(null);
+                // Actualizar solo los campos que se proporcionan
+                boolean actualizarDescripcion = !isBlank(incidencia.getDescripcion());
+                boolean actualizarEstimacion = incidencia.getEstimacionHoras() != null;
+                boolean actualizarResponsable = incidencia.getResponsable() != null || 
+                        (incidencia.getResponsable() == null && !actualizarDescripcion && !actualizarEstimacion);
+
+                if (actualizarDescripcion && !incidencia.getDescripcion().equals(existente.getDescripcion())) {
+                    cambios.add(new CambioCampo(CambioCampo.DESCRIPCION,
+                            existente.getDescripcion(), incidencia.getDescripcion()));
+                    existente.setDescripcion(incidencia.getDescripcion());
                 }
+                if (actualizarEstimacion && (estimacionAnterior == null
+                        || estimacionAnterior.compareTo(incidencia.getEstimacionHoras()) != 0)) {
+                    cambios.add(new CambioCampo(CambioCampo.ESTIMACION_HORAS,
+                            texto(estimacionAnterior), texto(incidencia.getEstimacionHoras())));
+                    existente.setEstimacionHoras(incidencia.getEstimacionHoras());
+                }
+
+                if (actualizarResponsable) {
+                    Usuario anterior = existente.getResponsable();
+                    Usuario responsable = null;
+                    if (incidencia.getResponsable() != null && incidencia.getResponsable().getId() != null) {
+                        responsable = userDao.findById(incidencia.getResponsable().getId());
+                        if (responsable == null) {
+                            throw new NotFoundException("Responsable no encontrado");
+                        }
+                    }
+                    Long anteriorId = anterior != null ? anterior.getId() : null;
+                    Long nuevoId = responsable != null ? responsable.getId() : null;
+                    if (!Objects.equals(anteriorId, nuevoId)) {
+                        cambios.add(new CambioCampo(CambioCampo.RESPONSABLE,
+                                anterior != null ? anterior.getEmail() : null,
+                                responsable != null ? responsable.getEmail() : null));
+                        existente.setResponsable(responsable);
+                    }
+                }
+
+                if (cambios.isEmpty()) {
+                    return existente.getProyecto().getId();
+                }
+                verificarEdicionVigente(existente, incidencia, cambios, currentUser.getId());
+
+                registrarEdicion(existente, cambios, currentUser.getId());
+                incidenciaDao.update(existente);
+                outbox.registrar(new IncidenciaActualizada(id, existente.getProyecto().getId()));
+
+                if (actualizarEstimacion) {
+                    BigDecimal delta = existente.getEstimacionHoras().subtract(orZero(estimacionAnterior));
+                    if (delta.signum() != 0) {
+                        metricasDao.ajustar(existente.getProyecto().getId(), existente.getEstado().getId(), 0, delta);
+                    }
+                }
+                return existente.getProyecto().getId();
+            }));
+            if (!isBlank(incidencia.getDescripcion())) {
+                searchIndex.indexIncidencia(id, proyectoId, incidencia.getDescripcion());
             }
-            
-            // Asegurar que el currentVersion se mantenga siempre
-            if (currentVersionPreservado != null) {
-                existente.setCurrentVersion(currentVersionPreservado);
-            }
-            
-            incidenciaDao.update(existente);
-            commit();
         } catch (BusinessException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error actualizando incidencia", ex);
         }
     }
 
-    public void cambiarEstado(Long id, Long nuevoEstadoId, UserLoggedInDto currentUser) {
+    /**
+     * Deja la edición en el historial. Si la versión actual es otra edición del mismo usuario hecha hace
+     * menos de VENTANA_COALESCENCIA, los cambios se suman a esa versión (conservando el valor anterior
+     * original de cada campo) en lugar de agregar una fila por cada guardado.
+     */
+    private void registrarEdicion(Incidencia incidencia, List<CambioCampo> cambios, Long usuarioId) {
+        IncidenciaVersion actual = incidencia.getCurrentVersion();
+        if (actual != null && actual.getDetalles() instanceof DetalleEdicion
+                && actual.getCreatedBy() != null && usuarioId.equals(actual.getCreatedBy().getId())
+                && actual.getCreatedAt() != null
+                && actual.getCreatedAt().isAfter(LocalDateTime.now().minus(VENTANA_COALESCENCIA))) {
+            Map<String, CambioCampo> combinados = new LinkedHashMap<>();
+            for (CambioCampo previo : ((DetalleEdicion) actual.getDetalles()).getCambios()) {
+                combinados.put(previo.getCampo(), previo);
+            }
+            for (CambioCampo cambio : cambios) {
+                CambioCampo previo = combinados.get(cambio.getCampo());
+                String anterior = previo != null ? previo.getAnterior() : cambio.getAnterior();
+                combinados.put(cambio.getCampo(), new CambioCampo(cambio.getCampo(), anterior, cambio.getNuevo()));
+            }
+            // Instancia nueva (no se modifica la lista) para que el dirty checking detecte el cambio
+            DetalleEdicion combinada = new DetalleEdicion(new ArrayList<>(combinados.values()));
+            if (actual.getDetalles().getSnapshot() != null) {
+                combinada.setSnapshot(SnapshotIncidencia.de(incidencia));
+            }
+            actual.setDetalles(combinada);
+            return;
+        }
+
+        IncidenciaVersion version = new IncidenciaVersion();
+        version.setIncidencia(incidencia);
+        version.setEstado(incidencia.getEstado());
+        version.setCreatedBy(userDao.getReference(usuarioId));
+        numerarVersion(version, incidencia, new DetalleEdicion(cambios));
+        versionDao.create(version);
+        incidencia.setCurrentVersion(version);
+    }
+
+    /**
+     * Cambia el estado con un UPDATE condicional sobre la versión leída: si otra transacción escribió en el
+     * medio se reintenta desde cero. versionEsperadaId es la versión actual que el usuario tenía a la vista;
+     * si desde entonces otro usuario cambió el estado, el cambio no se aplica (ConflictException).
+     */
+    public void cambiarEstado(Long id, Long nuevoEstadoId, Long versionEsperadaId, UserLoggedInDto currentUser) {
         if (nuevoEstadoId == null) {
             throw new ValidationException("El estado es obligatorio");
         }
@@ -237,148 +361,393 @@ public class IncidenciaService {
             throw new AuthException("Debes estar autenticado para cambiar el estado");
         }
 
-        Incidencia incidencia = incidenciaDao.findById(id);
-        if (incidencia == null) {
-            throw new NotFoundException("Incidencia no encontrada");
-        }
+        try {
+            ReintentoOptimista.ejecutar(MENSAJE_CONFLICTO, () -> uow.inTransaction(() -> {
+                Incidencia incidencia = incidenciaDao.findById(id);
+                if (incidencia == null) {
+                    throw new NotFoundException("Incidencia no encontrada");
+                }
+                IncidenciaVersion versionActual = incidencia.getCurrentVersion();
+                IncidenciaEstado estadoPrevio = incidencia.getEstado();
 
-        IncidenciaEstado nuevoEstado = incidenciaDao.findEstadoById(nuevoEstadoId);
-        if (nuevoEstado == null) {
-            throw new NotFoundException("Estado no encontrado");
-        }
+                if (versionEsperadaId != null && versionActual != null && !versionEsperadaId.equals(versionActual.getId())
+                        && camposModificadosDesde(id, versionEsperadaId, null, currentUser.getId()).contains(CAMPO_ESTADO)) {
+                    throw new ConflictException("Otro usuario cambió el estado de la incidencia a "
+                            + estadoPrevio.getNombre() + " mientras la veías. Revisá el estado actual antes de cambiarlo.");
+                }
+                if (estadoPrevio.getId().equals(nuevoEstadoId)) {
+                    throw new ValidationException("La incidencia ya está en ese estado");
+                }
 
-        IncidenciaEstado estadoActual = incidencia.getCurrentVersion() != null 
-                ? incidencia.getCurrentVersion().getEstado() 
-                : null;
-        if (estadoActual != null && estadoActual.getId().equals(nuevoEstadoId)) {
-            throw new ValidationException("La incidencia ya está en ese estado");
+                IncidenciaEstado nuevoEstado = incidenciaDao.findEstadoById(nuevoEstadoId);
+                if (nuevoEstado == null) {
+                    throw new NotFoundException("Estado no encontrado");
+                }
+                // Una lectura (la incidencia), un INSERT (la versión) y un UPDATE condicional; el estado sale
+                // de la caché de catálogos y el autor es sólo la clave foránea
+                IncidenciaVersion nuevaVersion = new IncidenciaVersion();
+                nuevaVersion.setIncidencia(incidencia);
+                nuevaVersion.setEstado(nuevoEstado);
+                nuevaVersion.setCreatedBy(userDao.getReference(currentUser.getId()));
+                DetalleCambioEstado detalle = new DetalleCambioEstado(estadoPrevio.getNombre(), nuevoEstado.getNombre());
+                numerarVersion(nuevaVersion, incidencia, detalle);
+                if (detalle.getSnapshot() != null) {
+                    // La entidad leída no se modifica (la escritura es el UPDATE condicional)
+                    detalle.getSnapshot().setEstado(nuevoEstado.getNombre());
+                }
+                versionDao.create(nuevaVersion);
+                // El UPDATE masivo no dispara el flush del INSERT pendiente (es otra tabla): sin esto
+                // current_version_id apuntaría a una versión todavía inexistente y la FK lo rechaza
+                uow.em().flush();
+
+                if (!incidenciaDao.cambiarEstadoSiNoCambio(id, versionActual != null ? versionActual.getId() : null,
+                        incidencia.getVersion(), nuevaVersion, nuevoEstado, LocalDateTime.now())) {
+                    throw new OptimisticLockException("La incidencia " + id + " cambió durante el cambio de estado");
+                }
+
+                // Mover la incidencia (y sus horas) del contador del estado anterior al nuevo
+                Long proyectoId = incidencia.getProyecto().getId();
+                BigDecimal horas = orZero(incidencia.getEstimacionHoras());
+                metricasDao.ajustar(proyectoId, estadoPrevio.getId(), -1, horas.negate());
+                metricasDao.ajustar(proyectoId, nuevoEstado.getId(), 1, horas);
+                outbox.registrar(new IncidenciaEstadoCambiado(id, proyectoId, estadoPrevio.getId(), nuevoEstado.getId()));
+            }));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error cambiando estado de la incidencia", ex);
         }
+    }
 
-        Usuario usuario = userDao.findById(currentUser.getId());
-        if (usuario == null) {
-            throw new NotFoundException("Usuario no encontrado");
+    /**
+     * Mueve varias incidencias al mismo estado en una transacción: una consulta las trae todas, las
+     * versiones se insertan y las incidencias se actualizan en batches JDBC (cada UPDATE exige la versión
+     * optimista leída; si otra transacción escribió en el medio se reintenta el lote completo).
+     * Las que ya están en ese estado se saltean. Devuelve cuántas cambiaron.
+     */
+    public int cambiarEstado(List<Long> ids, Long nuevoEstadoId, UserLoggedInDto currentUser) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ValidationException("Seleccioná al menos una incidencia");
+        }
+        if (nuevoEstadoId == null) {
+            throw new ValidationException("El estado es obligatorio");
+        }
+        if (currentUser == null) {
+            throw new AuthException("Debes estar autenticado para cambiar el estado");
+        }
+        List<Long> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distintos.size() > MAX_CAMBIO_ESTADO_MASIVO) {
+            throw new ValidationException("Se pueden mover hasta " + MAX_CAMBIO_ESTADO_MASIVO + " incidencias por vez");
         }
 
         try {
-            begin();
+            return ReintentoOptimista.ejecutar(MENSAJE_CONFLICTO, () -> uow.inTransaction(() -> {
+                IncidenciaEstado nuevoEstado = incidenciaDao.findEstadoById(nuevoEstadoId);
+                if (nuevoEstado == null) {
+                    throw new NotFoundException("Estado no encontrado");
+                }
+                List<Incidencia> incidencias = incidenciaDao.findByIdsParaTransicion(distintos);
+                if (incidencias.size() < distintos.size()) {
+                    throw new NotFoundException((distintos.size() - incidencias.size())
+                            + " de las incidencias seleccionadas ya no existen");
+                }
 
-            Incidencia incidenciaGestionada = incidenciaDao.findById(id);
-            if (incidenciaGestionada == null) {
-                throw new NotFoundException("Incidencia no encontrada");
-            }
+                Usuario usuario = userDao.getReference(currentUser.getId());
+                LocalDateTime ahora = LocalDateTime.now();
+                // Ajustes de métricas agrupados por proyecto y estado: uno por par en lugar de dos por incidencia
+                Map<Long, Map<Long, AjusteMetricas>> ajustes = new LinkedHashMap<>();
+                Map<Long, List<Long>> movidasPorProyecto = new LinkedHashMap<>();
+                for (Incidencia incidencia : incidencias) {
+                    IncidenciaEstado estadoPrevio = incidencia.getEstado();
+                    if (estadoPrevio.getId().equals(nuevoEstadoId)) {
+                        continue;
+                    }
+                    incidencia.setEstado(nuevoEstado);
+                    incidencia.setEstadoCambiadoEn(ahora);
+
+                    IncidenciaVersion version = new IncidenciaVersion();
+                    version.setIncidencia(incidencia);
+                    version.setEstado(nuevoEstado);
+                    version.setCreatedBy(usuario);
+                    numerarVersion(version, incidencia,
+                            new DetalleCambioEstado(estadoPrevio.getNombre(), nuevoEstado.getNombre()));
+                    // Sin UPDATE masivo en el medio: el flush manda el batch de versiones antes que el de
+                    // incidencias, así current_version_id siempre apunta a una fila ya insertada
+                    versionDao.create(version);
+                    incidencia.setCurrentVersion(version);
+
+                    Long proyectoId = incidencia.getProyecto().getId();
+                    BigDecimal horas = orZero(incidencia.getEstimacionHoras());
+                    Map<Long, AjusteMetricas> porEstado = ajustes.computeIfAbsent(proyectoId, k -> new LinkedHashMap<>());
+                    porEstado.computeIfAbsent(estadoPrevio.getId(), k -> new AjusteMetricas()).sumar(-1, horas.negate());
+                    porEstado.computeIfAbsent(nuevoEstadoId, k -> new AjusteMetricas()).sumar(1, horas);
+                    movidasPorProyecto.computeIfAbsent(proyectoId, k -> new ArrayList<>()).add(incidencia.getId());
+                }
 
-            IncidenciaVersion nuevaVersion = new IncidenciaVersion();
-            nuevaVersion.setIncidencia(incidenciaGestionada);
-            nuevaVersion.setEstado(nuevoEstado);
-            nuevaVersion.setCreatedBy(usuario);
-
-            String estadoAnteriorNombre = estadoActual != null ? estadoActual.getNombre() : "NUEVA";
-            String detallesJson = String.format(
-                    "{\"tipo\":\"cambio_estado\",\"estado_anterior\":\"%s\",\"estado_nuevo\":\"%s\"}",
-                    estadoAnteriorNombre, nuevoEstado.getNombre());
-            nuevaVersion.setDetalles(detallesJson);
-
-            Long versionId = versionDao.create(nuevaVersion);
-
-            // Asegurar que la nueva versión esté persistida antes de usarla
-            em.flush();
-            
-            IncidenciaVersion versionGestionada = versionDao.findById(versionId);
-            incidenciaGestionada.setCurrentVersion(versionGestionada);
-            
-            incidenciaDao.update(incidenciaGestionada);
-            
-            em.flush();
-            commit();
-        } catch (NotFoundException | ValidationException | AuthException | ForbiddenException ex) {
-            rollbackSilently();
+                for (Map.Entry<Long, Map<Long, AjusteMetricas>> proyecto : ajustes.entrySet()) {
+                    for (Map.Entry<Long, AjusteMetricas> estado : proyecto.getValue().entrySet()) {
+                        AjusteMetricas ajuste = estado.getValue();
+                        metricasDao.ajustar(proyecto.getKey(), estado.getKey(), ajuste.cantidad, ajuste.horas);
+                    }
+                }
+                int movidas = 0;
+                for (Map.Entry<Long, List<Long>> proyecto : movidasPorProyecto.entrySet()) {
+                    outbox.registrar(new IncidenciasEstadoCambiado(proyecto.getKey(), nuevoEstadoId, proyecto.getValue()));
+                    movidas += proyecto.getValue().size();
+                }
+                return movidas;
+            }));
+        } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
-            throw new AppException("Error cambiando estado de la incidencia", ex);
+            throw new AppException("Error cambiando estado de las incidencias", ex);
         }
     }
 
-    public List<IncidenciaVersion> getHistorialVersiones(Long incidenciaId) {
-        // Sincronizar el acceso al EntityManager para evitar problemas con múltiples threads
-        synchronized (em) {
-            try {
-                em.clear();
-                
-                boolean transactionStarted = !em.getTransaction().isActive();
-                if (transactionStarted) {
-                    em.getTransaction().begin();
-                }
-                
-                List<IncidenciaVersion> versiones = versionDao.findByIncidencia(incidenciaId);
-                
-                if (versiones != null) {
-                    versiones.size(); 
-                    for (IncidenciaVersion version : versiones) {
-                        version.getId();
-                        version.getCreatedAt();
-                        if (version.getEstado() != null) {
-                            version.getEstado().getId();
-                            version.getEstado().getNombre();
-                        }
-                        if (version.getCreatedBy() != null) {
-                            version.getCreatedBy().getId();
-                        }
+    /**
+     * Si la incidencia cambió desde que el usuario la cargó (versión optimista distinta), la edición sólo
+     * se rechaza cuando otro usuario tocó alguno de los mismos campos; si no, se aplica sobre lo actual.
+     */
+    private void verificarEdicionVigente(Incidencia actual, Incidencia pedido, List<CambioCampo> cambios,
+                                         Long usuarioId) {
+        if (pedido.getVersion() == null || pedido.getVersion().equals(actual.getVersion())) {
+            return;
+        }
+        IncidenciaVersion vista = pedido.getCurrentVersion();
+        Set<String> modificados = vista != null && vista.getId() != null
+                ? camposModificadosDesde(actual.getId(), vista.getId(), vista.getDetalles(), usuarioId)
+                : TODOS_LOS_CAMPOS;
+        for (CambioCampo cambio : cambios) {
+            if (modificados.contains(cambio.getCampo())) {
+                throw new ConflictException("Otro usuario modificó el campo " + cambio.getCampo().replace('_', ' ')
+                        + " mientras editabas la incidencia. Revisá el valor actual y volvé a intentar.");
+            }
+        }
+    }
+
+    /**
+     * Campos que otros usuarios cambiaron desde la versión vista (inclusive: una edición puede haber sumado
+     * cambios por coalescencia después de cargada, se compara con detalleVisto). Si no se puede determinar
+     * se asume que cambió todo.
+     */
+    private Set<String> camposModificadosDesde(Long incidenciaId, Long versionVistaId, DetalleVersion detalleVisto,
+                                               Long usuarioId) {
+        List<Object[]> filas = versionDao.findCambiosDesde(incidenciaId, versionVistaId);
+        if (filas.isEmpty()) {
+            return TODOS_LOS_CAMPOS;
+        }
+        Set<String> campos = new HashSet<>();
+        for (Object[] fila : filas) {
+            DetalleVersion detalle = (DetalleVersion) fila[2];
+            if (usuarioId.equals(fila[1])) {
+                continue;
+            }
+            if (detalle instanceof DetalleCambioEstado) {
+                campos.add(CAMPO_ESTADO);
+            } else if (detalle instanceof DetalleEdicion) {
+                List<CambioCampo> vistos = versionVistaId.equals(fila[0]) && detalleVisto instanceof DetalleEdicion
+                        ? ((DetalleEdicion) detalleVisto).getCambios() : List.of();
+                for (CambioCampo cambio : ((DetalleEdicion) detalle).getCambios()) {
+                    boolean yaVisto = vistos.stream().anyMatch(visto -> visto.getCampo().equals(cambio.getCampo())
+                            && Objects.equals(visto.getNuevo(), cambio.getNuevo()));
+                    if (!yaVisto) {
+                        campos.add(cambio.getCampo());
                     }
                 }
-                
-                em.flush(); 
-                
-                return versiones;
-            } catch (BusinessException ex) {
-                throw ex;
-            } catch (RuntimeException ex) {
-                rollbackSilently();
-                throw new AppException("Error obteniendo historial de versiones", ex);
             }
         }
+        return campos;
     }
 
-    public List<IncidenciaEstado> getAllEstados() {
-        // Sincronizar el acceso al EntityManager para evitar problemas con múltiples threads
-        // Esto es necesario porque EntityManager no es thread-safe y múltiples SwingWorker
-        // pueden ejecutarse simultáneamente
-        synchronized (em) {
-            try {
-                boolean transactionStarted = !em.getTransaction().isActive();
-                if (transactionStarted) {
-                    em.getTransaction().begin();
+    /**
+     * Numera la versión a continuación de la actual de la incidencia y, si le toca, le agrega el snapshot
+     * con los valores que la incidencia ya tiene aplicados.
+     */
+    private static void numerarVersion(IncidenciaVersion version, Incidencia incidencia, DetalleVersion detalle) {
+        IncidenciaVersion actual = incidencia.getCurrentVersion();
+        int numero = actual != null ? actual.siguienteNumero() : 1;
+        version.setNumero(numero);
+        if (IncidenciaVersion.requiereSnapshot(numero)) {
+            detalle.setSnapshot(SnapshotIncidencia.de(incidencia));
+        }
+        version.setDetalles(detalle);
+    }
+
+    /**
+     * Estado de la incidencia en el momento dado, reconstruido desde el último snapshot anterior: lee a lo
+     * sumo VERSIONES_POR_SNAPSHOT versiones. Devuelve null si la incidencia todavía no existía.
+     */
+    public IncidenciaHistoricaDto getEstadoEn(Long incidenciaId, LocalDateTime momento) {
+        try {
+            return uow.inReadOnlyTransaction(() -> {
+                List<Object[]> filas = versionDao.findHistorialHasta(incidenciaId, momento,
+                        IncidenciaVersion.VERSIONES_POR_SNAPSHOT);
+                if (filas.isEmpty()) {
+                    return null;
                 }
-                
-                List<IncidenciaEstado> estados = incidenciaDao.findAllEstados();
-                
-                if (estados != null) {
-                    estados.size(); 
-                    for (IncidenciaEstado estado : estados) {
-                        estado.getId(); 
-                        estado.getNombre();
+                IncidenciaHistoricaDto estado = reconstruir(filas, 0, filas.size(), momento, false);
+                if (estado == null) {
+                    // Historial anterior a los snapshots: se recorre completo
+                    List<Object[]> todas = versionDao.findHistorialHasta(incidenciaId, momento, 0);
+                    estado = reconstruir(todas, 0, todas.size(), momento, true);
+                }
+                return estado;
+            });
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error reconstruyendo el estado de la incidencia", ex);
+        }
+    }
+
+    /**
+     * Tablero del proyecto en el momento dado (p. ej. al inicio de un sprint): una consulta trae las
+     * últimas versiones de cada incidencia y cada una se reconstruye desde su snapshot.
+     */
+    public List<IncidenciaHistoricaDto> getTableroEn(Long proyectoId, LocalDateTime momento) {
+        try {
+            return uow.inReadOnlyTransaction(() -> {
+                List<Object[]> filas = versionDao.findHistorialHastaPorProyecto(proyectoId, momento,
+                        IncidenciaVersion.VERSIONES_POR_SNAPSHOT);
+                List<IncidenciaHistoricaDto> tablero = new ArrayList<>();
+                int desde = 0;
+                while (desde < filas.size()) {
+                    Long incidenciaId = (Long) filas.get(desde)[0];
+                    int hasta = desde;
+                    while (hasta < filas.size() && incidenciaId.equals(filas.get(hasta)[0])) {
+                        hasta++;
+                    }
+                    IncidenciaHistoricaDto estado = reconstruir(filas, desde, hasta, momento, false);
+                    if (estado == null) {
+                        List<Object[]> todas = versionDao.findHistorialHasta(incidenciaId, momento, 0);
+                        estado = reconstruir(todas, 0, todas.size(), momento, true);
                     }
+                    tablero.add(estado);
+                    desde = hasta;
                 }
-                
-                em.flush(); 
-                
-                return estados;
-            } catch (BusinessException ex) {
-                throw ex;
-            } catch (RuntimeException ex) {
-                rollbackSilently();
-                throw new AppException("Error obteniendo lista de estados", ex);
+                return tablero;
+            });
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error reconstruyendo el tablero del proyecto", ex);
+        }
+    }
+
+    /**
+     * Aplica en orden las versiones filas[desde, hasta) a partir del último snapshot del tramo.
+     * Sin snapshot devuelve null, salvo que el tramo sea el historial completo (completo = true).
+     */
+    private static IncidenciaHistoricaDto reconstruir(List<Object[]> filas, int desde, int hasta,
+                                                      LocalDateTime momento, boolean completo) {
+        int inicio = -1;
+        for (int i = hasta - 1; i >= desde && inicio < 0; i--) {
+            DetalleVersion detalle = (DetalleVersion) filas.get(i)[4];
+            if (detalle != null && detalle.getSnapshot() != null) {
+                inicio = i;
             }
         }
+        if (inicio < 0) {
+            if (!completo) {
+                return null;
+            }
+            inicio = desde;
+        }
+
+        String estado = null;
+        String responsable = null;
+        BigDecimal estimacion = null;
+        String descripcion = null;
+        for (int i = inicio; i < hasta; i++) {
+            Object[] fila = filas.get(i);
+            DetalleVersion detalle = (DetalleVersion) fila[4];
+            if (i == inicio && detalle != null && detalle.getSnapshot() != null) {
+                // El snapshot ya incluye el cambio de su propia versión
+                SnapshotIncidencia snapshot = detalle.getSnapshot();
+                responsable = snapshot.getResponsable();
+                estimacion = snapshot.getEstimacionHoras();
+                descripcion = snapshot.getDescripcion();
+            } else if (detalle instanceof DetalleEdicion) {
+                for (CambioCampo cambio : ((DetalleEdicion) detalle).getCambios()) {
+                    if (CambioCampo.DESCRIPCION.equals(cambio.getCampo())) {
+                        descripcion = cambio.getNuevo();
+                    } else if (CambioCampo.ESTIMACION_HORAS.equals(cambio.getCampo())) {
+                        estimacion = cambio.getNuevo() != null ? new BigDecimal(cambio.getNuevo()) : null;
+                    } else if (CambioCampo.RESPONSABLE.equals(cambio.getCampo())) {
+                        responsable = cambio.getNuevo();
+                    }
+                }
+            }
+            // Cada versión guarda el estado vigente, sea cual sea su tipo
+            estado = (String) fila[3];
+        }
+        Object[] ultima = filas.get(hasta - 1);
+        return new IncidenciaHistoricaDto((Long) ultima[0], momento, (Long) ultima[1],
+                estado, responsable, estimacion, descripcion);
+    }
+
+    public List<IncidenciaVersion> getHistorialVersiones(Long incidenciaId) {
+        try {
+            // La consulta ya trae estado y autor de cada versión
+            return uow.inReadOnlyTransaction(() -> versionDao.findByIncidencia(incidenciaId));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo historial de versiones", ex);
+        }
+    }
+
+    public Slice<IncidenciaVersion, Long> getHistorialVersionesSlice(Long incidenciaId, SliceRequest<Long> request) {
+        try {
+            return uow.inReadOnlyTransaction(() -> versionDao.findSliceByIncidencia(incidenciaId, request));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo historial de versiones", ex);
+        }
+    }
+
+    /** Transiciones hacia el estado indicado en [desde, hasta); proyectoId es opcional. */
+    public List<IncidenciaVersion> getTransicionesAEstado(String estadoNombre, Long proyectoId,
+                                                          LocalDateTime desde, LocalDateTime hasta) {
+        try {
+            return uow.inReadOnlyTransaction(() -> versionDao.findTransicionesAEstado(estadoNombre, proyectoId, desde, hasta));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo transiciones de estado", ex);
+        }
+    }
+
+    public Map<String, Long> contarTransicionesPorEstado(LocalDateTime desde, LocalDateTime hasta) {
+        try {
+            return uow.inReadOnlyTransaction(() -> versionDao.countTransicionesPorEstado(desde, hasta));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error contando transiciones de estado", ex);
+        }
+    }
+
+    public List<IncidenciaEstado> getAllEstados() {
+        try {
+            return uow.inReadOnlyTransaction(() -> incidenciaDao.findAllEstados());
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo lista de estados", ex);
+        }
     }
 
     public IncidenciaEstado getEstadoById(Long id) {
         try {
-            IncidenciaEstado estado = incidenciaDao.findEstadoById(id);
-            if (estado == null) {
-                throw new NotFoundException("Estado no encontrado");
-            }
-            return estado;
+            return uow.inReadOnlyTransaction(() -> {
+                IncidenciaEstado estado = incidenciaDao.findEstadoById(id);
+                if (estado == null) {
+                    throw new NotFoundException("Estado no encontrado");
+                }
+                return estado;
+            });
         } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -387,32 +756,34 @@ public class IncidenciaService {
     }
 
     public void delete(Long id) {
-        Incidencia incidencia = incidenciaDao.findById(id);
-        if (incidencia == null) {
-            throw new NotFoundException("Incidencia no encontrada");
-        }
-
         try {
-            begin();
-            
-            // Eliminar todos los comentarios
-            comentarioDao.deleteByIncidenciaId(id);
-            em.flush();
-            em.clear();
-            
-            // Eliminar todas las versiones
-            versionDao.deleteByIncidenciaId(id);
-            em.flush();
-            em.clear();
-            
-            // Eliminar la incidencia
-            incidenciaDao.deleteById(id);
-            commit();
+            uow.inTransaction(() -> {
+                Incidencia incidencia = incidenciaDao.findById(id);
+                if (incidencia == null) {
+                    throw new NotFoundException("Incidencia no encontrada");
+                }
+
+                metricasDao.ajustar(incidencia.getProyecto().getId(), incidencia.getEstado().getId(),
+                        -1, orZero(incidencia.getEstimacionHoras()).negate());
+                outbox.registrar(new IncidenciaEliminada(id, incidencia.getProyecto().getId()));
+
+                // Eliminar todos los comentarios
+                comentarioDao.deleteByIncidenciaId(id);
+                uow.em().flush();
+                uow.em().clear();
+
+                // Eliminar todas las versiones
+                versionDao.deleteByIncidenciaId(id);
+                uow.em().flush();
+                uow.em().clear();
+
+                // Eliminar la incidencia
+                incidenciaDao.deleteById(id);
+            });
+            searchIndex.removeIncidencia(id);
         } catch (BusinessException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error eliminando incidencia", ex);
         }
     }
@@ -422,25 +793,22 @@ public class IncidenciaService {
         return s == null || s.trim().isEmpty();
     }
 
-    private void begin() {
-        if (!em.getTransaction().isActive()) {
-            em.getTransaction().begin();
-        }
+    private String texto(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
     }
 
-    private void commit() {
-        if (em.getTransaction().isActive()) {
-            em.getTransaction().commit();
-        }
+    private BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
     }
 
-    private void rollbackSilently() {
-        try {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
-        } catch (Exception ignore) {
+    /** Delta acumulado de cantidad y horas para un par (proyecto, estado) en un cambio masivo. */
+    private static final class AjusteMetricas {
+        private int cantidad;
+        private BigDecimal horas = BigDecimal.ZERO;
+
+        void sumar(int cantidad, BigDecimal horas) {
+            this.cantidad += cantidad;
+            this.horas = this.horas.add(horas);
         }
     }
 }
-
@@ -2,18 +2,21 @@ package ar.edu.up.bugtracker.service;
 
 import ar.edu.up.bugtracker.dao.PerfilUsuarioDao;
 import ar.edu.up.bugtracker.models.PerfilUsuario;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
 
 import java.util.List;
 
 public class PerfilUsuarioService {
 
     private final PerfilUsuarioDao dao;
+    private final UnitOfWork uow;
 
-    public PerfilUsuarioService(PerfilUsuarioDao dao) {
+    public PerfilUsuarioService(PerfilUsuarioDao dao, UnitOfWork uow) {
         this.dao = dao;
+        this.uow = uow;
     }
 
     public List<PerfilUsuario> getAll() {
-        return dao.findAll();
+        return uow.inReadOnlyTransaction(() -> dao.findAll());
     }
 }
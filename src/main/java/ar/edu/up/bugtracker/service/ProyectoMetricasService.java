@@ -0,0 +1,124 @@
+package ar.edu.up.bugtracker.service;
+
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.dao.ProyectoMetricasDao;
+import ar.edu.up.bugtracker.exceptions.*;
+import ar.edu.up.bugtracker.models.IncidenciaEstado;
+import ar.edu.up.bugtracker.models.IncidenciaEstadoEnum;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.service.dto.ProyectoMetricasDto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProyectoMetricasService {
+
+    private static final System.Logger LOG = System.getLogger(ProyectoMetricasService.class.getName());
+
+    private final ProyectoMetricasDao metricasDao;
+    private final UnitOfWork uow;
+    // Id de TERMINADA, el estado que cuenta como completado; el resto es pendiente. Se busca por nombre
+    // porque el id depende del orden en que se cargó incidencia_estado
+    private final Long estadoFinalId;
+
+    public ProyectoMetricasService(ProyectoMetricasDao metricasDao, IncidenciaDao incidenciaDao, UnitOfWork uow) {
+        this.metricasDao = metricasDao;
+        this.uow = uow;
+        this.estadoFinalId = resolverEstadoFinal(incidenciaDao);
+    }
+
+    private Long resolverEstadoFinal(IncidenciaDao incidenciaDao) {
+        String nombre = IncidenciaEstadoEnum.TERMINADA.getNombre();
+        try {
+            // Consulta cacheada del catálogo: se resuelve una sola vez, al armar el servicio
+            IncidenciaEstado estado = uow.inReadOnlyTransaction(() -> incidenciaDao.findEstadoByNombre(nombre));
+            if (estado == null) {
+                LOG.log(System.Logger.Level.WARNING,
+                        "No existe el estado " + nombre + " en incidencia_estado: ninguna incidencia cuenta como completada");
+                return null;
+            }
+            return estado.getId();
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error buscando el estado final de las incidencias", ex);
+        }
+    }
+
+    public ProyectoMetricasDto getMetricas(Long proyectoId) {
+        if (proyectoId == null) {
+            throw new ValidationException("ID de proyecto requerido");
+        }
+
+        try {
+            List<Object[]> filas = uow.inReadOnlyTransaction(() -> metricasDao.countByEstado(proyectoId));
+            return toDto(proyectoId, filas);
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo métricas del proyecto", ex);
+        }
+    }
+
+    /** Recalcula los contadores de un proyecto desde la tabla incidencia (por si quedaron desfasados). */
+    public void rebuild(Long proyectoId) {
+        if (proyectoId == null) {
+            throw new ValidationException("ID de proyecto requerido");
+        }
+
+        try {
+            uow.inTransaction(() -> metricasDao.rebuild(proyectoId));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error recalculando métricas del proyecto", ex);
+        }
+    }
+
+    public void rebuildAll() {
+        try {
+            uow.inTransaction(() -> metricasDao.rebuildAll());
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error recalculando métricas", ex);
+        }
+    }
+
+    private ProyectoMetricasDto toDto(Long proyectoId, List<Object[]> filas) {
+        List<ProyectoMetricasDto.EstadoConteo> porEstado = new ArrayList<>(filas.size());
+        long total = 0;
+        long completadas = 0;
+        BigDecimal horas = BigDecimal.ZERO;
+
+        for (Object[] fila : filas) {
+            Long estadoId = ((Number) fila[0]).longValue();
+            String nombre = (String) fila[1];
+            long cantidad = ((Number) fila[2]).longValue();
+            BigDecimal horasEstado = toBigDecimal((Number) fila[3]);
+            porEstado.add(new ProyectoMetricasDto.EstadoConteo(estadoId, nombre, cantidad, horasEstado));
+            total += cantidad;
+            horas = horas.add(horasEstado);
+            if (estadoId.equals(estadoFinalId)) {
+                completadas += cantidad;
+            }
+        }
+
+        ProyectoMetricasDto dto = new ProyectoMetricasDto();
+        dto.setProyectoId(proyectoId);
+        dto.setTotalIncidencias(total);
+        dto.setCompletadas(completadas);
+        dto.setPendientes(total - completadas);
+        dto.setHorasEstimadas(horas);
+        dto.setPorEstado(porEstado);
+        return dto;
+    }
+
+    private BigDecimal toBigDecimal(Number n) {
+        if (n == null) {
+            return BigDecimal.ZERO;
+        }
+        return n instanceof BigDecimal ? (BigDecimal) n : new BigDecimal(n.toString());
+    }
+}
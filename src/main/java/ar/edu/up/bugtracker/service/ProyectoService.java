@@ -4,30 +4,62 @@ import ar.edu.up.bugtracker.dao.ComentarioDao;
 import ar.edu.up.bugtracker.dao.IncidenciaDao;
 import ar.edu.up.bugtracker.dao.IncidenciaVersionDao;
 import ar.edu.up.bugtracker.dao.ProyectoDao;
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.exceptions.*;
-import ar.edu.up.bugtracker.models.Incidencia;
 import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersionConverter;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchIndex;
+import ar.edu.up.bugtracker.service.dto.ProyectoResumenDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
-import jakarta.persistence.EntityManager;
+import ar.edu.up.bugtracker.service.eventos.Outbox;
+import ar.edu.up.bugtracker.service.eventos.ProyectoEliminado;
+import ar.edu.up.bugtracker.service.eventos.ProyectoGuardado;
+import ar.edu.up.bugtracker.service.export.ExportFormato;
+import ar.edu.up.bugtracker.service.export.ProyectoExportWriter;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 public class ProyectoService {
 
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+    private static final int EXPORT_PROGRESO_CADA = 1000;
+    private static final String MENSAJE_CONFLICTO =
+            "El proyecto está siendo modificado por otro usuario. Volvé a intentar.";
+
     private final ProyectoDao proyectoDao;
     private final IncidenciaDao incidenciaDao;
     private final ComentarioDao comentarioDao;
     private final IncidenciaVersionDao incidenciaVersionDao;
-    private final EntityManager em;
+    private final SearchIndex searchIndex;
+    private final Outbox outbox;
+    private final UnitOfWork uow;
 
     public ProyectoService(ProyectoDao proyectoDao, IncidenciaDao incidenciaDao, 
                           ComentarioDao comentarioDao, IncidenciaVersionDao incidenciaVersionDao, 
-                          EntityManager em) {
+                          SearchIndex searchIndex, Outbox outbox, UnitOfWork uow) {
         this.proyectoDao = proyectoDao;
         this.incidenciaDao = incidenciaDao;
         this.comentarioDao = comentarioDao;
         this.incidenciaVersionDao = incidenciaVersionDao;
-        this.em = em;
+        this.searchIndex = searchIndex;
+        this.outbox = outbox;
+        this.uow = uow;
     }
 
     public Long create(Proyecto proyecto, UserLoggedInDto currentUser) {
@@ -42,22 +74,45 @@ public class ProyectoService {
         }
 
         try {
-            begin();
-            Long id = proyectoDao.create(proyecto);
-            commit();
-            return id;
+            return uow.inTransaction(() -> {
+                // Entidad nueva en cada intento: la de un intento revertido por deadlock ya tiene id y versión
+                Proyecto nuevo = new Proyecto();
+                nuevo.setNombre(proyecto.getNombre());
+                nuevo.setDescripcion(proyecto.getDescripcion());
+                Long id = proyectoDao.create(nuevo);
+                outbox.registrar(new ProyectoGuardado(id));
+                return id;
+            });
         } catch (BusinessException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error creando proyecto: ", ex);
         }
     }
 
     public List<Proyecto> getAll() {
         try {
-            return proyectoDao.findAll();
+            return uow.inReadOnlyTransaction(() -> proyectoDao.findAll());
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo lista de proyectos", ex);
+        }
+    }
+
+    public List<ProyectoResumenDto> getAllResumen() {
+        try {
+            return uow.inReadOnlyTransaction(() -> proyectoDao.findAllResumen());
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo lista de proyectos", ex);
+        }
+    }
+
+    public Slice<Proyecto, Long> getSlice(SliceRequest<Long> request) {
+        try {
+            return uow.inReadOnlyTransaction(() -> proyectoDao.findSlice(request));
         } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -67,11 +122,13 @@ public class ProyectoService {
 
     public Proyecto getById(Long id) {
         try {
-            Proyecto proyecto = proyectoDao.findById(id);
-            if (proyecto == null) {
-                throw new NotFoundException("Proyecto no encontrado");
-            }
-            return proyecto;
+            return uow.inReadOnlyTransaction(() -> {
+                Proyecto proyecto = proyectoDao.findById(id);
+                if (proyecto == null) {
+                    throw new NotFoundException("Proyecto no encontrado");
+                }
+                return proyecto;
+            });
         } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -84,77 +141,141 @@ public class ProyectoService {
             throw new ValidationException("El proyecto no puede ser nulo");
         }
 
-        Proyecto existente = proyectoDao.findById(id);
-        if (existente == null) {
-            throw new NotFoundException("Proyecto no encontrado");
-        }
+        try {
+            ReintentoOptimista.ejecutar(MENSAJE_CONFLICTO, () -> uow.inTransaction(() -> {
+                Proyecto existente = proyectoDao.findById(id);
+                if (existente == null) {
+                    throw new NotFoundException("Proyecto no encontrado");
+                }
+                // proyecto.getVersion() es la versión que se cargó en el formulario
+                if (proyecto.getVersion() != null && !proyecto.getVersion().equals(existente.getVersion())) {
+                    throw new ConflictException("Otro usuario modificó el proyecto mientras lo editabas. "
+                            + "Volvé a abrirlo para ver los cambios.");
+                }
 
-        if (!isBlank(proyecto.getNombre())) {
-            existente.setNombre(proyecto.getNombre());
-        }
-        
-        if (proyecto.getDescripcion() != null) {
-            existente.setDescripcion(proyecto.getDescripcion());
-        }
+                if (!isBlank(proyecto.getNombre())) {
+                    existente.setNombre(proyecto.getNombre());
+                }
 
-        try {
-            begin();
-            proyectoDao.update(existente);
-            commit();
+                if (proyecto.getDescripcion() != null) {
+                    existente.setDescripcion(proyecto.getDescripcion());
+                }
+
+                proyectoDao.update(existente);
+                outbox.registrar(new ProyectoGuardado(id));
+            }));
         } catch (BusinessException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error actualizando proyecto", ex);
         }
     }
 
     public void delete(Long id, UserLoggedInDto currentUser) {        
         validateAdmin(currentUser, "Solo los administradores pueden eliminar proyectos");
-        
-        Proyecto proyecto = proyectoDao.findById(id);
-        if (proyecto == null) {
-            throw new NotFoundException("Proyecto no encontrado");
+
+        try {
+            uow.inTransaction(() -> {
+                Proyecto proyecto = proyectoDao.findById(id);
+                if (proyecto == null) {
+                    throw new NotFoundException("Proyecto no encontrado");
+                }
+
+                // Cantidad fija de sentencias sin importar cuántas incidencias tenga el proyecto.
+                // Primero se suelta current_version_id para que borrar versiones no dispare el SET NULL fila por fila
+                incidenciaDao.clearCurrentVersionByProyectoId(id);
+                comentarioDao.deleteByProyectoId(id);
+                incidenciaVersionDao.deleteByProyectoId(id);
+                incidenciaDao.deleteByProyectoId(id);
+
+                // Borrar el proyecto (proyecto_metricas se borra en cascada)
+                proyectoDao.deleteById(id);
+                outbox.registrar(new ProyectoEliminado(id));
+            });
+            searchIndex.removeProyecto(id);
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error eliminando proyecto", ex);
         }
+    }
 
+    /**
+     * Exporta el proyecto con sus incidencias, el historial de versiones y los comentarios.
+     * Las filas se leen en streaming y se escriben directo al archivo, con memoria constante sin importar
+     * el tamaño del proyecto. Todo se lee en una misma transacción para que las tres secciones sean coherentes.
+     * Se escribe sobre un temporal que reemplaza al destino sólo si la exportación termina bien.
+     *
+     * @param progreso recibe la cantidad de filas escritas cada tanto (se llama desde el hilo que exporta)
+     * @return cantidad total de filas exportadas
+     */
+    public long exportar(Long id, Path destino, ExportFormato formato, LongConsumer progreso) {
+        Path tmp = destino.resolveSibling(destino.getFileName() + ".tmp");
         try {
-            begin();
-            
-            // Buscar todas las incidencias por ID del proyecto
-            List<Incidencia> incidencias = incidenciaDao.findByProyecto(id);
-            
-            // Para todas las incidencias borrar todos los registros de las tablas "comentario" e "incidencia_version" por incidencia_id
-            for (Incidencia incidencia : incidencias) {
-                Long incidenciaId = incidencia.getId();
-                
-                // Eliminar comentarios por incidencia_id
-                comentarioDao.deleteByIncidenciaId(incidenciaId);
-                
-                // Eliminar versiones por incidencia_id
-                incidenciaVersionDao.deleteByIncidenciaId(incidenciaId);
+            long total;
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), EXPORT_BUFFER_BYTES);
+                 ProyectoExportWriter writer = ProyectoExportWriter.crear(formato, out)) {
+                total = uow.inReadOnlyTransaction(() -> {
+                    Proyecto proyecto = proyectoDao.findById(id);
+                    if (proyecto == null) {
+                        throw new NotFoundException("Proyecto no encontrado");
+                    }
+                    writer.inicio(proyecto.getId(), proyecto.getNombre());
+
+                    long[] filas = {0};
+                    Runnable contar = () -> {
+                        if (++filas[0] % EXPORT_PROGRESO_CADA == 0 && progreso != null) {
+                            progreso.accept(filas[0]);
+                        }
+                    };
+                    incidenciaDao.streamExportByProyecto(id, f -> {
+                        writer.incidencia((Long) f[0], (String) f[1], (String) f[2], (String) f[3],
+                                (BigDecimal) f[4], (LocalDateTime) f[5], (LocalDateTime) f[6]);
+                        contar.run();
+                    });
+                    incidenciaVersionDao.streamExportByProyecto(id, f -> {
+                        writer.version((Long) f[0], (Long) f[1], (String) f[2], (String) f[3],
+                                (LocalDateTime) f[4], DetalleVersionConverter.toJson((DetalleVersion) f[5]));
+                        contar.run();
+                    });
+                    comentarioDao.streamExportByProyecto(id, f -> {
+                        writer.comentario((Long) f[0], (Long) f[1], (String) f[2], (LocalDateTime) f[3], (String) f[4]);
+                        contar.run();
+                    });
+                    writer.fin();
+                    return filas[0];
+                });
+                out.flush();
+                channel.force(true);
             }
-            em.flush();
-            em.clear();
-            
-            // Borrar las incidencias por proyecto
-            incidenciaDao.deleteByProyectoId(id);
-            em.flush();
-            em.clear();
-            
-            // Borrar el proyecto
-            proyectoDao.deleteById(id);
-            commit();
+            Files.move(tmp, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (progreso != null) {
+                progreso.accept(total);
+            }
+            return total;
         } catch (BusinessException ex) {
-            rollbackSilently();
+            deleteQuietly(tmp);
             throw ex;
+        } catch (IOException | UncheckedIOException ex) {
+            deleteQuietly(tmp);
+            throw new AppException("No se pudo escribir el archivo de exportación", ex);
         } catch (RuntimeException ex) {
-            rollbackSilently();
-            throw new AppException("Error eliminando proyecto", ex);
+            deleteQuietly(tmp);
+            throw new AppException("Error exportando proyecto", ex);
         }
     }
 
     // Helpers
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // El temporal se pisa en la próxima exportación al mismo destino
+        }
+    }
+
     private void validateAdmin(UserLoggedInDto currentUser, String message) {
         if (currentUser == null) {
             throw new AuthException("Debes estar autenticado para realizar esta acción");
@@ -167,26 +288,4 @@ public class ProyectoService {
     private boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
-
-    private void begin() {
-        if (!em.getTransaction().isActive()) {
-            em.getTransaction().begin();
-        }
-    }
-
-    private void commit() {
-        if (em.getTransaction().isActive()) {
-            em.getTransaction().commit();
-        }
-    }
-
-    private void rollbackSilently() {
-        try {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
-        } catch (Exception ignore) {
-        }
-    }
 }
-
@@ -0,0 +1,71 @@
+package ar.edu.up.bugtracker.service;
+
+import ar.edu.up.bugtracker.exceptions.BusinessException;
+import ar.edu.up.bugtracker.exceptions.ConflictException;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Reintento acotado de operaciones que chocaron con otra transacción confirmada en el medio (versión
+ * optimista o cambio condicional que no encontró la fila esperada). Cada intento es una transacción
+ * nueva que vuelve a leer y a validar todo, así que sólo se reintenta lo que sigue siendo válido.
+ */
+final class ReintentoOptimista {
+
+    static final int MAX_INTENTOS = 3;
+
+    private static final System.Logger LOG = System.getLogger(ReintentoOptimista.class.getName());
+
+    private ReintentoOptimista() {
+    }
+
+    /** Ejecuta el intento; si se agotan los reintentos lanza ConflictException con el mensaje dado. */
+    static <T> T ejecutar(String mensajeAgotado, Supplier<T> intento) {
+        for (int numero = 1; ; numero++) {
+            try {
+                return intento.get();
+            } catch (BusinessException ex) {
+                // Errores de negocio (incluida la revalidación) no se reintentan
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (!esConflicto(ex)) {
+                    throw ex;
+                }
+                if (numero >= MAX_INTENTOS) {
+                    throw new ConflictException(mensajeAgotado);
+                }
+                LOG.log(System.Logger.Level.DEBUG, "Conflicto optimista, reintento " + numero);
+                esperar(numero);
+            }
+        }
+    }
+
+    static void ejecutar(String mensajeAgotado, Runnable intento) {
+        ejecutar(mensajeAgotado, () -> {
+            intento.run();
+            return null;
+        });
+    }
+
+    static boolean esConflicto(Throwable ex) {
+        // Puede llegar envuelta en RollbackException (al confirmar) o en DaoException (flush dentro del DAO)
+        for (Throwable causa = ex; causa != null; causa = causa.getCause()) {
+            if (causa instanceof OptimisticLockException || causa instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Pausa corta y aleatoria para no volver a coincidir con la otra transacción
+    private static void esperar(int numero) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 25L * numero));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
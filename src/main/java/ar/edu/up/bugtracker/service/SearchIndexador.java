@@ -0,0 +1,80 @@
+package ar.edu.up.bugtracker.service;
+
+import ar.edu.up.bugtracker.dao.ComentarioDao;
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchIndex;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+import ar.edu.up.bugtracker.service.eventos.ComentarioAgregado;
+import ar.edu.up.bugtracker.service.eventos.ComentarioEditado;
+import ar.edu.up.bugtracker.service.eventos.ComentarioEliminado;
+import ar.edu.up.bugtracker.service.eventos.EventoDominio;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaActualizada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaCreada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaEliminada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciasImportadas;
+import ar.edu.up.bugtracker.service.eventos.Outbox;
+import ar.edu.up.bugtracker.service.eventos.ProyectoEliminado;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Mantiene el índice de búsqueda al día con los cambios hechos desde otras instancias que comparten la
+ * base: los recibe como eventos del outbox y relee el texto afectado. Los cambios de esta instancia los
+ * indexan los servicios al confirmar, así que sus eventos se ignoran.
+ * Los cambios de estado no se escuchan porque no modifican ningún texto indexado.
+ */
+public class SearchIndexador {
+
+    private final SearchIndex index;
+    private final IncidenciaDao incidenciaDao;
+    private final ComentarioDao comentarioDao;
+    private final Outbox outbox;
+    private final UnitOfWork uow;
+
+    public SearchIndexador(SearchIndex index, IncidenciaDao incidenciaDao, ComentarioDao comentarioDao,
+                           Outbox outbox, UnitOfWork uow) {
+        this.index = index;
+        this.incidenciaDao = incidenciaDao;
+        this.comentarioDao = comentarioDao;
+        this.outbox = outbox;
+        this.uow = uow;
+    }
+
+    /** Se suscribe al bus; los handlers corren en el hilo del despachador del outbox. */
+    public void suscribir(BusEventos bus) {
+        suscribirAjenos(bus, IncidenciaCreada.class, e -> indexarIncidencias(Collections.singletonList(e.getIncidenciaId())));
+        suscribirAjenos(bus, IncidenciaActualizada.class, e -> indexarIncidencias(Collections.singletonList(e.getIncidenciaId())));
+        suscribirAjenos(bus, IncidenciasImportadas.class, e -> indexarIncidencias(e.getIncidenciaIds()));
+        suscribirAjenos(bus, IncidenciaEliminada.class, e -> index.removeIncidencia(e.getIncidenciaId()));
+        suscribirAjenos(bus, ProyectoEliminado.class, e -> index.removeProyecto(e.getProyectoId()));
+        suscribirAjenos(bus, ComentarioAgregado.class, e -> indexarComentario(e.getComentarioId()));
+        suscribirAjenos(bus, ComentarioEditado.class, e -> indexarComentario(e.getComentarioId()));
+        suscribirAjenos(bus, ComentarioEliminado.class, e -> index.removeComentario(e.getComentarioId()));
+    }
+
+    private <T extends EventoDominio> void suscribirAjenos(BusEventos bus, Class<T> tipo, Consumer<T> handler) {
+        bus.suscribir(tipo, evento -> {
+            if (!outbox.esPropio(evento)) {
+                handler.accept(evento);
+            }
+        });
+    }
+
+    // Si la incidencia se borró antes de procesar el evento no aparece y su propio evento la quita
+    private void indexarIncidencias(List<Long> ids) {
+        List<Object[]> filas = uow.inReadOnlyTransaction(() -> incidenciaDao.findTextosByIds(ids));
+        for (Object[] fila : filas) {
+            index.indexIncidencia((Long) fila[0], (Long) fila[1], (String) fila[2]);
+        }
+    }
+
+    private void indexarComentario(Long id) {
+        Object[] fila = uow.inReadOnlyTransaction(() -> comentarioDao.findTextoById(id));
+        if (fila != null) {
+            index.indexComentario((Long) fila[0], (Long) fila[1], (String) fila[2]);
+        }
+    }
+}
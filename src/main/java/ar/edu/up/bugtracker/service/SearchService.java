@@ -0,0 +1,165 @@
+package ar.edu.up.bugtracker.service;
+
+import ar.edu.up.bugtracker.dao.ComentarioDao;
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.exceptions.*;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchHit;
+import ar.edu.up.bugtracker.search.SearchIndex;
+import ar.edu.up.bugtracker.service.dto.IncidenciaResumenDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Búsqueda de texto libre sobre incidencias y comentarios.
+ * El índice vive en disco (ver SearchIndex): al iniciar sólo se sincronizan las filas nuevas y
+ * después lo mantienen al día IncidenciaService, ComentarioService y ProyectoService en cada escritura confirmada,
+ * y SearchIndexador con los cambios que llegan de otras instancias.
+ */
+public class SearchService {
+
+    private static final int BLOQUE_CARGA = 2_000;
+    // Margen para altas confirmadas después de que el checkpoint avanzó (transacciones largas, relojes)
+    private static final Duration SOLAPAMIENTO = Duration.ofMinutes(10);
+
+    private final SearchIndex index;
+    private final IncidenciaDao incidenciaDao;
+    private final ComentarioDao comentarioDao;
+    private final UnitOfWork uow;
+    private volatile boolean listo;
+
+    public SearchService(SearchIndex index, IncidenciaDao incidenciaDao, ComentarioDao comentarioDao, UnitOfWork uow) {
+        this.index = index;
+        this.incidenciaDao = incidenciaDao;
+        this.comentarioDao = comentarioDao;
+        this.uow = uow;
+        // Si ya hay un índice en disco se puede buscar mientras se sincroniza lo nuevo
+        this.listo = index.getLastIncidenciaId() > 0 || index.size() > 0;
+    }
+
+    /**
+     * Incidencias que coinciden con el texto, de mayor a menor relevancia.
+     * @param proyectoId opcional, limita la búsqueda a un proyecto
+     */
+    public List<IncidenciaResumenDto> buscar(String texto, Long proyectoId, int limite) {
+        if (!listo) {
+            throw new BusinessException("El índice de búsqueda todavía se está cargando");
+        }
+
+        List<SearchHit> hits = index.search(texto, proyectoId, limite);
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            ids.add(hit.getIncidenciaId());
+        }
+
+        try {
+            List<IncidenciaResumenDto> resumenes = uow.inReadOnlyTransaction(() -> incidenciaDao.findResumenesByIds(ids));
+            Map<Long, IncidenciaResumenDto> porId = new HashMap<>();
+            for (IncidenciaResumenDto r : resumenes) {
+                porId.put(r.getId(), r);
+            }
+            // Respetar el orden por relevancia; si alguna se borró entre medio, se omite
+            List<IncidenciaResumenDto> resultado = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                IncidenciaResumenDto r = porId.get(id);
+                if (r != null) {
+                    resultado.add(r);
+                }
+            }
+            return resultado;
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error buscando incidencias", ex);
+        }
+    }
+
+    /**
+     * Trae al índice las incidencias y comentarios creados desde la última sincronización
+     * (ids mayores a los registrados en el checkpoint), por bloques y cada bloque en su propia transacción.
+     * Los ids salen de bloques reservados por cada proceso (TableGenerator), así que otra instancia o una
+     * transacción lenta pueden confirmar un id menor al checkpoint después de que éste avanzó: para no
+     * perderlas se repasan además las filas creadas desde SOLAPAMIENTO antes de la sincronización anterior.
+     * Una fila confirmada más tarde que eso sólo llega con reconstruirIndice.
+     * Mientras la aplicación corre, los cambios de cualquier instancia llegan por los eventos del outbox
+     * (ver SearchIndexador); las ediciones y borrados hechos con scripts sobre la base, sólo con reconstruirIndice.
+     */
+    public void sincronizar() {
+        long inicio = System.currentTimeMillis();
+        long sincronizadoEn = index.getSyncedAt();
+        long checkpointIncidencia = index.getLastIncidenciaId();
+        long checkpointComentario = index.getLastComentarioId();
+        try {
+            // Las incidencias van primero para que los comentarios ya encuentren su proyecto
+            long ultimaIncidencia = cargar(desde -> incidenciaDao.findTextosDesde(desde, BLOQUE_CARGA),
+                    checkpointIncidencia, true);
+            long ultimoComentario = cargar(desde -> comentarioDao.findTextosDesde(desde, BLOQUE_CARGA),
+                    checkpointComentario, false);
+
+            if (sincronizadoEn > 0) {
+                LocalDateTime creadasDesde = LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(sincronizadoEn).minus(SOLAPAMIENTO), ZoneId.systemDefault());
+                cargar(desde -> incidenciaDao.findTextosCreadosDesde(creadasDesde, desde, checkpointIncidencia, BLOQUE_CARGA),
+                        0L, true);
+                cargar(desde -> comentarioDao.findTextosCreadosDesde(creadasDesde, desde, checkpointComentario, BLOQUE_CARGA),
+                        0L, false);
+            }
+
+            index.commitLoad(ultimaIncidencia, ultimoComentario, inicio);
+            listo = true;
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error sincronizando el índice de búsqueda", ex);
+        }
+    }
+
+    // Recorre la consulta por bloques desde el id dado y carga cada fila; devuelve el último id leído
+    private long cargar(Function<Long, List<Object[]>> bloque, long desdeId, boolean incidencias) {
+        long ultimo = desdeId;
+        while (true) {
+            Long desde = ultimo;
+            List<Object[]> filas = uow.inReadOnlyTransaction(() -> bloque.apply(desde));
+            for (Object[] fila : filas) {
+                if (incidencias) {
+                    index.loadIncidencia((Long) fila[0], (Long) fila[1], (String) fila[2]);
+                } else {
+                    index.loadComentario((Long) fila[0], (Long) fila[1], (String) fila[2]);
+                }
+            }
+            if (!filas.isEmpty()) {
+                ultimo = (Long) filas.get(filas.size() - 1)[0];
+            }
+            if (filas.size() < BLOQUE_CARGA) {
+                return ultimo;
+            }
+        }
+    }
+
+    /** Borra el índice en disco y lo vuelve a cargar completo desde la base. */
+    public void reconstruirIndice() {
+        listo = false;
+        try {
+            index.clear();
+        } catch (RuntimeException ex) {
+            throw new AppException("Error borrando el índice de búsqueda", ex);
+        }
+        sincronizar();
+    }
+
+    public boolean isListo() {
+        return listo;
+    }
+}
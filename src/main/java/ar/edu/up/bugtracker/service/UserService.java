@@ -1,90 +1,92 @@
 package ar.edu.up.bugtracker.service;
 
 import ar.edu.up.bugtracker.dao.PerfilUsuarioDao;
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.dao.UserDao;
 import ar.edu.up.bugtracker.exceptions.*;
 import ar.edu.up.bugtracker.models.PerfilUsuario;
 import ar.edu.up.bugtracker.models.Usuario;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
 import ar.edu.up.bugtracker.service.cmd.UserLoginCmd;
 import ar.edu.up.bugtracker.service.cmd.UserRegisterCmd;
 import ar.edu.up.bugtracker.service.cmd.UserUpdateCmd;
 import ar.edu.up.bugtracker.service.dto.UserDetailDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
-import jakarta.persistence.EntityManager;
+import ar.edu.up.bugtracker.service.password.PasswordHashing;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
-import java.util.Base64;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Locale;
 
 
 public class UserService {
 
+    private static final System.Logger LOG = System.getLogger(UserService.class.getName());
+
     private final UserDao usuarioDao;
     private final PerfilUsuarioDao perfilUsuarioDao;
-    private final EntityManager em; 
-    private static final int SALT_BYTES = 24;
+    private final PasswordHashing passwordHashing;
+    private final UnitOfWork uow;
 
-    public UserService(UserDao usuarioDao, PerfilUsuarioDao perfilUsuarioDao, EntityManager em) {
+    public UserService(UserDao usuarioDao, PerfilUsuarioDao perfilUsuarioDao, PasswordHashing passwordHashing,
+                       UnitOfWork uow) {
         this.usuarioDao = usuarioDao;
         this.perfilUsuarioDao = perfilUsuarioDao;
-        this.em = em;
+        this.passwordHashing = passwordHashing;
+        this.uow = uow;
     }
 
     public Long register(UserRegisterCmd cmd) {
         String email = normEmail(cmd.getEmail());
-        if (usuarioDao.existsByEmail(email)) {
-            throw new ValidationException("Email ya registrado");
-        }
-
-        PerfilUsuario perfil = resolvePerfil(cmd.getPerfilId());
-        if (perfil == null) {
-            throw new ValidationException("Perfil inválido: " + cmd.getPerfilId());
-        }
+        // El hash se calcula antes de abrir la transacción para no retener la conexión mientras tanto
+        String hash = passwordHashing.hash(cmd.getPassword());
 
-        String salt = generateSalt();
-        String hash = hashPassword(salt, cmd.getPassword());
+        try {
+            // Sin consulta previa: el índice único de email decide y un duplicado llega como DuplicateKeyException
+            return uow.inTransaction(() -> {
+                PerfilUsuario perfil = resolvePerfil(cmd.getPerfilId());
+                if (perfil == null) {
+                    throw new ValidationException("Perfil inválido: " + cmd.getPerfilId());
+                }
 
-        Usuario u = new Usuario();
-        u.setNombre(cmd.getNombre());
-        u.setApellido(cmd.getApellido());
-        u.setEmail(email);
-        u.setPasswordHash(hash);
-        u.setPasswordSalt(salt);
-        u.setPerfil(perfil);
+                Usuario u = new Usuario();
+                u.setNombre(cmd.getNombre());
+                u.setApellido(cmd.getApellido());
+                u.setEmail(email);
+                u.setPasswordHash(hash);
+                u.setPasswordSalt(null);
+                u.setPerfil(perfil);
 
-        try {
-            begin();
-            Long id = usuarioDao.create(u);
-            commit();
-            return id;
+                return usuarioDao.create(u);
+            });
         } catch (NotFoundException | ValidationException | AuthException | ForbiddenException ex) {
-            rollbackSilently();
             throw ex;
+        } catch (DuplicateKeyException ex) {
+            // usuario no tiene otra clave única, pero si el driver informa el nombre se verifica
+            if (ex.getConstraintName().isEmpty() || ex.getConstraintName().contains(UserDao.UQ_EMAIL)) {
+                throw new ValidationException("Email ya registrado");
+            }
+            throw new AppException("Error registrando al usuario: ", ex);
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error registrando al usuario: ", ex);
         }
     }
 
     public UserLoggedInDto login(UserLoginCmd cmd) {
         try {
-            String email = normEmail(cmd.getEmail());
-            Usuario u = usuarioDao.findByEmail(email);
+            // Lectura corta; la verificación (costosa a propósito) corre fuera de la transacción
+            Usuario u = uow.inReadOnlyTransaction(() -> usuarioDao.findByEmail(normEmail(cmd.getEmail())));
             if (u == null) throw new AuthException("Credenciales inválidas");
 
-            boolean ok = verifyPassword(
-                    Objects.toString(u.getPasswordSalt(), ""),
-                    cmd.getPassword(),
-                    Objects.toString(u.getPasswordHash(), "")
-            );
-            if (!ok) throw new AuthException("Credenciales inválidas");
+            PasswordHashing.Verification v = passwordHashing.verify(
+                    cmd.getPassword(), u.getPasswordHash(), u.getPasswordSalt());
+            if (!v.isValid()) throw new AuthException("Credenciales inválidas");
 
+            if (v.isRehashNeeded()) {
+                rehash(u.getId(), cmd.getPassword(), u.getPasswordHash());
+            }
             return toLoggedInDto(u);
-        } catch (NotFoundException | ValidationException | AuthException | ForbiddenException ex) {
+        } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
             throw new AppException("Error logueando al usuario: ", ex);
@@ -92,45 +94,33 @@ public class UserService {
     }
 
     public List<UserDetailDto> getAll() {
-        synchronized (em) {
-            try {
-                boolean transactionStarted = !em.getTransaction().isActive();
-                if (transactionStarted) {
-                    em.getTransaction().begin();
-                }
-                
-                List<Usuario> usuarios = usuarioDao.findAll();
-                
-                if (usuarios != null) {
-                    for (Usuario u : usuarios) {
-                        if (u.getPerfil() != null) {
-                            u.getPerfil().getId();
-                            u.getPerfil().getNombre();
-                        }
-                    }
-                }
-                
-                em.flush();
-                
-                List<UserDetailDto> result = usuarios.stream()
-                        .map(this::toDetailDto)
-                        .collect(Collectors.toList());
-                
-                return result;
-            } catch (BusinessException ex) {
-                throw ex;
-            } catch (RuntimeException ex) {
-                rollbackSilently();
-                throw new AppException("Error obteniendo lista de usuarios ", ex);
-            }
+        try {
+            // Proyección directa al DTO: no carga hash/salt ni entidades administradas
+            return uow.inReadOnlyTransaction(() -> usuarioDao.findAllDetalle());
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo lista de usuarios ", ex);
+        }
+    }
+
+    public Slice<UserDetailDto, Long> getSlice(SliceRequest<Long> request) {
+        try {
+            return uow.inReadOnlyTransaction(() -> usuarioDao.findDetalleSlice(request));
+        } catch (BusinessException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new AppException("Error obteniendo lista de usuarios ", ex);
         }
     }
 
     public UserDetailDto getById(Long id) {
         try {
-            Usuario u = usuarioDao.findById(id);
-            if (u == null) throw new NotFoundException("Usuario no encontrado");
-            return toDetailDto(u);
+            return uow.inReadOnlyTransaction(() -> {
+                Usuario u = usuarioDao.findById(id);
+                if (u == null) throw new NotFoundException("Usuario no encontrado");
+                return toDetailDto(u);
+            });
         } catch (BusinessException ex) {
             throw ex;
         } catch (RuntimeException ex) {
@@ -139,51 +129,45 @@ public class UserService {
     }
 
     public void update(Long id, UserUpdateCmd cmd) {
-        Usuario u = usuarioDao.findById(id);
-        if (u == null) throw new NotFoundException("Usuario no encontrado");
+        String hash = isBlank(cmd.getPassword()) ? null : passwordHashing.hash(cmd.getPassword());
+        try {
+            uow.inTransaction(() -> {
+                Usuario u = usuarioDao.findById(id);
+                if (u == null) throw new NotFoundException("Usuario no encontrado");
 
-        if (!isBlank(cmd.getNombre())) u.setNombre(cmd.getNombre());
-        if (!isBlank(cmd.getApellido())) u.setApellido(cmd.getApellido());
+                if (!isBlank(cmd.getNombre())) u.setNombre(cmd.getNombre());
+                if (!isBlank(cmd.getApellido())) u.setApellido(cmd.getApellido());
 
-        if (!isBlank(cmd.getPassword())) {
-            String salt = generateSalt();
-            String hash = hashPassword(salt, cmd.getPassword());
-            u.setPasswordSalt(salt);
-            u.setPasswordHash(hash);
-        }
+                if (hash != null) {
+                    u.setPasswordHash(hash);
+                    u.setPasswordSalt(null);
+                }
 
-        if (cmd.getPerfilId() != null) {
-            PerfilUsuario perfil = resolvePerfil(cmd.getPerfilId());
-            if (perfil == null) throw new ValidationException("Perfil inválido: " + cmd.getPerfilId());
-            u.setPerfil(perfil);
-        }
+                if (cmd.getPerfilId() != null) {
+                    PerfilUsuario perfil = resolvePerfil(cmd.getPerfilId());
+                    if (perfil == null) throw new ValidationException("Perfil inválido: " + cmd.getPerfilId());
+                    u.setPerfil(perfil);
+                }
 
-        try {
-            begin();
-            usuarioDao.update(u);
-            commit();
+                usuarioDao.update(u);
+            });
         } catch (NotFoundException | ValidationException | AuthException | ForbiddenException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error actualizando al usuario: ", ex);
         }
     }
 
     public void delete(Long id) {
-        Usuario u = usuarioDao.findById(id);
-        if (u == null) throw new NotFoundException("Usuario no encontrado");
-
         try {
-            begin();
-            usuarioDao.deleteById(id);
-            commit();
+            uow.inTransaction(() -> {
+                Usuario u = usuarioDao.findById(id);
+                if (u == null) throw new NotFoundException("Usuario no encontrado");
+                usuarioDao.deleteById(id);
+            });
         } catch (NotFoundException | ValidationException | AuthException | ForbiddenException ex) {
-            rollbackSilently();
             throw ex;
         } catch (RuntimeException ex) {
-            rollbackSilently();
             throw new AppException("Error eliminando al usuario: ", ex);
         }
     }
@@ -196,34 +180,24 @@ public class UserService {
 
     private String normEmail(String email) {
         if (email == null) return null;
-        return email.trim().toLowerCase();
+        return email.trim().toLowerCase(Locale.ROOT);
     }
 
     private boolean isBlank(String s) { return s == null || s.trim().isEmpty(); }
 
-    private String generateSalt() {
-        byte[] salt = new byte[SALT_BYTES];
-        new SecureRandom().nextBytes(salt);
-        return Base64.getEncoder().encodeToString(salt);
-    }
-
-    private String hashPassword(String saltBase64, String rawPassword) {
+    /**
+     * Migra el hash al algoritmo y costo actuales aprovechando que se conoce la contraseña.
+     * Es best-effort: si falla, el login sigue siendo válido y se reintenta en el próximo.
+     */
+    private void rehash(Long id, String rawPassword, String hashAnterior) {
         try {
-            byte[] salt = Base64.getDecoder().decode(saltBase64);
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(salt);
-            byte[] hashed = md.digest(rawPassword.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hashed);
-        } catch (Exception e) {
-            throw new AppException("Error generando hash de password", e);
+            String nuevo = passwordHashing.hash(rawPassword);
+            uow.inTransaction(() -> usuarioDao.updatePasswordHash(id, nuevo, hashAnterior));
+        } catch (RuntimeException ex) {
+            LOG.log(System.Logger.Level.WARNING, "No se pudo actualizar el hash del usuario " + id, ex);
         }
     }
 
-    private boolean verifyPassword(String saltBase64, String rawPassword, String expectedHashBase64) {
-        String actual = hashPassword(saltBase64, rawPassword);
-        return actual.equals(expectedHashBase64);
-    }
-
     private UserDetailDto toDetailDto(Usuario u) {
         UserDetailDto dto = new UserDetailDto();
         dto.setId(u.getId());
@@ -243,16 +217,4 @@ public class UserService {
         dto.setPerfil(u.getPerfil() != null ? u.getPerfil().getNombre() : null);
         return dto;
     }
-
-    private void begin() {
-        if (!em.getTransaction().isActive()) em.getTransaction().begin();
-    }
-    private void commit() {
-        if (em.getTransaction().isActive()) em.getTransaction().commit();
-    }
-    private void rollbackSilently() {
-        try {
-            if (em.getTransaction().isActive()) em.getTransaction().rollback();
-        } catch (Exception ignore) {}
-    }
 }
@@ -0,0 +1,143 @@
+package ar.edu.up.bugtracker.service.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lectura de CSV (RFC 4180) registro por registro, sin cargar el archivo en memoria.
+ * Acepta campos entre comillas con comas, comillas dobladas y saltos de línea, fin de línea LF o CRLF
+ * y un BOM de UTF-8 al principio.
+ */
+public class CsvReader implements Closeable {
+
+    private final Reader in;
+    private long linea = 1;
+    private long lineaRegistro;
+    private int pendiente = -2;
+
+    /** @param in conviene que venga con buffer (BufferedReader) */
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Próximo registro, o null al final del archivo. Las líneas vacías se saltean.
+     * @throws CsvException si hay comillas sin cerrar o texto pegado a un campo entre comillas
+     */
+    public String[] next() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\r' || c == '\n') {
+                finDeLinea(c);
+                continue;
+            }
+            lineaRegistro = linea;
+            unread(c);
+            return registro();
+        }
+    }
+
+    /** Línea del archivo (desde 1) en la que empieza el último registro devuelto por next. */
+    public long getLinea() {
+        return lineaRegistro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String[] registro() throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == '"' && campo.length() == 0) {
+                entreComillas(campo);
+                c = read();
+                if (c != ',' && c != '\r' && c != '\n' && c != -1) {
+                    throw new CsvException("Texto después de cerrar las comillas en la línea " + linea);
+                }
+            }
+            if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                campos.add(campo.toString());
+                if (c != -1) {
+                    finDeLinea(c);
+                }
+                return campos.toArray(new String[0]);
+            } else {
+                campo.append((char) c);
+            }
+        }
+    }
+
+    private void entreComillas(StringBuilder campo) throws IOException {
+        long inicio = linea;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new CsvException("Comillas sin cerrar desde la línea " + inicio);
+            }
+            if (c == '"') {
+                int siguiente = read();
+                if (siguiente != '"') {
+                    unread(siguiente);
+                    return;
+                }
+            } else if (c == '\n' || (c == '\r' && peekNoLf())) {
+                linea++;
+            }
+            campo.append((char) c);
+        }
+    }
+
+    private void finDeLinea(int c) throws IOException {
+        if (c == '\r') {
+            int siguiente = read();
+            if (siguiente != '\n') {
+                unread(siguiente);
+            }
+        }
+        linea++;
+    }
+
+    /** true si el \r que se acaba de leer no viene seguido de \n (si viene, la línea la cuenta el \n). */
+    private boolean peekNoLf() throws IOException {
+        int siguiente = read();
+        unread(siguiente);
+        return siguiente != '\n';
+    }
+
+    private int read() throws IOException {
+        if (pendiente != -2) {
+            int c = pendiente;
+            pendiente = -2;
+            return c;
+        }
+        int c = in.read();
+        if (c == '\uFEFF' && linea == 1 && lineaRegistro == 0) {
+            c = in.read();
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        pendiente = c;
+    }
+
+    /** Archivo con formato CSV inválido. */
+    public static class CsvException extends IOException {
+        public CsvException(String message) {
+            super(message);
+        }
+    }
+}
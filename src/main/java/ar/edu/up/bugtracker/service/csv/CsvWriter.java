@@ -0,0 +1,75 @@
+package ar.edu.up.bugtracker.service.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escritura de CSV (RFC 4180, UTF-8, fin de línea CRLF). Sólo se entrecomillan los campos que lo necesitan;
+ * null se escribe como campo vacío. Los errores de escritura salen como UncheckedIOException.
+ */
+public class CsvWriter implements Closeable {
+
+    private final Writer out;
+
+    public CsvWriter(OutputStream out) {
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    public void fila(Object... valores) {
+        try {
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                campo(valores[i]);
+            }
+            out.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void campo(Object valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        String s = valor instanceof BigDecimal ? ((BigDecimal) valor).toPlainString() : valor.toString();
+        boolean comillas = false;
+        for (int i = 0; i < s.length() && !comillas; i++) {
+            char c = s.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
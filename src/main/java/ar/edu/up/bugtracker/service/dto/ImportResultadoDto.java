@@ -0,0 +1,41 @@
+package ar.edu.up.bugtracker.service.dto;
+
+import java.nio.file.Path;
+
+/**
+ * Avance o resultado final de una importación masiva de incidencias.
+ */
+public class ImportResultadoDto {
+    private long leidas;
+    private long importadas;
+    private long rechazadas;
+    private Path archivoRechazos;
+    private boolean terminada;
+
+    public ImportResultadoDto() {}
+
+    public ImportResultadoDto(long leidas, long importadas, long rechazadas, Path archivoRechazos, boolean terminada) {
+        this.leidas = leidas;
+        this.importadas = importadas;
+        this.rechazadas = rechazadas;
+        this.archivoRechazos = archivoRechazos;
+        this.terminada = terminada;
+    }
+
+    /** Filas de datos leídas del archivo (sin contar el encabezado). */
+    public long getLeidas() { return leidas; }
+    public void setLeidas(long leidas) { this.leidas = leidas; }
+
+    public long getImportadas() { return importadas; }
+    public void setImportadas(long importadas) { this.importadas = importadas; }
+
+    public long getRechazadas() { return rechazadas; }
+    public void setRechazadas(long rechazadas) { this.rechazadas = rechazadas; }
+
+    /** CSV con las filas rechazadas y el motivo; null si no hubo rechazos. */
+    public Path getArchivoRechazos() { return archivoRechazos; }
+    public void setArchivoRechazos(Path archivoRechazos) { this.archivoRechazos = archivoRechazos; }
+
+    public boolean isTerminada() { return terminada; }
+    public void setTerminada(boolean terminada) { this.terminada = terminada; }
+}
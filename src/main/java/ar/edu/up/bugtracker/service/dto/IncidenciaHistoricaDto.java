@@ -0,0 +1,38 @@
+package ar.edu.up.bugtracker.service.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Estado de una incidencia reconstruido a partir de su historial de versiones para un momento dado.
+ */
+public class IncidenciaHistoricaDto {
+
+    private final Long incidenciaId;
+    private final LocalDateTime momento;
+    private final Long versionId;
+    private final String estado;
+    private final String responsableEmail;
+    private final BigDecimal estimacionHoras;
+    private final String descripcion;
+
+    public IncidenciaHistoricaDto(Long incidenciaId, LocalDateTime momento, Long versionId, String estado,
+                                  String responsableEmail, BigDecimal estimacionHoras, String descripcion) {
+        this.incidenciaId = incidenciaId;
+        this.momento = momento;
+        this.versionId = versionId;
+        this.estado = estado;
+        this.responsableEmail = responsableEmail;
+        this.estimacionHoras = estimacionHoras;
+        this.descripcion = descripcion;
+    }
+
+    public Long getIncidenciaId() { return incidenciaId; }
+    public LocalDateTime getMomento() { return momento; }
+    /** Última versión aplicada (la vigente en ese momento). */
+    public Long getVersionId() { return versionId; }
+    public String getEstado() { return estado; }
+    public String getResponsableEmail() { return responsableEmail; }
+    public BigDecimal getEstimacionHoras() { return estimacionHoras; }
+    public String getDescripcion() { return descripcion; }
+}
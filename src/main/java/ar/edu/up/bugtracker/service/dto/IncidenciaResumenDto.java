@@ -0,0 +1,46 @@
+package ar.edu.up.bugtracker.service.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO liviano para los listados de incidencias (proyección de sólo lectura, sin la descripción completa).
+ */
+public class IncidenciaResumenDto {
+
+    /** Largo máximo de la vista previa de la descripción. */
+    public static final int LARGO_PREVIEW = 200;
+
+    private final Long id;
+    private final String descripcionPreview;
+    private final boolean descripcionTruncada;
+    private final Long estadoId;
+    private final String estado;
+    private final BigDecimal estimacionHoras;
+    private final LocalDateTime creadoEn;
+
+    /**
+     * Usado por las consultas JPQL con constructor. La descripción llega cortada en LARGO_PREVIEW + 1
+     * caracteres: si sobra uno, se sabe que el texto original era más largo.
+     */
+    public IncidenciaResumenDto(Long id, String descripcion, Long estadoId, String estado,
+                                BigDecimal estimacionHoras, LocalDateTime creadoEn) {
+        this.id = id;
+        this.descripcionTruncada = descripcion != null && descripcion.length() > LARGO_PREVIEW;
+        this.descripcionPreview = descripcionTruncada
+                ? descripcion.substring(0, LARGO_PREVIEW) + "…"
+                : (descripcion != null ? descripcion : "");
+        this.estadoId = estadoId;
+        this.estado = estado;
+        this.estimacionHoras = estimacionHoras;
+        this.creadoEn = creadoEn;
+    }
+
+    public Long getId() { return id; }
+    public String getDescripcionPreview() { return descripcionPreview; }
+    public boolean isDescripcionTruncada() { return descripcionTruncada; }
+    public Long getEstadoId() { return estadoId; }
+    public String getEstado() { return estado; }
+    public BigDecimal getEstimacionHoras() { return estimacionHoras; }
+    public LocalDateTime getCreadoEn() { return creadoEn; }
+}
@@ -0,0 +1,60 @@
+package ar.edu.up.bugtracker.service.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO con las métricas agregadas de un proyecto.
+ */
+public class ProyectoMetricasDto {
+    private Long proyectoId;
+    private long totalIncidencias;
+    private long completadas;
+    private long pendientes;
+    private BigDecimal horasEstimadas;
+    private List<EstadoConteo> porEstado;
+
+    public ProyectoMetricasDto() {}
+
+    public Long getProyectoId() { return proyectoId; }
+    public void setProyectoId(Long proyectoId) { this.proyectoId = proyectoId; }
+
+    public long getTotalIncidencias() { return totalIncidencias; }
+    public void setTotalIncidencias(long totalIncidencias) { this.totalIncidencias = totalIncidencias; }
+
+    public long getCompletadas() { return completadas; }
+    public void setCompletadas(long completadas) { this.completadas = completadas; }
+
+    public long getPendientes() { return pendientes; }
+    public void setPendientes(long pendientes) { this.pendientes = pendientes; }
+
+    public BigDecimal getHorasEstimadas() { return horasEstimadas; }
+    public void setHorasEstimadas(BigDecimal horasEstimadas) { this.horasEstimadas = horasEstimadas; }
+
+    public List<EstadoConteo> getPorEstado() { return porEstado; }
+    public void setPorEstado(List<EstadoConteo> porEstado) { this.porEstado = porEstado; }
+
+    public double getPorcentajeCompletado() {
+        return totalIncidencias > 0 ? completadas * 100.0 / totalIncidencias : 0.0;
+    }
+
+    /** Cantidad de incidencias en un estado. */
+    public static class EstadoConteo {
+        private final Long estadoId;
+        private final String nombre;
+        private final long cantidad;
+        private final BigDecimal horasEstimadas;
+
+        public EstadoConteo(Long estadoId, String nombre, long cantidad, BigDecimal horasEstimadas) {
+            this.estadoId = estadoId;
+            this.nombre = nombre;
+            this.cantidad = cantidad;
+            this.horasEstimadas = horasEstimadas;
+        }
+
+        public Long getEstadoId() { return estadoId; }
+        public String getNombre() { return nombre; }
+        public long getCantidad() { return cantidad; }
+        public BigDecimal getHorasEstimadas() { return horasEstimadas; }
+    }
+}
@@ -0,0 +1,22 @@
+package ar.edu.up.bugtracker.service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO liviano para el listado de proyectos (sin la descripción).
+ */
+public class ProyectoResumenDto {
+    private final Long id;
+    private final String nombre;
+    private final LocalDateTime creadoEn;
+
+    public ProyectoResumenDto(Long id, String nombre, LocalDateTime creadoEn) {
+        this.id = id;
+        this.nombre = nombre;
+        this.creadoEn = creadoEn;
+    }
+
+    public Long getId() { return id; }
+    public String getNombre() { return nombre; }
+    public LocalDateTime getCreadoEn() { return creadoEn; }
+}
@@ -15,6 +15,16 @@ public class UserDetailDto {
 
     public UserDetailDto() {}
 
+    /** Usado por las consultas JPQL con constructor del listado de usuarios. */
+    public UserDetailDto(Long id, String nombre, String apellido, String email, String perfil, LocalDateTime creadoEn) {
+        this.id = id;
+        this.nombre = nombre;
+        this.apellido = apellido;
+        this.email = email;
+        this.perfil = perfil;
+        this.creadoEn = creadoEn;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
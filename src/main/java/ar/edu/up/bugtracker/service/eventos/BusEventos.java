@@ -0,0 +1,81 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Bus de eventos en memoria. Entrega cada evento a los suscriptores de su clase (o de una superclase)
+ * en el Executor que cada uno eligió: la UI pasa SwingUtilities::invokeLater, el resto lo recibe en el
+ * hilo del despachador del Outbox, en orden.
+ */
+public class BusEventos {
+
+    private static final System.Logger LOG = System.getLogger(BusEventos.class.getName());
+
+    private final List<Suscripcion<?>> suscripciones = new CopyOnWriteArrayList<>();
+
+    /** tipo puede ser una clase de evento o una interfaz como CambioEnIncidencias. */
+    public <T> Suscripcion<T> suscribir(Class<T> tipo, Consumer<? super T> handler) {
+        return suscribir(tipo, Runnable::run, handler);
+    }
+
+    public <T> Suscripcion<T> suscribir(Class<T> tipo, Executor executor, Consumer<? super T> handler) {
+        Suscripcion<T> suscripcion = new Suscripcion<>(this, tipo, executor, handler);
+        suscripciones.add(suscripcion);
+        return suscripcion;
+    }
+
+    public void publicar(EventoDominio evento) {
+        for (Suscripcion<?> suscripcion : suscripciones) {
+            suscripcion.entregar(evento);
+        }
+    }
+
+    void quitar(Suscripcion<?> suscripcion) {
+        suscripciones.remove(suscripcion);
+    }
+
+    /** Alta en el bus; close() la da de baja (los paneles la cierran al dejar de mostrarse). */
+    public static final class Suscripcion<T> implements AutoCloseable {
+
+        private final BusEventos bus;
+        private final Class<T> tipo;
+        private final Executor executor;
+        private final Consumer<? super T> handler;
+        private volatile boolean activa = true;
+
+        private Suscripcion(BusEventos bus, Class<T> tipo, Executor executor, Consumer<? super T> handler) {
+            this.bus = bus;
+            this.tipo = tipo;
+            this.executor = executor;
+            this.handler = handler;
+        }
+
+        private void entregar(EventoDominio evento) {
+            if (!tipo.isInstance(evento)) {
+                return;
+            }
+            T tipado = tipo.cast(evento);
+            executor.execute(() -> {
+                // Puede haberse cerrado mientras el evento esperaba en el executor
+                if (!activa) {
+                    return;
+                }
+                try {
+                    handler.accept(tipado);
+                } catch (RuntimeException ex) {
+                    LOG.log(System.Logger.Level.WARNING,
+                            "Error en suscriptor de " + tipo.getSimpleName(), ex);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            activa = false;
+            bus.quitar(this);
+        }
+    }
+}
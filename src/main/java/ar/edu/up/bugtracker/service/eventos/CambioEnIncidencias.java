@@ -0,0 +1,10 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+/**
+ * Eventos que cambian el conjunto de incidencias de un proyecto o sus contadores: listados y métricas
+ * del proyecto se suscriben a esta interfaz en lugar de a cada clase.
+ */
+public interface CambioEnIncidencias {
+
+    Long getProyectoId();
+}
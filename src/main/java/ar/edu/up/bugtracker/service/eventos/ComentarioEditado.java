@@ -0,0 +1,27 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Texto de un comentario modificado. */
+public class ComentarioEditado extends EventoDominio {
+
+    @JsonProperty("comentario_id")
+    private Long comentarioId;
+
+    @JsonProperty("incidencia_id")
+    private Long incidenciaId;
+
+    public ComentarioEditado() {
+    }
+
+    public ComentarioEditado(Long comentarioId, Long incidenciaId) {
+        this.comentarioId = comentarioId;
+        this.incidenciaId = incidenciaId;
+    }
+
+    @Override
+    public Long agregadoId() { return comentarioId; }
+
+    public Long getComentarioId() { return comentarioId; }
+    public Long getIncidenciaId() { return incidenciaId; }
+}
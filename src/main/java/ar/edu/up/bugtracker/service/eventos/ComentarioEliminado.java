@@ -0,0 +1,27 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Comentario borrado. */
+public class ComentarioEliminado extends EventoDominio {
+
+    @JsonProperty("comentario_id")
+    private Long comentarioId;
+
+    @JsonProperty("incidencia_id")
+    private Long incidenciaId;
+
+    public ComentarioEliminado() {
+    }
+
+    public ComentarioEliminado(Long comentarioId, Long incidenciaId) {
+        this.comentarioId = comentarioId;
+        this.incidenciaId = incidenciaId;
+    }
+
+    @Override
+    public Long agregadoId() { return comentarioId; }
+
+    public Long getComentarioId() { return comentarioId; }
+    public Long getIncidenciaId() { return incidenciaId; }
+}
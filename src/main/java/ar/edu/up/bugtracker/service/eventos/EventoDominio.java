@@ -0,0 +1,39 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Cambio ya confirmado en la base. Los servicios los registran en el Outbox dentro de su transacción y
+ * el BusEventos los entrega a los suscriptores del proceso. Llevan sólo ids: quien necesite más datos
+ * los consulta.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "tipo")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = IncidenciaCreada.class, name = "incidencia_creada"),
+        @JsonSubTypes.Type(value = IncidenciaActualizada.class, name = "incidencia_actualizada"),
+        @JsonSubTypes.Type(value = IncidenciaEstadoCambiado.class, name = "incidencia_estado_cambiado"),
+        @JsonSubTypes.Type(value = IncidenciaEliminada.class, name = "incidencia_eliminada"),
+        @JsonSubTypes.Type(value = IncidenciasImportadas.class, name = "incidencias_importadas"),
+        @JsonSubTypes.Type(value = IncidenciasEstadoCambiado.class, name = "incidencias_estado_cambiado"),
+        @JsonSubTypes.Type(value = ComentarioAgregado.class, name = "comentario_agregado"),
+        @JsonSubTypes.Type(value = ComentarioEditado.class, name = "comentario_editado"),
+        @JsonSubTypes.Type(value = ComentarioEliminado.class, name = "comentario_eliminado"),
+        @JsonSubTypes.Type(value = ProyectoGuardado.class, name = "proyecto_guardado"),
+        @JsonSubTypes.Type(value = ProyectoEliminado.class, name = "proyecto_eliminado")
+})
+@JsonIgnoreProperties(ignoreUnknown = true)
+public abstract class EventoDominio {
+
+    // Instancia de la aplicación que lo registró (ver Outbox.esPropio)
+    @JsonProperty("origen")
+    private String origen;
+
+    /** Id de la entidad principal del evento (columna agregado_id del outbox). */
+    public abstract Long agregadoId();
+
+    public String getOrigen() { return origen; }
+    void setOrigen(String origen) { this.origen = origen; }
+}
@@ -0,0 +1,28 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Alta de una incidencia. */
+public class IncidenciaCreada extends EventoDominio implements CambioEnIncidencias {
+
+    @JsonProperty("incidencia_id")
+    private Long incidenciaId;
+
+    @JsonProperty("proyecto_id")
+    private Long proyectoId;
+
+    public IncidenciaCreada() {
+    }
+
+    public IncidenciaCreada(Long incidenciaId, Long proyectoId) {
+        this.incidenciaId = incidenciaId;
+        this.proyectoId = proyectoId;
+    }
+
+    @Override
+    public Long agregadoId() { return incidenciaId; }
+
+    public Long getIncidenciaId() { return incidenciaId; }
+    @Override
+    public Long getProyectoId() { return proyectoId; }
+}
@@ -0,0 +1,38 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Transición de estado de una incidencia. */
+public class IncidenciaEstadoCambiado extends EventoDominio implements CambioEnIncidencias {
+
+    @JsonProperty("incidencia_id")
+    private Long incidenciaId;
+
+    @JsonProperty("proyecto_id")
+    private Long proyectoId;
+
+    @JsonProperty("estado_anterior_id")
+    private Long estadoAnteriorId;
+
+    @JsonProperty("estado_nuevo_id")
+    private Long estadoNuevoId;
+
+    public IncidenciaEstadoCambiado() {
+    }
+
+    public IncidenciaEstadoCambiado(Long incidenciaId, Long proyectoId, Long estadoAnteriorId, Long estadoNuevoId) {
+        this.incidenciaId = incidenciaId;
+        this.proyectoId = proyectoId;
+        this.estadoAnteriorId = estadoAnteriorId;
+        this.estadoNuevoId = estadoNuevoId;
+    }
+
+    @Override
+    public Long agregadoId() { return incidenciaId; }
+
+    public Long getIncidenciaId() { return incidenciaId; }
+    @Override
+    public Long getProyectoId() { return proyectoId; }
+    public Long getEstadoAnteriorId() { return estadoAnteriorId; }
+    public Long getEstadoNuevoId() { return estadoNuevoId; }
+}
@@ -0,0 +1,36 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Cambio de estado masivo: un evento por proyecto con todas las incidencias que se movieron. */
+public class IncidenciasEstadoCambiado extends EventoDominio implements CambioEnIncidencias {
+
+    @JsonProperty("proyecto_id")
+    private Long proyectoId;
+
+    @JsonProperty("estado_nuevo_id")
+    private Long estadoNuevoId;
+
+    @JsonProperty("incidencia_ids")
+    private List<Long> incidenciaIds = new ArrayList<>();
+
+    public IncidenciasEstadoCambiado() {
+    }
+
+    public IncidenciasEstadoCambiado(Long proyectoId, Long estadoNuevoId, List<Long> incidenciaIds) {
+        this.proyectoId = proyectoId;
+        this.estadoNuevoId = estadoNuevoId;
+        this.incidenciaIds = incidenciaIds;
+    }
+
+    @Override
+    public Long agregadoId() { return proyectoId; }
+
+    @Override
+    public Long getProyectoId() { return proyectoId; }
+    public Long getEstadoNuevoId() { return estadoNuevoId; }
+    public List<Long> getIncidenciaIds() { return incidenciaIds; }
+}
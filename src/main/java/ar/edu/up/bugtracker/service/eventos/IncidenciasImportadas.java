@@ -0,0 +1,36 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Lote confirmado de una importación masiva: un solo evento por lote en lugar de uno por incidencia. */
+public class IncidenciasImportadas extends EventoDominio implements CambioEnIncidencias {
+
+    @JsonProperty("proyecto_id")
+    private Long proyectoId;
+
+    @JsonProperty("cantidad")
+    private int cantidad;
+
+    @JsonProperty("incidencia_ids")
+    private List<Long> incidenciaIds = new ArrayList<>();
+
+    public IncidenciasImportadas() {
+    }
+
+    public IncidenciasImportadas(Long proyectoId, List<Long> incidenciaIds) {
+        this.proyectoId = proyectoId;
+        this.cantidad = incidenciaIds.size();
+        this.incidenciaIds = incidenciaIds;
+    }
+
+    @Override
+    public Long agregadoId() { return proyectoId; }
+
+    @Override
+    public Long getProyectoId() { return proyectoId; }
+    public int getCantidad() { return cantidad; }
+    public List<Long> getIncidenciaIds() { return incidenciaIds; }
+}
@@ -0,0 +1,212 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import ar.edu.up.bugtracker.dao.OutboxDao;
+import ar.edu.up.bugtracker.models.OutboxEvento;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outbox transaccional. registrar() guarda el evento en outbox_evento dentro de la transacción del
+ * servicio, así sólo existe si el cambio se confirmó. Un hilo despachador lee los eventos nuevos y los
+ * publica en el BusEventos; se lo despierta después de cada commit y, además, revisa periódicamente
+ * para recibir los cambios hechos desde otras instancias de la aplicación.
+ *
+ * Cada instancia lleva su propio cursor (último id visto) y arranca desde el final, sin repetir
+ * eventos viejos. Como los ids autoincrementales se asignan antes del commit, una transacción más lenta
+ * puede confirmar un id menor al último visto: esos huecos se siguen consultando durante
+ * ESPERA_HUECO_MS antes de darlos por descartados (rollback).
+ */
+public class Outbox {
+
+    private static final System.Logger LOG = System.getLogger(Outbox.class.getName());
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final int LOTE = 200;
+    static final long INTERVALO_MS = 2_000;
+    static final long ESPERA_HUECO_MS = 30_000;
+    static final int MAX_HUECOS = 1_000;
+    static final long PURGA_CADA_MS = 60 * 60 * 1_000L;
+    static final int RETENCION_DIAS = 7;
+
+    private final OutboxDao outboxDao;
+    private final BusEventos bus;
+    private final UnitOfWork uow;
+
+    // Identifica a esta instancia en los eventos que registra
+    private final String instancia = UUID.randomUUID().toString();
+
+    private final Object senal = new Object();
+    private boolean pendiente;
+    private volatile boolean activo;
+    private Thread despachador;
+
+    // Sólo los usa el hilo despachador
+    private long ultimoId;
+    private final Map<Long, Long> huecos = new HashMap<>();
+    private long proximaPurga;
+
+    public Outbox(OutboxDao outboxDao, BusEventos bus, UnitOfWork uow) {
+        this.outboxDao = outboxDao;
+        this.bus = bus;
+        this.uow = uow;
+    }
+
+    /** Guarda el evento en la transacción activa y despierta al despachador cuando se confirma. */
+    public void registrar(EventoDominio evento) {
+        evento.setOrigen(instancia);
+        String payload;
+        try {
+            payload = MAPPER.writeValueAsString(evento);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo serializar el evento " + evento.getClass().getSimpleName(), e);
+        }
+        outboxDao.insertar(evento.getClass().getSimpleName(), evento.agregadoId(), payload);
+        uow.afterCommit(this::despertar);
+    }
+
+    /** Si el evento lo registró esta misma instancia (y no otra que comparte la base). */
+    public boolean esPropio(EventoDominio evento) {
+        return instancia.equals(evento.getOrigen());
+    }
+
+    /** Arranca el hilo despachador a partir del último evento existente. */
+    public synchronized void iniciar() {
+        if (activo) {
+            return;
+        }
+        ultimoId = uow.inReadOnlyTransaction(() -> outboxDao.maxId());
+        proximaPurga = System.currentTimeMillis();
+        activo = true;
+        despachador = new Thread(this::ciclo, "outbox-despachador");
+        despachador.setDaemon(true);
+        despachador.start();
+    }
+
+    public synchronized void detener() {
+        activo = false;
+        if (despachador != null) {
+            despertar();
+            try {
+                despachador.join(INTERVALO_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            despachador = null;
+        }
+    }
+
+    public void despertar() {
+        synchronized (senal) {
+            pendiente = true;
+            senal.notifyAll();
+        }
+    }
+
+    private void ciclo() {
+        while (activo) {
+            try {
+                despachar();
+                purgarSiCorresponde();
+            } catch (RuntimeException ex) {
+                LOG.log(System.Logger.Level.WARNING, "Error despachando eventos del outbox", ex);
+            }
+            esperar();
+        }
+    }
+
+    private void esperar() {
+        synchronized (senal) {
+            long hasta = System.currentTimeMillis() + INTERVALO_MS;
+            long resta;
+            while (!pendiente && activo && (resta = hasta - System.currentTimeMillis()) > 0) {
+                try {
+                    senal.wait(resta);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    activo = false;
+                }
+            }
+            pendiente = false;
+        }
+    }
+
+    void despachar() {
+        List<OutboxEvento> eventos = new ArrayList<>();
+        List<OutboxEvento> nuevos;
+        do {
+            nuevos = uow.inReadOnlyTransaction(() -> {
+                List<OutboxEvento> leidos = new ArrayList<>(outboxDao.findDesde(ultimoId, LOTE));
+                vencerHuecos();
+                if (!huecos.isEmpty()) {
+                    leidos.addAll(outboxDao.findByIds(new ArrayList<>(huecos.keySet())));
+                }
+                return leidos;
+            });
+            for (OutboxEvento evento : nuevos) {
+                if (huecos.remove(evento.getId()) == null) {
+                    registrarHuecosHasta(evento.getId());
+                    ultimoId = Math.max(ultimoId, evento.getId());
+                }
+            }
+            eventos.addAll(nuevos);
+        } while (nuevos.size() >= LOTE);
+
+        eventos.sort(Comparator.comparing(OutboxEvento::getId));
+        for (OutboxEvento registro : eventos) {
+            EventoDominio evento = leer(registro);
+            if (evento != null) {
+                bus.publicar(evento);
+            }
+        }
+    }
+
+    private void registrarHuecosHasta(long id) {
+        long vence = System.currentTimeMillis() + ESPERA_HUECO_MS;
+        for (long faltante = ultimoId + 1; faltante < id && huecos.size() < MAX_HUECOS; faltante++) {
+            huecos.put(faltante, vence);
+        }
+    }
+
+    private void vencerHuecos() {
+        long ahora = System.currentTimeMillis();
+        Iterator<Long> it = huecos.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() < ahora) {
+                it.remove();
+            }
+        }
+    }
+
+    private void purgarSiCorresponde() {
+        long ahora = System.currentTimeMillis();
+        if (ahora < proximaPurga) {
+            return;
+        }
+        proximaPurga = ahora + PURGA_CADA_MS;
+        int borrados = uow.inTransaction(() ->
+                outboxDao.deleteAnteriores(LocalDateTime.now().minusDays(RETENCION_DIAS)));
+        if (borrados > 0) {
+            LOG.log(System.Logger.Level.INFO, "Outbox: " + borrados + " eventos purgados");
+        }
+    }
+
+    private static EventoDominio leer(OutboxEvento registro) {
+        try {
+            return MAPPER.readValue(registro.getPayload(), EventoDominio.class);
+        } catch (JsonProcessingException e) {
+            // Tipo desconocido (p. ej. de una versión más nueva de la aplicación): se ignora
+            LOG.log(System.Logger.Level.WARNING, "Evento de outbox ilegible, id " + registro.getId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Baja de un proyecto con todas sus incidencias. */
+public class ProyectoEliminado extends EventoDominio {
+
+    @JsonProperty("proyecto_id")
+    private Long proyectoId;
+
+    public ProyectoEliminado() {
+    }
+
+    public ProyectoEliminado(Long proyectoId) {
+        this.proyectoId = proyectoId;
+    }
+
+    @Override
+    public Long agregadoId() { return proyectoId; }
+
+    public Long getProyectoId() { return proyectoId; }
+}
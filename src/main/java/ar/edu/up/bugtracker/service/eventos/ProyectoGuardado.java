@@ -0,0 +1,22 @@
+package ar.edu.up.bugtracker.service.eventos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Alta o modificación de un proyecto. */
+public class ProyectoGuardado extends EventoDominio {
+
+    @JsonProperty("proyecto_id")
+    private Long proyectoId;
+
+    public ProyectoGuardado() {
+    }
+
+    public ProyectoGuardado(Long proyectoId) {
+        this.proyectoId = proyectoId;
+    }
+
+    @Override
+    public Long agregadoId() { return proyectoId; }
+
+    public Long getProyectoId() { return proyectoId; }
+}
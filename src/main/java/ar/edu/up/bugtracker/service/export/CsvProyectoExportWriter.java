@@ -0,0 +1,56 @@
+package ar.edu.up.bugtracker.service.export;
+
+import ar.edu.up.bugtracker.service.csv.CsvWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Un único CSV (RFC 4180) con las tres clases de fila; la columna tipo indica cuál es cada una
+ * y las columnas que no aplican quedan vacías.
+ */
+class CsvProyectoExportWriter implements ProyectoExportWriter {
+
+    private static final String[] COLUMNAS = {
+            "tipo", "id", "incidencia_id", "estado", "usuario", "estimacion_horas", "fecha", "estado_cambiado_en", "texto"
+    };
+
+    private final CsvWriter out;
+
+    CsvProyectoExportWriter(OutputStream out) {
+        this.out = new CsvWriter(out);
+    }
+
+    @Override
+    public void inicio(Long proyectoId, String nombre) {
+        out.fila((Object[]) COLUMNAS);
+    }
+
+    @Override
+    public void incidencia(Long id, String descripcion, String estado, String responsable, BigDecimal estimacionHoras,
+                           LocalDateTime creadoEn, LocalDateTime estadoCambiadoEn) {
+        out.fila("incidencia", id, id, estado, responsable, estimacionHoras, creadoEn, estadoCambiadoEn, descripcion);
+    }
+
+    @Override
+    public void version(Long id, Long incidenciaId, String estado, String autor, LocalDateTime creadoEn, String detalles) {
+        out.fila("version", id, incidenciaId, estado, autor, null, creadoEn, null, detalles);
+    }
+
+    @Override
+    public void comentario(Long id, Long incidenciaId, String autor, LocalDateTime creadoEn, String texto) {
+        out.fila("comentario", id, incidenciaId, null, autor, null, creadoEn, null, texto);
+    }
+
+    @Override
+    public void fin() {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
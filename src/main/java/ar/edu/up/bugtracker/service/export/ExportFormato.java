@@ -0,0 +1,16 @@
+package ar.edu.up.bugtracker.service.export;
+
+public enum ExportFormato {
+    CSV("csv"),
+    JSON("json");
+
+    private final String extension;
+
+    ExportFormato(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,153 @@
+package ar.edu.up.bugtracker.service.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Documento JSON {proyecto, incidencias[], versiones[], comentarios[]} escrito con el generador de
+ * streaming de Jackson. Las secciones van en orden y cada arreglo se abre al llegar su primera fila.
+ */
+class JsonProyectoExportWriter implements ProyectoExportWriter {
+
+    private static final JsonFactory FACTORY = JsonFactory.builder().build();
+
+    private final JsonGenerator gen;
+    private String seccion;
+
+    JsonProyectoExportWriter(OutputStream out) {
+        try {
+            this.gen = FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            // El stream lo cierra quien lo abrió
+            this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void inicio(Long proyectoId, String nombre) {
+        try {
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("proyecto");
+            gen.writeNumberField("id", proyectoId);
+            gen.writeStringField("nombre", nombre);
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void incidencia(Long id, String descripcion, String estado, String responsable, BigDecimal estimacionHoras,
+                           LocalDateTime creadoEn, LocalDateTime estadoCambiadoEn) {
+        try {
+            seccion("incidencias");
+            gen.writeStartObject();
+            gen.writeNumberField("id", id);
+            gen.writeStringField("estado", estado);
+            gen.writeStringField("responsable", responsable);
+            if (estimacionHoras != null) {
+                gen.writeNumberField("estimacionHoras", estimacionHoras);
+            } else {
+                gen.writeNullField("estimacionHoras");
+            }
+            gen.writeStringField("creadoEn", texto(creadoEn));
+            gen.writeStringField("estadoCambiadoEn", texto(estadoCambiadoEn));
+            gen.writeStringField("descripcion", descripcion);
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void version(Long id, Long incidenciaId, String estado, String autor, LocalDateTime creadoEn, String detalles) {
+        try {
+            seccion("versiones");
+            gen.writeStartObject();
+            gen.writeNumberField("id", id);
+            gen.writeNumberField("incidenciaId", incidenciaId);
+            gen.writeStringField("estado", estado);
+            gen.writeStringField("autor", autor);
+            gen.writeStringField("creadoEn", texto(creadoEn));
+            gen.writeFieldName("detalles");
+            // La columna es JSON validado por MySQL: se copia tal cual en lugar de escaparla como texto
+            if (detalles != null) {
+                gen.writeRawValue(detalles);
+            } else {
+                gen.writeNull();
+            }
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void comentario(Long id, Long incidenciaId, String autor, LocalDateTime creadoEn, String texto) {
+        try {
+            seccion("comentarios");
+            gen.writeStartObject();
+            gen.writeNumberField("id", id);
+            gen.writeNumberField("incidenciaId", incidenciaId);
+            gen.writeStringField("autor", autor);
+            gen.writeStringField("creadoEn", texto(creadoEn));
+            gen.writeStringField("texto", texto);
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void fin() {
+        try {
+            // Las secciones sin filas se escriben vacías para que el documento tenga siempre la misma forma
+            seccion("comentarios");
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        gen.close();
+    }
+
+    /** Cierra el arreglo anterior y abre los que falten hasta llegar a la sección pedida. */
+    private void seccion(String nombre) throws IOException {
+        if (nombre.equals(seccion)) {
+            return;
+        }
+        String[] orden = {"incidencias", "versiones", "comentarios"};
+        boolean abrir = seccion == null;
+        for (String s : orden) {
+            if (abrir) {
+                if (seccion != null) {
+                    gen.writeEndArray();
+                }
+                gen.writeArrayFieldStart(s);
+                seccion = s;
+                if (s.equals(nombre)) {
+                    return;
+                }
+            } else if (s.equals(seccion)) {
+                abrir = true;
+            }
+        }
+    }
+
+    private static String texto(LocalDateTime fecha) {
+        return fecha != null ? fecha.toString() : null;
+    }
+}
@@ -0,0 +1,37 @@
+package ar.edu.up.bugtracker.service.export;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Escritura secuencial de la exportación de un proyecto: primero las incidencias, después las versiones
+ * y por último los comentarios. Cada fila se escribe apenas llega, sin acumular nada en memoria.
+ * Los errores de escritura salen como UncheckedIOException.
+ */
+public interface ProyectoExportWriter extends Closeable {
+
+    static ProyectoExportWriter crear(ExportFormato formato, OutputStream out) {
+        switch (formato) {
+            case CSV:
+                return new CsvProyectoExportWriter(out);
+            case JSON:
+                return new JsonProyectoExportWriter(out);
+            default:
+                throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+    }
+
+    void inicio(Long proyectoId, String nombre);
+
+    void incidencia(Long id, String descripcion, String estado, String responsable, BigDecimal estimacionHoras,
+                    LocalDateTime creadoEn, LocalDateTime estadoCambiadoEn);
+
+    void version(Long id, Long incidenciaId, String estado, String autor, LocalDateTime creadoEn, String detalles);
+
+    void comentario(Long id, Long incidenciaId, String autor, LocalDateTime creadoEn, String texto);
+
+    /** Cierra la estructura del documento y vacía los buffers; no cierra el stream. */
+    void fin();
+}
@@ -0,0 +1,68 @@
+package ar.edu.up.bugtracker.service.password;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formato {@code $id$clave=valor,...$salt$hash} (salt y hash en Base64 sin relleno).
+ */
+final class EncodedHash {
+
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+
+    final String id;
+    final Map<String, Integer> params;
+    final byte[] salt;
+    final byte[] hash;
+
+    private EncodedHash(String id, Map<String, Integer> params, byte[] salt, byte[] hash) {
+        this.id = id;
+        this.params = params;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    static String encode(String id, String params, byte[] salt, byte[] hash) {
+        return "$" + id + "$" + params + "$" + ENCODER.encodeToString(salt) + "$" + ENCODER.encodeToString(hash);
+    }
+
+    /** Identificador del hash codificado, o null si no tiene este formato (hashes anteriores). */
+    static String idOf(String encoded) {
+        if (encoded == null || !encoded.startsWith("$")) {
+            return null;
+        }
+        int end = encoded.indexOf('$', 1);
+        return end > 1 ? encoded.substring(1, end) : null;
+    }
+
+    /** Devuelve null si el texto no es un hash válido de este formato. */
+    static EncodedHash parse(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 5 || !parts[0].isEmpty()) {
+            return null;
+        }
+        try {
+            Map<String, Integer> params = new HashMap<>();
+            for (String kv : parts[2].split(",")) {
+                int eq = kv.indexOf('=');
+                if (eq <= 0) {
+                    return null;
+                }
+                params.put(kv.substring(0, eq), Integer.parseInt(kv.substring(eq + 1)));
+            }
+            return new EncodedHash(parts[1], params, DECODER.decode(parts[3]), DECODER.decode(parts[4]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    int param(String name) {
+        Integer value = params.get(name);
+        return value != null ? value : -1;
+    }
+}
@@ -0,0 +1,138 @@
+package ar.edu.up.bugtracker.service.password;
+
+import ar.edu.up.bugtracker.exceptions.BusinessException;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Medición de costo de login para elegir los parámetros de password.* en cada equipo.
+ * Para cada configuración informa la latencia de un hash aislado y cuántos logins por segundo
+ * resuelve el pool acotado con muchos clientes concurrentes (incluidos los rechazos por cola llena).
+ * Se ejecuta con el argumento --benchmark-password y no necesita base de datos.
+ */
+public final class PasswordBenchmark {
+
+    private static final int MUESTRAS = 5;
+    private static final long DURACION_MS = 3000;
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private PasswordBenchmark() {
+    }
+
+    public static void run(Properties p, PrintStream out) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxParalelos = intProp(p, "password.maxParalelos", Math.max(1, cores / 2));
+        int maxEnEspera = intProp(p, "password.maxEnEspera", 32);
+        int clientes = maxParalelos + maxEnEspera;
+
+        List<PasswordHasher> configuraciones = new ArrayList<>();
+        configuraciones.add(new Pbkdf2PasswordHasher(210_000));
+        configuraciones.add(new Pbkdf2PasswordHasher(600_000));
+        configuraciones.add(new Pbkdf2PasswordHasher(1_000_000));
+        configuraciones.add(new ScryptPasswordHasher(14, 8, 1));
+        configuraciones.add(new ScryptPasswordHasher(15, 8, 3));
+        configuraciones.add(new ScryptPasswordHasher(16, 8, 1));
+        configuraciones.add(new ScryptPasswordHasher(17, 8, 1));
+
+        out.printf("núcleos=%d, maxParalelos=%d, maxEnEspera=%d, clientes=%d%n",
+                cores, maxParalelos, maxEnEspera, clientes);
+        out.printf("%-32s %12s %12s %12s %12s%n", "configuración", "hash (ms)", "logins/s", "rechazos/s", "p95 (ms)");
+
+        for (PasswordHasher hasher : configuraciones) {
+            String stored = hasher.hash(PASSWORD); // también sirve de calentamiento
+            double latencia = medianaMs(hasher, stored);
+
+            PasswordHashing hashing = new PasswordHashing(hasher, List.of(), maxParalelos, maxEnEspera);
+            try {
+                Throughput t = throughput(hashing, stored, clientes);
+                out.printf("%-32s %12.1f %12.1f %12.1f %12.1f%n",
+                        hasher, latencia, t.okPorSegundo, t.rechazosPorSegundo, t.p95Ms);
+            } finally {
+                hashing.shutdown();
+            }
+        }
+    }
+
+    private static double medianaMs(PasswordHasher hasher, String stored) {
+        double[] tiempos = new double[MUESTRAS];
+        for (int i = 0; i < MUESTRAS; i++) {
+            long t0 = System.nanoTime();
+            if (!hasher.verify(PASSWORD, stored)) {
+                throw new IllegalStateException("La verificación falló para " + hasher);
+            }
+            tiempos[i] = (System.nanoTime() - t0) / 1e6;
+        }
+        Arrays.sort(tiempos);
+        return tiempos[MUESTRAS / 2];
+    }
+
+    private static Throughput throughput(PasswordHashing hashing, String stored, int clientes) {
+        AtomicLong ok = new AtomicLong();
+        AtomicLong rechazos = new AtomicLong();
+        List<Long> latencias = Collections.synchronizedList(new ArrayList<>());
+        long fin = System.currentTimeMillis() + DURACION_MS;
+
+        ExecutorService pool = Executors.newFixedThreadPool(clientes);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < clientes; i++) {
+            pool.execute(() -> {
+                while (System.currentTimeMillis() < fin) {
+                    long t0 = System.nanoTime();
+                    try {
+                        hashing.verify(PASSWORD, stored, null);
+                        ok.incrementAndGet();
+                        latencias.add(System.nanoTime() - t0);
+                    } catch (BusinessException e) {
+                        // Cola llena: el cliente reintenta enseguida, como haría un usuario insistente
+                        rechazos.incrementAndGet();
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(DURACION_MS + 60_000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Throughput t = new Throughput();
+        t.okPorSegundo = ok.get() / segundos;
+        t.rechazosPorSegundo = rechazos.get() / segundos;
+        synchronized (latencias) {
+            if (!latencias.isEmpty()) {
+                List<Long> ordenadas = new ArrayList<>(latencias);
+                ordenadas.sort(null);
+                t.p95Ms = ordenadas.get((int) Math.min(ordenadas.size() - 1, Math.ceil(ordenadas.size() * 0.95) - 1)) / 1e6;
+            }
+        }
+        return t;
+    }
+
+    private static int intProp(Properties p, String key, int defaultValue) {
+        String value = p.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static final class Throughput {
+        double okPorSegundo;
+        double rechazosPorSegundo;
+        double p95Ms;
+    }
+}
@@ -0,0 +1,19 @@
+package ar.edu.up.bugtracker.service.password;
+
+/**
+ * Algoritmo de hash de contraseñas. Cada hash se guarda codificado con su algoritmo y parámetros
+ * ({@code $id$parámetros$salt$hash}), así se pueden cambiar los costos sin invalidar los hashes viejos.
+ */
+public interface PasswordHasher {
+
+    /** Identificador que encabeza el hash codificado, por ejemplo "pbkdf2-sha256". */
+    String id();
+
+    /** Hash nuevo con salt aleatorio y los parámetros configurados. */
+    String hash(String password);
+
+    boolean verify(String password, String encoded);
+
+    /** true si el hash codificado usa parámetros distintos de los configurados. */
+    boolean needsRehash(String encoded);
+}
@@ -0,0 +1,195 @@
+package ar.edu.up.bugtracker.service.password;
+
+import ar.edu.up.bugtracker.exceptions.AppException;
+import ar.edu.up.bugtracker.exceptions.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Punto único para generar y verificar hashes de contraseñas.
+ * Los hashes nuevos usan el algoritmo configurado; los existentes se verifican con el algoritmo
+ * que indica su prefijo, incluidos los SHA-256 con salt en columna aparte de versiones anteriores.
+ * Todo el cálculo corre en un pool acotado: con muchos logins simultáneos los pedidos esperan en una
+ * cola corta y, si se llena, se rechazan en vez de ocupar todos los núcleos.
+ */
+public class PasswordHashing {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final PasswordHasher actual;
+    private final Map<String, PasswordHasher> hashers = new HashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param actual        algoritmo para los hashes nuevos
+     * @param soportados    otros algoritmos que se aceptan al verificar
+     * @param maxParalelos  cálculos simultáneos como máximo
+     * @param maxEnEspera   pedidos que pueden esperar turno antes de rechazar
+     */
+    public PasswordHashing(PasswordHasher actual, List<PasswordHasher> soportados, int maxParalelos, int maxEnEspera) {
+        this.actual = actual;
+        for (PasswordHasher h : soportados) {
+            hashers.put(h.id(), h);
+        }
+        hashers.put(actual.id(), actual);
+
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxParalelos, maxParalelos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxEnEspera), r -> {
+                    Thread t = new Thread(r, "password-hash-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Arma la configuración desde local.properties (todas las claves son opcionales):
+     * password.algoritmo (scrypt | pbkdf2), password.scrypt.ln / .r / .p, password.pbkdf2.iteraciones,
+     * password.maxParalelos y password.maxEnEspera.
+     */
+    public static PasswordHashing fromProperties(Properties p) {
+        ScryptPasswordHasher scrypt = new ScryptPasswordHasher(
+                intProp(p, "password.scrypt.ln", 15), intProp(p, "password.scrypt.r", 8), intProp(p, "password.scrypt.p", 3));
+        Pbkdf2PasswordHasher pbkdf2 = new Pbkdf2PasswordHasher(intProp(p, "password.pbkdf2.iteraciones", 600_000));
+
+        String algoritmo = p.getProperty("password.algoritmo", ScryptPasswordHasher.ID).trim();
+        PasswordHasher actual;
+        if (ScryptPasswordHasher.ID.equalsIgnoreCase(algoritmo)) {
+            actual = scrypt;
+        } else if ("pbkdf2".equalsIgnoreCase(algoritmo) || Pbkdf2PasswordHasher.ID.equalsIgnoreCase(algoritmo)) {
+            actual = pbkdf2;
+        } else {
+            throw new IllegalStateException("password.algoritmo desconocido: " + algoritmo);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new PasswordHashing(actual, List.of(scrypt, pbkdf2),
+                intProp(p, "password.maxParalelos", Math.max(1, cores / 2)),
+                intProp(p, "password.maxEnEspera", 32));
+    }
+
+    public PasswordHasher getActual() {
+        return actual;
+    }
+
+    /** Hash nuevo con el algoritmo actual. */
+    public String hash(String password) {
+        return run(() -> actual.hash(password));
+    }
+
+    /**
+     * Verifica la contraseña contra lo guardado.
+     * @param legacySalt salt de la columna password_salt, sólo para hashes anteriores a este formato
+     */
+    public Verification verify(String password, String stored, String legacySalt) {
+        if (password == null || stored == null || stored.isEmpty()) {
+            return Verification.INVALID;
+        }
+        String id = EncodedHash.idOf(stored);
+        if (id == null) {
+            boolean ok = verifyLegacy(password, stored, legacySalt);
+            return ok ? Verification.VALID_REHASH : Verification.INVALID;
+        }
+        PasswordHasher hasher = hashers.get(id);
+        if (hasher == null) {
+            return Verification.INVALID;
+        }
+        boolean ok = run(() -> hasher.verify(password, stored));
+        if (!ok) {
+            return Verification.INVALID;
+        }
+        return hasher != actual || actual.needsRehash(stored) ? Verification.VALID_REHASH : Verification.VALID;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new BusinessException("Hay demasiados inicios de sesión en curso, intentá de nuevo en unos segundos");
+        }
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AppException("Verificación de contraseña interrumpida", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new AppException("La verificación de contraseña tardó demasiado", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AppException("Error generando hash de password", cause);
+        }
+    }
+
+    /** Formato anterior: Base64(SHA-256(salt || password)) con el salt en su propia columna. */
+    private static boolean verifyLegacy(String password, String storedHash, String saltBase64) {
+        if (saltBase64 == null || saltBase64.isEmpty()) {
+            return false;
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(Base64.getDecoder().decode(saltBase64));
+            byte[] actual = md.digest(password.getBytes(StandardCharsets.UTF_8));
+            return MessageDigest.isEqual(actual, Base64.getDecoder().decode(storedHash));
+        } catch (IllegalArgumentException e) {
+            return false;
+        } catch (Exception e) {
+            throw new AppException("Error verificando password", e);
+        }
+    }
+
+    private static int intProp(Properties p, String key, int defaultValue) {
+        String value = p.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Valor inválido para " + key + ": " + value);
+        }
+    }
+
+    /** Resultado de verificar: si la contraseña es correcta y si conviene regenerar el hash. */
+    public enum Verification {
+        INVALID(false, false),
+        VALID(true, false),
+        VALID_REHASH(true, true);
+
+        private final boolean valid;
+        private final boolean rehashNeeded;
+
+        Verification(boolean valid, boolean rehashNeeded) {
+            this.valid = valid;
+            this.rehashNeeded = rehashNeeded;
+        }
+
+        public boolean isValid() { return valid; }
+        public boolean isRehashNeeded() { return rehashNeeded; }
+    }
+}
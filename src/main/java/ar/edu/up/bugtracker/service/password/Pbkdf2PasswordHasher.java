@@ -0,0 +1,72 @@
+package ar.edu.up.bugtracker.service.password;
+
+import ar.edu.up.bugtracker.exceptions.AppException;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * PBKDF2 con HMAC-SHA256 del JDK. Costo sólo de CPU, proporcional a las iteraciones.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    public static final String ID = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iteraciones de PBKDF2 inválidas: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return EncodedHash.encode(ID, "i=" + iterations, salt, derive(password, salt, iterations, HASH_BYTES));
+    }
+
+    @Override
+    public boolean verify(String password, String encoded) {
+        EncodedHash h = EncodedHash.parse(encoded);
+        if (h == null || !ID.equals(h.id) || h.param("i") < 1 || h.hash.length == 0) {
+            return false;
+        }
+        return MessageDigest.isEqual(h.hash, derive(password, h.salt, h.param("i"), h.hash.length));
+    }
+
+    @Override
+    public boolean needsRehash(String encoded) {
+        EncodedHash h = EncodedHash.parse(encoded);
+        return h == null || !ID.equals(h.id) || h.param("i") != iterations
+                || h.salt.length != SALT_BYTES || h.hash.length != HASH_BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return ID + "(i=" + iterations + ")";
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (Exception e) {
+            throw new AppException("Error generando hash de password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
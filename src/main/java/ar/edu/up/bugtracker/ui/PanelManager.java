@@ -6,6 +6,7 @@ import ar.edu.up.bugtracker.controller.ProyectoController;
 import ar.edu.up.bugtracker.controller.UserController;
 import ar.edu.up.bugtracker.controller.UserRoleController;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
 import ar.edu.up.bugtracker.ui.incidencias.IncidenciaDetailPanel;
 import ar.edu.up.bugtracker.ui.projects.ProyectoDetailPanel;
 import ar.edu.up.bugtracker.ui.projects.ProyectoMetricasPanel;
@@ -26,6 +27,7 @@ public class PanelManager extends JFrame {
     private final ProyectoController proyectoController;
     private final IncidenciaController incidenciaController;
     private final ComentarioController comentarioController;
+    private final BusEventos bus;
 
     private UserLoggedInDto currentUser;
 
@@ -44,13 +46,15 @@ public class PanelManager extends JFrame {
     private IncidenciaDetailPanel incidenciaDetailPanel;
 
     public PanelManager(UserController userController, UserRoleController roleController, ProyectoController proyectoController,
-                       IncidenciaController incidenciaController, ComentarioController comentarioController) {
+                       IncidenciaController incidenciaController, ComentarioController comentarioController,
+                       BusEventos bus) {
         super("BugTracker");
         this.userController = userController;
         this.roleController = roleController;
         this.proyectoController = proyectoController;
         this.incidenciaController = incidenciaController;
         this.comentarioController = comentarioController;
+        this.bus = bus;
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setMinimumSize(new Dimension(900, 600));
@@ -102,7 +106,7 @@ public class PanelManager extends JFrame {
     }
 
     public void showHome() {
-        homePanel = new HomePanel(proyectoController, currentUser, this::showProyectoDetail);
+        homePanel = new HomePanel(proyectoController, currentUser, this::showProyectoDetail, bus);
         swapCenter(homePanel);
     }
 
@@ -154,7 +158,8 @@ public class PanelManager extends JFrame {
                 userController,
                 currentUser,
                 proyectoId,
-                this::showIncidenciaDetail
+                this::showIncidenciaDetail,
+                bus
         );
         swapCenter(proyectoDetailPanel);
     }
@@ -174,7 +179,8 @@ public class PanelManager extends JFrame {
                     userController,
                     currentUser, 
                     incidenciaId,
-                    proyectoId != null ? () -> showProyectoDetail(proyectoId) : this::showHome
+                    proyectoId != null ? () -> showProyectoDetail(proyectoId) : this::showHome,
+                    bus
             );
             swapCenter(incidenciaDetailPanel);
         } catch (Exception e) {
@@ -190,9 +196,9 @@ public class PanelManager extends JFrame {
         }
         proyectoMetricasPanel = new ProyectoMetricasPanel(
                 proyectoController,
-                incidenciaController,
                 proyectoId,
-                this::showProyectoDetail
+                this::showProyectoDetail,
+                bus
         );
         swapCenter(proyectoMetricasPanel);
     }
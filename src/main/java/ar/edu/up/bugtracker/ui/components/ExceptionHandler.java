@@ -49,6 +49,10 @@ public class ExceptionHandler {
             return "Acceso denegado";
         } else if (ex instanceof AuthException) {
             return "Autenticación requerida";
+        } else if (ex instanceof ConflictException) {
+            return "Modificada por otro usuario";
+        } else if (ex instanceof LockContentionException) {
+            return "Base de datos ocupada";
         } else {
             return "Error";
         }
@@ -58,7 +62,8 @@ public class ExceptionHandler {
     public static int getMessageType(Exception ex) {
         if (ex instanceof ValidationException) {
             return JOptionPane.WARNING_MESSAGE;
-        } else if (ex instanceof ForbiddenException || ex instanceof AuthException) {
+        } else if (ex instanceof ForbiddenException || ex instanceof AuthException || ex instanceof ConflictException
+                || ex instanceof LockContentionException) {
             return JOptionPane.WARNING_MESSAGE;
         } else {
             return JOptionPane.ERROR_MESSAGE;
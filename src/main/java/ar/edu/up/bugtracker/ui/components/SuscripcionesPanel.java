@@ -0,0 +1,58 @@
+package ar.edu.up.bugtracker.ui.components;
+
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+
+import javax.swing.*;
+import java.awt.event.HierarchyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Suscripciones al bus de eventos atadas a la vida de un panel: los handlers corren en el EDT y se dan
+ * de baja cuando el panel deja de mostrarse (PanelManager reemplaza la vista central en cada navegación).
+ */
+public class SuscripcionesPanel {
+
+    // Ráfagas de eventos (p. ej. una importación por lotes) se resuelven con una sola recarga
+    private static final int DEMORA_RECARGA_MS = 250;
+
+    private final BusEventos bus;
+    private final List<BusEventos.Suscripcion<?>> suscripciones = new ArrayList<>();
+    private boolean mostrado;
+
+    public SuscripcionesPanel(BusEventos bus, JComponent panel) {
+        this.bus = bus;
+        panel.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) == 0) {
+                return;
+            }
+            if (panel.isDisplayable()) {
+                mostrado = true;
+            } else if (mostrado) {
+                cerrar();
+            }
+        });
+    }
+
+    public <T> void suscribir(Class<T> tipo, Consumer<? super T> handler) {
+        if (bus == null) {
+            return;
+        }
+        suscripciones.add(bus.suscribir(tipo, SwingUtilities::invokeLater, handler));
+    }
+
+    /** Acción agrupada: varias llamadas seguidas terminan en una sola ejecución. */
+    public static Runnable agrupada(Runnable accion) {
+        Timer timer = new Timer(DEMORA_RECARGA_MS, e -> accion.run());
+        timer.setRepeats(false);
+        return timer::restart;
+    }
+
+    private void cerrar() {
+        for (BusEventos.Suscripcion<?> suscripcion : suscripciones) {
+            suscripcion.close();
+        }
+        suscripciones.clear();
+    }
+}
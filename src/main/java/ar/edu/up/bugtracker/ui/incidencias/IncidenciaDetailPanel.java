@@ -3,13 +3,29 @@ package ar.edu.up.bugtracker.ui.incidencias;
 import ar.edu.up.bugtracker.controller.ComentarioController;
 import ar.edu.up.bugtracker.controller.IncidenciaController;
 import ar.edu.up.bugtracker.controller.UserController;
+import ar.edu.up.bugtracker.exceptions.ConflictException;
 import ar.edu.up.bugtracker.models.Comentario;
 import ar.edu.up.bugtracker.models.Incidencia;
 import ar.edu.up.bugtracker.models.IncidenciaEstado;
 import ar.edu.up.bugtracker.models.IncidenciaVersion;
+import ar.edu.up.bugtracker.models.detalle.CambioCampo;
+import ar.edu.up.bugtracker.models.detalle.DetalleCambioEstado;
+import ar.edu.up.bugtracker.models.detalle.DetalleCreacion;
+import ar.edu.up.bugtracker.models.detalle.DetalleEdicion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersion;
 import ar.edu.up.bugtracker.models.Usuario;
 import ar.edu.up.bugtracker.service.dto.UserDetailDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+import ar.edu.up.bugtracker.service.eventos.ComentarioAgregado;
+import ar.edu.up.bugtracker.service.eventos.ComentarioEditado;
+import ar.edu.up.bugtracker.service.eventos.ComentarioEliminado;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaActualizada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaEliminada;
+import ar.edu.up.bugtracker.service.eventos.IncidenciaEstadoCambiado;
+import ar.edu.up.bugtracker.service.eventos.IncidenciasEstadoCambiado;
+import ar.edu.up.bugtracker.ui.components.ExceptionHandler;
+import ar.edu.up.bugtracker.ui.components.SuscripcionesPanel;
 import ar.edu.up.bugtracker.ui.components.SwingWorkerFactory;
 
 import javax.swing.*;
@@ -52,7 +68,8 @@ public class IncidenciaDetailPanel extends JPanel {
                                 UserController userController,
                                 UserLoggedInDto currentUser,
                                 Long incidenciaId,
-                                Runnable onVolver) {
+                                Runnable onVolver,
+                                BusEventos bus) {
         this.incidenciaController = incidenciaController;
         this.comentarioController = comentarioController;
         this.userController = userController;
@@ -60,9 +77,46 @@ public class IncidenciaDetailPanel extends JPanel {
         this.incidenciaId = incidenciaId;
         this.onVolver = onVolver;
         buildUI();
+        suscribirEventos(bus);
         loadIncidencia();
     }
 
+    // La pantalla se actualiza con los eventos de la incidencia, también tras las acciones propias
+    private void suscribirEventos(BusEventos bus) {
+        SuscripcionesPanel suscripciones = new SuscripcionesPanel(bus, this);
+        suscripciones.suscribir(IncidenciaActualizada.class, evento -> {
+            if (incidenciaId.equals(evento.getIncidenciaId())) loadIncidencia();
+        });
+        suscripciones.suscribir(IncidenciaEstadoCambiado.class, evento -> {
+            if (incidenciaId.equals(evento.getIncidenciaId())) loadIncidencia();
+        });
+        suscripciones.suscribir(IncidenciasEstadoCambiado.class, evento -> {
+            if (evento.getIncidenciaIds().contains(incidenciaId)) loadIncidencia();
+        });
+        suscripciones.suscribir(ComentarioAgregado.class, evento -> {
+            if (incidenciaId.equals(evento.getIncidenciaId()) && incidenciaActual != null) {
+                loadHistorial(incidenciaActual);
+            }
+        });
+        suscripciones.suscribir(ComentarioEditado.class, evento -> {
+            if (incidenciaId.equals(evento.getIncidenciaId()) && incidenciaActual != null) {
+                loadHistorial(incidenciaActual);
+            }
+        });
+        suscripciones.suscribir(ComentarioEliminado.class, evento -> {
+            if (incidenciaId.equals(evento.getIncidenciaId()) && incidenciaActual != null) {
+                loadHistorial(incidenciaActual);
+            }
+        });
+        suscripciones.suscribir(IncidenciaEliminada.class, evento -> {
+            if (!incidenciaId.equals(evento.getIncidenciaId())) return;
+            JOptionPane.showMessageDialog(this, "La incidencia fue eliminada.");
+            if (onVolver != null) {
+                onVolver.run();
+            }
+        });
+    }
+
     private void buildUI() {
         setLayout(new BorderLayout());
         setBorder(new EmptyBorder(12, 12, 12, 12));
@@ -114,9 +168,8 @@ public class IncidenciaDetailPanel extends JPanel {
                 }
                 
                 Long estadoId = null;
-                if (incidencia.getCurrentVersion() != null && 
-                    incidencia.getCurrentVersion().getEstado() != null) {
-                    estadoId = incidencia.getCurrentVersion().getEstado().getId();
+                if (incidencia.getEstado() != null) {
+                    estadoId = incidencia.getEstado().getId();
                 }
                 
                 return new IncidenciaData(incidencia, responsableId, estadoId);
@@ -389,10 +442,10 @@ public class IncidenciaDetailPanel extends JPanel {
             return; // No cambió
         }
 
-        SwingWorkerFactory.createVoidWithAutoErrorHandling(
-            this,
+        Incidencia vista = incidenciaActual;
+        guardar(
             () -> {
-                Incidencia incidenciaUpdate = new Incidencia();
+                Incidencia incidenciaUpdate = pedidoDeEdicion(vista);
                 if (nuevoResponsableId != null) {
                     Usuario responsable = new Usuario();
                     responsable.setId(nuevoResponsableId);
@@ -400,10 +453,10 @@ public class IncidenciaDetailPanel extends JPanel {
                 } else {
                     incidenciaUpdate.setResponsable(null);
                 }
-                incidenciaController.update(incidenciaId, incidenciaUpdate);
+                incidenciaController.update(incidenciaId, incidenciaUpdate, currentUser);
             },
-            () -> loadIncidencia() // Recargar incidencia e historial
-        ).execute();
+            () -> {} // La recarga llega con el evento IncidenciaActualizada
+        );
     }
 
     private void onEstadoChanged() {
@@ -413,19 +466,43 @@ public class IncidenciaDetailPanel extends JPanel {
         if (nuevoEstado == null || nuevoEstado.getId() == null) return;
         
         // Verificar si realmente cambió
-        Long estadoActualId = incidenciaActual.getCurrentVersion() != null 
-                && incidenciaActual.getCurrentVersion().getEstado() != null
-                ? incidenciaActual.getCurrentVersion().getEstado().getId() 
+        Long estadoActualId = incidenciaActual.getEstado() != null
+                ? incidenciaActual.getEstado().getId()
                 : null;
         
         if (nuevoEstado.getId().equals(estadoActualId)) {
             return; // No cambió
         }
 
-        SwingWorkerFactory.createVoidWithAutoErrorHandling(
-            this,
-            () -> incidenciaController.cambiarEstado(incidenciaId, nuevoEstado.getId(), currentUser),
-            () -> loadIncidencia() // Recargar incidencia e historial
+        Long versionVistaId = incidenciaActual.getCurrentVersion() != null
+                ? incidenciaActual.getCurrentVersion().getId()
+                : null;
+        guardar(
+            () -> incidenciaController.cambiarEstado(incidenciaId, nuevoEstado.getId(), versionVistaId, currentUser),
+            () -> {} // La recarga llega con el evento IncidenciaEstadoCambiado
+        );
+    }
+
+    // La edición viaja con la versión que el usuario tenía a la vista, para detectar cambios de otros
+    private static Incidencia pedidoDeEdicion(Incidencia vista) {
+        Incidencia pedido = new Incidencia();
+        pedido.setVersion(vista.getVersion());
+        pedido.setCurrentVersion(vista.getCurrentVersion());
+        return pedido;
+    }
+
+    // Ante un conflicto con otro usuario se muestra el aviso y se recarga para ver los valores actuales
+    private void guardar(Runnable accion, Runnable onSuccess) {
+        SwingWorkerFactory.createVoid(
+            accion,
+            onSuccess,
+            error -> {
+                JOptionPane.showMessageDialog(this, ExceptionHandler.getErrorMessage(error),
+                        ExceptionHandler.getErrorTitle(error), ExceptionHandler.getMessageType(error));
+                if (error instanceof ConflictException) {
+                    loadIncidencia();
+                }
+            }
         ).execute();
     }
 
@@ -611,8 +688,8 @@ public class IncidenciaDetailPanel extends JPanel {
             itemPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
 
             if (item.version != null) {
-                // Es un cambio de estado
-                JLabel tipoLabel = new JLabel("Cambio de estado");
+                // Es una versión: creación, cambio de estado o edición de campos
+                JLabel tipoLabel = new JLabel(tituloVersion(item.version.getDetalles()));
                 tipoLabel.setFont(tipoLabel.getFont().deriveFont(Font.BOLD, 12f));
                 tipoLabel.setForeground(new Color(0, 100, 200));
                 itemPanel.add(tipoLabel, BorderLayout.NORTH);
@@ -633,7 +710,7 @@ public class IncidenciaDetailPanel extends JPanel {
                     }
                 }
                 
-                JLabel contenidoLabel = new JLabel("<html>Estado: <b>" + estadoNombre + "</b><br>" +
+                JLabel contenidoLabel = new JLabel("<html>" + describirVersion(item.version.getDetalles(), estadoNombre) +
                         "Por: " + usuarioNombre + "<br>" +
                         "Fecha: " + item.fecha.format(formatter) + "</html>");
                 contenidoLabel.setBorder(new EmptyBorder(3, 15, 0, 0));
@@ -673,6 +750,58 @@ public class IncidenciaDetailPanel extends JPanel {
         historialPanel.repaint();
     }
 
+    private static String tituloVersion(DetalleVersion detalle) {
+        if (detalle instanceof DetalleCreacion) {
+            return "Creación";
+        }
+        if (detalle instanceof DetalleEdicion) {
+            return "Edición";
+        }
+        return "Cambio de estado";
+    }
+
+    /** Cuerpo HTML de la versión según su detalle; sin detalle se muestra sólo el estado. */
+    private static String describirVersion(DetalleVersion detalle, String estadoNombre) {
+        if (detalle instanceof DetalleCambioEstado) {
+            DetalleCambioEstado cambio = (DetalleCambioEstado) detalle;
+            return "Estado: " + escapeHtml(cambio.getEstadoAnterior()) + " → <b>" + escapeHtml(cambio.getEstadoNuevo()) + "</b><br>";
+        }
+        if (detalle instanceof DetalleEdicion) {
+            StringBuilder sb = new StringBuilder();
+            for (CambioCampo cambio : ((DetalleEdicion) detalle).getCambios()) {
+                sb.append(nombreCampo(cambio.getCampo())).append(": ")
+                        .append(valorCampo(cambio.getAnterior())).append(" → <b>")
+                        .append(valorCampo(cambio.getNuevo())).append("</b><br>");
+            }
+            return sb.toString();
+        }
+        return "Estado: <b>" + escapeHtml(estadoNombre) + "</b><br>";
+    }
+
+    private static String nombreCampo(String campo) {
+        if (CambioCampo.DESCRIPCION.equals(campo)) {
+            return "Descripción";
+        }
+        if (CambioCampo.ESTIMACION_HORAS.equals(campo)) {
+            return "Estimación (horas)";
+        }
+        if (CambioCampo.RESPONSABLE.equals(campo)) {
+            return "Responsable";
+        }
+        return escapeHtml(campo);
+    }
+
+    private static String valorCampo(String valor) {
+        return valor == null || valor.isEmpty() ? "<i>(vacío)</i>" : escapeHtml(valor);
+    }
+
+    private static String escapeHtml(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
     private static class HistorialItem {
         LocalDateTime fecha;
         IncidenciaVersion version;
@@ -691,20 +820,20 @@ public class IncidenciaDetailPanel extends JPanel {
 
     private void guardarDescripcion() {
         String nuevaDescripcion = descripcionField.getText();
+        Incidencia vista = incidenciaActual;
         
-        SwingWorkerFactory.createVoidWithAutoErrorHandling(
-            this,
+        guardar(
             () -> {
-                Incidencia incidenciaUpdate = new Incidencia();
+                Incidencia incidenciaUpdate = pedidoDeEdicion(vista);
                 incidenciaUpdate.setDescripcion(nuevaDescripcion);
-                incidenciaController.update(incidenciaId, incidenciaUpdate);
+                incidenciaController.update(incidenciaId, incidenciaUpdate, currentUser);
             },
             () -> {
                 // Actualizar descripción original y deshabilitar botón
                 descripcionOriginal = nuevaDescripcion;
                 btnGuardarDescripcion.setEnabled(false);
             }
-        ).execute();
+        );
     }
 
     private void enviarComentario() {
@@ -740,8 +869,7 @@ public class IncidenciaDetailPanel extends JPanel {
                 // Remover focus para que el placeholder se muestre correctamente
                 comentarioTextArea.setFocusable(false);
                 comentarioTextArea.setFocusable(true);
-                // Recargar historial para mostrar el nuevo comentario
-                loadHistorial(incidenciaActual);
+                // El historial se recarga con el evento ComentarioAgregado
             }
         ).execute();
     }
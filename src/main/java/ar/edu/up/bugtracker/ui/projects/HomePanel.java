@@ -2,6 +2,7 @@ package ar.edu.up.bugtracker.ui.projects;
 
 import ar.edu.up.bugtracker.controller.ProyectoController;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,9 +12,10 @@ public class HomePanel extends JPanel {
 
     private ProyectosListPanel proyectosListPanel;
 
-    public HomePanel(ProyectoController proyectoController, UserLoggedInDto currentUser, Consumer<Long> onViewProyecto) {
+    public HomePanel(ProyectoController proyectoController, UserLoggedInDto currentUser, Consumer<Long> onViewProyecto,
+                     BusEventos bus) {
         setLayout(new BorderLayout());
-        proyectosListPanel = new ProyectosListPanel(proyectoController, currentUser, onViewProyecto);
+        proyectosListPanel = new ProyectosListPanel(proyectoController, currentUser, onViewProyecto, bus);
         add(proyectosListPanel, BorderLayout.CENTER);
     }
 }
@@ -3,16 +3,26 @@ package ar.edu.up.bugtracker.ui.projects;
 import ar.edu.up.bugtracker.controller.IncidenciaController;
 import ar.edu.up.bugtracker.controller.ProyectoController;
 import ar.edu.up.bugtracker.controller.UserController;
-import ar.edu.up.bugtracker.models.Incidencia;
+import ar.edu.up.bugtracker.dao.Slice;
+import ar.edu.up.bugtracker.dao.SliceRequest;
 import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.service.dto.IncidenciaResumenDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+import ar.edu.up.bugtracker.service.eventos.CambioEnIncidencias;
+import ar.edu.up.bugtracker.service.export.ExportFormato;
 import ar.edu.up.bugtracker.ui.components.BaseListPanel;
+import ar.edu.up.bugtracker.ui.components.ExceptionHandler;
+import ar.edu.up.bugtracker.ui.components.SuscripcionesPanel;
 import ar.edu.up.bugtracker.ui.components.SwingWorkerFactory;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.AbstractTableModel;
 import java.awt.*;
+import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -21,6 +31,9 @@ import java.util.function.IntConsumer;
 
 public class ProyectoDetailPanel extends JPanel {
 
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_RESULTADOS_BUSQUEDA = 100;
+
     private final ProyectoController proyectoController;
     private final IncidenciaController incidenciaController;
     private final UserController userController;
@@ -33,13 +46,16 @@ public class ProyectoDetailPanel extends JPanel {
     private Proyecto proyecto;
     private JLabel lblNombre;
     private JLabel lblDescripcion;
+    private JButton btnExportar;
+    private JButton btnImportar;
 
     public ProyectoDetailPanel(ProyectoController proyectoController,
                                IncidenciaController incidenciaController,
                                UserController userController,
                                UserLoggedInDto currentUser,
                                Long proyectoId,
-                               Consumer<Long> onViewIncidencia) {
+                               Consumer<Long> onViewIncidencia,
+                               BusEventos bus) {
         this.proyectoController = proyectoController;
         this.incidenciaController = incidenciaController;
         this.userController = userController;
@@ -48,9 +64,20 @@ public class ProyectoDetailPanel extends JPanel {
         this.isAdmin = currentUser != null && "ADMIN".equalsIgnoreCase(currentUser.getPerfil());
         this.onViewIncidencia = onViewIncidencia;
         buildUI();
+        suscribirEventos(bus);
         loadProyecto();
     }
 
+    // Altas, cambios y bajas de incidencias del proyecto (de esta pantalla o de otra) recargan el listado
+    private void suscribirEventos(BusEventos bus) {
+        Runnable recargar = SuscripcionesPanel.agrupada(this::loadIncidencias);
+        new SuscripcionesPanel(bus, this).suscribir(CambioEnIncidencias.class, evento -> {
+            if (proyectoId.equals(evento.getProyectoId())) {
+                recargar.run();
+            }
+        });
+    }
+
     private void buildUI() {
         setLayout(new BorderLayout());
         setBorder(new EmptyBorder(12, 12, 12, 12));
@@ -106,6 +133,35 @@ public class ProyectoDetailPanel extends JPanel {
         btnCrearIncidencia.setAlignmentX(Component.CENTER_ALIGNMENT);
         btnCrearIncidencia.addActionListener(e -> onCreateIncidenciaClick());
         botonesPanel.add(btnCrearIncidencia);
+
+        botonesPanel.add(Box.createVerticalStrut(5));
+
+        JButton btnCambiarEstado = new JButton("Cambiar estado");
+        btnCambiarEstado.setPreferredSize(new Dimension(120, 30));
+        btnCambiarEstado.setMaximumSize(new Dimension(120, 30));
+        btnCambiarEstado.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnCambiarEstado.addActionListener(e -> onCambiarEstadoClick());
+        botonesPanel.add(btnCambiarEstado);
+
+        botonesPanel.add(Box.createVerticalStrut(5));
+
+        btnExportar = new JButton("Exportar");
+        btnExportar.setPreferredSize(new Dimension(120, 30));
+        btnExportar.setMaximumSize(new Dimension(120, 30));
+        btnExportar.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnExportar.addActionListener(e -> onExportarClick());
+        botonesPanel.add(btnExportar);
+
+        if (isAdmin) {
+            botonesPanel.add(Box.createVerticalStrut(5));
+
+            btnImportar = new JButton("Importar CSV");
+            btnImportar.setPreferredSize(new Dimension(120, 30));
+            btnImportar.setMaximumSize(new Dimension(120, 30));
+            btnImportar.setAlignmentX(Component.CENTER_ALIGNMENT);
+            btnImportar.addActionListener(e -> onImportarClick());
+            botonesPanel.add(btnImportar);
+        }
         
         proyectoInfoPanel.add(botonesPanel, BorderLayout.EAST);
         
@@ -164,23 +220,167 @@ public class ProyectoDetailPanel extends JPanel {
                 userController,
                 currentUser,
                 proyectoId,
-                this::loadIncidencias
+                null
         );
         dlg.setVisible(true);
     }
 
+    private void onCambiarEstadoClick() {
+        if (proyecto == null) return;
+
+        List<Long> ids = incidenciasListPanel.getSelectedIds();
+        if (ids.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Seleccioná una o más incidencias de la lista.");
+            return;
+        }
+
+        SwingWorkerFactory.createWithAutoErrorHandling(
+            this,
+            () -> incidenciaController.getAllEstados(),
+            estados -> {
+                if (estados == null || estados.isEmpty()) return;
+                String[] nombres = new String[estados.size()];
+                for (int i = 0; i < nombres.length; i++) {
+                    nombres[i] = estados.get(i).getNombre();
+                }
+                Object elegido = JOptionPane.showInputDialog(this,
+                        "Nuevo estado para " + ids.size() + " incidencia(s):", "Cambiar estado",
+                        JOptionPane.QUESTION_MESSAGE, null, nombres, nombres[0]);
+                if (elegido == null) return;
+                Long estadoId = estados.get(Arrays.asList(nombres).indexOf(elegido)).getId();
+
+                // La lista se actualiza sola con el evento del cambio
+                SwingWorkerFactory.createWithAutoErrorHandling(
+                    this,
+                    () -> incidenciaController.cambiarEstado(ids, estadoId, currentUser),
+                    cambiadas -> JOptionPane.showMessageDialog(this, cambiadas + " incidencia(s) cambiada(s).")
+                ).execute();
+            }
+        ).execute();
+    }
+
+    private void onExportarClick() {
+        if (proyecto == null) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Exportar proyecto");
+        chooser.setAcceptAllFileFilterUsed(false);
+        FileNameExtensionFilter csv = new FileNameExtensionFilter("CSV (*.csv)", "csv");
+        FileNameExtensionFilter json = new FileNameExtensionFilter("JSON (*.json)", "json");
+        chooser.addChoosableFileFilter(csv);
+        chooser.addChoosableFileFilter(json);
+        chooser.setFileFilter(csv);
+        chooser.setSelectedFile(new File("proyecto-" + proyectoId + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        ExportFormato formato = chooser.getFileFilter() == json ? ExportFormato.JSON : ExportFormato.CSV;
+        String nombre = chooser.getSelectedFile().getName();
+        Path destino = chooser.getSelectedFile().toPath();
+        if (!nombre.toLowerCase().endsWith("." + formato.getExtension())) {
+            destino = destino.resolveSibling(nombre + "." + formato.getExtension());
+        }
+        Path archivo = destino;
+
+        // La exportación corre en segundo plano; el botón muestra el avance mientras tanto
+        btnExportar.setEnabled(false);
+        btnExportar.setText("Exportando...");
+        SwingWorkerFactory.create(
+            () -> proyectoController.exportar(proyectoId, archivo, formato,
+                    filas -> SwingUtilities.invokeLater(() -> btnExportar.setText(filas + " filas"))),
+            total -> {
+                restoreExportButton();
+                JOptionPane.showMessageDialog(this, "Exportación terminada: " + total + " filas en " + archivo);
+            },
+            error -> {
+                restoreExportButton();
+                JOptionPane.showMessageDialog(this, ExceptionHandler.getErrorMessage(error),
+                        ExceptionHandler.getErrorTitle(error), ExceptionHandler.getMessageType(error));
+            }
+        ).execute();
+    }
+
+    private void onImportarClick() {
+        if (proyecto == null) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Importar incidencias (columnas: descripcion, responsable_email, estimacion_horas, estado)");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV (*.csv)", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path archivo = chooser.getSelectedFile().toPath();
+
+        btnImportar.setEnabled(false);
+        btnImportar.setText("Importando...");
+        SwingWorkerFactory.create(
+            () -> incidenciaController.importar(proyectoId, archivo, currentUser,
+                    avance -> SwingUtilities.invokeLater(() -> btnImportar.setText(avance.getImportadas() + " importadas"))),
+            resultado -> {
+                restoreImportButton();
+                String mensaje = "Filas leídas: " + resultado.getLeidas()
+                        + "\nImportadas: " + resultado.getImportadas()
+                        + "\nRechazadas: " + resultado.getRechazadas();
+                if (resultado.getArchivoRechazos() != null) {
+                    mensaje += "\n\nEl detalle de las filas rechazadas quedó en:\n" + resultado.getArchivoRechazos();
+                }
+                JOptionPane.showMessageDialog(this, mensaje, "Importación terminada", JOptionPane.INFORMATION_MESSAGE);
+            },
+            error -> {
+                restoreImportButton();
+                JOptionPane.showMessageDialog(this, ExceptionHandler.getErrorMessage(error),
+                        ExceptionHandler.getErrorTitle(error), ExceptionHandler.getMessageType(error));
+            }
+        ).execute();
+    }
+
+    private void restoreImportButton() {
+        btnImportar.setEnabled(true);
+        btnImportar.setText("Importar CSV");
+    }
+
+    private void restoreExportButton() {
+        btnExportar.setEnabled(true);
+        btnExportar.setText("Exportar");
+    }
+
     private void loadIncidencias() {
         if (incidenciasListPanel != null) {
             incidenciasListPanel.refresh();
         }
     }
 
-    private class IncidenciasListPanel extends BaseListPanel<Incidencia> {
+    private class IncidenciasListPanel extends BaseListPanel<IncidenciaResumenDto> {
+
+        private final JButton btnCargarMas = new JButton("Cargar más");
+        private final JTextField txtBuscar = new JTextField(30);
+        private SliceRequest<Long> nextPage;
         
         public IncidenciasListPanel() {
             super(1);
             setBorder(new EmptyBorder(10, 0, 10, 0));
             configureActionsColumn();
+            table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+
+            // Búsqueda por texto en descripciones y comentarios; vacía vuelve al listado paginado
+            JButton btnBuscar = new JButton("Buscar");
+            JButton btnLimpiar = new JButton("Limpiar");
+            btnBuscar.addActionListener(e -> refresh());
+            txtBuscar.addActionListener(e -> refresh());
+            btnLimpiar.addActionListener(e -> {
+                txtBuscar.setText("");
+                refresh();
+            });
+            JPanel buscarPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            buscarPanel.add(new JLabel("Buscar:"));
+            buscarPanel.add(txtBuscar);
+            buscarPanel.add(btnBuscar);
+            buscarPanel.add(btnLimpiar);
+            add(buscarPanel, BorderLayout.NORTH);
+
+            // Las incidencias se cargan por páginas para no traer todo el proyecto de una vez
+            btnCargarMas.setVisible(false);
+            btnCargarMas.addActionListener(e -> loadMore());
+            JPanel cargarMasPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+            cargarMasPanel.add(btnCargarMas);
+            add(cargarMasPanel, BorderLayout.SOUTH);
         }
 
         @Override
@@ -254,19 +454,74 @@ public class ProyectoDetailPanel extends JPanel {
 
         @Override
         public void refresh() {
+            String texto = txtBuscar.getText().trim();
+            if (!texto.isEmpty()) {
+                buscar(texto);
+                return;
+            }
+            SwingWorkerFactory.createWithAutoErrorHandling(
+                ProyectoDetailPanel.this,
+                () -> incidenciaController.findResumenSliceByProyecto(proyectoId, null, SliceRequest.first(PAGE_SIZE)),
+                slice -> {
+                    IncidenciasTableModel model = (IncidenciasTableModel) tableModel;
+                    model.setData(slice != null ? slice.getItems() : new ArrayList<>());
+                    updateNextPage(slice);
+                }
+            ).execute();
+        }
+
+        private void buscar(String texto) {
+            SwingWorkerFactory.createWithAutoErrorHandling(
+                ProyectoDetailPanel.this,
+                () -> incidenciaController.buscar(texto, proyectoId, MAX_RESULTADOS_BUSQUEDA),
+                resultados -> {
+                    IncidenciasTableModel model = (IncidenciasTableModel) tableModel;
+                    model.setData(resultados != null ? resultados : new ArrayList<>());
+                    // Los resultados vienen ordenados por relevancia y sin paginar
+                    updateNextPage(null);
+                }
+            ).execute();
+        }
+
+        private void loadMore() {
+            if (nextPage == null) return;
+            SliceRequest<Long> request = nextPage;
+            btnCargarMas.setEnabled(false);
+
             SwingWorkerFactory.createWithAutoErrorHandling(
                 ProyectoDetailPanel.this,
-                () -> incidenciaController.findByProyecto(proyectoId),
-                incidencias -> {
+                () -> incidenciaController.findResumenSliceByProyecto(proyectoId, null, request),
+                slice -> {
                     IncidenciasTableModel model = (IncidenciasTableModel) tableModel;
-                    model.setData(incidencias != null ? incidencias : new ArrayList<>());
+                    if (slice != null) {
+                        model.addData(slice.getItems());
+                    }
+                    updateNextPage(slice);
                 }
             ).execute();
         }
 
+        private void updateNextPage(Slice<IncidenciaResumenDto, Long> slice) {
+            nextPage = slice != null ? slice.getNext() : null;
+            btnCargarMas.setVisible(nextPage != null);
+            btnCargarMas.setEnabled(true);
+        }
+
+        List<Long> getSelectedIds() {
+            IncidenciasTableModel model = (IncidenciasTableModel) tableModel;
+            List<Long> ids = new ArrayList<>();
+            for (int row : table.getSelectedRows()) {
+                IncidenciaResumenDto incidencia = model.getAt(table.convertRowIndexToModel(row));
+                if (incidencia != null) {
+                    ids.add(incidencia.getId());
+                }
+            }
+            return ids;
+        }
+
         private void onViewRow(int row) {
             IncidenciasTableModel model = (IncidenciasTableModel) tableModel;
-            Incidencia incidencia = model.getAt(row);
+            IncidenciaResumenDto incidencia = model.getAt(row);
             if (incidencia == null) return;
 
             if (onViewIncidencia != null) {
@@ -276,7 +531,7 @@ public class ProyectoDetailPanel extends JPanel {
 
         private void onDeleteRow(int row) {
             IncidenciasTableModel model = (IncidenciasTableModel) tableModel;
-            Incidencia incidencia = model.getAt(row);
+            IncidenciaResumenDto incidencia = model.getAt(row);
             if (incidencia == null) return;
 
             int opt = JOptionPane.showOptionDialog(
@@ -296,7 +551,6 @@ public class ProyectoDetailPanel extends JPanel {
                 () -> incidenciaController.delete(incidencia.getId()),
                 () -> {
                     JOptionPane.showMessageDialog(ProyectoDetailPanel.this, "Incidencia eliminada.");
-                    refresh();
                 }
             ).execute();
         }
@@ -305,14 +559,22 @@ public class ProyectoDetailPanel extends JPanel {
     // Tabla de incidencias
     private class IncidenciasTableModel extends AbstractTableModel {
         private final String[] cols = {"Descripción", "Acciones"};
-        private List<Incidencia> data = new ArrayList<>();
+        private List<IncidenciaResumenDto> data = new ArrayList<>();
 
-        public void setData(List<Incidencia> d) {
+        public void setData(List<IncidenciaResumenDto> d) {
             this.data = d != null ? d : new ArrayList<>();
             fireTableDataChanged();
         }
 
-        public Incidencia getAt(int row) {
+        public void addData(List<IncidenciaResumenDto> d) {
+            if (d == null || d.isEmpty()) return;
+            int first = data.size();
+            data = new ArrayList<>(data);
+            data.addAll(d);
+            fireTableRowsInserted(first, data.size() - 1);
+        }
+
+        public IncidenciaResumenDto getAt(int row) {
             if (row < 0 || row >= data.size()) return null;
             return data.get(row);
         }
@@ -334,11 +596,11 @@ public class ProyectoDetailPanel extends JPanel {
 
         @Override
         public Object getValueAt(int row, int col) {
-            Incidencia i = data.get(row);
+            IncidenciaResumenDto i = data.get(row);
             if (i == null) return "";
             switch (col) {
                 case 0:
-                    return i.getDescripcion() != null ? i.getDescripcion() : "";
+                    return i.getDescripcionPreview();
                 case 1:
                     return "ACCIONES";
                 default:
@@ -14,6 +14,8 @@ public class ProyectoDialog extends JDialog {
     private final UserLoggedInDto currentUser;
     private final Long proyectoId; // null al crear un proyecto
     private final Runnable onSaved;
+    // Versión del proyecto al abrir el formulario, para detectar ediciones de otro usuario
+    private Long versionCargada;
 
     private final JTextField txtNombre = new JTextField(30);
     private final JTextArea txtDescripcion = new JTextArea(5, 30);
@@ -108,6 +110,7 @@ public class ProyectoDialog extends JDialog {
             () -> controller.getById(proyectoId),
             proyecto -> {
                 if (proyecto != null) {
+                    versionCargada = proyecto.getVersion();
                     txtNombre.setText(proyecto.getNombre() != null ? proyecto.getNombre() : "");
                     txtDescripcion.setText(proyecto.getDescripcion() != null ? proyecto.getDescripcion() : "");
                 }
@@ -129,6 +132,7 @@ public class ProyectoDialog extends JDialog {
         }
 
         Proyecto proyecto = new Proyecto();
+        proyecto.setVersion(versionCargada);
         proyecto.setNombre(nombre);
         proyecto.setDescripcion(descripcion.isEmpty() ? null : descripcion);
 
@@ -1,42 +1,45 @@
 package ar.edu.up.bugtracker.ui.projects;
 
-import ar.edu.up.bugtracker.controller.IncidenciaController;
 import ar.edu.up.bugtracker.controller.ProyectoController;
-import ar.edu.up.bugtracker.models.Incidencia;
-import ar.edu.up.bugtracker.models.IncidenciaEstado;
-import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.service.dto.ProyectoMetricasDto;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+import ar.edu.up.bugtracker.service.eventos.CambioEnIncidencias;
+import ar.edu.up.bugtracker.ui.components.SuscripcionesPanel;
 import ar.edu.up.bugtracker.ui.components.SwingWorkerFactory;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import java.awt.*;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Consumer;
 
 public class ProyectoMetricasPanel extends JPanel {
 
     private final ProyectoController proyectoController;
-    private final IncidenciaController incidenciaController;
     private final Long proyectoId;
     private final Consumer<Long> onVolver;
 
     private JLabel lblTotalIncidencias;
     private JLabel lblPorcentajeCompletado;
     private JLabel lblTareasPendientes;
+    private JLabel lblHorasEstimadas;
     private JPanel estadosListPanel;
 
     public ProyectoMetricasPanel(ProyectoController proyectoController,
-                                 IncidenciaController incidenciaController,
                                  Long proyectoId,
-                                 Consumer<Long> onVolver) {
+                                 Consumer<Long> onVolver,
+                                 BusEventos bus) {
         this.proyectoController = proyectoController;
-        this.incidenciaController = incidenciaController;
         this.proyectoId = proyectoId;
         this.onVolver = onVolver;
         buildUI();
+        Runnable recargar = SuscripcionesPanel.agrupada(this::loadMetricas);
+        new SuscripcionesPanel(bus, this).suscribir(CambioEnIncidencias.class, evento -> {
+            if (proyectoId.equals(evento.getProyectoId())) {
+                recargar.run();
+            }
+        });
         loadMetricas();
     }
 
@@ -69,6 +72,9 @@ public class ProyectoMetricasPanel extends JPanel {
         JPanel metricBox3 = createMetricBox("<html>Total de tareas<br>pendientes</html>", "0", lblTareasPendientes = new JLabel("0"));
         metricsBoxesPanel.add(metricBox3);
 
+        JPanel metricBox4 = createMetricBox("Horas estimadas", "0", lblHorasEstimadas = new JLabel("0"));
+        metricsBoxesPanel.add(metricBox4);
+
         mainPanel.add(metricsBoxesPanel);
         
         JPanel estadosSectionPanel = new JPanel(new BorderLayout());
@@ -121,76 +127,30 @@ public class ProyectoMetricasPanel extends JPanel {
     private void loadMetricas() {
         SwingWorkerFactory.createWithAutoErrorHandling(
             this,
-            () -> {
-                List<Incidencia> incidencias = incidenciaController.findByProyecto(proyectoId);
-                List<IncidenciaEstado> estados = incidenciaController.getAllEstados();
-                
-                int totalIncidencias = incidencias != null ? incidencias.size() : 0;
-                int completadas = 0;
-                int pendientes = 0;
-                
-                Map<Long, Integer> conteoPorEstado = new HashMap<>();
-                
-                if (estados != null) {
-                    for (IncidenciaEstado estado : estados) {
-                        if (estado.getId() != null) {
-                            conteoPorEstado.put(estado.getId(), 0);
-                        }
-                    }
-                }
-
-                if (incidencias != null) {
-                    for (Incidencia incidencia : incidencias) {
-                        if (incidencia.getCurrentVersion() != null && 
-                            incidencia.getCurrentVersion().getEstado() != null) {
-                            Long estadoId = incidencia.getCurrentVersion().getEstado().getId();
-                            
-                            if (estadoId != null) {
-                                conteoPorEstado.put(estadoId, conteoPorEstado.getOrDefault(estadoId, 0) + 1);
-                                
-                                // Estados terminada, cancelada o duplicada
-                                if (estadoId == 5 || estadoId == 9 || estadoId == 10) {
-                                    completadas++;
-                                }
-                                // Estados pendiente, en proceso, bloqueada o en revision
-                                if (estadoId == 1 || estadoId == 2 || estadoId == 3 || estadoId == 4) {
-                                    pendientes++;
-                                }
-                            }
-                        }
-                    }
-                }
-
-                double porcentajeCompletado = totalIncidencias > 0 
-                    ? (completadas * 100.0 / totalIncidencias) 
-                    : 0.0;
-
-                return new MetricasData(totalIncidencias, porcentajeCompletado, pendientes, estados, conteoPorEstado);
-            },
+            () -> proyectoController.getMetricas(proyectoId),
             data -> {
                 if (data != null) {
-                    lblTotalIncidencias.setText(String.valueOf(data.totalIncidencias));
-                    lblPorcentajeCompletado.setText(String.format("%.1f%%", data.porcentajeCompletado));
-                    lblTareasPendientes.setText(String.valueOf(data.tareasPendientes));
+                    lblTotalIncidencias.setText(String.valueOf(data.getTotalIncidencias()));
+                    lblPorcentajeCompletado.setText(String.format("%.1f%%", data.getPorcentajeCompletado()));
+                    lblTareasPendientes.setText(String.valueOf(data.getPendientes()));
+                    lblHorasEstimadas.setText(data.getHorasEstimadas().stripTrailingZeros().toPlainString());
                     
-                    populateEstadosList(data.estados, data.conteoPorEstado);
+                    populateEstadosList(data.getPorEstado());
                 }
             }
         ).execute();
     }
     
-    private void populateEstadosList(List<IncidenciaEstado> estados, Map<Long, Integer> conteoPorEstado) {
+    private void populateEstadosList(List<ProyectoMetricasDto.EstadoConteo> porEstado) {
         if (estadosListPanel == null) {
             return;
         }
         
         estadosListPanel.removeAll();
         
-        if (estados != null && !estados.isEmpty()) {
-            for (IncidenciaEstado estado : estados) {
-                int cantidad = conteoPorEstado.getOrDefault(estado.getId(), 0);
-                
-                JLabel estadoLabel = new JLabel(estado.getNombre() + ": " + cantidad);
+        if (porEstado != null && !porEstado.isEmpty()) {
+            for (ProyectoMetricasDto.EstadoConteo estado : porEstado) {
+                JLabel estadoLabel = new JLabel(estado.getNombre() + ": " + estado.getCantidad());
                 estadoLabel.setFont(estadoLabel.getFont().deriveFont(14f));
                 estadoLabel.setBorder(new EmptyBorder(5, 10, 5, 10));
                 estadoLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -202,21 +162,4 @@ public class ProyectoMetricasPanel extends JPanel {
         estadosListPanel.revalidate();
         estadosListPanel.repaint();
     }
-
-    private static class MetricasData {
-        final int totalIncidencias;
-        final double porcentajeCompletado;
-        final int tareasPendientes;
-        final List<IncidenciaEstado> estados;
-        final Map<Long, Integer> conteoPorEstado;
-
-        MetricasData(int totalIncidencias, double porcentajeCompletado, int tareasPendientes, 
-                     List<IncidenciaEstado> estados, Map<Long, Integer> conteoPorEstado) {
-            this.totalIncidencias = totalIncidencias;
-            this.porcentajeCompletado = porcentajeCompletado;
-            this.tareasPendientes = tareasPendientes;
-            this.estados = estados;
-            this.conteoPorEstado = conteoPorEstado;
-        }
-    }
 }
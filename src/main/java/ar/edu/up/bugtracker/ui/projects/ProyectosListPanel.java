@@ -1,9 +1,13 @@
 package ar.edu.up.bugtracker.ui.projects;
 
 import ar.edu.up.bugtracker.controller.ProyectoController;
-import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.service.dto.ProyectoResumenDto;
 import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+import ar.edu.up.bugtracker.service.eventos.ProyectoEliminado;
+import ar.edu.up.bugtracker.service.eventos.ProyectoGuardado;
 import ar.edu.up.bugtracker.ui.components.BaseListPanel;
+import ar.edu.up.bugtracker.ui.components.SuscripcionesPanel;
 import ar.edu.up.bugtracker.ui.components.SwingWorkerFactory;
 
 import javax.swing.*;
@@ -16,7 +20,7 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
-public class ProyectosListPanel extends BaseListPanel<Proyecto> {
+public class ProyectosListPanel extends BaseListPanel<ProyectoResumenDto> {
 
     private final ProyectoController controller;
     private final UserLoggedInDto currentUser;
@@ -24,10 +28,11 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
     private Consumer<Long> onViewProyecto;
 
     public ProyectosListPanel(ProyectoController controller, UserLoggedInDto currentUser) {
-        this(controller, currentUser, null);
+        this(controller, currentUser, null, null);
     }
 
-    public ProyectosListPanel(ProyectoController controller, UserLoggedInDto currentUser, Consumer<Long> onViewProyecto) {
+    public ProyectosListPanel(ProyectoController controller, UserLoggedInDto currentUser, Consumer<Long> onViewProyecto,
+                              BusEventos bus) {
         super(2);
         this.controller = controller;
         this.currentUser = currentUser;
@@ -35,9 +40,18 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
         this.onViewProyecto = onViewProyecto;
         configureActionsColumn();
         buildTopPanel();
+        suscribirEventos(bus);
         refresh();
     }
 
+    private void suscribirEventos(BusEventos bus) {
+        SuscripcionesPanel suscripciones = new SuscripcionesPanel(bus, this);
+        suscripciones.suscribir(ProyectoGuardado.class, evento -> refresh());
+        // Una baja no necesita volver a consultar: se quita la fila
+        suscripciones.suscribir(ProyectoEliminado.class,
+                evento -> ((ProyectosTableModel) tableModel).remove(evento.getProyectoId()));
+    }
+
     private void buildTopPanel() {
         setBorder(new EmptyBorder(12, 12, 12, 12));
 
@@ -109,7 +123,7 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
                 controller,
                 currentUser,
                 null,
-                this::refresh
+                null
         );
         dlg.setVisible(true);
     }
@@ -118,7 +132,7 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
     public void refresh() {
         SwingWorkerFactory.createWithAutoErrorHandling(
             this,
-            () -> controller.getAll(),
+            () -> controller.getAllResumen(),
             proyectos -> {
                 ProyectosTableModel model = (ProyectosTableModel) tableModel;
                 model.setData(proyectos != null ? proyectos : new ArrayList<>());
@@ -130,14 +144,20 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
     private class ProyectosTableModel extends AbstractTableModel {
         private final String[] cols = {"Nombre", "Creado", "Acciones"};
         private final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        private List<Proyecto> data = new ArrayList<>();
+        private List<ProyectoResumenDto> data = new ArrayList<>();
 
-        public void setData(List<Proyecto> d) {
-            this.data = d != null ? d : new ArrayList<>();
+        public void setData(List<ProyectoResumenDto> d) {
+            this.data = d != null ? new ArrayList<>(d) : new ArrayList<>();
             fireTableDataChanged();
         }
 
-        public Proyecto getAt(int row) {
+        public void remove(Long proyectoId) {
+            if (data.removeIf(p -> proyectoId.equals(p.getId()))) {
+                fireTableDataChanged();
+            }
+        }
+
+        public ProyectoResumenDto getAt(int row) {
             if (row < 0 || row >= data.size()) return null;
             return data.get(row);
         }
@@ -159,7 +179,7 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
 
         @Override
         public Object getValueAt(int row, int col) {
-            Proyecto p = data.get(row);
+            ProyectoResumenDto p = data.get(row);
             if (p == null) return "";
             switch (col) {
                 case 0:
@@ -187,7 +207,7 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
     // Acciones de cada fila
     private void onEditRow(int row) {
         ProyectosTableModel model = (ProyectosTableModel) tableModel;
-        Proyecto proyecto = model.getAt(row);
+        ProyectoResumenDto proyecto = model.getAt(row);
         if (proyecto == null) return;
 
         ProyectoDialog dlg = new ProyectoDialog(
@@ -195,14 +215,14 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
                 controller,
                 currentUser,
                 proyecto.getId(),
-                this::refresh
+                null
         );
         dlg.setVisible(true);
     }
 
     private void onViewRow(int row) {
         ProyectosTableModel model = (ProyectosTableModel) tableModel;
-        Proyecto proyecto = model.getAt(row);
+        ProyectoResumenDto proyecto = model.getAt(row);
         if (proyecto == null) return;
         
         if (onViewProyecto != null) {
@@ -212,7 +232,7 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
 
     private void onDeleteRow(int row) {
         ProyectosTableModel model = (ProyectosTableModel) tableModel;
-        Proyecto proyecto = model.getAt(row);
+        ProyectoResumenDto proyecto = model.getAt(row);
         if (proyecto == null) return;
 
         int opt = JOptionPane.showOptionDialog(
@@ -233,7 +253,6 @@ public class ProyectosListPanel extends BaseListPanel<Proyecto> {
             () -> controller.delete(proyecto.getId(), currentUser),
             () -> {
                 JOptionPane.showMessageDialog(ProyectosListPanel.this, "Proyecto eliminado.");
-                refresh();
             }
         ).execute();
     }
@@ -0,0 +1,27 @@
+package ar.edu.up.bugtracker.persistence;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Unidad de persistencia real (mapeos, caché, pool propio) apuntada a {@link FakeDriver}. */
+public final class BaseDePrueba {
+
+    private BaseDePrueba() {}
+
+    public static EntityManagerFactory abrir() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("jakarta.persistence.jdbc.driver", FakeDriver.class.getName());
+        props.put("jakarta.persistence.jdbc.url", FakeDriver.URL);
+        props.put("jakarta.persistence.jdbc.user", "test");
+        props.put("jakarta.persistence.jdbc.password", "test");
+        props.put(PooledConnectionProvider.MIN_SIZE, "0");
+        props.put(PooledConnectionProvider.CONNECTION_TIMEOUT_MS, "1000");
+        // Sin base real no hay metadatos que consultar: el dialecto va fijo
+        props.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+        props.put("hibernate.boot.allow_jdbc_metadata_access", "false");
+        return Persistence.createEntityManagerFactory("bugtrackerPU", props);
+    }
+}
@@ -0,0 +1,45 @@
+package ar.edu.up.bugtracker.persistence;
+
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheMetricsTest {
+
+    private EntityManagerFactory emf;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.reiniciar();
+        emf = BaseDePrueba.abrir();
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void elCatalogoDeEstadosSeLeeUnaVezYDespuesSaleDeLaCache() {
+        FakeDriver.responder("from incidencia_estado", 1L, "NUEVA");
+        UnitOfWork uow = new UnitOfWork(emf, metricas -> { });
+        IncidenciaDao dao = new IncidenciaDao(uow);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("NUEVA", uow.inReadOnlyTransaction(() -> dao.findEstadoById(1L)).getNombre());
+        }
+
+        assertEquals(1, FakeDriver.sentencias().size(), () -> "Sentencias: " + FakeDriver.sentencias());
+        CacheMetrics catalogos = CacheMetrics.from(emf).stream()
+                .filter(m -> m.getRegion().equals(CacheMetrics.CATALOGOS))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Sin métricas de " + CacheMetrics.CATALOGOS));
+        assertEquals(1, catalogos.getMisses());
+        assertEquals(1, catalogos.getPuts());
+        assertEquals(2, catalogos.getHits());
+    }
+}
@@ -0,0 +1,457 @@
+package ar.edu.up.bugtracker.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * Driver JDBC en memoria para tests sin MySQL (URL jdbc:fake:...). Registra cada sentencia ejecutada con sus
+ * parámetros, devuelve vacío salvo las filas configuradas con {@link #responder}, permite simular UPDATE que
+ * no encuentran la fila ({@link #afectar}) e inyectar un error de base con {@link #fallarUnaVez}.
+ */
+public final class FakeDriver implements Driver {
+
+    public static final String URL = "jdbc:fake:bugtracker";
+
+    private static final List<Ejecucion> EJECUCIONES = Collections.synchronizedList(new ArrayList<>());
+    private static final List<Respuesta> RESPUESTAS = new CopyOnWriteArrayList<>();
+    private static final List<Falla> FALLAS = new CopyOnWriteArrayList<>();
+    private static final List<Afectadas> AFECTADAS = new CopyOnWriteArrayList<>();
+    private static final AtomicLong CLAVES = new AtomicLong(1000);
+    private static final Pattern TABLA_ALIAS = Pattern.compile("(?:from|join)\\s+(\\w+)\\s+(\\w+)");
+
+    static {
+        try {
+            DriverManager.registerDriver(new FakeDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Las consultas cuyo SQL contiene el fragmento devuelven esa única fila (columnas en orden). */
+    public static void responder(String fragmento, Object... fila) {
+        responderFilas(fragmento, Collections.singletonList(fila));
+    }
+
+    /** Las consultas cuyo SQL contiene el fragmento devuelven esas filas. */
+    public static void responderFilas(String fragmento, List<Object[]> filas) {
+        List<Object[]> copia = new ArrayList<>(filas);
+        RESPUESTAS.add(new Respuesta(fragmento.toLowerCase(), (sql, parametros) -> copia));
+    }
+
+    /** Las consultas cuyo SQL contiene el fragmento devuelven lo que arme la función con los parámetros. */
+    public static void responderSegun(String fragmento, Function<List<Object>, List<Object[]>> filas) {
+        RESPUESTAS.add(new Respuesta(fragmento.toLowerCase(), (sql, parametros) -> filas.apply(parametros)));
+    }
+
+    /**
+     * Como {@link #responderFilas}, pero cada fila se da por nombre ("tabla.columna", p. ej. "incidencia.version")
+     * y se ordena según la lista del SELECT que arme Hibernate; las columnas que falten van en null.
+     * Si la tabla aparece más de una vez en el join, "alias.columna" (p. ej. "cb1_0.id") tiene prioridad.
+     */
+    public static void responderColumnas(String fragmento, List<Map<String, Object>> filas) {
+        List<Map<String, Object>> copia = new ArrayList<>(filas);
+        RESPUESTAS.add(new Respuesta(fragmento.toLowerCase(), (sql, parametros) -> porColumnas(sql, copia)));
+    }
+
+    /** La próxima sentencia cuyo SQL contiene el fragmento lanza el error, una sola vez. */
+    public static void fallarUnaVez(String fragmento, SQLException error) {
+        FALLAS.add(new Falla(fragmento.toLowerCase(), error));
+    }
+
+    /**
+     * Las próximas {@code veces} ejecuciones cuyo SQL contiene el fragmento informan {@code filas} afectadas
+     * (en un batch, sólo la primera sentencia del lote). Con 0 se simula que otra transacción ya la cambió.
+     */
+    public static void afectar(String fragmento, int filas, int veces) {
+        AFECTADAS.add(new Afectadas(fragmento.toLowerCase(), filas, veces));
+    }
+
+    public static List<Ejecucion> ejecuciones() {
+        synchronized (EJECUCIONES) {
+            return new ArrayList<>(EJECUCIONES);
+        }
+    }
+
+    public static List<String> sentencias() {
+        List<String> sentencias = new ArrayList<>();
+        for (Ejecucion ejecucion : ejecuciones()) {
+            sentencias.add(ejecucion.sql);
+        }
+        return sentencias;
+    }
+
+    /** Olvida lo ejecutado hasta ahora, manteniendo las respuestas y fallas configuradas. */
+    public static void limpiarEjecuciones() {
+        EJECUCIONES.clear();
+    }
+
+    public static void reiniciar() {
+        EJECUCIONES.clear();
+        RESPUESTAS.clear();
+        FALLAS.clear();
+        AFECTADAS.clear();
+    }
+
+    private static Integer ejecutar(String sql, List<List<Object>> parametros) throws SQLException {
+        EJECUCIONES.add(new Ejecucion(sql, parametros));
+        String normalizado = sql.toLowerCase();
+        for (Falla falla : FALLAS) {
+            if (normalizado.contains(falla.fragmento) && FALLAS.remove(falla)) {
+                throw falla.error;
+            }
+        }
+        for (Afectadas afectadas : AFECTADAS) {
+            if (normalizado.contains(afectadas.fragmento)) {
+                synchronized (afectadas) {
+                    if (afectadas.veces > 0) {
+                        afectadas.veces--;
+                        return afectadas.filas;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Object[]> filasPara(String sql, List<Object> parametros) {
+        String normalizado = sql.toLowerCase();
+        for (Respuesta r : RESPUESTAS) {
+            if (normalizado.contains(r.fragmento)) {
+                return r.filas.apply(sql, parametros);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<Object[]> porColumnas(String sql, List<Map<String, Object>> filas) {
+        String normalizado = sql.toLowerCase();
+        Map<String, String> tablaPorAlias = new HashMap<>();
+        Matcher m = TABLA_ALIAS.matcher(normalizado);
+        while (m.find()) {
+            tablaPorAlias.put(m.group(2), m.group(1));
+        }
+        String lista = normalizado.substring(normalizado.indexOf("select ") + "select ".length(),
+                normalizado.indexOf(" from "));
+        if (lista.startsWith("distinct ")) {
+            lista = lista.substring("distinct ".length());
+        }
+        String[] columnas = lista.split(",");
+        List<Object[]> resultado = new ArrayList<>();
+        for (Map<String, Object> fila : filas) {
+            Object[] valores = new Object[columnas.length];
+            for (int i = 0; i < columnas.length; i++) {
+                String columna = columnas[i].trim();
+                String[] partes = columna.split("\\.");
+                valores[i] = fila.containsKey(columna) ? fila.get(columna)
+                        : fila.get(tablaPorAlias.get(partes[0]) + "." + partes[1]);
+            }
+            resultado.add(valores);
+        }
+        return resultado;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        boolean[] cerrada = {false};
+        boolean[] autoCommit = {true};
+        boolean[] soloLectura = {false};
+        return proxy(Connection.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "close": cerrada[0] = true; return null;
+                case "isClosed": return cerrada[0];
+                case "isValid": return !cerrada[0];
+                case "getAutoCommit": return autoCommit[0];
+                case "setAutoCommit": autoCommit[0] = (Boolean) a[0]; return null;
+                case "isReadOnly": return soloLectura[0];
+                case "setReadOnly": soloLectura[0] = (Boolean) a[0]; return null;
+                case "prepareStatement": return sentencia(PreparedStatement.class, (String) a[0]);
+                case "prepareCall": return sentencia(CallableStatement.class, (String) a[0]);
+                case "createStatement": return sentencia(Statement.class, null);
+                case "getMetaData": return metaDatos();
+                case "getTransactionIsolation": return Connection.TRANSACTION_REPEATABLE_READ;
+                case "isWrapperFor": return false;
+                default: return comun(p, m.getName(), a, m.getReturnType());
+            }
+        });
+    }
+
+    private static Statement sentencia(Class<? extends Statement> tipo, String preparada) {
+        String[] sql = {preparada};
+        List<Object> actuales = new ArrayList<>();
+        List<List<Object>> lote = new ArrayList<>();
+        long[] clave = {0};
+        return proxy(tipo, (p, m, a) -> {
+            String directa = a != null && a.length > 0 && a[0] instanceof String ? (String) a[0] : sql[0];
+            switch (m.getName()) {
+                case "executeQuery":
+                    List<Object> parametros = new ArrayList<>(actuales);
+                    ejecutar(directa, Collections.singletonList(parametros));
+                    return resultado(filasPara(directa, parametros));
+                case "executeUpdate":
+                case "executeLargeUpdate": {
+                    Integer filas = ejecutar(directa, Collections.singletonList(new ArrayList<>(actuales)));
+                    if (directa.trim().toLowerCase().startsWith("insert")) {
+                        clave[0] = CLAVES.incrementAndGet();
+                    }
+                    int afectadas = filas != null ? filas : 1;
+                    return m.getName().equals("executeUpdate") ? (Object) afectadas : (Object) (long) afectadas;
+                }
+                case "execute":
+                    ejecutar(directa, Collections.singletonList(new ArrayList<>(actuales)));
+                    return false;
+                case "addBatch":
+                    lote.add(new ArrayList<>(actuales));
+                    return null;
+                case "executeBatch": {
+                    Integer primera = ejecutar(sql[0], new ArrayList<>(lote));
+                    int[] filas = new int[lote.size()];
+                    Arrays.fill(filas, 1);
+                    if (primera != null && filas.length > 0) {
+                        filas[0] = primera;
+                    }
+                    lote.clear();
+                    return filas;
+                }
+                case "clearBatch": lote.clear(); return null;
+                case "clearParameters": actuales.clear(); return null;
+                case "getGeneratedKeys": return resultado(Collections.singletonList(new Object[] {clave[0]}));
+                case "getResultSet": return resultado(Collections.emptyList());
+                case "getUpdateCount": return -1;
+                default:
+                    if (m.getName().startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+                        int indice = (Integer) a[0];
+                        while (actuales.size() < indice) {
+                            actuales.add(null);
+                        }
+                        actuales.set(indice - 1, m.getName().equals("setNull") ? null : a[1]);
+                        return null;
+                    }
+                    return comun(p, m.getName(), a, m.getReturnType());
+            }
+        });
+    }
+
+    private static ResultSet resultado(List<Object[]> filas) {
+        int[] posicion = {0};
+        boolean[] nulo = {false};
+        return proxy(ResultSet.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "next": return ++posicion[0] <= filas.size();
+                case "wasNull": return nulo[0];
+                case "findColumn": return 1;
+                case "getMetaData":
+                    return metaDatos(filas.isEmpty() ? new Object[0] : filas.get(0));
+                default:
+                    if (m.getName().startsWith("get") && a != null && a.length > 0 && a[0] instanceof Integer) {
+                        Object[] fila = filas.get(posicion[0] - 1);
+                        int columna = (Integer) a[0];
+                        Object valor = columna <= fila.length ? fila[columna - 1] : null;
+                        nulo[0] = valor == null;
+                        return convertir(valor, m.getReturnType(), a.length > 1 ? a[1] : null);
+                    }
+                    return comun(p, m.getName(), a, m.getReturnType());
+            }
+        });
+    }
+
+    private static Object convertir(Object valor, Class<?> tipo, Object tipoPedido) throws SQLException {
+        if (tipoPedido instanceof Class) {
+            tipo = (Class<?>) tipoPedido;
+        }
+        if (valor == null) {
+            return porDefecto(tipo);
+        }
+        if (valor instanceof Number) {
+            Number n = (Number) valor;
+            if (tipo == long.class || tipo == Long.class) return n.longValue();
+            if (tipo == int.class || tipo == Integer.class) return n.intValue();
+            if (tipo == short.class || tipo == Short.class) return n.shortValue();
+            if (tipo == BigDecimal.class) return new BigDecimal(n.toString());
+        }
+        if (tipo == String.class) {
+            return valor.toString();
+        }
+        if (tipo == Clob.class || tipo == NClob.class) {
+            return new SerialClob(valor.toString().toCharArray());
+        }
+        if (tipo == Timestamp.class && valor instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) valor);
+        }
+        return valor;
+    }
+
+    // Consultas nativas sin mapeo: Hibernate tipa cada columna según lo que informe el driver
+    private static ResultSetMetaData metaDatos(Object[] fila) {
+        return proxy(ResultSetMetaData.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "getColumnCount": return fila.length;
+                case "getColumnLabel": case "getColumnName": return "c" + a[0];
+                case "getColumnType": return tipoSql(fila[(Integer) a[0] - 1]);
+                default: return comun(p, m.getName(), a, m.getReturnType());
+            }
+        });
+    }
+
+    private static int tipoSql(Object valor) {
+        if (valor instanceof Long) return Types.BIGINT;
+        if (valor instanceof Integer) return Types.INTEGER;
+        if (valor instanceof BigDecimal) return Types.DECIMAL;
+        if (valor instanceof String) return Types.VARCHAR;
+        return Types.OTHER;
+    }
+
+    private static DatabaseMetaData metaDatos() {
+        return proxy(DatabaseMetaData.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "getDatabaseProductName": return "MySQL";
+                case "getDatabaseProductVersion": return "8.0.36";
+                case "getDatabaseMajorVersion": return 8;
+                case "getDatabaseMinorVersion": return 0;
+                case "getJDBCMajorVersion": return 4;
+                case "supportsBatchUpdates": return true;
+                case "supportsGetGeneratedKeys": return true;
+                case "getURL": return URL;
+                case "getSQLKeywords": return "";
+                case "getIdentifierQuoteString": return "`";
+                case "getSQLStateType": return DatabaseMetaData.sqlStateSQL;
+                case "getTypeInfo": case "getTables": case "getColumns": return resultado(Collections.emptyList());
+                default: return comun(p, m.getName(), a, m.getReturnType());
+            }
+        });
+    }
+
+    private static Object comun(Object proxy, String metodo, Object[] args, Class<?> tipo) {
+        switch (metodo) {
+            case "hashCode": return System.identityHashCode(proxy);
+            case "equals": return proxy == args[0];
+            case "toString": return "Fake" + tipo.getSimpleName();
+            default: return porDefecto(tipo);
+        }
+    }
+
+    private static Object porDefecto(Class<?> tipo) {
+        if (tipo == boolean.class) return false;
+        if (tipo == int.class) return 0;
+        if (tipo == long.class) return 0L;
+        if (tipo == double.class) return 0d;
+        if (tipo == float.class) return 0f;
+        if (tipo == short.class) return (short) 0;
+        if (tipo == byte.class) return (byte) 0;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeDriver.class.getClassLoader(), new Class<?>[] {tipo}, handler);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith("jdbc:fake:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() { return 1; }
+
+    @Override
+    public int getMinorVersion() { return 0; }
+
+    @Override
+    public boolean jdbcCompliant() { return false; }
+
+    @Override
+    public Logger getParentLogger() { return Logger.getLogger(FakeDriver.class.getName()); }
+
+    /** Una sentencia enviada: su SQL y los parámetros de cada fila (varias si fue un batch). */
+    public static final class Ejecucion {
+        private final String sql;
+        private final List<List<Object>> parametros;
+
+        Ejecucion(String sql, List<List<Object>> parametros) {
+            this.sql = sql;
+            this.parametros = parametros;
+        }
+
+        public String getSql() { return sql; }
+        public List<List<Object>> getParametros() { return parametros; }
+
+        public boolean empiezaCon(String prefijo) {
+            return sql.trim().toLowerCase().startsWith(prefijo.toLowerCase());
+        }
+
+        @Override
+        public String toString() { return sql + " " + parametros; }
+    }
+
+    private static final class Respuesta {
+        final String fragmento;
+        final BiFunction<String, List<Object>, List<Object[]>> filas;
+
+        Respuesta(String fragmento, BiFunction<String, List<Object>, List<Object[]>> filas) {
+            this.fragmento = fragmento;
+            this.filas = filas;
+        }
+    }
+
+    private static final class Falla {
+        final String fragmento;
+        final SQLException error;
+
+        Falla(String fragmento, SQLException error) {
+            this.fragmento = fragmento;
+            this.error = error;
+        }
+    }
+
+    private static final class Afectadas {
+        final String fragmento;
+        final int filas;
+        int veces;
+
+        Afectadas(String fragmento, int filas, int veces) {
+            this.fragmento = fragmento;
+            this.filas = filas;
+            this.veces = veces;
+        }
+    }
+}
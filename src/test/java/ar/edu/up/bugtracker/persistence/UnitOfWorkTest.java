@@ -0,0 +1,141 @@
+package ar.edu.up.bugtracker.persistence;
+
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.exceptions.LockContentionException;
+import ar.edu.up.bugtracker.models.Incidencia;
+import ar.edu.up.bugtracker.models.IncidenciaEstado;
+import ar.edu.up.bugtracker.models.IncidenciaVersion;
+import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.models.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest {
+
+    private EntityManagerFactory emf;
+    private UnitOfWork uow;
+    private IncidenciaDao incidenciaDao;
+    private final List<TransactionMetrics> metricas = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.reiniciar();
+        FakeDriver.responder("from id_generador", 1000L);
+        FakeDriver.responder("from incidencia_estado", 1L, "NUEVA");
+        emf = BaseDePrueba.abrir();
+        uow = new UnitOfWork(emf, metricas::add);
+        incidenciaDao = new IncidenciaDao(uow);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void laCargaSinEstadoSeReintentaTrasUnDeadlockConIdsNuevos() {
+        List<Incidencia> incidencias = new ArrayList<>();
+        List<IncidenciaVersion> versiones = new ArrayList<>();
+        preparar(incidencias, versiones, 2);
+        // El deadlock llega al final del primer intento, con las filas ya insertadas (InnoDB las deshace)
+        FakeDriver.fallarUnaVez("update incidencia i join", deadlock());
+
+        List<Long> ids = uow.inStatelessTransaction(
+                () -> incidenciaDao.createAllConVersionInicial(incidencias, versiones));
+
+        assertEquals(2, metricas.size());
+        assertFalse(metricas.get(0).isCommitted());
+        assertEquals(2, metricas.get(1).getAttempt());
+        assertTrue(metricas.get(1).isCommitted());
+
+        List<List<Object>> insertadas = filas("insert into incidencia (");
+        assertEquals(4, insertadas.size());
+        List<Object> primerIntento = ultimos(insertadas.subList(0, 2));
+        assertEquals(ids, ultimos(insertadas.subList(2, 4)));
+        // El reintento no reutiliza los ids del intento revertido
+        assertTrue(primerIntento.stream().noneMatch(ids::contains), () -> primerIntento + " / " + ids);
+        // Las versiones y el UPDATE de current_version_id del reintento apuntan a las filas nuevas
+        List<List<Object>> versionesInsertadas = filas("insert into incidencia_version");
+        List<Object> incidenciasDeVersiones = new ArrayList<>();
+        for (List<Object> fila : versionesInsertadas.subList(2, 4)) {
+            incidenciasDeVersiones.add(fila.get(4));
+        }
+        assertEquals(ids, incidenciasDeVersiones);
+        List<List<Object>> updates = filas("update incidencia i join");
+        assertEquals(ids, updates.get(updates.size() - 1));
+    }
+
+    @Test
+    void laCargaSinEstadoSeRindeTrasAgotarLosIntentos() {
+        List<Incidencia> incidencias = new ArrayList<>();
+        List<IncidenciaVersion> versiones = new ArrayList<>();
+        preparar(incidencias, versiones, 1);
+        for (int i = 0; i < UnitOfWork.MAX_INTENTOS_BLOQUEO; i++) {
+            FakeDriver.fallarUnaVez("insert into incidencia (", deadlock());
+        }
+
+        assertThrows(LockContentionException.class, () -> uow.inStatelessTransaction(
+                () -> incidenciaDao.createAllConVersionInicial(incidencias, versiones)));
+        assertEquals(UnitOfWork.MAX_INTENTOS_BLOQUEO, metricas.size());
+        assertTrue(metricas.stream().noneMatch(TransactionMetrics::isCommitted));
+    }
+
+    // Como la importación: entidades armadas fuera de la transacción, con catálogo, proyecto y creador ya leídos
+    private void preparar(List<Incidencia> incidencias, List<IncidenciaVersion> versiones, int cantidad) {
+        IncidenciaEstado nueva = uow.inReadOnlyTransaction(() -> incidenciaDao.findEstadoById(1L));
+        Proyecto proyecto = new Proyecto();
+        proyecto.setId(7L);
+        proyecto.setVersion(0L);
+        Usuario creador = new Usuario();
+        creador.setId(3L);
+        for (int i = 0; i < cantidad; i++) {
+            Incidencia incidencia = new Incidencia();
+            incidencia.setProyecto(proyecto);
+            incidencia.setDescripcion("Importada " + i);
+            incidencia.setEstado(nueva);
+            incidencia.setEstadoCambiadoEn(LocalDateTime.now());
+            IncidenciaVersion version = new IncidenciaVersion();
+            version.setIncidencia(incidencia);
+            version.setEstado(nueva);
+            version.setCreatedBy(creador);
+            version.setNumero(1);
+            incidencias.add(incidencia);
+            versiones.add(version);
+        }
+        metricas.clear();
+        FakeDriver.limpiarEjecuciones();
+    }
+
+    private static SQLException deadlock() {
+        return new SQLException("Deadlock found when trying to get lock", "40001", 1213);
+    }
+
+    private static List<List<Object>> filas(String prefijo) {
+        List<List<Object>> filas = new ArrayList<>();
+        for (FakeDriver.Ejecucion ejecucion : FakeDriver.ejecuciones()) {
+            if (ejecucion.empiezaCon(prefijo)) {
+                filas.addAll(ejecucion.getParametros());
+            }
+        }
+        return filas;
+    }
+
+    // En los INSERT el id va al final
+    private static List<Object> ultimos(List<List<Object>> filas) {
+        List<Object> valores = new ArrayList<>();
+        for (List<Object> fila : filas) {
+            valores.add(fila.get(fila.size() - 1));
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,541 @@
+package ar.edu.up.bugtracker.service;
+
+import ar.edu.up.bugtracker.dao.ComentarioDao;
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.dao.IncidenciaVersionDao;
+import ar.edu.up.bugtracker.dao.OutboxDao;
+import ar.edu.up.bugtracker.dao.ProyectoDao;
+import ar.edu.up.bugtracker.dao.ProyectoMetricasDao;
+import ar.edu.up.bugtracker.dao.UserDao;
+import ar.edu.up.bugtracker.exceptions.ConflictException;
+import ar.edu.up.bugtracker.exceptions.NotFoundException;
+import ar.edu.up.bugtracker.exceptions.ValidationException;
+import ar.edu.up.bugtracker.models.Incidencia;
+import ar.edu.up.bugtracker.models.Proyecto;
+import ar.edu.up.bugtracker.models.detalle.CambioCampo;
+import ar.edu.up.bugtracker.models.detalle.DetalleCambioEstado;
+import ar.edu.up.bugtracker.models.detalle.DetalleCreacion;
+import ar.edu.up.bugtracker.models.detalle.DetalleEdicion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersion;
+import ar.edu.up.bugtracker.models.detalle.DetalleVersionConverter;
+import ar.edu.up.bugtracker.persistence.BaseDePrueba;
+import ar.edu.up.bugtracker.persistence.FakeDriver;
+import ar.edu.up.bugtracker.persistence.TransactionMetrics;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.search.SearchIndex;
+import ar.edu.up.bugtracker.service.dto.UserLoggedInDto;
+import ar.edu.up.bugtracker.service.eventos.BusEventos;
+import ar.edu.up.bugtracker.service.eventos.Outbox;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncidenciaServiceTest {
+
+    private static final Long NUEVA = 1L;
+    private static final Long EN_PROCESO = 2L;
+    private static final Map<Object, String> ESTADOS = Map.of(NUEVA, "NUEVA", EN_PROCESO, "EN_PROCESO");
+
+    @TempDir
+    Path dir;
+
+    private EntityManagerFactory emf;
+    private SearchIndex searchIndex;
+    private IncidenciaService service;
+    private final List<TransactionMetrics> metricas = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FakeDriver.reiniciar();
+        responderCatalogos();
+        emf = BaseDePrueba.abrir();
+        UnitOfWork uow = new UnitOfWork(emf, metricas::add);
+        searchIndex = SearchIndex.open(dir.resolve("search"));
+        IncidenciaDao incidenciaDao = new IncidenciaDao(uow);
+        service = new IncidenciaService(incidenciaDao, new IncidenciaVersionDao(uow), new UserDao(uow),
+                new ProyectoDao(uow), new ComentarioDao(uow), new ProyectoMetricasDao(uow), searchIndex,
+                new Outbox(new OutboxDao(uow), new BusEventos(), uow), uow);
+    }
+
+    private static void responderCatalogos() {
+        FakeDriver.responderSegun("from incidencia_estado ie1_0 where ie1_0.id=?",
+                parametros -> List.<Object[]>of(new Object[] {parametros.get(0), ESTADOS.get(parametros.get(0))}));
+        // id_generador entrega bloques de 50 ids: sólo el primer alta de cada bloque lo consulta
+        FakeDriver.responder("from id_generador", 1000L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchIndex.close();
+        emf.close();
+    }
+
+    @Test
+    void createSinResponsableNoLeeNadaYAgrupaLasEscrituras() {
+        // Calienta la caché del catálogo de estados y el bloque de ids de la tabla
+        service.create(nueva(), usuario());
+        metricas.clear();
+        int antes = FakeDriver.sentencias().size();
+
+        service.create(nueva(), usuario());
+
+        assertEquals(1, metricas.size());
+        TransactionMetrics tx = metricas.get(0);
+        assertTrue(tx.isCommitted());
+        // Sueltas: upsert de proyecto_metricas y el INSERT de outbox_evento (id IDENTITY)
+        assertEquals(2, tx.getStatements(), tx.toString());
+        // En batch: INSERT incidencia, INSERT incidencia_version y el UPDATE de current_version_id
+        assertEquals(3, tx.getBatches(), tx.toString());
+        List<String> sentencias = FakeDriver.sentencias().subList(antes, FakeDriver.sentencias().size());
+        assertTrue(sentencias.stream().noneMatch(sql -> sql.trim().toLowerCase().startsWith("select")),
+                () -> "El alta no debería leer: " + sentencias);
+    }
+
+    @Test
+    void createSeReintentaTrasUnDeadlock() {
+        service.create(nueva(), usuario());
+        metricas.clear();
+        // MySQL rechaza el primer INSERT de la incidencia con un deadlock (1213) y revierte el intento
+        FakeDriver.fallarUnaVez("insert into incidencia (",
+                new SQLException("Deadlock found when trying to get lock", "40001", 1213));
+        Incidencia incidencia = nueva();
+
+        Long id = service.create(incidencia, usuario());
+
+        assertNotNull(id);
+        assertEquals(2, metricas.size());
+        assertFalse(metricas.get(0).isCommitted());
+        assertEquals(2, metricas.get(1).getAttempt());
+        assertTrue(metricas.get(1).isCommitted());
+        // El pedido del llamador no queda con estado del intento revertido
+        assertNull(incidencia.getId());
+        assertNull(incidencia.getVersion());
+        assertNull(incidencia.getCurrentVersion());
+    }
+
+    @Test
+    void cambiarEstadoInsertaLaVersionAntesDeApuntarlaDesdeLaIncidencia() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 20L, 4L)));
+
+        service.cambiarEstado(10L, EN_PROCESO, null, usuario());
+
+        List<FakeDriver.Ejecucion> ejecuciones = FakeDriver.ejecuciones();
+        int insercion = indice(ejecuciones, "insert into incidencia_version");
+        int cambio = indice(ejecuciones, "update incidencia ");
+        // fk_incidencia_current_version: la versión tiene que existir antes del UPDATE que la referencia
+        assertTrue(insercion < cambio, () -> "Orden de sentencias: " + ejecuciones);
+        List<Object> version = ejecuciones.get(insercion).getParametros().get(0);
+        List<Object> update = ejecuciones.get(cambio).getParametros().get(0);
+        Object versionId = version.get(version.size() - 1);
+        // SET estado_id, estado_cambiado_en, current_version_id ... WHERE id, current_version_id, version
+        assertEquals(versionId, update.get(2));
+        assertEquals(List.of(10L, 20L, 4L), update.subList(3, 6));
+    }
+
+    @Test
+    void cambiarEstadoDeIncidenciaSinVersionActualExigeQueSigaSinVersion() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, null, 4L)));
+
+        service.cambiarEstado(10L, EN_PROCESO, null, usuario());
+
+        FakeDriver.Ejecucion update = FakeDriver.ejecuciones().get(indice(FakeDriver.ejecuciones(), "update incidencia "));
+        assertTrue(update.getSql().contains("current_version_id is null"), update::getSql);
+        assertEquals(List.of(10L, 4L), update.getParametros().get(0).subList(3, 5));
+    }
+
+    @Test
+    void cambiarEstadoLeeUnaVezEInsertaYActualizaUnaSolaFila() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 20L, 4L)));
+        // Calienta la caché del catálogo y el bloque de ids de incidencia_version
+        service.cambiarEstado(10L, EN_PROCESO, null, usuario());
+        metricas.clear();
+        FakeDriver.limpiarEjecuciones();
+
+        service.cambiarEstado(10L, EN_PROCESO, null, usuario());
+
+        assertEquals(1, metricas.size());
+        TransactionMetrics tx = metricas.get(0);
+        // SELECT de la incidencia, UPDATE condicional, dos ajustes de métricas y el INSERT de outbox
+        assertEquals(5, tx.getStatements(), tx.toString());
+        // El INSERT de la versión, que sale con el flush previo al UPDATE
+        assertEquals(1, tx.getBatches(), tx.toString());
+        assertEquals(List.of("select", "insert into incidencia_version", "update incidencia ",
+                        "insert into proyecto_metricas", "insert into proyecto_metricas", "insert into outbox_evento"),
+                prefijos(FakeDriver.ejecuciones(), "select", "insert into incidencia_version", "update incidencia ",
+                        "insert into proyecto_metricas", "insert into outbox_evento"));
+    }
+
+    @Test
+    void cambiarEstadoMasivoInsertaLasVersionesAntesDeActualizarEnDosBatches() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(
+                filaIncidencia(10L, 20L, 4L), filaIncidencia(11L, 21L, 1L), filaIncidencia(12L, 22L, 7L)));
+        service.cambiarEstado(List.of(10L), EN_PROCESO, usuario());
+        metricas.clear();
+        FakeDriver.limpiarEjecuciones();
+
+        int movidas = service.cambiarEstado(List.of(10L, 11L, 12L, 11L), EN_PROCESO, usuario());
+
+        assertEquals(3, movidas);
+        TransactionMetrics tx = metricas.get(0);
+        // SELECT de las incidencias, un ajuste de métricas por estado y un evento por proyecto
+        assertEquals(4, tx.getStatements(), tx.toString());
+        assertEquals(2, tx.getBatches(), tx.toString());
+        List<FakeDriver.Ejecucion> ejecuciones = FakeDriver.ejecuciones();
+        int versiones = indice(ejecuciones, "insert into incidencia_version");
+        int incidencias = indice(ejecuciones, "update incidencia ");
+        // fk_incidencia_current_version: todas las versiones antes de los UPDATE que las referencian
+        assertTrue(versiones < incidencias, () -> "Orden de sentencias: " + ejecuciones);
+        assertEquals(3, ejecuciones.get(versiones).getParametros().size());
+        assertEquals(3, ejecuciones.get(incidencias).getParametros().size());
+        // Cada UPDATE exige la versión optimista leída (último parámetro)
+        List<Object> leidas = new ArrayList<>();
+        for (List<Object> fila : ejecuciones.get(incidencias).getParametros()) {
+            leidas.add(fila.get(fila.size() - 1));
+        }
+        assertEquals(List.of(4L, 1L, 7L), leidas);
+    }
+
+    @Test
+    void cambiarEstadoMasivoSalteaLasQueYaEstanEnEseEstado() {
+        Map<String, Object> yaMovida = filaIncidencia(11L, 21L, 1L);
+        yaMovida.put("incidencia.estado_id", EN_PROCESO);
+        yaMovida.put("incidencia_estado.id", EN_PROCESO);
+        yaMovida.put("incidencia_estado.nombre", "EN_PROCESO");
+        yaMovida.put("incidencia_version.estado_id", EN_PROCESO);
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 20L, 4L), yaMovida));
+
+        int movidas = service.cambiarEstado(List.of(10L, 11L), EN_PROCESO, usuario());
+
+        assertEquals(1, movidas);
+        List<FakeDriver.Ejecucion> ejecuciones = FakeDriver.ejecuciones();
+        assertEquals(1, ejecuciones.get(indice(ejecuciones, "insert into incidencia_version")).getParametros().size());
+        assertEquals(List.of(10L), idsActualizados(ejecuciones));
+    }
+
+    @Test
+    void cambiarEstadoMasivoRechazaMasDelMaximoSinTocarLaBase() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= IncidenciaService.MAX_CAMBIO_ESTADO_MASIVO + 1; id++) {
+            ids.add(id);
+        }
+
+        assertThrows(ValidationException.class, () -> service.cambiarEstado(ids, EN_PROCESO, usuario()));
+        assertTrue(FakeDriver.sentencias().isEmpty(), () -> "No debería ejecutar nada: " + FakeDriver.sentencias());
+        // Los repetidos cuentan una vez: el máximo exacto pasa la validación
+        List<Long> conRepetidos = new ArrayList<>(ids.subList(0, IncidenciaService.MAX_CAMBIO_ESTADO_MASIVO));
+        conRepetidos.add(1L);
+        assertThrows(NotFoundException.class, () -> service.cambiarEstado(conRepetidos, EN_PROCESO, usuario()));
+    }
+
+    @Test
+    void cambiarEstadoMasivoReintentaElLoteSiUnaIncidenciaCambioEnElMedio() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(
+                filaIncidencia(10L, 20L, 4L), filaIncidencia(11L, 21L, 1L)));
+        // La primera fila del batch de UPDATE no encuentra la versión leída: otra transacción la cambió
+        FakeDriver.afectar("update incidencia set", 0, 1);
+
+        int movidas = service.cambiarEstado(List.of(10L, 11L), EN_PROCESO, usuario());
+
+        assertEquals(2, movidas);
+        assertEquals(2, metricas.size());
+        assertFalse(metricas.get(0).isCommitted());
+        assertTrue(metricas.get(1).isCommitted());
+        // El lote completo se rehace: ninguna incidencia queda movida a medias
+        assertEquals(List.of(10L, 11L, 10L, 11L), idsActualizados(FakeDriver.ejecuciones()));
+    }
+
+    @Test
+    void cambiarEstadoMasivoConConflictosPersistentesTerminaEnConflictException() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(
+                filaIncidencia(10L, 20L, 4L), filaIncidencia(11L, 21L, 1L)));
+        FakeDriver.afectar("update incidencia set", 0, ReintentoOptimista.MAX_INTENTOS);
+
+        assertThrows(ConflictException.class, () -> service.cambiarEstado(List.of(10L, 11L), EN_PROCESO, usuario()));
+        assertEquals(ReintentoOptimista.MAX_INTENTOS, metricas.size());
+        assertTrue(metricas.stream().noneMatch(TransactionMetrics::isCommitted));
+    }
+
+    @Test
+    void cambiarEstadoReintentaSiOtraTransaccionCambioLaIncidenciaEnElMedio() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 20L, 4L)));
+        // El UPDATE condicional no encuentra la versión leída: otra transacción confirmó en el medio
+        FakeDriver.afectar("update incidencia i1_0", 0, 1);
+
+        service.cambiarEstado(10L, EN_PROCESO, null, usuario());
+
+        assertEquals(2, metricas.size());
+        assertFalse(metricas.get(0).isCommitted());
+        assertTrue(metricas.get(1).isCommitted());
+        List<FakeDriver.Ejecucion> ejecuciones = FakeDriver.ejecuciones();
+        assertEquals(2, cantidad(ejecuciones, "update incidencia i1_0"));
+        // El intento revertido no llega a registrar el evento
+        assertEquals(1, cantidad(ejecuciones, "insert into outbox_evento"));
+    }
+
+    @Test
+    void cambiarEstadoConConflictosPersistentesTerminaEnConflictException() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 20L, 4L)));
+        FakeDriver.afectar("update incidencia i1_0", 0, ReintentoOptimista.MAX_INTENTOS);
+
+        assertThrows(ConflictException.class, () -> service.cambiarEstado(10L, EN_PROCESO, null, usuario()));
+        assertEquals(ReintentoOptimista.MAX_INTENTOS, metricas.size());
+        assertTrue(metricas.stream().noneMatch(TransactionMetrics::isCommitted));
+        assertEquals(0, cantidad(FakeDriver.ejecuciones(), "insert into outbox_evento"));
+    }
+
+    @Test
+    void cambiarEstadoRechazaSiOtroUsuarioCambioElEstadoDesdeLaVersionVista() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 21L, 5L)));
+        responderCambiosDesde(20L, new DetalleCambioEstado("EN_PROCESO", "NUEVA"));
+
+        ConflictException ex = assertThrows(ConflictException.class,
+                () -> service.cambiarEstado(10L, EN_PROCESO, 20L, usuario()));
+
+        assertTrue(ex.getMessage().contains("NUEVA"), ex::getMessage);
+        // Es una decisión del usuario: no se reintenta ni se escribe nada
+        assertEquals(1, metricas.size());
+        assertEquals(0, cantidad(FakeDriver.ejecuciones(), "insert into incidencia_version"));
+        assertEquals(0, cantidad(FakeDriver.ejecuciones(), "update incidencia "));
+    }
+
+    @Test
+    void cambiarEstadoSeAplicaSiDesdeLaVersionVistaSoloSeEditaronOtrosCampos() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 21L, 5L)));
+        responderCambiosDesde(20L, new DetalleEdicion(List.of(
+                new CambioCampo(CambioCampo.DESCRIPCION, "Incidencia 10", "Otra descripción"))));
+
+        service.cambiarEstado(10L, EN_PROCESO, 20L, usuario());
+
+        FakeDriver.Ejecucion update = FakeDriver.ejecuciones().get(indice(FakeDriver.ejecuciones(), "update incidencia "));
+        assertEquals(List.of(10L, 21L, 5L), update.getParametros().get(0).subList(3, 6));
+    }
+
+    @Test
+    void updateRechazaSiOtroUsuarioEditoElMismoCampoDesdeQueLaCargo() {
+        Incidencia vista = cargada(10L, 20L, 4L);
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 21L, 5L)));
+        responderCambiosDesde(20L, new DetalleEdicion(List.of(
+                new CambioCampo(CambioCampo.DESCRIPCION, "Incidencia 10", "Otra descripción"))));
+        vista.setDescripcion("Mi descripción");
+
+        assertThrows(ConflictException.class, () -> service.update(10L, vista, usuario()));
+        assertEquals(1, metricas.size());
+        assertEquals(0, cantidad(FakeDriver.ejecuciones(), "update incidencia set"));
+    }
+
+    @Test
+    void updateSeAplicaSobreLoActualSiOtroUsuarioEditoOtroCampo() {
+        Incidencia vista = cargada(10L, 20L, 4L);
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 21L, 5L)));
+        responderCambiosDesde(20L, new DetalleEdicion(List.of(
+                new CambioCampo(CambioCampo.ESTIMACION_HORAS, "1", "2"))));
+        vista.setDescripcion("Mi descripción");
+        vista.setEstimacionHoras(null);
+
+        service.update(10L, vista, usuario());
+
+        // El UPDATE exige la versión optimista actual (5), no la que tenía el usuario a la vista
+        List<Object> update = parametrosDe(FakeDriver.ejecuciones(), "update incidencia set");
+        assertEquals(List.of(10L, 5L), update.subList(update.size() - 2, update.size()));
+        assertEquals(1, cantidad(FakeDriver.ejecuciones(), "insert into incidencia_version"));
+    }
+
+    @Test
+    void updateReintentaSiLaVersionOptimistaCambioAntesDelFlush() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 20L, 4L)));
+        FakeDriver.afectar("update incidencia set", 0, 1);
+        Incidencia pedido = new Incidencia();
+        pedido.setDescripcion("Mi descripción");
+
+        service.update(10L, pedido, usuario());
+
+        assertEquals(2, metricas.size());
+        assertFalse(metricas.get(0).isCommitted());
+        assertTrue(metricas.get(1).isCommitted());
+        assertEquals(2, cantidad(FakeDriver.ejecuciones(), "update incidencia set"));
+    }
+
+    @Test
+    void updateConConflictosPersistentesTerminaEnConflictException() {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(10L, 20L, 4L)));
+        FakeDriver.afectar("update incidencia set", 0, ReintentoOptimista.MAX_INTENTOS);
+        Incidencia pedido = new Incidencia();
+        pedido.setDescripcion("Mi descripción");
+
+        assertThrows(ConflictException.class, () -> service.update(10L, pedido, usuario()));
+        assertEquals(ReintentoOptimista.MAX_INTENTOS, metricas.size());
+        assertTrue(metricas.stream().noneMatch(TransactionMetrics::isCommitted));
+    }
+
+    @Test
+    void updateDelMismoUsuarioDentroDeLaVentanaSeSumaALaVersionActual() {
+        Map<String, Object> fila = filaIncidencia(10L, 20L, 4L);
+        fila.put("incidencia_version.detalles", DetalleVersionConverter.toJson(new DetalleEdicion(List.of(
+                new CambioCampo(CambioCampo.DESCRIPCION, "Original", "Incidencia 10")))));
+        fila.put("incidencia_version.created_at", LocalDateTime.now().minusSeconds(30));
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(fila));
+        Incidencia pedido = new Incidencia();
+        pedido.setDescripcion("Final");
+
+        service.update(10L, pedido, usuario());
+
+        List<FakeDriver.Ejecucion> ejecuciones = FakeDriver.ejecuciones();
+        assertEquals(0, cantidad(ejecuciones, "insert into incidencia_version"));
+        String detalles = parametrosDe(ejecuciones, "update incidencia_version").stream()
+                .filter(String.class::isInstance).map(String.class::cast)
+                .filter(json -> json.contains(CambioCampo.DESCRIPCION)).findFirst().orElseThrow();
+        // Conserva el valor anterior original y queda con el último
+        DetalleEdicion combinada = (DetalleEdicion) DetalleVersionConverter.fromJson(detalles);
+        assertEquals(1, combinada.getCambios().size());
+        assertEquals("Original", combinada.getCambios().get(0).getAnterior());
+        assertEquals("Final", combinada.getCambios().get(0).getNuevo());
+    }
+
+    @Test
+    void updateDeOtroUsuarioAgregaUnaVersionNueva() {
+        Map<String, Object> fila = filaIncidencia(10L, 20L, 4L);
+        fila.put("incidencia_version.detalles", DetalleVersionConverter.toJson(new DetalleEdicion(List.of(
+                new CambioCampo(CambioCampo.DESCRIPCION, "Original", "Incidencia 10")))));
+        fila.put("incidencia_version.created_at", LocalDateTime.now().minusSeconds(30));
+        fila.put("incidencia_version.created_by", 4L);
+        // El autor de la versión es otro join a usuario que el del responsable
+        fila.put("cb1_0.id", 4L);
+        fila.put("cb1_0.email", "beto@example.com");
+        fila.put("cb1_0.perfil_id", 1L);
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(fila));
+        Incidencia pedido = new Incidencia();
+        pedido.setDescripcion("Final");
+
+        service.update(10L, pedido, usuario());
+
+        assertEquals(1, cantidad(FakeDriver.ejecuciones(), "insert into incidencia_version"));
+        assertEquals(0, cantidad(FakeDriver.ejecuciones(), "update incidencia_version"));
+    }
+
+    /** La incidencia tal como la cargó el usuario antes de editarla. */
+    private Incidencia cargada(Long id, Long versionActualId, Long version) {
+        FakeDriver.responderColumnas("from incidencia i1_0", List.of(filaIncidencia(id, versionActualId, version)));
+        Incidencia incidencia = service.getById(id);
+        // Las respuestas siguientes describen lo que encuentra la edición
+        FakeDriver.reiniciar();
+        responderCatalogos();
+        metricas.clear();
+        return incidencia;
+    }
+
+    /** Historial desde la versión vista: esa misma (del usuario 3) y una posterior del usuario 4. */
+    private static void responderCambiosDesde(Long versionVistaId, DetalleVersion posterior) {
+        FakeDriver.responderFilas("from incidencia_version iv1_0 where iv1_0.incidencia_id=?", List.of(
+                new Object[] {versionVistaId, 3L, DetalleVersionConverter.toJson(new DetalleCreacion("NUEVA"))},
+                new Object[] {versionVistaId + 1, 4L, DetalleVersionConverter.toJson(posterior)}));
+    }
+
+    private static int cantidad(List<FakeDriver.Ejecucion> ejecuciones, String prefijo) {
+        int cantidad = 0;
+        for (FakeDriver.Ejecucion ejecucion : ejecuciones) {
+            if (ejecucion.empiezaCon(prefijo)) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    private static List<Object> parametrosDe(List<FakeDriver.Ejecucion> ejecuciones, String prefijo) {
+        return ejecuciones.get(indice(ejecuciones, prefijo)).getParametros().get(0);
+    }
+
+    /** Ids de incidencia de los UPDATE por entidad (id y versión son los dos últimos parámetros). */
+    private static List<Long> idsActualizados(List<FakeDriver.Ejecucion> ejecuciones) {
+        List<Long> ids = new ArrayList<>();
+        for (FakeDriver.Ejecucion ejecucion : ejecuciones) {
+            if (ejecucion.empiezaCon("update incidencia set")) {
+                for (List<Object> fila : ejecucion.getParametros()) {
+                    ids.add((Long) fila.get(fila.size() - 2));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /** Las sentencias ejecutadas reducidas al primero de los prefijos que las describe. */
+    private static List<String> prefijos(List<FakeDriver.Ejecucion> ejecuciones, String... prefijos) {
+        List<String> resultado = new ArrayList<>();
+        for (FakeDriver.Ejecucion ejecucion : ejecuciones) {
+            for (String prefijo : prefijos) {
+                if (ejecucion.empiezaCon(prefijo)) {
+                    resultado.add(prefijo);
+                    break;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    private static int indice(List<FakeDriver.Ejecucion> ejecuciones, String prefijo) {
+        for (int i = 0; i < ejecuciones.size(); i++) {
+            if (ejecuciones.get(i).empiezaCon(prefijo)) {
+                return i;
+            }
+        }
+        throw new AssertionError("No se ejecutó " + prefijo + ": " + ejecuciones);
+    }
+
+    /** Incidencia en estado NUEVA del proyecto 7, con su versión actual (si la tiene) creada por el usuario 3. */
+    private static Map<String, Object> filaIncidencia(Long id, Long versionActualId, Long version) {
+        Map<String, Object> fila = new HashMap<>();
+        fila.put("incidencia.id", id);
+        fila.put("incidencia.descripcion", "Incidencia " + id);
+        fila.put("incidencia.estimacion_horas", new BigDecimal("2"));
+        fila.put("incidencia.version", version);
+        fila.put("incidencia.estado_id", NUEVA);
+        fila.put("incidencia_estado.id", NUEVA);
+        fila.put("incidencia_estado.nombre", "NUEVA");
+        fila.put("incidencia.proyecto_id", 7L);
+        fila.put("proyecto.id", 7L);
+        fila.put("proyecto.nombre", "Proyecto");
+        fila.put("proyecto.version", 0L);
+        fila.put("incidencia.responsable_id", 3L);
+        fila.put("usuario.id", 3L);
+        fila.put("usuario.email", "ana@example.com");
+        fila.put("usuario.perfil_id", 1L);
+        if (versionActualId != null) {
+            fila.put("incidencia.current_version_id", versionActualId);
+            fila.put("incidencia_version.id", versionActualId);
+            fila.put("incidencia_version.incidencia_id", id);
+            fila.put("incidencia_version.numero", 1);
+            fila.put("incidencia_version.estado_id", NUEVA);
+            fila.put("incidencia_version.created_by", 3L);
+        }
+        return fila;
+    }
+
+    private static Incidencia nueva() {
+        Proyecto proyecto = new Proyecto();
+        proyecto.setId(7L);
+        Incidencia incidencia = new Incidencia();
+        incidencia.setProyecto(proyecto);
+        incidencia.setDescripcion("No guarda el formulario");
+        incidencia.setEstimacionHoras(new BigDecimal("3"));
+        return incidencia;
+    }
+
+    private static UserLoggedInDto usuario() {
+        UserLoggedInDto usuario = new UserLoggedInDto();
+        usuario.setId(3L);
+        return usuario;
+    }
+}
@@ -0,0 +1,70 @@
+package ar.edu.up.bugtracker.service;
+
+import ar.edu.up.bugtracker.dao.IncidenciaDao;
+import ar.edu.up.bugtracker.dao.ProyectoMetricasDao;
+import ar.edu.up.bugtracker.persistence.BaseDePrueba;
+import ar.edu.up.bugtracker.persistence.FakeDriver;
+import ar.edu.up.bugtracker.persistence.UnitOfWork;
+import ar.edu.up.bugtracker.service.dto.ProyectoMetricasDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProyectoMetricasServiceTest {
+
+    private EntityManagerFactory emf;
+    private UnitOfWork uow;
+
+    @BeforeEach
+    void setUp() {
+        FakeDriver.reiniciar();
+        emf = BaseDePrueba.abrir();
+        uow = new UnitOfWork(emf, metricas -> { });
+    }
+
+    @AfterEach
+    void tearDown() {
+        emf.close();
+    }
+
+    @Test
+    void cuentaComoCompletadasLasDelEstadoTerminadaSeaCualSeaSuId() {
+        // Catálogo cargado en otro orden que el seed: TERMINADA no es el id 5
+        FakeDriver.responder("where ie1_0.nombre=?", 9L, "TERMINADA");
+        FakeDriver.responderFilas("from incidencia_estado e left join proyecto_metricas", List.of(
+                new Object[] {5L, "EN_REVISION", 4L, new BigDecimal("6")},
+                new Object[] {1L, "NUEVA", 3L, new BigDecimal("2.5")},
+                new Object[] {9L, "TERMINADA", 2L, new BigDecimal("4")}));
+        ProyectoMetricasService service = new ProyectoMetricasService(
+                new ProyectoMetricasDao(uow), new IncidenciaDao(uow), uow);
+
+        ProyectoMetricasDto metricas = service.getMetricas(7L);
+        service.getMetricas(7L);
+
+        assertEquals(9, metricas.getTotalIncidencias());
+        assertEquals(2, metricas.getCompletadas());
+        assertEquals(7, metricas.getPendientes());
+        assertEquals(0, new BigDecimal("12.5").compareTo(metricas.getHorasEstimadas()));
+        // El estado final se resolvió una sola vez, al armar el servicio
+        assertEquals(1, FakeDriver.sentencias().stream().filter(sql -> sql.contains("ie1_0.nombre=?")).count());
+    }
+
+    @Test
+    void sinEstadoTerminadaEnElCatalogoTodasQuedanPendientes() {
+        FakeDriver.responderFilas("from incidencia_estado e left join proyecto_metricas", List.<Object[]>of(
+                new Object[] {1L, "NUEVA", 3L, new BigDecimal("2.5")}));
+        ProyectoMetricasService service = new ProyectoMetricasService(
+                new ProyectoMetricasDao(uow), new IncidenciaDao(uow), uow);
+
+        ProyectoMetricasDto metricas = service.getMetricas(7L);
+
+        assertEquals(0, metricas.getCompletadas());
+        assertEquals(3, metricas.getPendientes());
+    }
+}